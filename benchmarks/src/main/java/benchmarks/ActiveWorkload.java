@@ -0,0 +1,49 @@
+package benchmarks;
+
+import logic.ThreadManager;
+import logic.Workload;
+import logic.WorkloadProfile;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * A synthetic workload running for the whole trial, so the monitor is measured against busy,
+ * contended or churning threads rather than parked ones. The rate is per second across the
+ * workload's threads, threads started per second for CHURN; 0 runs flat out.
+ */
+@State(Scope.Benchmark)
+public class ActiveWorkload {
+    @Param({"CPU_SPIN", "CONTENDED_MONITOR", "CONTENDED_LOCK", "ALLOCATION", "PING_PONG", "FILE_IO", "CHURN"})
+    public WorkloadProfile profile;
+
+    @Param({"64"})
+    public int count;
+
+    @Param({"1000"})
+    public double rate;
+
+    public Workload workload;
+    private ThreadManager owner;
+
+    /**
+     * @modifies this
+     * @effects starts the workload and lets it reach a steady state
+     */
+    @Setup(Level.Trial)
+    public void start() throws IOException, InterruptedException {
+        owner = new ThreadManager();
+        workload = owner.startWorkload(profile, count, rate);
+        Thread.sleep(200);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        owner.stopWorkload(workload);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import logic.CreationSiteTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What tracking creation sites adds to starting a thread: a start and join of a thread that
+ * does nothing, with and without the tracker recording its start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreationSiteBenchmark {
+    @Param({"false", "true"})
+    public boolean tracking;
+
+    private CreationSiteTracker tracker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (tracking) tracker = new CreationSiteTracker(CreationSiteTracker.DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (tracker != null) tracker.close();
+    }
+
+    @Benchmark
+    public Thread startAndJoin() throws InterruptedException {
+        Thread thread = new Thread(() -> { });
+        thread.start();
+        thread.join();
+        return thread;
+    }
+}
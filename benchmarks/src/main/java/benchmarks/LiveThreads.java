@@ -0,0 +1,74 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A population of parked threads in their own thread-group, started once per trial so every
+ * benchmark is measured against the same number of live threads.
+ * 50k threads need a process limit (ulimit -u) well above that.
+ */
+@State(Scope.Benchmark)
+public class LiveThreads {
+    /** Small stacks so 50k threads fit in the address space of an ordinary machine. */
+    private static final long STACK_SIZE = 64 * 1024;
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int threads;
+
+    public ThreadGroup group;
+    public Thread[] started;
+    private CountDownLatch release;
+
+    /**
+     * @modifies this
+     * @effects starts this.threads daemon threads in a fresh group and waits until they are all running
+     */
+    @Setup(Level.Trial)
+    public void start() throws InterruptedException {
+        group = new ThreadGroup("benchmark");
+        release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(threads);
+        started = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(group, () -> {
+                running.countDown();
+                awaitRelease();
+            }, "benchmark-" + i, STACK_SIZE);
+            thread.setDaemon(true);
+            thread.start();
+            started[i] = thread;
+        }
+        running.await();
+    }
+
+    /**
+     * @effects releases and joins every started thread
+     */
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        release.countDown();
+        for (Thread thread : started) thread.join();
+        started = null;
+    }
+
+    /**
+     * Interrupts from killThread are swallowed so the population stays the same size.
+     */
+    private void awaitRelease() {
+        while (true) {
+            try {
+                release.await();
+                return;
+            } catch (InterruptedException e) {
+                // keep waiting
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import logic.ContentionReport;
+import logic.SnapshotDiff;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What one monitor tick costs while the jvm runs each synthetic workload: the capture and
+ * diff every tick pays, and the contention analysis an in-process source adds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MonitorOverheadBenchmark {
+    private ThreadManager threadManager;
+    private ThreadSnapshot previous;
+
+    @Setup(Level.Trial)
+    public void setUp(ActiveWorkload workload) {
+        threadManager = new ThreadManager();
+        previous = threadManager.refresh();
+    }
+
+    @Benchmark
+    public SnapshotDiff captureAndDiff(ActiveWorkload workload) {
+        ThreadSnapshot current = threadManager.refresh();
+        SnapshotDiff diff = SnapshotDiff.between(previous, current);
+        previous = current;
+        return diff;
+    }
+
+    @Benchmark
+    public ContentionReport analyzeContention(ActiveWorkload workload) {
+        return threadManager.analyzeContention();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import logic.InProcessSnapshotSource;
+import logic.SnapshotStreamer;
+import logic.ThreadManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One headless tick: capture, encode and write. Output is discarded, so this is
+ * what a tick costs the jvm before the pipe or disk does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotStreamerBenchmark {
+    @Param({"NDJSON", "BINARY"})
+    public SnapshotStreamer.Format format;
+
+    @Param({"false", "true"})
+    public boolean deltas;
+
+    private SnapshotStreamer streamer;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) {
+        streamer = new SnapshotStreamer(new InProcessSnapshotSource(new ThreadManager(), false),
+                format, deltas, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void writeTick() throws IOException {
+        streamer.writeTick();
+    }
+}
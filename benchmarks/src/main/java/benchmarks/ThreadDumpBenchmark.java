@@ -0,0 +1,66 @@
+package benchmarks;
+
+import logic.ThreadDump;
+import logic.ThreadDumpWriter;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exporting a thread dump of the live threads, plain and gzip compressed as ThreadManager
+ * writes .gz files, and capturing the live dump a written one is compared with.
+ * Run with -p threads=20000 for the export target of well under a second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadDumpBenchmark {
+    private ThreadSnapshot snapshot;
+    private ThreadDumpWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) {
+        snapshot = new ThreadManager().refresh();
+        writer = new ThreadDumpWriter();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        return writer.write(snapshot, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public int writeGzip() throws IOException {
+        try (OutputStream out = new GZIPOutputStream(OutputStream.nullOutputStream(), 1 << 16) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            return writer.write(snapshot, out);
+        }
+    }
+
+    @Benchmark
+    public ThreadDump capture() {
+        return ThreadDump.capture(snapshot);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import logic.ThreadManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ThreadManager calls the UI makes on every refresh tick or user action.
+ * Queries answer from the current snapshot, so each invocation refreshes first
+ * to measure what a tick with that query really costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadManagerBenchmark {
+    private ThreadManager threadManager;
+    private String lastName;
+    private long targetId;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) {
+        threadManager = new ThreadManager();
+        lastName = live.started[live.threads - 1].getName();
+        targetId = live.started[live.threads / 2].getId();
+    }
+
+    @Benchmark
+    public Thread[] getAllThreads() {
+        return threadManager.getAllThreads();
+    }
+
+    @Benchmark
+    public ThreadGroup[] getAllThreadGroups() {
+        return threadManager.getAllThreadGroups();
+    }
+
+    @Benchmark
+    public Thread searchThread() {
+        threadManager.refresh();
+        return threadManager.searchThread(lastName);
+    }
+
+    @Benchmark
+    public ArrayList<Thread> filterByGroup(LiveThreads live) {
+        threadManager.refresh();
+        return threadManager.filterByGroup(live.group);
+    }
+
+    @Benchmark
+    public void killThread() {
+        threadManager.refresh();
+        threadManager.killThread(targetId);
+    }
+}
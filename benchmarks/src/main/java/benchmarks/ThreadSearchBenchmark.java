@@ -0,0 +1,61 @@
+package benchmarks;
+
+import logic.ThreadManager;
+import logic.ThreadQuery;
+import logic.ThreadSearchIndex;
+import logic.ThreadSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the table does per keystroke once typing pauses, and per tick while a search is active.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadSearchBenchmark {
+    private ThreadSearchIndex index;
+    private ThreadSnapshot snapshot;
+    private ThreadQuery substring;
+    private ThreadQuery structured;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) {
+        ThreadManager threadManager = new ThreadManager();
+        snapshot = threadManager.refresh();
+        index = new ThreadSearchIndex();
+        index.update(snapshot);
+        substring = ThreadQuery.parse("benchmark-" + (live.threads - 1));
+        structured = ThreadQuery.parse("name~^bench.*7$ state:waiting prio>=5");
+    }
+
+    @Benchmark
+    public long[] searchSubstring() {
+        return index.search(substring);
+    }
+
+    @Benchmark
+    public long[] searchStructured() {
+        return index.search(structured);
+    }
+
+    @Benchmark
+    public long[] updateAndSearch() {
+        index.update(snapshot);
+        return index.search(substring);
+    }
+}
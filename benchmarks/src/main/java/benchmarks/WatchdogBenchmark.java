@@ -0,0 +1,65 @@
+package benchmarks;
+
+import logic.SnapshotDiff;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import logic.Watchdog;
+import logic.WatchdogRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the watchdog adds to a tick: an ordinary tick where only a few threads changed,
+ * and the first tick, where every thread is new.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WatchdogBenchmark {
+    private Watchdog watchdog;
+    private SnapshotDiff tick;
+    private SnapshotDiff first;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        ThreadSnapshot previous = threadManager.refresh();
+        Thread.sleep(100);
+        ThreadSnapshot current = threadManager.refresh();
+        first = SnapshotDiff.between(null, current);
+        tick = SnapshotDiff.between(previous, current);
+        watchdog = new Watchdog(WatchdogRule.parseAll(Arrays.asList(
+                "cpu>90 for 10s -> log,notify",
+                "state:blocked for 5s -> log,stack,notify",
+                "state:runnable cpu>50 stuck:5 -> log,stack")),
+                true, new PrintStream(OutputStream.nullOutputStream()), alert -> { });
+        watchdog.update(first);
+    }
+
+    @Benchmark
+    public int updateTick() {
+        return watchdog.update(tick);
+    }
+
+    @Benchmark
+    public int updateEveryThread() {
+        return watchdog.update(first);
+    }
+}
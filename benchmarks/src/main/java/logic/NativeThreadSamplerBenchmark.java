@@ -0,0 +1,87 @@
+package logic;
+
+import benchmarks.LiveThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The /proc pass of ThreadManager.refresh on Linux: parsing the stat and status files of
+ * 10k tasks held in memory, which isolates the parsing from the file reads, and the full
+ * pass with reads over the live threads. Lives in package logic to reach the sampler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeThreadSamplerBenchmark {
+    private static final int TASKS = 10_000;
+
+    private NativeThreadSampler sampler;
+    private byte[][] stats;
+    private byte[][] statuses;
+    private long[] ids;
+    private long[] tids;
+    private double[] voluntary;
+    private double[] involuntary;
+    private int[] lastCpu;
+    private int[] nice;
+    private long[] cpuNanos;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) throws IOException {
+        if (!NativeThreadSampler.isSupported()) throw new IllegalStateException("needs Linux /proc");
+        sampler = new NativeThreadSampler();
+        byte[] stat = Files.readAllBytes(Paths.get("/proc/thread-self/stat"));
+        byte[] status = Files.readAllBytes(Paths.get("/proc/thread-self/status"));
+        stats = new byte[TASKS][];
+        statuses = new byte[TASKS][];
+        for (int i = 0; i < TASKS; i++) {
+            stats[i] = stat.clone();
+            statuses[i] = status.clone();
+        }
+        ThreadSnapshot snapshot = new ThreadManager().refresh();
+        ids = new long[snapshot.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = snapshot.getId(i);
+        tids = new long[ids.length];
+        voluntary = new double[ids.length];
+        involuntary = new double[ids.length];
+        lastCpu = new int[ids.length];
+        nice = new int[ids.length];
+        cpuNanos = new long[ids.length];
+        // the first sample takes the thread dump that maps ids to tids
+        sampler.sample(ids, System.nanoTime(), tids, voluntary, involuntary, lastCpu, nice, cpuNanos);
+    }
+
+    @Benchmark
+    public long parse10kTasks() {
+        long sum = 0;
+        for (int i = 0; i < TASKS; i++) {
+            sampler.parseStat(stats[i], stats[i].length);
+            sampler.parseStatus(statuses[i], statuses[i].length);
+            sum += sampler.utime + sampler.voluntary;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long[] sampleLiveThreads() {
+        sampler.sample(ids, System.nanoTime(), tids, voluntary, involuntary, lastCpu, nice, cpuNanos);
+        return tids;
+    }
+}
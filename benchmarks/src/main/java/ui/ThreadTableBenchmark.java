@@ -0,0 +1,86 @@
+package ui;
+
+import benchmarks.LiveThreads;
+import logic.SnapshotDiff;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import model.ThreadModel;
+import model.ThreadRows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ThreadModel construction path of ThreadTable.refreshTable: diffing a snapshot and
+ * turning every added thread into a table row, as the first tick after opening the window does,
+ * and updating the pooled rows in place, as every later tick does.
+ * Lives in package ui to reach ThreadTable.addRow; needs javafx-base only, no toolkit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadTableBenchmark {
+    private ThreadManager threadManager;
+    private ThreadSnapshot snapshot;
+    private ThreadRows pooled;
+
+    @Setup(Level.Trial)
+    public void setUp(LiveThreads live) {
+        threadManager = new ThreadManager();
+        snapshot = threadManager.refresh();
+        pooled = new ThreadRows();
+        for (int i = 0; i < snapshot.size(); i++) ThreadTable.addRow(pooled, snapshot, i);
+    }
+
+    @Benchmark
+    public List<ThreadModel> buildRows() {
+        SnapshotDiff diff = SnapshotDiff.between(null, snapshot);
+        ThreadRows index = new ThreadRows();
+        List<ThreadModel> rows = new ArrayList<>(diff.getAddedCount());
+        for (int k = 0; k < diff.getAddedCount(); k++) {
+            rows.add(ThreadTable.addRow(index, snapshot, diff.getAddedIndex(k)));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<ThreadModel> refreshAndBuildRows() {
+        ThreadSnapshot current = threadManager.refresh();
+        SnapshotDiff diff = SnapshotDiff.between(null, current);
+        ThreadRows index = new ThreadRows();
+        List<ThreadModel> rows = new ArrayList<>(diff.getAddedCount());
+        for (int k = 0; k < diff.getAddedCount(); k++) {
+            rows.add(ThreadTable.addRow(index, current, diff.getAddedIndex(k)));
+        }
+        return rows;
+    }
+
+    /**
+     * A steady-state tick for the rows: every row updated in place, none created.
+     */
+    @Benchmark
+    public ThreadRows updatePooledRows() {
+        for (int i = 0; i < snapshot.size(); i++) {
+            ThreadModel row = pooled.get(snapshot.getId(i));
+            row.update(snapshot.getName(i), snapshot.getGroupName(i), snapshot.isDaemon(i), snapshot.getPriority(i),
+                    snapshot.getState(i), snapshot.getCpuPercent(i), snapshot.getUserPercent(i),
+                    snapshot.getAllocationRate(i));
+        }
+        return pooled;
+    }
+}
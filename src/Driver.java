@@ -1,8 +1,116 @@
 import javafx.application.Application;
+import logic.InProcessSnapshotSource;
+import logic.JfrSnapshotSource;
+import logic.MetricsEndpoint;
+import logic.RemoteSnapshotSource;
+import logic.SnapshotSource;
+import logic.SnapshotStreamer;
+import logic.ThreadDump;
+import logic.ThreadDumpDiff;
+import logic.ThreadManager;
 import ui.ThreadDisplay;
 
+import javax.management.JMException;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Launches the UI, or with --headless streams snapshots to stdout or a file:
+ * --headless [--rate=hz] [--format=ndjson|binary] [--deltas] [--out=file] [--attach=pid | --jfr] [--ticks=n]
+ * registers the monitor's self metrics MBean like the UI does, and with --metrics-port=port serves
+ * Prometheus metrics of every tick at http://host:port/metrics;
+ * --dump=file writes this jvm's thread dump, gzip compressed if file ends in .gz;
+ * --diff=before[,after] prints how the dump after, or this jvm, differs from the dump before;
+ * --footprint prints the memory this jvm's threads cost per thread-group, committed and native
+ * memory only if it was started with -XX:NativeMemoryTracking=summary.
+ */
 public class Driver {
-    public static void main(String[] args) {
-        Application.launch(ThreadDisplay.class);
+    /** Threads named per group of identical stacks in a printed diff. */
+    private static final int DIFF_NAMES_PER_GROUP = 20;
+    /** Thread-groups printed by --footprint. */
+    private static final int FOOTPRINT_GROUPS = 50;
+
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            if (arg.equals("--headless")) {
+                stream(args);
+                return;
+            } else if (arg.startsWith("--dump=")) {
+                int threads = new ThreadManager().writeThreadDump(Paths.get(value(arg)));
+                System.err.println("Wrote " + threads + " threads to " + value(arg));
+                return;
+            } else if (arg.startsWith("--diff=")) {
+                diff(value(arg).split(",", 2));
+                return;
+            } else if (arg.equals("--footprint")) {
+                System.out.print(new ThreadManager().measureFootprint().format(FOOTPRINT_GROUPS));
+                return;
+            }
+        }
+        Application.launch(ThreadDisplay.class, args);
+    }
+
+    private static void stream(String[] args) throws IOException {
+        double rate = 1;
+        SnapshotStreamer.Format format = SnapshotStreamer.Format.NDJSON;
+        boolean deltas = false;
+        String file = null;
+        long pid = -1;
+        long ticks = 0;
+        boolean jfr = false;
+        int metricsPort = -1;
+        for (String arg : args) {
+            if (arg.startsWith("--rate=")) rate = Double.parseDouble(value(arg));
+            else if (arg.startsWith("--format=")) format = SnapshotStreamer.Format.valueOf(value(arg).toUpperCase(Locale.ROOT));
+            else if (arg.equals("--deltas")) deltas = true;
+            else if (arg.startsWith("--out=")) file = value(arg);
+            else if (arg.startsWith("--attach=")) pid = Long.parseLong(value(arg));
+            else if (arg.startsWith("--ticks=")) ticks = Long.parseLong(value(arg));
+            else if (arg.equals("--jfr")) jfr = true;
+            else if (arg.startsWith("--metrics-port=")) metricsPort = Integer.parseInt(value(arg));
+        }
+        // contention analysis and the native thread columns are only shown in the UI, so they are not paid for here
+        ThreadManager threadManager = new ThreadManager();
+        threadManager.setNativeThreadStats(false);
+        registerSelfMetrics(threadManager);
+        try (SnapshotSource source = pid >= 0 ? RemoteSnapshotSource.attach(pid)
+                : jfr ? new JfrSnapshotSource(threadManager)
+                : new InProcessSnapshotSource(threadManager, false);
+             OutputStream out = new BufferedOutputStream(file != null ? new FileOutputStream(file) : System.out, 1 << 16);
+             MetricsEndpoint metrics = metricsPort >= 0 ? MetricsEndpoint.start(metricsPort, threadManager) : null) {
+            SnapshotStreamer streamer = new SnapshotStreamer(source, format, deltas, out);
+            if (metrics != null) streamer.setOnTick(snapshot -> metrics.publish(snapshot, null, source.isLocal()));
+            streamer.run(rate, ticks);
+        }
+    }
+
+    /**
+     * @effects exposes the cost of threadManager's refreshes as an MBean, warning on stderr if it cannot
+     */
+    private static void registerSelfMetrics(ThreadManager threadManager) {
+        try {
+            threadManager.getSelfMetrics().register();
+        } catch (JMException e) {
+            System.err.println("Self metrics are not exposed: " + e.getMessage());
+        }
+    }
+
+    private static void diff(String[] files) throws IOException {
+        ThreadDump before = ThreadDump.read(Paths.get(files[0]));
+        ThreadDump after = files.length > 1 ? ThreadDump.read(Paths.get(files[1])) : new ThreadManager().captureThreadDump();
+        Writer out = new OutputStreamWriter(new BufferedOutputStream(System.out, 1 << 16), StandardCharsets.UTF_8);
+        ThreadDumpDiff.between(before, after).writeReport(out, DIFF_NAMES_PER_GROUP);
+        out.flush();
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
     }
-}
\ No newline at end of file
+}
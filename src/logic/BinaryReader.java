@@ -0,0 +1,62 @@
+package logic;
+
+import java.io.IOException;
+
+/**
+ * Reads what a BinaryWriter wrote, from one frame held in a byte array.
+ */
+final class BinaryReader {
+    private final byte[] buffer;
+    private int position;
+
+    BinaryReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean hasRemaining() {
+        return position < buffer.length;
+    }
+
+    int readByte() throws IOException {
+        if (position >= buffer.length) throw new IOException("Truncated snapshot frame");
+        return buffer[position++] & 0xFF;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in snapshot frame");
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) throw new IOException("Count out of range in snapshot frame");
+        return (int) value;
+    }
+
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() throws IOException {
+        int length = readVarInt();
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            int b = readByte();
+            if (b < 0x80) {
+                text[i] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                text[i] = (char) (((b & 0x1F) << 6) | (readByte() & 0x3F));
+            } else {
+                int second = readByte();
+                text[i] = (char) (((b & 0x0F) << 12) | ((second & 0x3F) << 6) | (readByte() & 0x3F));
+            }
+        }
+        return new String(text);
+    }
+}
@@ -0,0 +1,106 @@
+package logic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A bulk cancellation in progress: the threads that were interrupted together, tracked until
+ * each one terminates or the deadline passes. Progress can be read at any time; the report is
+ * delivered through getResult once tracking ends.
+ */
+public final class Cancellation {
+    /** Frames kept of each straggler's stack. */
+    private static final int STACK_DEPTH = 64;
+
+    private final Thread[] remaining;
+    private final int targetCount;
+    private final long startNanos;
+    private final long deadlineNanos;
+    private final CompletableFuture<CancellationReport> result;
+    private int remainingCount;
+    private volatile int terminated;
+
+    /**
+     * @requires targets contains no nulls
+     * @param targets the threads to interrupt; the array is taken over
+     */
+    Cancellation(Thread[] targets, long deadlineMillis) {
+        this.remaining = targets;
+        this.remainingCount = targets.length;
+        this.targetCount = targets.length;
+        this.startNanos = System.nanoTime();
+        this.deadlineNanos = startNanos + deadlineMillis * 1_000_000L;
+        this.result = new CompletableFuture<>();
+    }
+
+    /**
+     * @modifies the target threads
+     * @effects interrupts every target
+     */
+    void interruptAll() {
+        for (int i = 0; i < remainingCount; i++) remaining[i].interrupt();
+    }
+
+    /**
+     * Drops the targets that have terminated and completes the result if none are left
+     * or the deadline has passed. Only called from the canceller thread.
+     * @modifies this
+     * @return true if tracking is over
+     */
+    boolean poll() {
+        int alive = 0;
+        for (int i = 0; i < remainingCount; i++) {
+            if (remaining[i].isAlive()) remaining[alive++] = remaining[i];
+        }
+        for (int i = alive; i < remainingCount; i++) remaining[i] = null;
+        remainingCount = alive;
+        terminated = targetCount - alive;
+        long now = System.nanoTime();
+        if (alive > 0 && now - deadlineNanos < 0) return false;
+        result.complete(new CancellationReport(targetCount, (now - startNanos) / 1_000_000, stragglers()));
+        return true;
+    }
+
+    /**
+     * @return the stack of every remaining target, read in one bulk call; targets that
+     *         terminated since the last poll are left out
+     */
+    private List<ThreadInfo> stragglers() {
+        List<ThreadInfo> stragglers = new ArrayList<>(remainingCount);
+        if (remainingCount == 0) return stragglers;
+        long[] ids = new long[remainingCount];
+        for (int i = 0; i < remainingCount; i++) ids[i] = remaining[i].getId();
+        for (ThreadInfo info : ManagementFactory.getThreadMXBean().getThreadInfo(ids, STACK_DEPTH)) {
+            if (info != null) stragglers.add(info);
+        }
+        return stragglers;
+    }
+
+    /**
+     * @return the number of threads that were interrupted
+     */
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * @return the number of targets seen to have terminated so far
+     */
+    public int getTerminatedCount() {
+        return terminated;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * @return completes with the report once every target terminated or the deadline passed
+     */
+    public CompletableFuture<CancellationReport> getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package logic;
+
+import java.lang.management.ThreadInfo;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk cancellation: how many of the interrupted threads terminated before
+ * the deadline, and the current state and stack of every thread that did not.
+ */
+public final class CancellationReport {
+    private final int targetCount;
+    private final long elapsedMillis;
+    private final List<ThreadInfo> stragglers;
+
+    CancellationReport(int targetCount, long elapsedMillis, List<ThreadInfo> stragglers) {
+        this.targetCount = targetCount;
+        this.elapsedMillis = elapsedMillis;
+        this.stragglers = Collections.unmodifiableList(stragglers);
+    }
+
+    /**
+     * @return the number of threads that were interrupted
+     */
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public int getTerminatedCount() {
+        return targetCount - stragglers.size();
+    }
+
+    /**
+     * @return milliseconds from the interrupts until every target terminated or the deadline passed
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the targets still alive at the deadline, with their stacks
+     */
+    public List<ThreadInfo> getStragglers() {
+        return stragglers;
+    }
+
+    public boolean isComplete() {
+        return stragglers.isEmpty();
+    }
+}
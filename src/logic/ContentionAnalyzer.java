@@ -0,0 +1,229 @@
+package logic;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a ContentionReport each tick. A first bulk getThreadInfo call without stacks gives every
+ * thread's state, the lock it waits on and that lock's owner. Only the owners of contended locks
+ * are then re-read with their locked monitors and synchronizers, so the expensive part scales
+ * with the contention rather than with the thread count.
+ */
+final class ContentionAnalyzer {
+    /** Ticks a monitor stays ranked after its last waiter left. */
+    private static final int IDLE_TICKS_KEPT = 60;
+
+    private final ThreadMXBean threadBean;
+    private final boolean timesMeasured;
+    private final LongIndexMap previousIndex = new LongIndexMap(256);
+    private long[] previousBlockedCount = new long[0];
+    private long[] previousBlockedTime = new long[0];
+    private long[] previousWaitedCount = new long[0];
+    private long[] previousWaitedTime = new long[0];
+    private long previousNanos;
+    private final Map<String, MonitorTotals> monitorTotals = new HashMap<>();
+
+    private static final class MonitorTotals {
+        long blockedMillis;
+        int idleTicks;
+    }
+
+    ContentionAnalyzer() {
+        threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean.isThreadContentionMonitoringSupported() && !threadBean.isThreadContentionMonitoringEnabled()) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+        }
+        timesMeasured = threadBean.isThreadContentionMonitoringEnabled();
+    }
+
+    /**
+     * @modifies this
+     * @return the lock state of every live thread, with rates relative to the previous call
+     */
+    synchronized ContentionReport analyze() {
+        long nanos = System.nanoTime();
+        ThreadInfo[] infos = threadBean.getThreadInfo(threadBean.getAllThreadIds(), 0);
+        int count = 0;
+        for (ThreadInfo info : infos) {
+            if (info != null) infos[count++] = info;
+        }
+
+        long[] ids = new long[count];
+        LongIndexMap index = new LongIndexMap(count);
+        Thread.State[] states = new Thread.State[count];
+        long[] owners = new long[count];
+        long[] blockedCount = new long[count];
+        long[] blockedTime = new long[count];
+        long[] waitedCount = new long[count];
+        long[] waitedTime = new long[count];
+        double[] blockedRate = new double[count];
+        double[] blockedMillisRate = new double[count];
+        double[] waitedRate = new double[count];
+        double[] waitedMillisRate = new double[count];
+        long elapsed = nanos - previousNanos;
+        boolean hasPrevious = previousNanos != 0 && elapsed > 0;
+
+        Map<String, List<Integer>> waitersByLock = new HashMap<>();
+        long[] lockWaitDelta = new long[count];
+        for (int i = 0; i < count; i++) {
+            ThreadInfo info = infos[i];
+            ids[i] = info.getThreadId();
+            index.put(ids[i], i);
+            states[i] = info.getThreadState();
+            owners[i] = info.getLockOwnerId();
+            blockedCount[i] = info.getBlockedCount();
+            blockedTime[i] = timesMeasured ? info.getBlockedTime() : -1;
+            waitedCount[i] = info.getWaitedCount();
+            waitedTime[i] = timesMeasured ? info.getWaitedTime() : -1;
+
+            int before = hasPrevious ? previousIndex.get(ids[i]) : -1;
+            blockedRate[i] = rate(blockedCount[i], previousBlockedCount, before, elapsed);
+            blockedMillisRate[i] = rate(blockedTime[i], previousBlockedTime, before, elapsed);
+            waitedRate[i] = rate(waitedCount[i], previousWaitedCount, before, elapsed);
+            waitedMillisRate[i] = rate(waitedTime[i], previousWaitedTime, before, elapsed);
+
+            // a monitor waiter is BLOCKED; a waiter on an owned synchronizer (e.g. ReentrantLock) is parked
+            boolean monitorWait = states[i] == Thread.State.BLOCKED;
+            boolean synchronizerWait = !monitorWait && owners[i] >= 0;
+            if ((monitorWait || synchronizerWait) && info.getLockName() != null) {
+                waitersByLock.computeIfAbsent(info.getLockName(), k -> new ArrayList<>(2)).add(i);
+                long[] time = monitorWait ? blockedTime : waitedTime;
+                long[] previousTime = monitorWait ? previousBlockedTime : previousWaitedTime;
+                if (before >= 0 && time[i] >= 0 && previousTime[before] >= 0) {
+                    lockWaitDelta[i] = Math.max(0, time[i] - previousTime[before]);
+                }
+            }
+        }
+
+        long[] deadlockedIds = threadBean.findDeadlockedThreads();
+        if (deadlockedIds == null) deadlockedIds = new long[0];
+        // deadlocked edges never change, but the first pass may have read a thread just before it blocked
+        if (deadlockedIds.length > 0) {
+            for (ThreadInfo info : threadBean.getThreadInfo(deadlockedIds, 0)) {
+                int i = info == null ? -1 : index.get(info.getThreadId());
+                if (i >= 0) {
+                    states[i] = info.getThreadState();
+                    owners[i] = info.getLockOwnerId();
+                }
+            }
+        }
+        List<long[]> cycles = findCycles(deadlockedIds, index, owners);
+
+        List<MonitorContention> monitors = rankMonitors(waitersByLock, infos, index, ids, owners, lockWaitDelta);
+
+        previousIndex.clear();
+        for (int i = 0; i < count; i++) previousIndex.put(ids[i], i);
+        previousBlockedCount = blockedCount;
+        previousBlockedTime = blockedTime;
+        previousWaitedCount = waitedCount;
+        previousWaitedTime = waitedTime;
+        previousNanos = nanos;
+
+        return new ContentionReport(ids, index, states, owners, blockedRate, blockedMillisRate,
+                waitedRate, waitedMillisRate, monitors, cycles, deadlockedIds);
+    }
+
+    /**
+     * @return (current - previous) per second, 0 without a previous value, -1 if current is unmeasured
+     */
+    private static double rate(long current, long[] previous, int before, long elapsed) {
+        if (current < 0) return -1;
+        if (before < 0 || previous[before] < 0) return 0;
+        long delta = current - previous[before];
+        return delta <= 0 ? 0 : delta * 1e9 / elapsed;
+    }
+
+    /**
+     * @return the contended locks with their owners' held locks, ranked by accumulated blocked time
+     */
+    private List<MonitorContention> rankMonitors(Map<String, List<Integer>> waitersByLock, ThreadInfo[] infos,
+                                                 LongIndexMap index, long[] ids, long[] owners, long[] lockWaitDelta) {
+        // only the owners need their locked monitors and synchronizers
+        long[] ownerIds = new long[waitersByLock.size()];
+        int ownerCount = 0;
+        for (List<Integer> waiters : waitersByLock.values()) {
+            long owner = owners[waiters.get(0)];
+            if (owner >= 0) ownerIds[ownerCount++] = owner;
+        }
+        Map<Long, List<String>> heldByOwner = new HashMap<>();
+        if (ownerCount > 0) {
+            long[] query = new long[ownerCount];
+            System.arraycopy(ownerIds, 0, query, 0, ownerCount);
+            for (ThreadInfo owner : threadBean.getThreadInfo(query, true, true)) {
+                if (owner == null) continue;
+                List<String> held = new ArrayList<>();
+                for (MonitorInfo monitor : owner.getLockedMonitors()) held.add(lockName(monitor));
+                for (LockInfo synchronizer : owner.getLockedSynchronizers()) held.add(lockName(synchronizer));
+                heldByOwner.put(owner.getThreadId(), held);
+            }
+        }
+
+        for (MonitorTotals totals : monitorTotals.values()) totals.idleTicks++;
+        List<MonitorContention> monitors = new ArrayList<>(waitersByLock.size());
+        for (Map.Entry<String, List<Integer>> entry : waitersByLock.entrySet()) {
+            List<Integer> waiters = entry.getValue();
+            MonitorTotals totals = monitorTotals.computeIfAbsent(entry.getKey(), k -> new MonitorTotals());
+            totals.idleTicks = 0;
+            long[] waiterIds = new long[waiters.size()];
+            for (int k = 0; k < waiterIds.length; k++) {
+                int i = waiters.get(k);
+                waiterIds[k] = ids[i];
+                totals.blockedMillis += lockWaitDelta[i];
+            }
+            long owner = owners[waiters.get(0)];
+            int ownerIndex = owner >= 0 ? index.get(owner) : -1;
+            String ownerName = ownerIndex >= 0 ? infos[ownerIndex].getThreadName() : null;
+            List<String> held = heldByOwner.getOrDefault(owner, new ArrayList<>());
+            monitors.add(new MonitorContention(entry.getKey(), owner, ownerName, held, waiterIds, totals.blockedMillis));
+        }
+        for (Iterator<MonitorTotals> it = monitorTotals.values().iterator(); it.hasNext(); ) {
+            if (it.next().idleTicks > IDLE_TICKS_KEPT) it.remove();
+        }
+        monitors.sort((a, b) -> a.getBlockedMillis() != b.getBlockedMillis()
+                ? Long.compare(b.getBlockedMillis(), a.getBlockedMillis())
+                : Integer.compare(b.getWaiterCount(), a.getWaiterCount()));
+        return monitors;
+    }
+
+    private static String lockName(LockInfo lock) {
+        return lock.getClassName() + '@' + Integer.toHexString(lock.getIdentityHashCode());
+    }
+
+    /**
+     * Follows the waits-for edges from each deadlocked thread until a thread repeats.
+     * @return each distinct cycle once, in waits-for order
+     */
+    static List<long[]> findCycles(long[] deadlockedIds, LongIndexMap index, long[] owners) {
+        List<long[]> cycles = new ArrayList<>();
+        LongIndexMap inCycle = new LongIndexMap(deadlockedIds.length);
+        for (long start : deadlockedIds) {
+            if (inCycle.get(start) >= 0) continue;
+            LongIndexMap seen = new LongIndexMap(8);
+            List<Long> path = new ArrayList<>();
+            long id = start;
+            while (id >= 0 && seen.get(id) < 0) {
+                seen.put(id, path.size());
+                path.add(id);
+                int i = index.get(id);
+                id = i >= 0 ? owners[i] : -1;
+            }
+            if (id < 0 || inCycle.get(id) >= 0) continue;
+            int from = seen.get(id);
+            long[] cycle = new long[path.size() - from];
+            for (int k = 0; k < cycle.length; k++) {
+                cycle[k] = path.get(from + k);
+                inCycle.put(cycle[k], k);
+            }
+            cycles.add(cycle);
+        }
+        return cycles;
+    }
+}
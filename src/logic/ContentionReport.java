@@ -0,0 +1,139 @@
+package logic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The lock state of the jvm at one tick: per-thread blocked/waited rates, the lock each
+ * thread waits on and its owner (the waits-for graph), contended monitors ranked by
+ * blocked time, and any deadlock cycles.
+ */
+public final class ContentionReport {
+    private final long[] ids;
+    private final LongIndexMap index;
+    private final Thread.State[] states;
+    private final long[] lockOwners;
+    private final double[] blockedPerSecond;
+    private final double[] blockedMillisPerSecond;
+    private final double[] waitedPerSecond;
+    private final double[] waitedMillisPerSecond;
+    private final List<MonitorContention> monitors;
+    private final List<long[]> deadlockCycles;
+    private final long[] deadlockedIds;
+    private final LongIndexMap deadlocked;
+
+    ContentionReport(long[] ids, LongIndexMap index, Thread.State[] states, long[] lockOwners,
+                     double[] blockedPerSecond, double[] blockedMillisPerSecond,
+                     double[] waitedPerSecond, double[] waitedMillisPerSecond,
+                     List<MonitorContention> monitors, List<long[]> deadlockCycles, long[] deadlockedIds) {
+        this.ids = ids;
+        this.index = index;
+        this.states = states;
+        this.lockOwners = lockOwners;
+        this.blockedPerSecond = blockedPerSecond;
+        this.blockedMillisPerSecond = blockedMillisPerSecond;
+        this.waitedPerSecond = waitedPerSecond;
+        this.waitedMillisPerSecond = waitedMillisPerSecond;
+        this.monitors = Collections.unmodifiableList(monitors);
+        this.deadlockCycles = Collections.unmodifiableList(deadlockCycles);
+        this.deadlockedIds = deadlockedIds;
+        this.deadlocked = new LongIndexMap(deadlockedIds.length);
+        for (int i = 0; i < deadlockedIds.length; i++) deadlocked.put(deadlockedIds[i], i);
+    }
+
+    /**
+     * @return the number of threads in this report
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return the index of the thread with id, or -1 if it is not in this report
+     */
+    public int indexOf(long id) {
+        return index.get(id);
+    }
+
+    public Thread.State getState(int index) {
+        return states[index];
+    }
+
+    /**
+     * @return the id of the thread owning the lock this thread waits on, or -1 if none (an edge of the waits-for graph)
+     */
+    public long getLockOwnerId(int index) {
+        return lockOwners[index];
+    }
+
+    /**
+     * @return times per second the thread blocked to enter a monitor since the previous tick
+     */
+    public double getBlockedPerSecond(int index) {
+        return blockedPerSecond[index];
+    }
+
+    /**
+     * @return milliseconds per second the thread spent blocked since the previous tick, negative if not measured
+     */
+    public double getBlockedMillisPerSecond(int index) {
+        return blockedMillisPerSecond[index];
+    }
+
+    /**
+     * @return times per second the thread waited (wait, join, park) since the previous tick
+     */
+    public double getWaitedPerSecond(int index) {
+        return waitedPerSecond[index];
+    }
+
+    /**
+     * @return milliseconds per second the thread spent waiting since the previous tick, negative if not measured
+     */
+    public double getWaitedMillisPerSecond(int index) {
+        return waitedMillisPerSecond[index];
+    }
+
+    /**
+     * @return the contended locks, most accumulated blocked time first
+     */
+    public List<MonitorContention> getMonitors() {
+        return monitors;
+    }
+
+    /**
+     * @return each deadlock cycle as the ids of its threads, in waits-for order
+     */
+    public List<long[]> getDeadlockCycles() {
+        return deadlockCycles;
+    }
+
+    /**
+     * @return a copy of the ids of every deadlocked thread
+     */
+    public long[] getDeadlockedIds() {
+        return deadlockedIds.clone();
+    }
+
+    /**
+     * @return true if the thread is deadlocked, either in a cycle or waiting on one
+     */
+    public boolean isDeadlocked(long id) {
+        return deadlocked.get(id) >= 0;
+    }
+
+    public boolean hasDeadlock() {
+        return deadlocked.size() > 0;
+    }
+
+    /**
+     * @return true if any lock is contended or any thread is deadlocked
+     */
+    public boolean hasContention() {
+        return !monitors.isEmpty() || hasDeadlock();
+    }
+}
@@ -0,0 +1,135 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The live threads and thread-groups of a jvm by the call site that started them, from a
+ * CreationSiteTracker. A thread-group created after tracking started belongs to the site that
+ * started its first thread; groups that existed before belong to no site. An empty group is
+ * one that still exists with no live thread in it, the usual trace of a group created per task
+ * and never destroyed. Sites are ordered by live threads, most first.
+ */
+public final class CreationSiteReport {
+    private final String[] labels;
+    private final String[][] frames;
+    private final int[] live;
+    private final long[] started;
+    private final int[] groups;
+    private final int[] emptyGroups;
+    private final double[] growthPerMinute;
+    private final boolean[] growing;
+
+    /**
+     * @requires every array has the same length, indexed by site
+     */
+    CreationSiteReport(String[] labels, String[][] frames, int[] live, long[] started, int[] groups,
+                       int[] emptyGroups, double[] growthPerMinute, boolean[] growing) {
+        Integer[] order = new Integer[labels.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> -live[i]).thenComparingLong(i -> -started[i]));
+        int n = order.length;
+        this.labels = new String[n];
+        this.frames = new String[n][];
+        this.live = new int[n];
+        this.started = new long[n];
+        this.groups = new int[n];
+        this.emptyGroups = new int[n];
+        this.growthPerMinute = new double[n];
+        this.growing = new boolean[n];
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            this.labels[k] = labels[i];
+            this.frames[k] = frames[i];
+            this.live[k] = live[i];
+            this.started[k] = started[i];
+            this.groups[k] = groups[i];
+            this.emptyGroups[k] = emptyGroups[i];
+            this.growthPerMinute[k] = growthPerMinute[i];
+            this.growing[k] = growing[i];
+        }
+    }
+
+    /**
+     * @return the number of sites
+     */
+    public int size() {
+        return labels.length;
+    }
+
+    /**
+     * @return the first frame of the site outside the jdk, or a description in parentheses for
+     *         threads started before tracking or without a stack trace
+     */
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @return a copy of the site's frames, innermost first, as "class.method:line"
+     */
+    public String[] getFrames(int index) {
+        return frames[index].clone();
+    }
+
+    public int getLive(int index) {
+        return live[index];
+    }
+
+    /**
+     * @return the threads started from the site since tracking started
+     */
+    public long getStarted(int index) {
+        return started[index];
+    }
+
+    /**
+     * @return the existing thread-groups the site started the first thread of
+     */
+    public int getGroups(int index) {
+        return groups[index];
+    }
+
+    /**
+     * @return those of the site's thread-groups without a live thread
+     */
+    public int getEmptyGroups(int index) {
+        return emptyGroups[index];
+    }
+
+    /**
+     * @return the change in live threads per minute over the kept samples, 0 until two are kept
+     */
+    public double getGrowthPerMinute(int index) {
+        return growthPerMinute[index];
+    }
+
+    /**
+     * @return true if the site's live count grew over the kept samples and never dropped
+     */
+    public boolean isGrowing(int index) {
+        return growing[index];
+    }
+
+    /**
+     * @return the index of the site with label, or -1 if there is none
+     */
+    public int indexOf(String label) {
+        for (int i = 0; i < labels.length; i++) if (labels[i].equals(label)) return i;
+        return -1;
+    }
+
+    /**
+     * @return the first maxSites sites as a table, one line each, growing sites marked
+     */
+    public String format(int maxSites) {
+        StringBuilder table = new StringBuilder(String.format("%8s %10s %7s %7s %10s  %s%n",
+                "live", "started", "groups", "empty", "growth/m", "site"));
+        for (int i = 0; i < Math.min(maxSites, size()); i++) {
+            table.append(String.format("%8d %10d %7d %7d %+10.1f  %s%s%n", live[i], started[i], groups[i],
+                    emptyGroups[i], growthPerMinute[i], growing[i] ? "GROWING " : "", labels[i]));
+        }
+        if (size() > maxSites) table.append("... ").append(size() - maxSites).append(" more sites\n");
+        return table.toString();
+    }
+}
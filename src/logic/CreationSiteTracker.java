@@ -0,0 +1,378 @@
+package logic;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordedThreadGroup;
+import jdk.jfr.consumer.RecordingStream;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Records where every thread of this jvm is started, from the stack trace JFR takes of the
+ * starting thread for each jdk.ThreadStart event. Identical call sites, the top SITE_FRAMES
+ * frames below Thread.start, are kept once in a call-site table; each live thread only maps
+ * its id to its site. Threads already running when tracking starts belong to a site of their
+ * own. Every sample interval the live count of each site is kept, for growth rates and to
+ * flag sites whose count only ever grows.
+ * On the starting thread this costs what JFR pays for an event with a stack trace; the table
+ * is kept up on the JFR stream's thread, about once a second. Thread ends are not recorded,
+ * which would cost every thread another event: which threads are alive is read from the
+ * thread ids of the jvm at each sample, and from the snapshot a report is made for.
+ */
+public final class CreationSiteTracker implements Closeable, CreationSiteTrackerMBean {
+    public static final String OBJECT_NAME = "threadmanager:type=CreationSites";
+    public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofSeconds(10);
+    static final String BEFORE_TRACKING = "(started before tracking)";
+    static final String NO_STACK = "(no stack trace)";
+    /** Frames below Thread.start that make up a call site. */
+    static final int SITE_FRAMES = 8;
+    /** Live counts kept per site, one per sample interval. */
+    static final int HISTORY = 30;
+    /** Samples a site's count must have grown over without dropping to be flagged. */
+    static final int MIN_GROWING_SAMPLES = 6;
+    /** Sites listed by the MBean's report. */
+    private static final int MBEAN_SITES = 50;
+
+    private static CreationSiteTracker shared;
+
+    private final RecordingStream stream;
+    private final long sampleIntervalNanos;
+    private final StringBuilder key = new StringBuilder(512);
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    // the sites of the stack traces of the events being delivered; JFR resolves the same stack once per chunk
+    private final Map<RecordedStackTrace, Integer> deliveredStacks = new IdentityHashMap<>();
+    private final ThreadEnumerator groupEnumerator = new ThreadEnumerator();
+    // the groups events of this delivery may name, by name; read once per delivery when first needed
+    private Map<String, List<ThreadGroup>> deliveredGroups;
+
+    // guarded by this
+    private final LongIndexMap threadSites = new LongIndexMap(256);
+    private final Map<String, Integer> siteIds = new HashMap<>();
+    // by identity; weak, so a destroyed group is forgotten
+    private final Map<ThreadGroup, Integer> groupSites = new WeakHashMap<>();
+    private final Set<ThreadGroup> seededGroups = Collections.newSetFromMap(new WeakHashMap<>());
+    private String[] siteLabels = new String[16];
+    private String[][] siteFrames = new String[16][];
+    private long[] siteStarted = new long[16];
+    private int[] siteLive = new int[16];
+    private int[][] siteHistory = new int[16][];
+    private int siteCount;
+    private final long[] sampleNanos = new long[HISTORY];
+    private int samples;
+
+    /**
+     * Starts tracking; threads running now are counted under BEFORE_TRACKING.
+     * @requires sampleInterval is positive
+     * @param sampleInterval how often each site's live count is kept for its growth
+     * @throws IllegalStateException if this jvm cannot record JFR events
+     */
+    public CreationSiteTracker(Duration sampleInterval) {
+        this.sampleIntervalNanos = sampleInterval.toNanos();
+        addSite(BEFORE_TRACKING, new String[0]);
+        stream = new RecordingStream();
+        stream.setMaxAge(Duration.ofSeconds(10));
+        stream.enable("jdk.ThreadStart").withStackTrace();
+        stream.onEvent("jdk.ThreadStart", this::started);
+        stream.onFlush(this::flushed);
+        stream.startAsync();
+        // started first, so a thread starting now is either seeded or seen starting
+        seed(threadBean.getAllThreadIds(), groupEnumerator.enumerateGroups(rootGroup()));
+    }
+
+    /**
+     * @return the tracker shared by the whole jvm, started with DEFAULT_SAMPLE_INTERVAL and
+     *         registered as an MBean if it was not running yet
+     * @throws IllegalStateException if this jvm cannot record JFR events
+     */
+    public static synchronized CreationSiteTracker start() {
+        if (shared == null) {
+            shared = new CreationSiteTracker(DEFAULT_SAMPLE_INTERVAL);
+            try {
+                shared.register();
+            } catch (JMException e) {
+                // tracked all the same, only not visible over JMX
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return the shared tracker, or null if it has not been started
+     */
+    public static synchronized CreationSiteTracker getShared() {
+        return shared;
+    }
+
+    private void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) return;
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // registered concurrently
+        }
+    }
+
+    private synchronized void seed(long[] ids, ThreadGroup[] groups) {
+        // groups that exist before tracking belong to no site, whoever starts a thread in them
+        seededGroups.addAll(Arrays.asList(groups));
+        for (long id : ids) {
+            if (threadSites.get(id) >= 0) continue;
+            threadSites.put(id, 0);
+            siteStarted[0]++;
+        }
+    }
+
+    private synchronized void started(RecordedEvent event) {
+        RecordedThread thread = event.getThread("thread");
+        if (thread == null || thread.getJavaThreadId() <= 0) return;
+        long id = thread.getJavaThreadId();
+        int previous = threadSites.get(id);
+        if (previous > 0) return;
+        // seeded while its start event was on its way
+        if (previous == 0) siteStarted[0]--;
+        int site = siteOf(event.getStackTrace());
+        threadSites.put(id, site);
+        siteStarted[site]++;
+        RecordedThreadGroup recorded = thread.getThreadGroup();
+        ThreadGroup group = recorded == null || recorded.getName() == null ? null : newGroup(recorded);
+        if (group != null) groupSites.put(group, site);
+    }
+
+    /**
+     * Events only name a thread's group, so it is matched by name and parent name against the
+     * groups that neither existed before tracking nor have a site yet. Two such groups sharing
+     * both names are told apart only by the order their threads' events arrive in.
+     * @return the group recorded stands for if it is new and has no site yet, otherwise null
+     */
+    private ThreadGroup newGroup(RecordedThreadGroup recorded) {
+        if (deliveredGroups == null) {
+            deliveredGroups = new HashMap<>();
+            for (ThreadGroup group : groupEnumerator.enumerateGroups(rootGroup())) {
+                if (seededGroups.contains(group) || groupSites.containsKey(group)) continue;
+                deliveredGroups.computeIfAbsent(group.getName(), name -> new ArrayList<>()).add(group);
+            }
+        }
+        List<ThreadGroup> candidates = deliveredGroups.get(recorded.getName());
+        if (candidates == null) return null;
+        RecordedThreadGroup recordedParent = recorded.getParent();
+        String parentName = recordedParent == null ? null : recordedParent.getName();
+        for (Iterator<ThreadGroup> it = candidates.iterator(); it.hasNext(); ) {
+            ThreadGroup group = it.next();
+            ThreadGroup parent = group.getParent();
+            if (parentName == null || parent != null && parentName.equals(parent.getName())) {
+                it.remove();
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @effects keeps every site's live count if a sample interval has passed since the last one,
+     *          forgetting the threads that have ended
+     */
+    private synchronized void flushed() {
+        deliveredStacks.clear();
+        deliveredGroups = null;
+        long now = System.nanoTime();
+        if (samples > 0 && now - sampleNanos[(samples - 1) % HISTORY] < sampleIntervalNanos) return;
+        recount(threadBean.getAllThreadIds());
+        int at = samples % HISTORY;
+        sampleNanos[at] = now;
+        for (int site = 0; site < siteCount; site++) siteHistory[site][at] = siteLive[site];
+        samples++;
+    }
+
+    /**
+     * @modifies this.siteLive, this.threadSites
+     * @effects counts the live threads of every site and forgets the threads not in liveIds
+     */
+    private void recount(long[] liveIds) {
+        Arrays.fill(siteLive, 0);
+        LongIndexMap live = new LongIndexMap(liveIds.length);
+        for (long id : liveIds) {
+            int site = threadSites.get(id);
+            if (site < 0) continue;
+            live.put(id, site);
+            siteLive[site]++;
+        }
+        long[] tracked = new long[threadSites.size()];
+        int n = threadSites.keys(tracked);
+        for (int k = 0; k < n; k++) {
+            if (live.get(tracked[k]) < 0) threadSites.remove(tracked[k]);
+        }
+    }
+
+    /**
+     * @return the site of the frames below Thread.start, added to the table if new
+     */
+    private int siteOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return siteId(NO_STACK);
+        Integer delivered = deliveredStacks.get(stackTrace);
+        if (delivered != null) return delivered;
+        int site = siteOfFrames(stackTrace);
+        deliveredStacks.put(stackTrace, site);
+        return site;
+    }
+
+    private int siteOfFrames(RecordedStackTrace stackTrace) {
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        int first = 0;
+        while (first < frames.size() && isThreadFrame(frames.get(first))) first++;
+        int last = Math.min(frames.size(), first + SITE_FRAMES);
+        if (first == last) return siteId(NO_STACK);
+        key.setLength(0);
+        for (int f = first; f < last; f++) {
+            if (f > first) key.append('\n');
+            appendFrame(key, frames.get(f));
+        }
+        return siteId(key.toString());
+    }
+
+    private int siteId(String siteKey) {
+        Integer id = siteIds.get(siteKey);
+        if (id != null) return id;
+        String[] frames = siteKey.equals(NO_STACK) ? new String[0] : siteKey.split("\n");
+        int site = addSite(frames.length == 0 ? NO_STACK : label(frames), frames);
+        siteIds.put(siteKey, site);
+        return site;
+    }
+
+    private int addSite(String label, String[] frames) {
+        if (siteCount == siteLabels.length) {
+            int size = siteCount * 2;
+            siteLabels = Arrays.copyOf(siteLabels, size);
+            siteFrames = Arrays.copyOf(siteFrames, size);
+            siteStarted = Arrays.copyOf(siteStarted, size);
+            siteLive = Arrays.copyOf(siteLive, size);
+            siteHistory = Arrays.copyOf(siteHistory, size);
+        }
+        siteLabels[siteCount] = label;
+        siteFrames[siteCount] = frames;
+        // zeros before the site was first seen
+        siteHistory[siteCount] = new int[HISTORY];
+        return siteCount++;
+    }
+
+    private static boolean isThreadFrame(RecordedFrame frame) {
+        return frame.getMethod() != null && frame.getMethod().getType().getName().equals("java.lang.Thread");
+    }
+
+    private static void appendFrame(StringBuilder to, RecordedFrame frame) {
+        if (frame.getMethod() == null) {
+            to.append("(unknown)");
+            return;
+        }
+        to.append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName());
+        if (frame.getLineNumber() >= 0) to.append(':').append(frame.getLineNumber());
+    }
+
+    /**
+     * @return the first frame outside the jdk, which is where a pool or library was asked for
+     *         the thread, or the top frame if every frame is in the jdk
+     */
+    private static String label(String[] frames) {
+        for (String frame : frames) {
+            if (!frame.startsWith("java.") && !frame.startsWith("javax.") && !frame.startsWith("jdk.")
+                    && !frame.startsWith("sun.") && !frame.startsWith("com.sun.")) {
+                return frame;
+            }
+        }
+        return frames[0];
+    }
+
+    /**
+     * @requires snapshot is of this jvm
+     * @return every site with its threads live in snapshot, and the thread-groups in snapshot
+     *         whose first thread it started, largest live count first; threads whose start has
+     *         not been delivered yet are left out
+     */
+    public synchronized CreationSiteReport report(ThreadSnapshot snapshot) {
+        int[] live = new int[siteCount];
+        for (int i = 0; i < snapshot.size(); i++) {
+            int site = threadSites.get(snapshot.getId(i));
+            if (site >= 0) live[site]++;
+        }
+        int[] groups = new int[siteCount];
+        int[] emptyGroups = new int[siteCount];
+        Map<ThreadGroup, int[]> groupThreads = new IdentityHashMap<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            ThreadGroup group = snapshot.getGroup(i);
+            if (group != null) groupThreads.computeIfAbsent(group, g -> new int[1])[0]++;
+        }
+        for (ThreadGroup group : snapshot.getThreadGroups()) {
+            Integer site = groupSites.get(group);
+            if (site == null) continue;
+            groups[site]++;
+            if (!groupThreads.containsKey(group)) emptyGroups[site]++;
+        }
+        double[] growth = new double[siteCount];
+        boolean[] growing = new boolean[siteCount];
+        int kept = Math.min(samples, HISTORY);
+        if (kept >= 2) {
+            int oldest = (samples - kept) % HISTORY;
+            int newest = (samples - 1) % HISTORY;
+            double minutes = (sampleNanos[newest] - sampleNanos[oldest]) / 60e9;
+            for (int site = 0; site < siteCount; site++) {
+                int[] history = siteHistory[site];
+                growth[site] = (history[newest] - history[oldest]) / minutes;
+                boolean neverDropped = true;
+                for (int s = 1; s < kept && neverDropped; s++) {
+                    neverDropped = history[(oldest + s) % HISTORY] >= history[(oldest + s - 1) % HISTORY];
+                }
+                growing[site] = kept >= MIN_GROWING_SAMPLES && neverDropped && history[newest] > history[oldest];
+            }
+        }
+        return new CreationSiteReport(Arrays.copyOf(siteLabels, siteCount), Arrays.copyOf(siteFrames, siteCount),
+                live, Arrays.copyOf(siteStarted, siteCount), groups, emptyGroups,
+                growth, growing);
+    }
+
+    @Override
+    public synchronized int getSiteCount() {
+        return siteCount;
+    }
+
+    @Override
+    public String getReport() {
+        return report(new ThreadEnumerator().capture(rootGroup(), null, null)).format(MBEAN_SITES);
+    }
+
+    private static ThreadGroup rootGroup() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) root = root.getParent();
+        return root;
+    }
+
+    /**
+     * @effects stops tracking; the shared tracker cannot be stopped
+     */
+    @Override
+    public void close() {
+        synchronized (CreationSiteTracker.class) {
+            if (this == shared) return;
+        }
+        stream.close();
+    }
+}
@@ -0,0 +1,17 @@
+package logic;
+
+/**
+ * The management interface of the creation-site tracker, for a jvm that runs it as an agent
+ * without the UI.
+ */
+public interface CreationSiteTrackerMBean {
+    /**
+     * @return the number of distinct call sites threads were started from
+     */
+    int getSiteCount();
+
+    /**
+     * @return the sites with the most live threads as a table, growing sites flagged
+     */
+    String getReport();
+}
@@ -0,0 +1,97 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A thread-group in a GroupRollups tree with the totals of the threads in it and in every
+ * group below it. Owned by its GroupRollups and only valid on the thread that updates it.
+ */
+public final class GroupNode {
+    private final String name;
+    private final ThreadGroup group;
+    private final GroupNode parent;
+    final List<GroupNode> children = new ArrayList<>();
+    int threads;
+    int totalThreads;
+    int totalDaemon;
+    double totalCpu;
+    double totalAllocation;
+    double totalBlocked;
+
+    GroupNode(String name, ThreadGroup group, GroupNode parent) {
+        this.name = name;
+        this.group = group;
+        this.parent = parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the thread-group this node stands for, or null for a group of another jvm, known only by name
+     */
+    public ThreadGroup getThreadGroup() {
+        return group;
+    }
+
+    /**
+     * @return the parent node, or null for a top-level group
+     */
+    public GroupNode getParent() {
+        return parent;
+    }
+
+    public List<GroupNode> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * @return the number of threads directly in this group
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of threads in this group and every group below it
+     */
+    public int getTotalThreads() {
+        return totalThreads;
+    }
+
+    /**
+     * @return the fraction of getTotalThreads that are daemons, 0 if there are none
+     */
+    public double getDaemonRatio() {
+        return totalThreads == 0 ? 0 : (double) totalDaemon / totalThreads;
+    }
+
+    /**
+     * @return the summed CPU % of one core of the threads below this group, of those that could be measured
+     */
+    public double getCpuPercent() {
+        return Math.max(0, totalCpu);
+    }
+
+    /**
+     * @return the summed bytes allocated per second of the threads below this group
+     */
+    public double getAllocationRate() {
+        return Math.max(0, totalAllocation);
+    }
+
+    /**
+     * @return the summed milliseconds per second the threads below this group spent blocked on monitors
+     */
+    public double getBlockedMillisPerSecond() {
+        return Math.max(0, totalBlocked);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
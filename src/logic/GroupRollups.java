@@ -0,0 +1,244 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The thread-group tree with the totals of every subtree, kept up to date from snapshot diffs.
+ * Each thread's last contribution is remembered, so a changed thread only adds the difference
+ * to its group and that group's ancestors; the rest of the tree is not touched. Groups of
+ * another jvm are only known by name and are shown as a flat list of top-level groups.
+ * Not thread-safe: update and read it on one thread.
+ */
+public final class GroupRollups {
+    /** Structural changes, for a view that mirrors the tree. */
+    public interface Listener {
+        void added(GroupNode node);
+
+        void removed(GroupNode node);
+    }
+
+    private final Map<ThreadGroup, GroupNode> byGroup = new IdentityHashMap<>();
+    private final Map<String, GroupNode> byName = new HashMap<>();
+    private final List<GroupNode> roots = new ArrayList<>();
+    private final Set<GroupNode> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Listener listener;
+    private boolean blockedMeasured;
+
+    // each thread's contribution, by slot
+    private final SlotTable slots = new SlotTable(256);
+    private GroupNode[] slotGroups = new GroupNode[256];
+    private boolean[] slotDaemon = new boolean[256];
+    private double[] slotCpu = new double[256];
+    private double[] slotAllocation = new double[256];
+    private double[] slotBlocked = new double[256];
+
+    /**
+     * @requires listener != null
+     */
+    public GroupRollups(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return the groups without a parent
+     */
+    public List<GroupNode> getRoots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    /**
+     * @return true once a contention report has been applied, so blocked times mean something
+     */
+    public boolean isBlockedMeasured() {
+        return blockedMeasured;
+    }
+
+    /**
+     * Applies a diff: removed threads are subtracted and added or changed threads have the
+     * difference to what they contributed before added, each along its path to the root.
+     * Groups that appeared are added, and groups that are gone and empty are removed.
+     * @requires diff != null; the first diff, or the first after missing some, must be a full one
+     *           (SnapshotDiff.between(null, snapshot)), or use reset
+     * @param report the contention report of the same tick, or null to leave blocked times as they were
+     * @modifies this
+     */
+    public void update(SnapshotDiff diff, ContentionReport report) {
+        ThreadSnapshot snapshot = diff.getCurrent();
+        for (int k = 0; k < diff.getRemovedCount(); k++) remove(diff.getRemovedId(k));
+        for (int k = 0; k < diff.getAddedCount(); k++) put(snapshot, diff.getAddedIndex(k));
+        for (int k = 0; k < diff.getChangedCount(); k++) put(snapshot, diff.getChangedIndex(k));
+        if (report != null) applyBlocked(report);
+        prune(snapshot);
+    }
+
+    /**
+     * @requires snapshot != null
+     * @modifies this
+     * @effects forgets every thread and rolls up snapshot from scratch
+     */
+    public void reset(ThreadSnapshot snapshot) {
+        long[] ids = new long[slots.size()];
+        int count = slots.ids(ids);
+        for (int k = 0; k < count; k++) remove(ids[k]);
+        update(SnapshotDiff.between(null, snapshot), null);
+    }
+
+    /**
+     * @requires consumer != null
+     * @effects passes every node whose totals changed since the last call to consumer, and forgets them
+     */
+    public void drainChanged(Consumer<GroupNode> consumer) {
+        for (GroupNode node : changed) consumer.accept(node);
+        changed.clear();
+    }
+
+    /**
+     * @return the node of the group of the thread at index, created with its ancestors if needed
+     */
+    private GroupNode node(ThreadSnapshot snapshot, int index) {
+        ThreadGroup group = snapshot.getGroup(index);
+        return group != null ? node(group) : node(snapshot.getGroupName(index));
+    }
+
+    private GroupNode node(ThreadGroup group) {
+        GroupNode node = byGroup.get(group);
+        if (node != null) return node;
+        ThreadGroup parentGroup = group.getParent();
+        node = new GroupNode(group.getName(), group, parentGroup == null ? null : node(parentGroup));
+        byGroup.put(group, node);
+        attach(node);
+        return node;
+    }
+
+    private GroupNode node(String name) {
+        GroupNode node = byName.get(name);
+        if (node != null) return node;
+        node = new GroupNode(name, null, null);
+        byName.put(name, node);
+        attach(node);
+        return node;
+    }
+
+    private void attach(GroupNode node) {
+        if (node.getParent() == null) roots.add(node);
+        else node.getParent().children.add(node);
+        listener.added(node);
+    }
+
+    private void put(ThreadSnapshot snapshot, int index) {
+        long id = snapshot.getId(index);
+        GroupNode group = node(snapshot, index);
+        boolean daemon = snapshot.isDaemon(index);
+        double cpu = Math.max(0, snapshot.getCpuPercent(index));
+        double allocation = Math.max(0, snapshot.getAllocationRate(index));
+        int slot = slots.get(id);
+        double blocked = 0;
+        if (slot >= 0) {
+            if (slotGroups[slot] == group && slotDaemon[slot] == daemon && slotCpu[slot] == cpu
+                    && slotAllocation[slot] == allocation) return;
+            blocked = slotBlocked[slot];
+            add(slotGroups[slot], -1, slotDaemon[slot] ? -1 : 0, -slotCpu[slot], -slotAllocation[slot], -blocked);
+        } else {
+            slot = slots.add(id);
+            if (slots.capacity() > slotGroups.length) grow(slots.capacity());
+        }
+        slotGroups[slot] = group;
+        slotDaemon[slot] = daemon;
+        slotCpu[slot] = cpu;
+        slotAllocation[slot] = allocation;
+        slotBlocked[slot] = blocked;
+        add(group, 1, daemon ? 1 : 0, cpu, allocation, blocked);
+    }
+
+    private void remove(long id) {
+        int slot = slots.get(id);
+        if (slot < 0) return;
+        add(slotGroups[slot], -1, slotDaemon[slot] ? -1 : 0, -slotCpu[slot], -slotAllocation[slot], -slotBlocked[slot]);
+        slots.release(slot);
+        slotGroups[slot] = null;
+    }
+
+    private void applyBlocked(ContentionReport report) {
+        blockedMeasured = true;
+        for (int r = 0; r < report.size(); r++) {
+            int slot = slots.get(report.getId(r));
+            if (slot < 0) continue;
+            double blocked = Math.max(0, report.getBlockedMillisPerSecond(r));
+            double delta = blocked - slotBlocked[slot];
+            if (delta == 0) continue;
+            slotBlocked[slot] = blocked;
+            add(slotGroups[slot], 0, 0, 0, 0, delta);
+        }
+    }
+
+    /**
+     * @effects adds the deltas to group and each of its ancestors, the direct count to group alone
+     */
+    private void add(GroupNode group, int threads, int daemon, double cpu, double allocation, double blocked) {
+        group.threads += threads;
+        for (GroupNode node = group; node != null; node = node.getParent()) {
+            node.totalThreads += threads;
+            node.totalDaemon += daemon;
+            node.totalCpu += cpu;
+            node.totalAllocation += allocation;
+            node.totalBlocked += blocked;
+            if (node.totalThreads == 0) {
+                // no rounding drift left behind in an empty subtree
+                node.totalCpu = 0;
+                node.totalAllocation = 0;
+                node.totalBlocked = 0;
+            }
+            changed.add(node);
+        }
+    }
+
+    /**
+     * Adds the groups of snapshot and removes the empty groups that are gone from it.
+     * This walks the groups, not the threads.
+     */
+    private void prune(ThreadSnapshot snapshot) {
+        ThreadGroup[] groups = snapshot.getThreadGroups();
+        Set<GroupNode> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ThreadGroup group : groups) live.add(node(group));
+        if (groups.length == 0) {
+            for (String name : snapshot.getGroupNames()) live.add(node(name));
+        }
+        List<GroupNode> empty = new ArrayList<>();
+        for (GroupNode node : byGroup.values()) {
+            if (node.totalThreads == 0 && node.children.isEmpty() && !live.contains(node)) empty.add(node);
+        }
+        for (GroupNode node : byName.values()) {
+            if (node.totalThreads == 0 && !live.contains(node)) empty.add(node);
+        }
+        for (GroupNode node : empty) detach(node, live);
+    }
+
+    private void detach(GroupNode node, Set<GroupNode> live) {
+        GroupNode parent = node.getParent();
+        if (parent == null) roots.remove(node);
+        else parent.children.remove(node);
+        if (node.getThreadGroup() != null) byGroup.remove(node.getThreadGroup());
+        else byName.remove(node.getName());
+        changed.remove(node);
+        listener.removed(node);
+        if (parent != null && parent.totalThreads == 0 && parent.children.isEmpty() && !live.contains(parent)) {
+            detach(parent, live);
+        }
+    }
+
+    private void grow(int size) {
+        slotGroups = Arrays.copyOf(slotGroups, size);
+        slotDaemon = Arrays.copyOf(slotDaemon, size);
+        slotCpu = Arrays.copyOf(slotCpu, size);
+        slotAllocation = Arrays.copyOf(slotAllocation, size);
+        slotBlocked = Arrays.copyOf(slotBlocked, size);
+    }
+}
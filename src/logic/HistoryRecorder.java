@@ -0,0 +1,447 @@
+package logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records every tick's per-thread values into a fixed-size, memory-mapped ring file, so past
+ * ticks can be replayed after the threads are gone. The file is a ring of equally sized blocks;
+ * when the newest block is full the oldest one is overwritten, so the file never grows.
+ *
+ * A block is self-contained: a header with its sequence number, tick count and time range, a
+ * directory of (millis, offset) per tick, then string and tick records. Names are interned per
+ * block and written once, ticks refer to them by index. A tick is stored by column:
+ * ids, packed state/daemon/priority, cpu and user percent in hundredths, allocation rate,
+ * name and group references. Time-range queries skip whole blocks by their time range and
+ * binary-search the directory of the rest.
+ */
+public final class HistoryRecorder implements Closeable {
+    private static final int MAGIC = 0x544D4852;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 64;
+
+    private static final int SEQUENCE = 0;
+    private static final int TICKS = 8;
+    private static final int USED = 12;
+    private static final int FIRST_MILLIS = 16;
+    private static final int LAST_MILLIS = 24;
+    private static final int DIRECTORY = 32;
+    private static final int DIRECTORY_ENTRY = 12;
+    private static final int MAX_TICKS = 256;
+    private static final int DATA = DIRECTORY + MAX_TICKS * DIRECTORY_ENTRY;
+
+    private static final byte STRING = 1;
+    private static final byte TICK = 2;
+    /** id, flags, cpu, user, allocation, name and group reference. */
+    private static final int ROW_BYTES = 8 + 1 + 2 + 2 + 4 + 4 + 4;
+    private static final char NOT_AVAILABLE = 0xFFFF;
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    /** The smallest block that holds a tick of one thread. */
+    public static final int MIN_BLOCK_SIZE = DATA + 4096;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final MappedByteBuffer[] blocks;
+    private final long[] sequences;
+    private final int[] tickCounts;
+    private final int[] used;
+    private final long[] firstMillis;
+    private final long[] lastMillis;
+    private long lastSequence;
+    private int newest = -1;
+    private boolean appending;
+    private boolean closed;
+    private long droppedTicks;
+
+    // the newest block's string table, valid while appending
+    private final Map<String, Integer> strings = new HashMap<>();
+    private int writePosition;
+    private int[] nameRefs = new int[0];
+    private int[] groupRefs = new int[0];
+
+    // the string table of the block read last
+    private final List<String> readStrings = new ArrayList<>();
+    private int readBlock = -1;
+    private long readSequence;
+    private int readPosition;
+
+    private HistoryRecorder(FileChannel channel, int blockSize, int blockCount) {
+        this.channel = channel;
+        this.blockSize = blockSize;
+        this.blocks = new MappedByteBuffer[blockCount];
+        this.sequences = new long[blockCount];
+        this.tickCounts = new int[blockCount];
+        this.used = new int[blockCount];
+        this.firstMillis = new long[blockCount];
+        this.lastMillis = new long[blockCount];
+    }
+
+    /**
+     * Opens file, keeping its ticks if it was written with the same geometry, otherwise
+     * starting it over. The file takes FILE_HEADER_BYTES + blockSize * blockCount bytes.
+     * @requires file != null
+     * @param blockSize the bytes per block; a tick must fit in one, at about 25 bytes per thread plus its names
+     * @param blockCount the number of blocks in the ring
+     * @return a recorder appending after the newest recorded tick
+     * @throws IllegalArgumentException if blockSize < MIN_BLOCK_SIZE or blockCount < 2
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static HistoryRecorder open(Path file, int blockSize, int blockCount) throws IOException {
+        if (blockSize < MIN_BLOCK_SIZE) throw new IllegalArgumentException("Block size below " + MIN_BLOCK_SIZE + ": " + blockSize);
+        if (blockCount < 2) throw new IllegalArgumentException("A ring needs at least 2 blocks: " + blockCount);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long length = FILE_HEADER_BYTES + (long) blockSize * blockCount;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES);
+            boolean reuse = channel.size() == length && header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getInt(8) == blockSize && header.getInt(12) == blockCount;
+            if (!reuse) {
+                channel.truncate(0);
+                header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES);
+            }
+            HistoryRecorder recorder = new HistoryRecorder(channel, blockSize, blockCount);
+            for (int b = 0; b < blockCount; b++) {
+                recorder.blocks[b] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        FILE_HEADER_BYTES + (long) b * blockSize, blockSize);
+            }
+            if (reuse) {
+                recorder.recover();
+            } else {
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, blockSize).putInt(12, blockCount);
+            }
+            return recorder;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @modifies this
+     * @effects loads the index of every valid block; appending resumes in a new block
+     */
+    private void recover() {
+        for (int b = 0; b < blocks.length; b++) {
+            ByteBuffer block = blocks[b];
+            long sequence = block.getLong(SEQUENCE);
+            int ticks = block.getInt(TICKS);
+            int usedBytes = block.getInt(USED);
+            if (sequence <= 0 || ticks < 0 || ticks > MAX_TICKS || usedBytes < DATA || usedBytes > blockSize) continue;
+            sequences[b] = sequence;
+            tickCounts[b] = ticks;
+            used[b] = usedBytes;
+            firstMillis[b] = block.getLong(FIRST_MILLIS);
+            lastMillis[b] = block.getLong(LAST_MILLIS);
+            if (sequence > lastSequence) {
+                lastSequence = sequence;
+                newest = b;
+            }
+        }
+    }
+
+    /**
+     * @requires snapshot != null, millis not before the previous tick's
+     * @modifies this, the file
+     * @return false if the recorder is closed or the tick is too large for a block, and was dropped
+     */
+    public synchronized boolean record(ThreadSnapshot snapshot, long millis) {
+        if (closed) return false;
+        if (newest >= 0) millis = Math.max(millis, lastMillis[newest]);
+        if (appending && tickCounts[newest] < MAX_TICKS && append(snapshot, millis)) return true;
+        startBlock();
+        if (append(snapshot, millis)) return true;
+        // the strings interned by the failed append were never marked used
+        strings.clear();
+        droppedTicks++;
+        return false;
+    }
+
+    /**
+     * @return the number of ticks dropped because they did not fit in a block
+     */
+    public synchronized long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    private void startBlock() {
+        int b = (newest + 1) % blocks.length;
+        ByteBuffer block = blocks[b];
+        block.putLong(SEQUENCE, 0);
+        block.putInt(TICKS, 0);
+        block.putInt(USED, DATA);
+        block.putLong(FIRST_MILLIS, 0);
+        block.putLong(LAST_MILLIS, 0);
+        block.putLong(SEQUENCE, ++lastSequence);
+        sequences[b] = lastSequence;
+        tickCounts[b] = 0;
+        used[b] = DATA;
+        firstMillis[b] = 0;
+        lastMillis[b] = 0;
+        newest = b;
+        appending = true;
+        strings.clear();
+        writePosition = DATA;
+    }
+
+    /**
+     * Strings are written before the tick that uses them. If the tick does not fit, the block
+     * is abandoned, so the strings it wrote past the used mark are simply never read.
+     * @return false if the tick does not fit in what is left of the newest block
+     */
+    private boolean append(ThreadSnapshot snapshot, long millis) {
+        ByteBuffer block = blocks[newest];
+        int n = snapshot.size();
+        if (nameRefs.length < n) {
+            nameRefs = new int[n];
+            groupRefs = new int[n];
+        }
+        writePosition = used[newest];
+        for (int i = 0; i < n; i++) {
+            if ((nameRefs[i] = intern(block, snapshot.getName(i))) < 0) return false;
+            if ((groupRefs[i] = intern(block, snapshot.getGroupName(i))) < 0) return false;
+        }
+        int offset = writePosition;
+        if ((long) offset + 5 + (long) ROW_BYTES * n > blockSize) return false;
+
+        block.put(offset, TICK);
+        block.putInt(offset + 1, n);
+        int column = offset + 5;
+        for (int i = 0; i < n; i++) block.putLong(column + 8 * i, snapshot.getId(i));
+        column += 8 * n;
+        for (int i = 0; i < n; i++) {
+            int priority = Math.max(0, Math.min(15, snapshot.getPriority(i)));
+            int flags = snapshot.getState(i).ordinal() | (snapshot.isDaemon(i) ? 8 : 0) | priority << 4;
+            block.put(column + i, (byte) flags);
+        }
+        column += n;
+        for (int i = 0; i < n; i++) block.putChar(column + 2 * i, hundredths(snapshot.getCpuPercent(i)));
+        column += 2 * n;
+        for (int i = 0; i < n; i++) block.putChar(column + 2 * i, hundredths(snapshot.getUserPercent(i)));
+        column += 2 * n;
+        for (int i = 0; i < n; i++) block.putFloat(column + 4 * i, (float) snapshot.getAllocationRate(i));
+        column += 4 * n;
+        for (int i = 0; i < n; i++) block.putInt(column + 4 * i, nameRefs[i]);
+        column += 4 * n;
+        for (int i = 0; i < n; i++) block.putInt(column + 4 * i, groupRefs[i]);
+        column += 4 * n;
+
+        // the tick count is written last, so a reader of the file never sees a half-written tick
+        int tick = tickCounts[newest];
+        block.putLong(DIRECTORY + tick * DIRECTORY_ENTRY, millis);
+        block.putInt(DIRECTORY + tick * DIRECTORY_ENTRY + 8, offset);
+        if (tick == 0) {
+            block.putLong(FIRST_MILLIS, millis);
+            firstMillis[newest] = millis;
+        }
+        block.putLong(LAST_MILLIS, millis);
+        block.putInt(USED, column);
+        block.putInt(TICKS, tick + 1);
+        lastMillis[newest] = millis;
+        used[newest] = column;
+        tickCounts[newest] = tick + 1;
+        return true;
+    }
+
+    /**
+     * @return the block-local index of value, written as a string record if it is new; -1 if it does not fit
+     */
+    private int intern(ByteBuffer block, String value) {
+        Integer ref = strings.get(value);
+        if (ref != null) return ref;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if ((long) writePosition + 5 + bytes.length > blockSize) return -1;
+        block.put(writePosition, STRING);
+        block.putInt(writePosition + 1, bytes.length);
+        block.put(writePosition + 5, bytes);
+        writePosition += 5 + bytes.length;
+        int index = strings.size();
+        strings.put(value, index);
+        return index;
+    }
+
+    private static char hundredths(double percent) {
+        if (percent < 0) return NOT_AVAILABLE;
+        return (char) Math.min(NOT_AVAILABLE - 1, Math.round(percent * 100));
+    }
+
+    /**
+     * @return the time of the oldest recorded tick, or -1 if there is none
+     */
+    public synchronized long getFirstMillis() {
+        int oldest = -1;
+        for (int b = 0; b < blocks.length; b++) {
+            if (tickCounts[b] > 0 && (oldest < 0 || sequences[b] < sequences[oldest])) oldest = b;
+        }
+        return oldest < 0 ? -1 : firstMillis[oldest];
+    }
+
+    /**
+     * @return the time of the newest recorded tick, or -1 if there is none
+     */
+    public synchronized long getLastMillis() {
+        long last = -1;
+        for (int b = 0; b < blocks.length; b++) {
+            if (tickCounts[b] > 0) last = Math.max(last, lastMillis[b]);
+        }
+        return last;
+    }
+
+    /**
+     * @return the times of the recorded ticks from fromMillis to toMillis inclusive, oldest first
+     */
+    public synchronized long[] tickMillis(long fromMillis, long toMillis) {
+        long[] result = new long[16];
+        int count = 0;
+        for (int b : blocksBySequence()) {
+            if (lastMillis[b] < fromMillis || firstMillis[b] > toMillis) continue;
+            ByteBuffer block = blocks[b];
+            for (int tick = firstTickAtOrAfter(b, fromMillis); tick < tickCounts[b]; tick++) {
+                long millis = block.getLong(DIRECTORY + tick * DIRECTORY_ENTRY);
+                if (millis > toMillis) break;
+                if (count == result.length) result = Arrays.copyOf(result, count * 2);
+                result[count++] = millis;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return the newest tick recorded at or before millis, without Thread objects, or null if there is none
+     */
+    public synchronized ThreadSnapshot read(long millis) {
+        int found = -1;
+        for (int b = 0; b < blocks.length; b++) {
+            if (tickCounts[b] == 0 || firstMillis[b] > millis) continue;
+            if (found < 0 || sequences[b] > sequences[found]) found = b;
+        }
+        if (found < 0) return null;
+        int tick = firstTickAtOrAfter(found, millis + 1) - 1;
+        return decode(found, blocks[found].getInt(DIRECTORY + tick * DIRECTORY_ENTRY + 8));
+    }
+
+    /**
+     * @return the index of the first tick of block b recorded at or after millis, or its tick count if none was
+     */
+    private int firstTickAtOrAfter(int b, long millis) {
+        ByteBuffer block = blocks[b];
+        int low = 0;
+        int high = tickCounts[b];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (block.getLong(DIRECTORY + mid * DIRECTORY_ENTRY) < millis) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private int[] blocksBySequence() {
+        int count = 0;
+        for (int b = 0; b < blocks.length; b++) if (tickCounts[b] > 0) count++;
+        int[] order = new int[count];
+        count = 0;
+        // the ring is in sequence order starting after the newest block
+        for (int k = 1; k <= blocks.length; k++) {
+            int b = (newest + k) % blocks.length;
+            if (tickCounts[b] > 0) order[count++] = b;
+        }
+        return order;
+    }
+
+    private ThreadSnapshot decode(int b, int offset) {
+        ByteBuffer block = blocks[b];
+        loadStrings(b, offset);
+        int n = block.getInt(offset + 1);
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        String[] groupNames = new String[n];
+        boolean[] daemon = new boolean[n];
+        int[] priorities = new int[n];
+        Thread.State[] states = new Thread.State[n];
+        double[] cpu = new double[n];
+        double[] user = new double[n];
+        double[] allocation = new double[n];
+        int column = offset + 5;
+        for (int i = 0; i < n; i++) ids[i] = block.getLong(column + 8 * i);
+        column += 8 * n;
+        for (int i = 0; i < n; i++) {
+            int flags = block.get(column + i) & 0xFF;
+            states[i] = STATES[flags & 7];
+            daemon[i] = (flags & 8) != 0;
+            priorities[i] = flags >> 4;
+        }
+        column += n;
+        for (int i = 0; i < n; i++) cpu[i] = percent(block.getChar(column + 2 * i));
+        column += 2 * n;
+        for (int i = 0; i < n; i++) user[i] = percent(block.getChar(column + 2 * i));
+        column += 2 * n;
+        for (int i = 0; i < n; i++) allocation[i] = block.getFloat(column + 4 * i);
+        column += 4 * n;
+        for (int i = 0; i < n; i++) names[i] = readStrings.get(block.getInt(column + 4 * i));
+        column += 4 * n;
+        Set<String> allGroupNames = new LinkedHashSet<>();
+        for (int i = 0; i < n; i++) {
+            groupNames[i] = readStrings.get(block.getInt(column + 4 * i));
+            allGroupNames.add(groupNames[i]);
+        }
+        return ThreadSnapshot.fromColumns(ids, names, groupNames, daemon, priorities, states, cpu, user, allocation,
+                allGroupNames.toArray(new String[0]));
+    }
+
+    private static double percent(char hundredths) {
+        return hundredths == NOT_AVAILABLE ? -1 : hundredths / 100.0;
+    }
+
+    /**
+     * @modifies this.readStrings
+     * @effects reads the string records of block b before offset, continuing from the last read of the same block
+     */
+    private void loadStrings(int b, int offset) {
+        // strings only ever precede the ticks using them, so a table read further into the block still serves offset
+        if (readBlock != b || readSequence != sequences[b]) {
+            readStrings.clear();
+            readBlock = b;
+            readSequence = sequences[b];
+            readPosition = DATA;
+        }
+        ByteBuffer block = blocks[b];
+        while (readPosition < offset) {
+            byte kind = block.get(readPosition);
+            int length = block.getInt(readPosition + 1);
+            if (kind == STRING) {
+                byte[] bytes = new byte[length];
+                block.get(readPosition + 5, bytes);
+                readStrings.add(new String(bytes, StandardCharsets.UTF_8));
+                readPosition += 5 + length;
+            } else {
+                readPosition += 5 + ROW_BYTES * length;
+            }
+        }
+    }
+
+    /**
+     * @modifies this, the file
+     * @effects flushes the file and stops recording; recorded ticks can still be read
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        for (MappedByteBuffer block : blocks) block.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,56 @@
+package logic;
+
+/**
+ * Snapshots of the jvm the UI itself runs in, captured by a ThreadManager together with
+ * its contention report.
+ */
+public final class InProcessSnapshotSource implements SnapshotSource {
+    private final ThreadManager threadManager;
+    private final boolean analyzeContention;
+
+    /**
+     * @requires threadManager != null
+     */
+    public InProcessSnapshotSource(ThreadManager threadManager) {
+        this(threadManager, true);
+    }
+
+    /**
+     * @requires threadManager != null
+     * @param analyzeContention whether each capture also analyzes contention, which reads every thread's lock state
+     */
+    public InProcessSnapshotSource(ThreadManager threadManager, boolean analyzeContention) {
+        this.threadManager = threadManager;
+        this.analyzeContention = analyzeContention;
+    }
+
+    /**
+     * @modifies threadManager
+     * @effects refreshes the manager's snapshot, and its contention report if analyzing contention
+     */
+    @Override
+    public ThreadSnapshot capture() {
+        ThreadSnapshot current = threadManager.refresh();
+        if (analyzeContention) threadManager.analyzeContention();
+        return current;
+    }
+
+    @Override
+    public ContentionReport getContentionReport() {
+        return analyzeContention ? threadManager.getContentionReport() : null;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    @Override
+    public String describe() {
+        return "this jvm (pid " + ProcessHandle.current().pid() + ")";
+    }
+
+    @Override
+    public void close() {
+    }
+}
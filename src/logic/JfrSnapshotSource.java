@@ -0,0 +1,261 @@
+package logic;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordedThreadGroup;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Snapshots of this jvm built from a JFR event stream instead of enumerating every thread
+ * each tick. The threads are enumerated once at start; from then on thread start and end
+ * events add and remove them and CPU load events set their rates. A thread that started and
+ * ended between two captures still shows up once, as TERMINATED.
+ * States cannot come from events: monitor enter and park events are only emitted once a wait
+ * ends, so a thread stuck waiting would never show it. Each capture therefore reads the state,
+ * daemon flag and priority of the tracked threads with one bulk ThreadMXBean call without stack
+ * traces, which does not stop the jvm at a safepoint.
+ * JFR delivers events in batches about once a second, so new and ended threads lag by up to a
+ * second. The snapshots hold no Thread objects, and no allocation rates are measured.
+ */
+public final class JfrSnapshotSource implements SnapshotSource {
+    private static final Duration CPU_PERIOD = Duration.ofSeconds(1);
+
+    private final RecordingStream stream;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final double cores = Runtime.getRuntime().availableProcessors();
+
+    // each tracked thread, by slot; guarded by this
+    private final SlotTable slots = new SlotTable(256);
+    private String[] slotNames = new String[256];
+    private String[] slotGroupNames = new String[256];
+    private boolean[] slotDaemon = new boolean[256];
+    private int[] slotPriorities = new int[256];
+    private boolean[] slotEnded = new boolean[256];
+    private Thread.State[] slotState = new Thread.State[256];
+    private double[] slotCpu = new double[256];
+    private double[] slotUser = new double[256];
+
+    private int starts;
+    private int ends;
+    private long lastCaptureNanos;
+    private volatile double churnPerSecond;
+
+    /**
+     * Starts the event stream and seeds it with the threads alive now.
+     * @requires threadManager != null
+     * @param threadManager enumerates the threads once
+     * @throws IllegalStateException if this jvm cannot record JFR events
+     */
+    public JfrSnapshotSource(ThreadManager threadManager) {
+        stream = new RecordingStream();
+        stream.setMaxAge(Duration.ofSeconds(10));
+        stream.enable("jdk.ThreadStart");
+        stream.enable("jdk.ThreadEnd");
+        stream.enable("jdk.ThreadCPULoad").withPeriod(CPU_PERIOD);
+        stream.onEvent("jdk.ThreadStart", this::started);
+        stream.onEvent("jdk.ThreadEnd", this::ended);
+        stream.onEvent("jdk.ThreadCPULoad", this::cpuLoad);
+        stream.startAsync();
+        // started first, so a thread starting now is either enumerated or seen starting
+        seed(threadManager.refresh());
+    }
+
+    private synchronized void seed(ThreadSnapshot snapshot) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            int slot = track(snapshot.getId(i), snapshot.getName(i), snapshot.getGroupName(i));
+            slotDaemon[slot] = snapshot.isDaemon(i);
+            slotPriorities[slot] = snapshot.getPriority(i);
+        }
+        lastCaptureNanos = System.nanoTime();
+    }
+
+    private synchronized void started(RecordedEvent event) {
+        RecordedThread thread = event.getThread("thread");
+        if (thread == null || thread.getJavaThreadId() <= 0) return;
+        RecordedThreadGroup group = thread.getThreadGroup();
+        String groupName = group == null || group.getName() == null ? "" : group.getName();
+        track(thread.getJavaThreadId(), thread.getJavaName() == null ? "" : thread.getJavaName(), groupName);
+        starts++;
+    }
+
+    private synchronized void ended(RecordedEvent event) {
+        int slot = slotOf(event.getThread("thread"));
+        if (slot >= 0) end(slot);
+    }
+
+    private void end(int slot) {
+        if (slotEnded[slot]) return;
+        slotEnded[slot] = true;
+        ends++;
+    }
+
+    private synchronized void cpuLoad(RecordedEvent event) {
+        int slot = slotOf(event.getThread());
+        if (slot < 0) return;
+        // the loads are shares of the whole machine
+        double user = event.getFloat("user") * cores * 100;
+        slotUser[slot] = user;
+        slotCpu[slot] = user + event.getFloat("system") * cores * 100;
+    }
+
+    /**
+     * @return the slot of thread, or -1 if it is not tracked; events never track a thread
+     *         themselves, so a late event cannot bring back one that has ended
+     */
+    private int slotOf(RecordedThread thread) {
+        return thread == null ? -1 : slots.get(thread.getJavaThreadId());
+    }
+
+    /**
+     * @return the slot of the thread with id, tracking it from now on if it is not yet
+     */
+    private int track(long id, String name, String groupName) {
+        int slot = slots.get(id);
+        if (slot < 0) {
+            slot = slots.add(id);
+            if (slots.capacity() > slotNames.length) grow(slots.capacity());
+            slotEnded[slot] = false;
+            slotState[slot] = Thread.State.NEW;
+            slotDaemon[slot] = false;
+            slotPriorities[slot] = Thread.NORM_PRIORITY;
+            slotCpu[slot] = ThreadMetricsSampler.UNAVAILABLE;
+            slotUser[slot] = ThreadMetricsSampler.UNAVAILABLE;
+        }
+        slotNames[slot] = name;
+        slotGroupNames[slot] = groupName;
+        return slot;
+    }
+
+    private void grow(int size) {
+        slotNames = Arrays.copyOf(slotNames, size);
+        slotGroupNames = Arrays.copyOf(slotGroupNames, size);
+        slotDaemon = Arrays.copyOf(slotDaemon, size);
+        slotPriorities = Arrays.copyOf(slotPriorities, size);
+        slotState = Arrays.copyOf(slotState, size);
+        slotEnded = Arrays.copyOf(slotEnded, size);
+        slotCpu = Arrays.copyOf(slotCpu, size);
+        slotUser = Arrays.copyOf(slotUser, size);
+    }
+
+    /**
+     * Copies the tracked threads without enumerating any, after reading their states in bulk.
+     * Threads that ended since the last capture are included once more as TERMINATED and then dropped.
+     * @modifies this
+     * @return the new snapshot
+     */
+    @Override
+    public synchronized ThreadSnapshot capture() {
+        long now = System.nanoTime();
+        long elapsed = Math.max(1, now - lastCaptureNanos);
+        readStates();
+        int n = slots.size();
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        String[] groupNames = new String[n];
+        boolean[] daemon = new boolean[n];
+        int[] priorities = new int[n];
+        Thread.State[] states = new Thread.State[n];
+        double[] cpu = new double[n];
+        double[] user = new double[n];
+        double[] allocation = new double[n];
+        Set<String> allGroupNames = new LinkedHashSet<>();
+        int i = 0;
+        for (int slot = 0; slot < slots.limit(); slot++) {
+            if (!slots.isUsed(slot)) continue;
+            ids[i] = slots.getId(slot);
+            names[i] = slotNames[slot];
+            groupNames[i] = slotGroupNames[slot];
+            daemon[i] = slotDaemon[slot];
+            priorities[i] = slotPriorities[slot];
+            states[i] = slotEnded[slot] ? Thread.State.TERMINATED : slotState[slot];
+            cpu[i] = slotCpu[slot];
+            user[i] = slotUser[slot];
+            allocation[i] = ThreadMetricsSampler.UNAVAILABLE;
+            allGroupNames.add(slotGroupNames[slot]);
+            if (slotEnded[slot]) release(slot);
+            i++;
+        }
+        churnPerSecond = (starts + ends) * 1e9 / elapsed;
+        starts = 0;
+        ends = 0;
+        lastCaptureNanos = now;
+        return ThreadSnapshot.fromColumns(ids, names, groupNames, daemon, priorities, states, cpu, user, allocation,
+                allGroupNames.toArray(new String[0]));
+    }
+
+    /**
+     * @effects sets the state, daemon flag and priority of every tracked thread that has not
+     *          ended from one getThreadInfo call; a thread that cannot be found has ended, even
+     *          if its end event has not arrived yet
+     */
+    private void readStates() {
+        long[] ids = new long[slots.size()];
+        int count = 0;
+        for (int slot = 0; slot < slots.limit(); slot++) {
+            if (slots.isUsed(slot) && !slotEnded[slot]) ids[count++] = slots.getId(slot);
+        }
+        if (count == 0) return;
+        ThreadInfo[] infos = threadBean.getThreadInfo(count == ids.length ? ids : Arrays.copyOf(ids, count), 0);
+        for (int k = 0; k < count; k++) {
+            int slot = slots.get(ids[k]);
+            ThreadInfo info = infos[k];
+            if (info == null) {
+                end(slot);
+                continue;
+            }
+            slotState[slot] = info.getThreadState();
+            slotDaemon[slot] = info.isDaemon();
+            slotPriorities[slot] = info.getPriority();
+        }
+    }
+
+    private void release(int slot) {
+        slots.release(slot);
+        slotNames[slot] = null;
+        slotGroupNames[slot] = null;
+    }
+
+    /**
+     * @return threads started plus threads ended per second, over the interval before the last capture
+     */
+    public double getChurnPerSecond() {
+        return churnPerSecond;
+    }
+
+    /**
+     * @return null, contention is only analyzed by InProcessSnapshotSource
+     */
+    @Override
+    public ContentionReport getContentionReport() {
+        return null;
+    }
+
+    /**
+     * @return false, the snapshots hold no Thread objects
+     */
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @Override
+    public String describe() {
+        return "this jvm (pid " + ProcessHandle.current().pid() + ", JFR events)";
+    }
+
+    /**
+     * @effects stops the event stream
+     */
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -0,0 +1,219 @@
+package logic;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A minimal pull parser for JSON. Tokens are read one at a time from a buffered Reader and
+ * values that are skipped (e.g. whole stack arrays) are scanned without building any String,
+ * so arbitrarily large documents parse in constant memory.
+ */
+final class JsonStreamReader {
+    enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, TRUE, FALSE, NULL, END }
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private final StringBuilder text = new StringBuilder(64);
+
+    private boolean[] inObject = new boolean[32];
+    private int depth;
+    private boolean expectName;
+
+    /**
+     * @requires in != null
+     */
+    JsonStreamReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next token, or END at the end of input
+     * @throws IOException if the input cannot be read or is not valid JSON
+     */
+    Token next() throws IOException {
+        return next(true);
+    }
+
+    /**
+     * @return the text of the last NAME, STRING or NUMBER token
+     */
+    String text() {
+        return text.length() == 0 ? "" : text.toString();
+    }
+
+    /**
+     * @return true if the text of the last NAME, STRING or NUMBER token equals value
+     */
+    boolean textEquals(String value) {
+        if (text.length() != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Skips the next value, including everything nested in it, without keeping its text.
+     * @throws IOException if the input cannot be read or is not valid JSON
+     */
+    void skipValue() throws IOException {
+        Token token = next(false);
+        if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) skipNested();
+    }
+
+    /**
+     * Skips the next value, which should be an array, counting its elements.
+     * @return the number of elements, or 0 if the value is not an array
+     * @throws IOException if the input cannot be read or is not valid JSON
+     */
+    int skipArrayCountingElements() throws IOException {
+        Token token = next(false);
+        if (token == Token.BEGIN_OBJECT) skipNested();
+        if (token != Token.BEGIN_ARRAY) return 0;
+        int count = 0;
+        while ((token = next(false)) != Token.END_ARRAY && token != Token.END) {
+            if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) skipNested();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @effects skips to the end of the object or array whose opening token was just read
+     */
+    private void skipNested() throws IOException {
+        int nesting = 1;
+        while (nesting > 0) {
+            Token token = next(false);
+            if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+                nesting++;
+            } else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+                nesting--;
+            } else if (token == Token.END) {
+                return;
+            }
+        }
+    }
+
+    private Token next(boolean keepText) throws IOException {
+        while (true) {
+            int c = read();
+            switch (c) {
+                case -1:
+                    return Token.END;
+                case ' ': case '\t': case '\n': case '\r':
+                    continue;
+                case ':':
+                    expectName = false;
+                    continue;
+                case ',':
+                    expectName = depth > 0 && inObject[depth - 1];
+                    continue;
+                case '{':
+                    push(true);
+                    expectName = true;
+                    return Token.BEGIN_OBJECT;
+                case '[':
+                    push(false);
+                    expectName = false;
+                    return Token.BEGIN_ARRAY;
+                case '}':
+                    depth--;
+                    return Token.END_OBJECT;
+                case ']':
+                    depth--;
+                    return Token.END_ARRAY;
+                case '"':
+                    readString(keepText);
+                    return expectName ? Token.NAME : Token.STRING;
+                case 't':
+                    skipLiteral(3);
+                    return Token.TRUE;
+                case 'f':
+                    skipLiteral(4);
+                    return Token.FALSE;
+                case 'n':
+                    skipLiteral(3);
+                    return Token.NULL;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        readNumber((char) c, keepText);
+                        return Token.NUMBER;
+                    }
+                    throw new IOException("Unexpected character '" + (char) c + "' in JSON");
+            }
+        }
+    }
+
+    private void push(boolean object) {
+        if (depth == inObject.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(inObject, 0, grown, 0, depth);
+            inObject = grown;
+        }
+        inObject[depth++] = object;
+    }
+
+    private void readString(boolean keepText) throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) throw new IOException("Unterminated string in JSON");
+            if (c == '"') return;
+            if (c == '\\') {
+                int escaped = read();
+                switch (escaped) {
+                    case 'n': c = '\n'; break;
+                    case 't': c = '\t'; break;
+                    case 'r': c = '\r'; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'u':
+                        c = 0;
+                        for (int i = 0; i < 4; i++) c = (c << 4) | Character.digit(read(), 16);
+                        break;
+                    default: c = escaped;
+                }
+            }
+            if (keepText) text.append((char) c);
+        }
+    }
+
+    private void readNumber(char first, boolean keepText) throws IOException {
+        text.setLength(0);
+        if (keepText) text.append(first);
+        while (true) {
+            if (position == limit && !fill()) return;
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                position++;
+                if (keepText) text.append(c);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipLiteral(int remaining) throws IOException {
+        for (int i = 0; i < remaining; i++) {
+            if (read() == -1) throw new IOException("Truncated literal in JSON");
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package logic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent log-linear histogram of durations in microseconds: every power of two is split
+ * into 8 buckets, so any recorded value is reported within 1/8 of its magnitude.
+ * Recording is a single atomic increment and never allocates.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BITS = 3;
+    static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * @modifies this
+     * @effects counts one duration of nanos nanoseconds
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+    }
+
+    /**
+     * @requires into.length == BUCKETS
+     * @modifies into
+     * @effects copies the current count of every bucket into into
+     */
+    void copyCounts(long[] into) {
+        for (int b = 0; b < BUCKETS; b++) into[b] = counts.get(b);
+    }
+
+    /**
+     * @return the number of durations counted
+     */
+    long count() {
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) total += counts.get(b);
+        return total;
+    }
+
+    /**
+     * @modifies this
+     * @effects forgets every counted duration
+     */
+    void reset() {
+        for (int b = 0; b < BUCKETS; b++) counts.set(b, 0);
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return the midpoint of the values counted in bucket, in microseconds
+     */
+    static double bucketMidpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        double width = Math.scalb(1.0, exponent - SUB_BITS);
+        return (SUB_BUCKETS + sub) * width + width / 2;
+    }
+
+    /**
+     * @requires counts.length == BUCKETS && 0 <= quantile <= 1
+     * @param total the sum of counts
+     * @return the value at quantile of the given counts in microseconds, or 0 if total is 0
+     */
+    static double percentile(long[] counts, long total, double quantile) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= rank) return bucketMidpoint(b);
+        }
+        return bucketMidpoint(counts.length - 1);
+    }
+}
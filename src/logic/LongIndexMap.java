@@ -0,0 +1,125 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from a long key (a thread id) to an int index.
+ * Avoids boxing a Long per lookup, which matters at thousands of threads per tick.
+ */
+final class LongIndexMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expected the number of keys the map should hold without resizing
+     */
+    LongIndexMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @requires key != Long.MIN_VALUE
+     * @modifies this
+     * @effects maps key to value, replacing any earlier mapping
+     */
+    void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) grow();
+        int slot = slot(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) size++;
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * @return the value mapped to key, or -1 if there is none
+     */
+    int get(long key) {
+        int slot = slot(key);
+        long k;
+        while ((k = keys[slot]) != EMPTY) {
+            if (k == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @modifies this
+     * @return true if key was mapped and is now removed
+     */
+    boolean remove(long key) {
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) return false;
+            slot = (slot + 1) & mask;
+        }
+        // shift back the entries after the gap that may no longer be reachable from their home slot
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * @requires into.length >= size()
+     * @modifies into
+     * @return the number of keys copied to the front of into, in no particular order
+     */
+    int keys(long[] into) {
+        int count = 0;
+        for (long key : keys) {
+            if (key != EMPTY) into[count++] = key;
+        }
+        return count;
+    }
+
+    /**
+     * @modifies this
+     * @effects removes every mapping, keeping the allocated capacity
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package logic;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named executor created through ThreadManager. Every task is wrapped to count it and time
+ * it from submission to completion, so queue depth, active count, throughput and latency
+ * percentiles are measured the same way whatever the kind of pool.
+ * Workers are named pool-1, pool-2, ... FIXED and CACHED workers run in a thread-group named after
+ * the pool; a ForkJoinPool creates its workers in whatever group the thread that triggers them
+ * runs in, so WORK_STEALING and VIRTUAL pools have no group.
+ */
+public final class ManagedPool {
+    private static final long CACHED_KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final PoolKind kind;
+    private final ThreadGroup group;
+    private final AtomicLong workerCount = new AtomicLong();
+    private volatile ExecutorService executor;
+    private volatile int size;
+    private volatile boolean shutdown;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final long[] windowCounts = new long[LatencyHistogram.BUCKETS];
+    private final long[] previousCounts = new long[LatencyHistogram.BUCKETS];
+    private long previousCompleted;
+    private long previousNanos;
+
+    /**
+     * @requires name != null && size > 0 unless kind == VIRTUAL &&
+     *           group != null iff kind.hasThreadGroup()
+     * @throws UnsupportedOperationException if kind is VIRTUAL and this jvm has no virtual threads
+     */
+    ManagedPool(String name, PoolKind kind, int size, ThreadGroup group) {
+        this.name = name;
+        this.kind = kind;
+        this.size = size;
+        this.group = group;
+        this.executor = newExecutor(size);
+        this.previousNanos = System.nanoTime();
+    }
+
+    private ExecutorService newExecutor(int size) {
+        switch (kind) {
+            case FIXED:
+                return new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(), platformFactory());
+            case CACHED:
+                // size is a cap on threads, not on tasks: a burst beyond it queues instead of being rejected
+                ThreadPoolExecutor cached = new ThreadPoolExecutor(size, size, CACHED_KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS, new LinkedBlockingQueue<>(), platformFactory());
+                cached.allowCoreThreadTimeOut(true);
+                return cached;
+            case WORK_STEALING:
+                return new ForkJoinPool(size, pool -> {
+                    ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    worker.setName(nextWorkerName());
+                    return worker;
+                }, null, true);
+            default:
+                return VirtualThreads.newVirtualThreadPerTaskExecutor(name);
+        }
+    }
+
+    private ThreadFactory platformFactory() {
+        return task -> {
+            Thread worker = new Thread(group, task, nextWorkerName());
+            worker.setDaemon(true);
+            return worker;
+        };
+    }
+
+    private String nextWorkerName() {
+        return name + "-" + workerCount.incrementAndGet();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PoolKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the thread-group of the pool's workers, or null for a WORK_STEALING or VIRTUAL pool
+     */
+    public ThreadGroup getThreadGroup() {
+        return group;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @requires task != null
+     * @effects runs task on the pool, counting and timing it
+     * @throws RejectedExecutionException if the pool has been shut down
+     */
+    public void execute(Runnable task) {
+        long submittedNanos = System.nanoTime();
+        Runnable measured = () -> {
+            started.incrementAndGet();
+            active.incrementAndGet();
+            boolean ok = false;
+            try {
+                task.run();
+                ok = true;
+            } finally {
+                active.decrementAndGet();
+                if (!ok) failed.incrementAndGet();
+                completed.incrementAndGet();
+                latency.record(System.nanoTime() - submittedNanos);
+            }
+        };
+        submitted.incrementAndGet();
+        while (true) {
+            ExecutorService current = executor;
+            try {
+                current.execute(measured);
+                return;
+            } catch (RejectedExecutionException e) {
+                // a resized work-stealing pool swaps its executor; retry on the new one
+                if (shutdown || current == executor) {
+                    submitted.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @requires task != null
+     * @return a future for task's result; a task that throws is counted as failed
+     * @throws RejectedExecutionException if the pool has been shut down
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<T>(task) {
+            @Override
+            protected void setException(Throwable t) {
+                failed.incrementAndGet();
+                super.setException(t);
+            }
+        };
+        execute(future);
+        return future;
+    }
+
+    /**
+     * A FIXED pool changes its thread count, a CACHED pool its maximum; tasks queued beyond
+     * the old size are picked up by the new threads. A WORK_STEALING pool
+     * cannot change its parallelism, so it is replaced and the old one drains in the background.
+     * @requires newSize > 0
+     * @modifies this
+     * @throws IllegalArgumentException if newSize is not positive
+     * @throws UnsupportedOperationException if the pool is VIRTUAL, which has no size
+     * @throws IllegalStateException if the pool has been shut down
+     */
+    public synchronized void resize(int newSize) {
+        if (newSize <= 0) throw new IllegalArgumentException("Pool size must be positive: " + newSize);
+        if (kind == PoolKind.VIRTUAL) throw new UnsupportedOperationException("Virtual-thread pools have no size");
+        if (shutdown) throw new IllegalStateException("Pool " + name + " is shut down");
+        if (kind == PoolKind.WORK_STEALING) {
+            ExecutorService old = executor;
+            executor = newExecutor(newSize);
+            old.shutdown();
+        } else {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            // the core size may never exceed the maximum, so the order depends on the direction
+            if (newSize > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(newSize);
+                pool.setCorePoolSize(newSize);
+            } else {
+                pool.setCorePoolSize(newSize);
+                pool.setMaximumPoolSize(newSize);
+            }
+        }
+        size = newSize;
+    }
+
+    /**
+     * @modifies this
+     * @effects stops accepting tasks; queued and running tasks still complete
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        executor.shutdown();
+    }
+
+    /**
+     * @requires timeout >= 0
+     * @return true if every task finished within timeout after shutdown
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @modifies this
+     * @return the pool's metrics, with throughput and percentiles over the window since the previous call
+     */
+    public synchronized PoolMetrics metrics() {
+        long now = System.nanoTime();
+        long done = completed.get();
+        latency.copyCounts(windowCounts);
+        long windowTotal = 0;
+        for (int b = 0; b < windowCounts.length; b++) {
+            long count = windowCounts[b];
+            windowCounts[b] = count - previousCounts[b];
+            previousCounts[b] = count;
+            windowTotal += windowCounts[b];
+        }
+        double seconds = (now - previousNanos) / 1e9;
+        double throughput = seconds > 0 ? (done - previousCompleted) / seconds : 0;
+        previousCompleted = done;
+        previousNanos = now;
+
+        int running = active.get();
+        return new PoolMetrics(name, kind, size, threadCount(running), running,
+                Math.max(0, submitted.get() - started.get()), done, failed.get(), throughput,
+                LatencyHistogram.percentile(windowCounts, windowTotal, 0.50) / 1000,
+                LatencyHistogram.percentile(windowCounts, windowTotal, 0.90) / 1000,
+                LatencyHistogram.percentile(windowCounts, windowTotal, 0.99) / 1000,
+                shutdown);
+    }
+
+    /*
+     * Cumulative counters read without moving the metrics window, for exporters that compute their own rates.
+     */
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    int getThreadCount() {
+        return threadCount(active.get());
+    }
+
+    long getQueuedCount() {
+        return Math.max(0, submitted.get() - started.get());
+    }
+
+    long getCompletedCount() {
+        return completed.get();
+    }
+
+    long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @requires into.length == LatencyHistogram.BUCKETS
+     * @modifies into
+     * @effects copies the counts of every task latency since the pool was created
+     */
+    void copyLatencyCounts(long[] into) {
+        latency.copyCounts(into);
+    }
+
+    private int threadCount(int running) {
+        ExecutorService current = executor;
+        if (current instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor) current).getPoolSize();
+        if (current instanceof ForkJoinPool) return ((ForkJoinPool) current).getPoolSize();
+        // a virtual-thread-per-task executor has exactly one thread per running task
+        return running;
+    }
+}
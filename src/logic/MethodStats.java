@@ -0,0 +1,46 @@
+package logic;
+
+/**
+ * Sample counts for one method in a profile.
+ */
+public final class MethodStats {
+    private final String method;
+    private final int selfSamples;
+    private final int totalSamples;
+    private final long profileSamples;
+
+    MethodStats(String method, int selfSamples, int totalSamples, long profileSamples) {
+        this.method = method;
+        this.selfSamples = selfSamples;
+        this.totalSamples = totalSamples;
+        this.profileSamples = profileSamples;
+    }
+
+    /**
+     * @return the fully qualified class name and method name
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the samples in which this method was on top of the stack
+     */
+    public int getSelfSamples() {
+        return selfSamples;
+    }
+
+    /**
+     * @return the samples in which this method was anywhere on the stack
+     */
+    public int getTotalSamples() {
+        return totalSamples;
+    }
+
+    /**
+     * @return getSelfSamples as a percentage of all samples in the profile
+     */
+    public double getSelfPercent() {
+        return profileSamples == 0 ? 0 : selfSamples * 100.0 / profileSamples;
+    }
+}
@@ -0,0 +1,415 @@
+package logic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An embedded HTTP endpoint serving the monitor's data at /metrics in the Prometheus text
+ * format: threads by state and group, daemon threads, the manager's pools, the top threads by
+ * CPU and allocation and the monitor's own cost. publish renders a collected snapshot once into
+ * an immutable byte array; a scrape only writes out the latest array, so it never enumerates
+ * threads and costs one copy into the socket.
+ * Label cardinality is bounded: at most MAX_GROUPS groups are named, the rest are summed into
+ * "(other)", groups whose names come out as the same label value are summed into one series,
+ * and top threads are labelled by rank with every run of digits in their names collapsed to N,
+ * so pool-1-thread-17 and pool-1-thread-3 are one series over time.
+ */
+public final class MetricsEndpoint implements Closeable {
+    public static final String PATH = "/metrics";
+    static final int MAX_GROUPS = 20;
+    static final int TOP_THREADS = 10;
+    private static final int MAX_LABEL_CHARS = 64;
+    private static final String OTHER = "(other)";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ThreadManager threadManager;
+    private final LongAdder scrapes = new LongAdder();
+    // only touched while publishing
+    private final BinaryWriter buffer = new BinaryWriter(16 * 1024);
+    private final StringBuilder label = new StringBuilder(MAX_LABEL_CHARS);
+    private final long[] latencyCounts = new long[LatencyHistogram.BUCKETS];
+    private final int[] stateCounts = new int[STATES.length];
+    private final Map<String, int[]> groupCounts = new HashMap<>();
+    private final Map<String, int[]> labelCounts = new HashMap<>();
+    private final int[] top = new int[TOP_THREADS];
+    private volatile byte[] rendered;
+
+    private MetricsEndpoint(HttpServer server, ExecutorService executor, ThreadManager threadManager) {
+        this.server = server;
+        this.executor = executor;
+        this.threadManager = threadManager;
+    }
+
+    /**
+     * @requires threadManager != null
+     * @param port the port to listen on, on every interface, or 0 for any free port
+     * @param threadManager whose pools and self metrics are served
+     * @return a started endpoint; scrapes are answered 503 until the first publish
+     * @throws IOException if the port cannot be bound
+     */
+    public static MetricsEndpoint start(int port, ThreadManager threadManager) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thread-manager-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsEndpoint endpoint = new MetricsEndpoint(server, executor, threadManager);
+        server.createContext(PATH, endpoint::serve);
+        server.setExecutor(executor);
+        server.start();
+        return endpoint;
+    }
+
+    /**
+     * @return the port the endpoint listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of scrapes answered with metrics
+     */
+    public long getScrapes() {
+        return scrapes.sum();
+    }
+
+    /**
+     * Renders the metrics that scrapes are answered with from now on. Meant to be called on the
+     * collector thread after each collection.
+     * @requires snapshot != null
+     * @param report the contention report of the same tick, or null if contention is not analyzed
+     * @param includePools whether to serve the manager's pools, which are only meaningful when snapshot is of this jvm
+     * @modifies this
+     */
+    public synchronized void publish(ThreadSnapshot snapshot, ContentionReport report, boolean includePools) {
+        buffer.reset();
+        writeThreads(snapshot);
+        if (report != null) {
+            header("threadmanager_deadlocked_threads", "gauge", "Threads in a deadlock cycle.");
+            buffer.writeAscii("threadmanager_deadlocked_threads ");
+            buffer.writeDecimal(report.getDeadlockedIds().length);
+            buffer.writeByte('\n');
+        }
+        writeTopThreads(snapshot);
+        if (includePools) writePools(threadManager.getPools());
+        writeSelfMetrics(threadManager.getSelfMetrics());
+        header("threadmanager_snapshot_timestamp_seconds", "gauge", "When the served snapshot was rendered.");
+        buffer.writeAscii("threadmanager_snapshot_timestamp_seconds ");
+        writeValue(System.currentTimeMillis() / 1000.0);
+        buffer.writeByte('\n');
+        rendered = buffer.toByteArray();
+    }
+
+    /**
+     * @return the metrics scrapes are answered with, or null before the first publish
+     */
+    byte[] getRendered() {
+        return rendered;
+    }
+
+    /**
+     * @effects stops listening; scrapes in progress are given a second to finish
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = rendered;
+            if (body == null) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            scrapes.increment();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void writeThreads(ThreadSnapshot snapshot) {
+        Arrays.fill(stateCounts, 0);
+        groupCounts.clear();
+        labelCounts.clear();
+        int daemons = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            stateCounts[snapshot.getState(i).ordinal()]++;
+            if (snapshot.isDaemon(i)) daemons++;
+            groupCounts.computeIfAbsent(snapshot.getGroupName(i), name -> new int[1])[0]++;
+        }
+        header("threadmanager_threads", "gauge", "Live threads by state.");
+        for (Thread.State state : STATES) {
+            buffer.writeAscii("threadmanager_threads{state=\"");
+            buffer.writeAscii(state.name());
+            buffer.writeAscii("\"} ");
+            buffer.writeDecimal(stateCounts[state.ordinal()]);
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_daemon_threads", "gauge", "Live daemon threads.");
+        buffer.writeAscii("threadmanager_daemon_threads ");
+        buffer.writeDecimal(daemons);
+        buffer.writeByte('\n');
+
+        // two groups truncated or sanitized to the same label would be a duplicate series, which fails the whole scrape
+        for (Map.Entry<String, int[]> group : groupCounts.entrySet()) {
+            labelCounts.computeIfAbsent(label(group.getKey(), false), name -> new int[1])[0] += group.getValue()[0];
+        }
+        List<Map.Entry<String, int[]>> groups = new ArrayList<>(labelCounts.entrySet());
+        groups.sort((a, b) -> a.getValue()[0] != b.getValue()[0] ? Integer.compare(b.getValue()[0], a.getValue()[0])
+                : a.getKey().compareTo(b.getKey()));
+        header("threadmanager_group_threads", "gauge", "Live threads by thread-group, the largest "
+                + MAX_GROUPS + " named and the rest summed into (other).");
+        int other = 0;
+        for (int g = MAX_GROUPS; g < groups.size(); g++) other += groups.get(g).getValue()[0];
+        boolean otherNamed = false;
+        for (int g = 0; g < Math.min(MAX_GROUPS, groups.size()); g++) {
+            // a group really named (other) takes the rest too, rather than being a second (other) series
+            boolean isOther = groups.get(g).getKey().equals(OTHER);
+            otherNamed |= isOther;
+            buffer.writeAscii("threadmanager_group_threads{group=");
+            buffer.writeJsonString(groups.get(g).getKey());
+            buffer.writeAscii("} ");
+            buffer.writeDecimal(groups.get(g).getValue()[0] + (isOther ? other : 0));
+            buffer.writeByte('\n');
+        }
+        if (groups.size() > MAX_GROUPS && !otherNamed) {
+            buffer.writeAscii("threadmanager_group_threads{group=");
+            buffer.writeJsonString(OTHER);
+            buffer.writeAscii("} ");
+            buffer.writeDecimal(other);
+            buffer.writeByte('\n');
+        }
+    }
+
+    private void writeTopThreads(ThreadSnapshot snapshot) {
+        header("threadmanager_top_thread_cpu_percent", "gauge", "The busiest threads' CPU as a percentage of one core.");
+        int count = selectTop(snapshot, true);
+        for (int r = 0; r < count; r++) {
+            writeRanked("threadmanager_top_thread_cpu_percent", r, snapshot.getName(top[r]));
+            buffer.writeHundredths(snapshot.getCpuPercent(top[r]));
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_top_thread_allocation_bytes_per_second", "gauge", "The most allocating threads' bytes per second.");
+        count = selectTop(snapshot, false);
+        for (int r = 0; r < count; r++) {
+            writeRanked("threadmanager_top_thread_allocation_bytes_per_second", r, snapshot.getName(top[r]));
+            buffer.writeDecimal(Math.round(snapshot.getAllocationRate(top[r])));
+            buffer.writeByte('\n');
+        }
+    }
+
+    /**
+     * @modifies this.top
+     * @return the number of threads with a known, positive rate placed in top, highest first
+     */
+    private int selectTop(ThreadSnapshot snapshot, boolean byCpu) {
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            double value = byCpu ? snapshot.getCpuPercent(i) : snapshot.getAllocationRate(i);
+            if (value <= 0 || (count == TOP_THREADS && value <= rate(snapshot, top[count - 1], byCpu))) continue;
+            int slot = Math.min(count, TOP_THREADS - 1);
+            while (slot > 0 && rate(snapshot, top[slot - 1], byCpu) < value) {
+                top[slot] = top[slot - 1];
+                slot--;
+            }
+            top[slot] = i;
+            if (count < TOP_THREADS) count++;
+        }
+        return count;
+    }
+
+    private static double rate(ThreadSnapshot snapshot, int i, boolean byCpu) {
+        return byCpu ? snapshot.getCpuPercent(i) : snapshot.getAllocationRate(i);
+    }
+
+    private void writeRanked(String metric, int rank, String threadName) {
+        buffer.writeAscii(metric);
+        buffer.writeAscii("{rank=\"");
+        buffer.writeDecimal(rank + 1);
+        buffer.writeAscii("\",thread=");
+        writeLabel(threadName, true);
+        buffer.writeAscii("} ");
+    }
+
+    private void writePools(List<ManagedPool> pools) {
+        if (pools.isEmpty()) return;
+        header("threadmanager_pool_size", "gauge", "Configured size of each managed pool.");
+        for (ManagedPool pool : pools) {
+            writePoolSample("threadmanager_pool_size", pool);
+            buffer.writeDecimal(pool.getSize());
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_pool_threads", "gauge", "Threads each managed pool runs.");
+        for (ManagedPool pool : pools) {
+            writePoolSample("threadmanager_pool_threads", pool);
+            buffer.writeDecimal(pool.getThreadCount());
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_pool_active_tasks", "gauge", "Tasks running in each managed pool.");
+        for (ManagedPool pool : pools) {
+            writePoolSample("threadmanager_pool_active_tasks", pool);
+            buffer.writeDecimal(pool.getActiveCount());
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_pool_queued_tasks", "gauge", "Tasks submitted to each managed pool and not yet started.");
+        for (ManagedPool pool : pools) {
+            writePoolSample("threadmanager_pool_queued_tasks", pool);
+            buffer.writeDecimal(pool.getQueuedCount());
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_pool_completed_tasks_total", "counter", "Tasks each managed pool has completed.");
+        for (ManagedPool pool : pools) {
+            writePoolSample("threadmanager_pool_completed_tasks_total", pool);
+            buffer.writeDecimal(pool.getCompletedCount());
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_pool_failed_tasks_total", "counter", "Completed tasks that threw, per managed pool.");
+        for (ManagedPool pool : pools) {
+            writePoolSample("threadmanager_pool_failed_tasks_total", pool);
+            buffer.writeDecimal(pool.getFailedCount());
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_pool_task_latency_seconds", "summary", "Submit-to-completion latency of each managed pool's tasks.");
+        for (ManagedPool pool : pools) {
+            pool.copyLatencyCounts(latencyCounts);
+            long total = 0;
+            for (long count : latencyCounts) total += count;
+            for (double quantile : QUANTILES) {
+                buffer.writeAscii("threadmanager_pool_task_latency_seconds{pool=");
+                writeLabel(pool.getName(), false);
+                buffer.writeAscii(",quantile=\"");
+                buffer.writeAscii(Double.toString(quantile));
+                buffer.writeAscii("\"} ");
+                writeValue(LatencyHistogram.percentile(latencyCounts, total, quantile) / 1e6);
+                buffer.writeByte('\n');
+            }
+            writePoolSample("threadmanager_pool_task_latency_seconds_count", pool);
+            buffer.writeDecimal(total);
+            buffer.writeByte('\n');
+        }
+    }
+
+    private void writePoolSample(String metric, ManagedPool pool) {
+        buffer.writeAscii(metric);
+        buffer.writeAscii("{pool=");
+        writeLabel(pool.getName(), false);
+        buffer.writeAscii(",kind=\"");
+        buffer.writeAscii(pool.getKind().name());
+        buffer.writeAscii("\"} ");
+    }
+
+    private void writeSelfMetrics(SelfMetrics metrics) {
+        header("threadmanager_phase_seconds", "summary", "Duration of each phase of the monitor's refreshes.");
+        for (SelfMetrics.Phase phase : SelfMetrics.Phase.values()) {
+            String name = phase.name().toLowerCase(Locale.ROOT);
+            for (double quantile : QUANTILES) {
+                buffer.writeAscii("threadmanager_phase_seconds{phase=\"");
+                buffer.writeAscii(name);
+                buffer.writeAscii("\",quantile=\"");
+                buffer.writeAscii(Double.toString(quantile));
+                buffer.writeAscii("\"} ");
+                writeValue(metrics.getPercentileMicros(phase, quantile) / 1e6);
+                buffer.writeByte('\n');
+            }
+            buffer.writeAscii("threadmanager_phase_seconds_sum{phase=\"");
+            buffer.writeAscii(name);
+            buffer.writeAscii("\"} ");
+            writeValue(metrics.getTotalNanos(phase) / 1e9);
+            buffer.writeAscii("\nthreadmanager_phase_seconds_count{phase=\"");
+            buffer.writeAscii(name);
+            buffer.writeAscii("\"} ");
+            buffer.writeDecimal(metrics.getCount(phase));
+            buffer.writeByte('\n');
+        }
+        header("threadmanager_collector_cpu_seconds_total", "counter", "CPU time of the monitor's collector thread.");
+        buffer.writeAscii("threadmanager_collector_cpu_seconds_total ");
+        writeValue(metrics.getCollectorCpuNanos() / 1e9);
+        buffer.writeByte('\n');
+        header("threadmanager_collector_allocated_bytes_total", "counter", "Bytes allocated by the monitor's collector thread.");
+        buffer.writeAscii("threadmanager_collector_allocated_bytes_total ");
+        buffer.writeDecimal(metrics.getCollectorAllocatedBytes());
+        buffer.writeByte('\n');
+    }
+
+    private void header(String metric, String type, String help) {
+        buffer.writeAscii("# HELP ");
+        buffer.writeAscii(metric);
+        buffer.writeByte(' ');
+        buffer.writeAscii(help);
+        buffer.writeAscii("\n# TYPE ");
+        buffer.writeAscii(metric);
+        buffer.writeByte(' ');
+        buffer.writeAscii(type);
+        buffer.writeByte('\n');
+    }
+
+    /**
+     * @effects writes label(value, collapseDigits) quoted, with quotes and backslashes escaped
+     */
+    private void writeLabel(String value, boolean collapseDigits) {
+        // with control characters gone, JSON escapes quotes and backslashes the way the exposition format does
+        buffer.writeJsonString(label(value, collapseDigits));
+    }
+
+    /**
+     * @return value as a label value: at most MAX_LABEL_CHARS long, control characters replaced
+     *         by _ and, if collapseDigits, every run of digits by N
+     */
+    private String label(String value, boolean collapseDigits) {
+        label.setLength(0);
+        for (int c = 0; c < value.length() && label.length() < MAX_LABEL_CHARS; c++) {
+            char ch = value.charAt(c);
+            if (collapseDigits && isDigit(ch)) {
+                if (c == 0 || !isDigit(value.charAt(c - 1))) label.append('N');
+            } else {
+                label.append(ch < 0x20 ? '_' : ch);
+            }
+        }
+        return label.toString();
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private void writeValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) buffer.writeDecimal((long) value);
+        else buffer.writeAscii(Double.toString(value));
+    }
+}
@@ -0,0 +1,70 @@
+package logic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One contended monitor or synchronizer: who holds it, who is blocked on it,
+ * and how much blocked time its waiters have accumulated while it was contended.
+ */
+public final class MonitorContention {
+    private final String lockName;
+    private final long ownerId;
+    private final String ownerName;
+    private final List<String> ownerHeldLocks;
+    private final long[] waiterIds;
+    private final long blockedMillis;
+
+    MonitorContention(String lockName, long ownerId, String ownerName, List<String> ownerHeldLocks,
+                      long[] waiterIds, long blockedMillis) {
+        this.lockName = lockName;
+        this.ownerId = ownerId;
+        this.ownerName = ownerName;
+        this.ownerHeldLocks = Collections.unmodifiableList(ownerHeldLocks);
+        this.waiterIds = waiterIds;
+        this.blockedMillis = blockedMillis;
+    }
+
+    /**
+     * @return the lock's class name and identity hash, as in ThreadInfo.getLockName
+     */
+    public String getLockName() {
+        return lockName;
+    }
+
+    /**
+     * @return the id of the thread holding the lock, or -1 if it is not known
+     */
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * @return the name of the owning thread, or null if it is not known
+     */
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    /**
+     * @return every monitor and ownable synchronizer the owner holds
+     */
+    public List<String> getOwnerHeldLocks() {
+        return ownerHeldLocks;
+    }
+
+    public int getWaiterCount() {
+        return waiterIds.length;
+    }
+
+    public long getWaiterId(int k) {
+        return waiterIds[k];
+    }
+
+    /**
+     * @return the blocked time accumulated by this lock's waiters while it has been contended
+     */
+    public long getBlockedMillis() {
+        return blockedMillis;
+    }
+}
@@ -0,0 +1,169 @@
+package logic;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Thread category of this jvm's Native Memory Tracking summary, read with the
+ * DiagnosticCommand MBean's vmNativeMemory. The figures cover every thread of the jvm,
+ * including the GC and compiler threads. Native Memory Tracking has to be turned on at
+ * startup with -XX:NativeMemoryTracking=summary; without it nothing is available.
+ */
+public final class NativeMemorySummary {
+    private static final String[] SIGNATURE = {String[].class.getName()};
+    private static final Pattern SIZE = Pattern.compile("(reserved|committed|malloc|arena)=(\\d+)(B|KB|MB|GB)?");
+    private static final Pattern THREADS = Pattern.compile("threads? #(\\d+)");
+
+    private final boolean available;
+    private final int threads;
+    private final long stackReserved;
+    private final long stackCommitted;
+    private final long reserved;
+    private final long committed;
+    private final long malloc;
+    private final long arena;
+
+    private NativeMemorySummary(boolean available, int threads, long stackReserved, long stackCommitted,
+                                long reserved, long committed, long malloc, long arena) {
+        this.available = available;
+        this.threads = threads;
+        this.stackReserved = stackReserved;
+        this.stackCommitted = stackCommitted;
+        this.reserved = reserved;
+        this.committed = committed;
+        this.malloc = malloc;
+        this.arena = arena;
+    }
+
+    /**
+     * @return this jvm's summary, unavailable if Native Memory Tracking is off or cannot be read
+     */
+    public static NativeMemorySummary read() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String summary = (String) server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "vmNativeMemory", new Object[]{new String[]{"summary", "scale=KB"}}, SIGNATURE);
+            return parse(summary);
+        } catch (JMException | RuntimeException e) {
+            return parse("");
+        }
+    }
+
+    /**
+     * Reads the Thread category of a summary, which looks like
+     * <pre>
+     * -                    Thread (reserved=21571KB, committed=1091KB)
+     *                             (thread #21)
+     *                             (stack: reserved=21504KB, committed=1024KB)
+     *                             (malloc=37KB #126)
+     *                             (arena=30KB #40)
+     * </pre>
+     * @requires summary != null
+     * @return the category's figures in bytes, unavailable if summary has no Thread category
+     */
+    public static NativeMemorySummary parse(String summary) {
+        int category = -1;
+        for (int line = 0; line < summary.length(); ) {
+            int end = summary.indexOf('\n', line);
+            if (end < 0) end = summary.length();
+            String text = summary.substring(line, end).trim();
+            if (text.startsWith("-") && text.substring(1).trim().startsWith("Thread (")) {
+                category = line;
+                break;
+            }
+            line = end + 1;
+        }
+        if (category < 0) return new NativeMemorySummary(false, 0, 0, 0, 0, 0, 0, 0);
+        int threads = 0;
+        long stackReserved = 0;
+        long stackCommitted = 0;
+        long reserved = 0;
+        long committed = 0;
+        long malloc = 0;
+        long arena = 0;
+        boolean first = true;
+        for (int line = category; line < summary.length(); ) {
+            int end = summary.indexOf('\n', line);
+            if (end < 0) end = summary.length();
+            String text = summary.substring(line, end).trim();
+            // the category ends at the next category or blank line
+            if (!first && !text.startsWith("(")) break;
+            boolean stack = text.startsWith("(stack:");
+            Matcher threadCount = THREADS.matcher(text);
+            if (!first && threadCount.find()) threads = Integer.parseInt(threadCount.group(1));
+            Matcher size = SIZE.matcher(text);
+            while (size.find()) {
+                long bytes = bytes(Long.parseLong(size.group(2)), size.group(3));
+                switch (size.group(1)) {
+                    case "reserved":
+                        if (first) reserved = bytes;
+                        else if (stack) stackReserved = bytes;
+                        break;
+                    case "committed":
+                        if (first) committed = bytes;
+                        else if (stack) stackCommitted = bytes;
+                        break;
+                    case "malloc":
+                        malloc = bytes;
+                        break;
+                    default:
+                        arena = bytes;
+                }
+            }
+            first = false;
+            line = end + 1;
+        }
+        return new NativeMemorySummary(true, threads, stackReserved, stackCommitted, reserved, committed, malloc, arena);
+    }
+
+    private static long bytes(long value, String unit) {
+        if (unit == null || unit.equals("B")) return value;
+        if (unit.equals("KB")) return value << 10;
+        if (unit.equals("MB")) return value << 20;
+        return value << 30;
+    }
+
+    /**
+     * @return true if Native Memory Tracking is on and the summary had a Thread category
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return the number of threads of the jvm, java or not
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getStackReserved() {
+        return stackReserved;
+    }
+
+    public long getStackCommitted() {
+        return stackCommitted;
+    }
+
+    /**
+     * @return the bytes reserved for threads, stacks and native structures together
+     */
+    public long getReserved() {
+        return reserved;
+    }
+
+    public long getCommitted() {
+        return committed;
+    }
+
+    /**
+     * @return the bytes of native structures the jvm allocated for its threads, outside their stacks
+     */
+    public long getNative() {
+        return malloc + arena;
+    }
+}
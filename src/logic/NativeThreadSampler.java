@@ -0,0 +1,335 @@
+package logic;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Correlates the java threads of this jvm with their native Linux threads and samples each
+ * one's scheduler statistics from /proc/self/task/&lt;tid&gt;/stat and status. A java thread's
+ * native tid is the nid of its entry in a thread dump; dumps are expensive, so one is only
+ * taken when there are threads not yet looked up, at most every ten seconds, and on a background
+ * thread rather than the sampling one. Until it completes, those threads sample as UNKNOWN.
+ * The files are read into one reused buffer and parsed in place, without building or splitting strings.
+ */
+final class NativeThreadSampler {
+    /** Written into an output slot when the value cannot be read. */
+    static final int UNKNOWN = -1;
+
+    private static final Path TASKS = Paths.get("/proc/self/task");
+    /** USER_HZ, the unit of the times in stat; 100 on every mainstream Linux architecture. */
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    private static final long RESOLVE_INTERVAL_NANOS = 10_000_000_000L;
+    private static final String[] DUMP_SIGNATURE = {String[].class.getName()};
+    private static final byte[] VOLUNTARY = "voluntary_ctxt_switches:".getBytes();
+    private static final byte[] NONVOLUNTARY = "nonvoluntary_ctxt_switches:".getBytes();
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    // the native thread of each java thread, by slot
+    private final SlotTable slots = new SlotTable(256);
+    private int[] slotTids = new int[256];
+    private Path[] slotStat = new Path[256];
+    private Path[] slotStatus = new Path[256];
+    private int[] slotSeen = new int[256];
+    private int generation;
+    /** Ids that were not in the last dump, such as virtual threads; not looked up again until the next dump. */
+    private final LongIndexMap unresolvable = new LongIndexMap(16);
+    private long lastDumpNanos;
+    private boolean dumped;
+    private final AtomicBoolean resolving = new AtomicBoolean();
+
+    private long[] previousVoluntary = new long[0];
+    private long[] previousInvoluntary = new long[0];
+    private final LongIndexMap previousIndex = new LongIndexMap(256);
+    private long previousNanos;
+
+    // the fields of the last parsed stat and status
+    long utime;
+    long stime;
+    int nice;
+    int processor;
+    long voluntary;
+    long involuntary;
+
+    /**
+     * @return true if this jvm runs on Linux with /proc mounted
+     */
+    static boolean isSupported() {
+        return Files.isDirectory(TASKS);
+    }
+
+    /**
+     * @requires ids and every output array have the same length
+     * @param ids the ids of the threads to sample
+     * @param nanos the System.nanoTime of the sample
+     * @modifies this, the output arrays
+     * @effects writes each thread's native tid, voluntary and involuntary context switches per second
+     *          since the previous sample, the CPU it last ran on, its nice value and its native CPU time
+     *          in nanoseconds; UNKNOWN for a thread whose tid is not known or whose task has gone.
+     *          Threads seen for the first time get switch rates of 0.
+     */
+    synchronized void sample(long[] ids, long nanos, long[] tidOut, double[] voluntaryOut, double[] involuntaryOut,
+                             int[] lastCpuOut, int[] niceOut, long[] cpuNanosOut) {
+        resolve(ids, nanos);
+        generation++;
+        long[] voluntaryNow = new long[ids.length];
+        long[] involuntaryNow = new long[ids.length];
+        long elapsed = nanos - previousNanos;
+        boolean hasPrevious = previousNanos != 0 && elapsed > 0;
+        for (int i = 0; i < ids.length; i++) {
+            int slot = slots.get(ids[i]);
+            if (slot >= 0) slotSeen[slot] = generation;
+            if (slot < 0 || !read(slotStat[slot]) || !parseStat(buffer.array(), buffer.position())
+                    || !read(slotStatus[slot]) || !parseStatus(buffer.array(), buffer.position())) {
+                tidOut[i] = UNKNOWN;
+                voluntaryOut[i] = involuntaryOut[i] = UNKNOWN;
+                lastCpuOut[i] = UNKNOWN;
+                niceOut[i] = 0;
+                cpuNanosOut[i] = UNKNOWN;
+                voluntaryNow[i] = involuntaryNow[i] = UNKNOWN;
+                continue;
+            }
+            tidOut[i] = slotTids[slot];
+            lastCpuOut[i] = processor;
+            niceOut[i] = nice;
+            cpuNanosOut[i] = (utime + stime) * (1_000_000_000L / CLOCK_TICKS_PER_SECOND);
+            voluntaryNow[i] = voluntary;
+            involuntaryNow[i] = involuntary;
+            int before = hasPrevious ? previousIndex.get(ids[i]) : -1;
+            voluntaryOut[i] = rate(voluntary, before < 0 ? UNKNOWN : previousVoluntary[before], elapsed);
+            involuntaryOut[i] = rate(involuntary, before < 0 ? UNKNOWN : previousInvoluntary[before], elapsed);
+        }
+        for (int slot = 0; slot < slots.limit(); slot++) {
+            if (slots.isUsed(slot) && slotSeen[slot] != generation) release(slot);
+        }
+        previousIndex.clear();
+        for (int i = 0; i < ids.length; i++) previousIndex.put(ids[i], i);
+        previousVoluntary = voluntaryNow;
+        previousInvoluntary = involuntaryNow;
+        previousNanos = nanos;
+    }
+
+    private static double rate(long current, long previous, long elapsed) {
+        if (previous < 0 || current < previous) return 0;
+        return (current - previous) * 1e9 / elapsed;
+    }
+
+    /**
+     * Starts a thread dump in the background if some of ids have no tid yet, the last dump is
+     * old enough and none is running.
+     */
+    private void resolve(long[] ids, long nanos) {
+        if (dumped && nanos - lastDumpNanos < RESOLVE_INTERVAL_NANOS) return;
+        boolean missing = false;
+        for (long id : ids) {
+            if (slots.get(id) < 0 && unresolvable.get(id) < 0) {
+                missing = true;
+                break;
+            }
+        }
+        if (!missing || !resolving.compareAndSet(false, true)) return;
+        dumped = true;
+        lastDumpNanos = nanos;
+        long[] wanted = ids.clone();
+        Thread resolver = new Thread(() -> {
+            try {
+                String dump = dumpThreads();
+                synchronized (this) {
+                    parseDump(dump);
+                    unresolvable.clear();
+                    for (long id : wanted) {
+                        if (slots.get(id) < 0) unresolvable.put(id, 0);
+                    }
+                }
+            } finally {
+                resolving.set(false);
+            }
+        }, "thread-manager-tid-resolver");
+        resolver.setDaemon(true);
+        resolver.start();
+    }
+
+    /**
+     * @return a thread dump of this jvm as text, or "" if it cannot be taken
+     */
+    private String dumpThreads() {
+        try {
+            return (String) server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), "threadPrint",
+                    new Object[]{new String[0]}, DUMP_SIGNATURE);
+        } catch (JMException | RuntimeException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Maps the java id of each entry of dump to its nid. Entries are lines like
+     * "name" #12 daemon prio=5 os_prio=0 cpu=1.2ms elapsed=3.4s tid=0x00007f... nid=0x1a2b waiting on condition
+     * and only java threads have a #id.
+     */
+    void parseDump(String dump) {
+        int line = 0;
+        while (line < dump.length()) {
+            int end = dump.indexOf('\n', line);
+            if (end < 0) end = dump.length();
+            if (dump.charAt(line) == '"') {
+                int hash = dump.lastIndexOf("\" #", end);
+                int nid = dump.indexOf(" nid=0x", line);
+                if (hash >= line && nid >= 0 && nid < end) {
+                    long id = parseLong(dump, hash + 3, 10);
+                    long tid = parseLong(dump, nid + 7, 16);
+                    if (id > 0 && tid > 0 && slots.get(id) < 0) track(id, (int) tid);
+                }
+            }
+            line = end + 1;
+        }
+    }
+
+    private static long parseLong(String s, int from, int radix) {
+        long value = 0;
+        int i = from;
+        for (; i < s.length(); i++) {
+            int digit = Character.digit(s.charAt(i), radix);
+            if (digit < 0) break;
+            value = value * radix + digit;
+        }
+        return i == from ? -1 : value;
+    }
+
+    private void track(long id, int tid) {
+        int slot = slots.add(id);
+        if (slots.capacity() > slotTids.length) grow(slots.capacity());
+        slotTids[slot] = tid;
+        Path task = TASKS.resolve(Integer.toString(tid));
+        slotStat[slot] = task.resolve("stat");
+        slotStatus[slot] = task.resolve("status");
+        slotSeen[slot] = generation;
+    }
+
+    private void release(int slot) {
+        slots.release(slot);
+        slotStat[slot] = null;
+        slotStatus[slot] = null;
+    }
+
+    private void grow(int size) {
+        slotTids = Arrays.copyOf(slotTids, size);
+        slotStat = Arrays.copyOf(slotStat, size);
+        slotStatus = Arrays.copyOf(slotStatus, size);
+        slotSeen = Arrays.copyOf(slotSeen, size);
+    }
+
+    /**
+     * @modifies this.buffer
+     * @return true if the whole file is now at the start of the buffer, false if it cannot be read
+     */
+    private boolean read(Path file) {
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // a /proc file may come in several reads
+            }
+            // a full buffer may have cut the file short
+            return buffer.hasRemaining();
+        } catch (IOException e) {
+            // the thread has ended since it was enumerated
+            return false;
+        }
+    }
+
+    /**
+     * Parses the contents of a stat file: "tid (comm) state ppid ..." where comm may itself
+     * contain spaces and parentheses, so the fields are counted from the last ')'.
+     * @modifies this.utime, this.stime, this.nice, this.processor
+     * @return true if every field was found
+     */
+    boolean parseStat(byte[] bytes, int length) {
+        int close = length - 1;
+        while (close >= 0 && bytes[close] != ')') close--;
+        if (close < 0) return false;
+        int field = 2;
+        boolean found = false;
+        for (int i = close + 1; i < length; i++) {
+            if (bytes[i] != ' ') continue;
+            field++;
+            int start = i + 1;
+            switch (field) {
+                case 14:
+                    utime = parseNumber(bytes, start, length);
+                    break;
+                case 15:
+                    stime = parseNumber(bytes, start, length);
+                    break;
+                case 19:
+                    nice = (int) parseNumber(bytes, start, length);
+                    break;
+                case 39:
+                    processor = (int) parseNumber(bytes, start, length);
+                    found = true;
+                    break;
+                default:
+                    break;
+            }
+            if (found) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses the context switch counts out of the contents of a status file. They are its last
+     * lines, so the lines are looked at from the end.
+     * @modifies this.voluntary, this.involuntary
+     * @return true if both were found
+     */
+    boolean parseStatus(byte[] bytes, int length) {
+        voluntary = involuntary = UNKNOWN;
+        int end = length;
+        while (end > 0 && (voluntary < 0 || involuntary < 0)) {
+            int line = end - 1;
+            while (line > 0 && bytes[line - 1] != '\n') line--;
+            if (startsWith(bytes, line, end, VOLUNTARY)) {
+                voluntary = parseNumber(bytes, skipBlanks(bytes, line + VOLUNTARY.length, end), end);
+            } else if (startsWith(bytes, line, end, NONVOLUNTARY)) {
+                involuntary = parseNumber(bytes, skipBlanks(bytes, line + NONVOLUNTARY.length, end), end);
+            }
+            end = line;
+        }
+        return voluntary >= 0 && involuntary >= 0;
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int length, byte[] prefix) {
+        if (from + prefix.length > length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[from + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static int skipBlanks(byte[] bytes, int from, int length) {
+        while (from < length && (bytes[from] == ' ' || bytes[from] == '\t')) from++;
+        return from;
+    }
+
+    /**
+     * @return the decimal number at from, which may be negative
+     */
+    private static long parseNumber(byte[] bytes, int from, int length) {
+        boolean negative = from < length && bytes[from] == '-';
+        long value = 0;
+        for (int i = negative ? from + 1 : from; i < length && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            value = value * 10 + (bytes[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,22 @@
+package logic;
+
+/**
+ * The kinds of executor a ManagedPool can run on.
+ */
+public enum PoolKind {
+    /** A fixed number of platform threads sharing an unbounded queue. */
+    FIXED,
+    /** Platform threads created on demand up to a maximum and retired after 60 s idle; tasks beyond the maximum queue. */
+    CACHED,
+    /** A work-stealing ForkJoinPool with the given parallelism. */
+    WORK_STEALING,
+    /** A new virtual thread per task (JDK 21+); the size is ignored. */
+    VIRTUAL;
+
+    /**
+     * @return true if the pool's workers run in a thread-group of its own, named after the pool
+     */
+    public boolean hasThreadGroup() {
+        return this == FIXED || this == CACHED;
+    }
+}
@@ -0,0 +1,112 @@
+package logic;
+
+/**
+ * The state of a ManagedPool at one point in time. Throughput and latency percentiles cover
+ * the window since the pool's previous metrics were taken; the counters are totals.
+ */
+public final class PoolMetrics {
+    private final String name;
+    private final PoolKind kind;
+    private final int size;
+    private final int threads;
+    private final int active;
+    private final long queued;
+    private final long completed;
+    private final long failed;
+    private final double throughput;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final boolean shutdown;
+
+    PoolMetrics(String name, PoolKind kind, int size, int threads, int active, long queued,
+                long completed, long failed, double throughput,
+                double p50Millis, double p90Millis, double p99Millis, boolean shutdown) {
+        this.name = name;
+        this.kind = kind;
+        this.size = size;
+        this.threads = threads;
+        this.active = active;
+        this.queued = queued;
+        this.completed = completed;
+        this.failed = failed;
+        this.throughput = throughput;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p99Millis = p99Millis;
+        this.shutdown = shutdown;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PoolKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the configured size: threads for FIXED, maximum threads for CACHED, parallelism for WORK_STEALING
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of threads the pool currently runs
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the number of tasks running right now
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of tasks submitted but not yet started
+     */
+    public long getQueued() {
+        return queued;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the number of completed tasks that threw
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return tasks completed per second over the window
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * @return the median submit-to-completion latency over the window, in milliseconds
+     */
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP90Millis() {
+        return p90Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+}
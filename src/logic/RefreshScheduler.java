@@ -0,0 +1,135 @@
+package logic;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Paces the refreshes of a view. The interval halves while threads start and end, and grows
+ * by half after a few ticks in which none did, between a minimum and a maximum. Whatever the
+ * thread set does, the interval never drops below what keeps the measured cost of a refresh
+ * within a share of one core. Refreshes asked for while one is still queued are coalesced
+ * into it, and no refresh runs while paused. Ticks run on a daemon thread.
+ */
+public final class RefreshScheduler {
+    /** Ticks without a thread starting or ending before the interval grows. */
+    private static final int STABLE_TICKS = 3;
+    /** Weight of the newest cost in the running average, so one slow refresh does not stall the view. */
+    private static final double COST_WEIGHT = 0.3;
+
+    private final Runnable refresh;
+    private final long minMillis;
+    private final long maxMillis;
+    private final double cpuBudget;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private volatile boolean paused;
+    private volatile long intervalMillis;
+    private double averageCostNanos; // guarded by this
+    private int stableTicks; // guarded by this
+
+    /**
+     * @requires refresh != null && 0 < minMillis <= initialMillis <= maxMillis && 0 < cpuBudget <= 1
+     * @param refresh requests a refresh; should return quickly and report back through completed
+     * @param cpuBudget the largest share of one core the refreshes may take, e.g. 0.02 for 2%
+     */
+    public RefreshScheduler(Runnable refresh, long minMillis, long initialMillis, long maxMillis, double cpuBudget) {
+        this.refresh = refresh;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.cpuBudget = cpuBudget;
+        this.intervalMillis = initialMillis;
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "thread-manager-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor = pool;
+    }
+
+    /**
+     * @effects refreshes now, then keeps refreshing at the current interval until shutdown
+     */
+    public void start() {
+        executor.execute(this::tick);
+    }
+
+    private void tick() {
+        if (!paused) refresh.run();
+        try {
+            executor.schedule(this::tick, intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shut down
+        }
+    }
+
+    /**
+     * Refreshes as soon as possible, for a button or a changed filter. Requests made while
+     * one is queued are coalesced into it; the regular ticks carry on as before.
+     */
+    public void requestNow() {
+        if (!requested.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> {
+                requested.set(false);
+                refresh.run();
+            });
+        } catch (RejectedExecutionException e) {
+            // shut down
+        }
+    }
+
+    /**
+     * Reports a finished refresh, from any thread.
+     * @requires costNanos >= 0
+     * @param costNanos the CPU time the refresh took
+     * @param churned whether threads started or ended since the previous refresh
+     * @modifies this.intervalMillis
+     */
+    public synchronized void completed(long costNanos, boolean churned) {
+        averageCostNanos = averageCostNanos == 0 ? costNanos
+                : averageCostNanos + COST_WEIGHT * (costNanos - averageCostNanos);
+        long next = intervalMillis;
+        if (churned) {
+            stableTicks = 0;
+            next = Math.max(minMillis, next / 2);
+        } else if (++stableTicks >= STABLE_TICKS) {
+            stableTicks = 0;
+            next = Math.min(maxMillis, next + next / 2);
+        }
+        // the budget wins over the maximum: a refresh that costly is better slow than over budget
+        intervalMillis = Math.max(next, getBudgetMillis());
+    }
+
+    /**
+     * @return the shortest interval that keeps the average refresh cost within the budget
+     */
+    public synchronized long getBudgetMillis() {
+        return (long) Math.ceil(averageCostNanos / cpuBudget / 1e6);
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * @param paused whether to skip the ticks, e.g. while the window is minimized
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @effects stops the ticks; a refresh already running is not interrupted
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
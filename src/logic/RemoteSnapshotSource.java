@@ -0,0 +1,214 @@
+package logic;
+
+import com.sun.tools.attach.AgentInitializationException;
+import com.sun.tools.attach.AgentLoadException;
+import com.sun.tools.attach.AttachNotSupportedException;
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots of another jvm on this machine, attached to by pid. The Attach API loads
+ * SnapshotAgent into the target and starts its local JMX agent; from then on every tick is a
+ * single JMX call returning one delta-encoded frame, decoded here into a ThreadSnapshot.
+ * The snapshots hold no Thread objects, so nothing can be done to the target's threads.
+ */
+public final class RemoteSnapshotSource implements SnapshotSource {
+    private static final String PACKAGE_PATH = "logic/";
+    private static final String[] LONG_SIGNATURE = {long.class.getName()};
+    private static final String[] FRAME_SIGNATURE = {long.class.getName(), long.class.getName()};
+    private static Path agentJar;
+
+    private final long pid;
+    private final JMXConnector connector;
+    private final MBeanServerConnection connection;
+    private final ObjectName serviceName;
+    private final long session;
+    private final SnapshotDecoder decoder = new SnapshotDecoder();
+    private volatile int lastFrameBytes;
+
+    private RemoteSnapshotSource(long pid, JMXConnector connector, ObjectName serviceName) throws IOException {
+        this.pid = pid;
+        this.connector = connector;
+        this.connection = connector.getMBeanServerConnection();
+        this.serviceName = serviceName;
+        this.session = (Long) invoke("openSession", new Object[0], new String[0]);
+    }
+
+    /**
+     * @requires pid is not this jvm's pid
+     * @param pid the process id of a jvm on this machine run by the same user
+     * @return a source connected to that jvm
+     * @throws IOException if the jvm cannot be attached to, the agent cannot be loaded or JMX cannot connect
+     */
+    public static RemoteSnapshotSource attach(long pid) throws IOException {
+        String address;
+        VirtualMachine vm;
+        try {
+            vm = VirtualMachine.attach(Long.toString(pid));
+        } catch (AttachNotSupportedException e) {
+            throw new IOException("Cannot attach to pid " + pid + ": " + e.getMessage(), e);
+        }
+        try {
+            vm.loadAgent(agentJar().toString());
+            address = vm.startLocalManagementAgent();
+        } catch (AgentLoadException | AgentInitializationException e) {
+            throw new IOException("Cannot load the snapshot agent into pid " + pid + ": " + e.getMessage(), e);
+        } finally {
+            vm.detach();
+        }
+        JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+        try {
+            return new RemoteSnapshotSource(pid, connector, new ObjectName(SnapshotService.OBJECT_NAME));
+        } catch (IOException | JMException | RuntimeException e) {
+            connector.close();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    /**
+     * Each call tells the target the last frame decoded, so a reply lost on the way makes the
+     * target send a keyframe next; a frame that cannot be decoded is replaced by a keyframe at once.
+     * @throws IOException if the target has gone away or even a keyframe cannot be decoded
+     */
+    @Override
+    public ThreadSnapshot capture() throws IOException {
+        byte[] frame = nextFrame();
+        try {
+            return decoder.decode(frame);
+        } catch (IOException e) {
+            // the decoder has reset, so this asks for a keyframe
+            return decoder.decode(nextFrame());
+        }
+    }
+
+    private byte[] nextFrame() throws IOException {
+        byte[] frame = (byte[]) invoke("nextFrame", new Object[]{session, decoder.getSequence()}, FRAME_SIGNATURE);
+        lastFrameBytes = frame.length;
+        return frame;
+    }
+
+    /**
+     * @return null, contention is only analyzed in-process
+     */
+    @Override
+    public ContentionReport getContentionReport() {
+        return null;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @Override
+    public String describe() {
+        return "pid " + pid;
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    /**
+     * @return the size in bytes of the last frame received, for diagnostics
+     */
+    public int getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    /**
+     * @effects ends the session in the target and disconnects
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            invoke("closeSession", new Object[]{session}, LONG_SIGNATURE);
+        } catch (IOException e) {
+            // the target may already be gone
+        } finally {
+            connector.close();
+        }
+    }
+
+    private Object invoke(String operation, Object[] args, String[] signature) throws IOException {
+        try {
+            return connection.invoke(serviceName, operation, args, signature);
+        } catch (JMException | RuntimeException e) {
+            throw new IOException("Snapshot service call " + operation + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The agent has to be a jar whose manifest names SnapshotAgent. It is built once per run
+     * from the classes of this package, whether they were loaded from a directory or a jar.
+     * @return the path of the agent jar
+     */
+    private static synchronized Path agentJar() throws IOException {
+        if (agentJar != null && Files.exists(agentJar)) return agentJar;
+        Path source;
+        try {
+            source = Paths.get(SnapshotAgent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException | NullPointerException e) {
+            throw new IOException("Cannot locate the classes of the snapshot agent", e);
+        }
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(new Attributes.Name("Agent-Class"), SnapshotAgent.class.getName());
+        attributes.put(new Attributes.Name("Premain-Class"), SnapshotAgent.class.getName());
+        Path jar = Files.createTempFile("thread-manager-agent", ".jar");
+        jar.toFile().deleteOnExit();
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            if (Files.isDirectory(source)) {
+                List<Path> classes;
+                try (Stream<Path> files = Files.walk(source.resolve(PACKAGE_PATH))) {
+                    classes = files.filter(Files::isRegularFile).collect(Collectors.toList());
+                }
+                for (Path file : classes) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        copy(source.relativize(file).toString().replace('\\', '/'), in, out);
+                    }
+                }
+            } else {
+                try (JarFile jarFile = new JarFile(source.toFile())) {
+                    for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+                        JarEntry entry = entries.nextElement();
+                        if (entry.isDirectory() || !entry.getName().startsWith(PACKAGE_PATH)) continue;
+                        try (InputStream in = jarFile.getInputStream(entry)) {
+                            copy(entry.getName(), in, out);
+                        }
+                    }
+                }
+            }
+        }
+        agentJar = jar;
+        return jar;
+    }
+
+    private static void copy(String name, InputStream in, JarOutputStream out) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        in.transferTo(out);
+        out.closeEntry();
+    }
+}
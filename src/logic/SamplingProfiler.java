@@ -0,0 +1,193 @@
+package logic;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically captures the stacks of selected threads (or all of them) with one bulk
+ * ThreadMXBean.getThreadInfo call per sample and folds them into a StackTrie.
+ * The time and CPU spent sampling are measured so the profiler's own overhead can be shown.
+ * A tick that fails is counted and skipped, and sampling goes on.
+ */
+public class SamplingProfiler {
+    private final ThreadMXBean threadBean;
+    private final StackTrie trie;
+    private final int maxDepth;
+    private ScheduledExecutorService executor;
+    private volatile long[] targetIds;
+    private volatile long samplerThreadId = -1;
+
+    private volatile long startNanos;
+    private volatile long stopNanos;
+    private volatile long samplingNanos;
+    private volatile long samplingCpuNanos;
+    private volatile long ticks;
+    private volatile long failedTicks;
+    private volatile RuntimeException lastFailure;
+
+    /**
+     * @requires maxDepth > 0 && maxNodes > 1
+     * @param maxDepth the deepest frames captured per stack
+     * @param maxNodes the memory budget, in trie nodes
+     */
+    public SamplingProfiler(int maxDepth, int maxNodes) {
+        this.threadBean = ManagementFactory.getThreadMXBean();
+        this.trie = new StackTrie(maxNodes);
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param ids the threads to sample, or null to sample every thread
+     * @param intervalMillis the time between samples
+     * @requires intervalMillis > 0
+     * @modifies this
+     * @effects discards the previous profile and starts sampling on a background thread
+     */
+    public synchronized void start(long[] ids, long intervalMillis) {
+        stop();
+        trie.clear();
+        targetIds = ids == null ? null : ids.clone();
+        samplingNanos = 0;
+        samplingCpuNanos = 0;
+        ticks = 0;
+        failedTicks = 0;
+        lastFailure = null;
+        stopNanos = 0;
+        startNanos = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thread-manager-profiler");
+            thread.setDaemon(true);
+            samplerThreadId = thread.getId();
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @effects takes one sample; a failure is kept for getLastFailure instead of escaping, which
+     *          would silently cancel every later tick
+     */
+    private void tick() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            failedTicks++;
+            lastFailure = e;
+        }
+    }
+
+    /**
+     * @modifies this
+     * @effects stops sampling, keeping the profile collected so far
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            stopNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Takes one sample on the calling thread.
+     * @modifies this
+     */
+    public void sample() {
+        long begin = System.nanoTime();
+        long cpuBegin = threadBean.getCurrentThreadCpuTime();
+        long[] ids = targetIds != null ? targetIds : threadBean.getAllThreadIds();
+        ThreadInfo[] infos = threadBean.getThreadInfo(ids, maxDepth);
+        long self = samplerThreadId;
+        for (ThreadInfo info : infos) {
+            if (info == null || info.getThreadId() == self) continue;
+            trie.add(info.getStackTrace());
+        }
+        long cpuEnd = threadBean.getCurrentThreadCpuTime();
+        samplingNanos += System.nanoTime() - begin;
+        if (cpuBegin >= 0 && cpuEnd >= 0) samplingCpuNanos += cpuEnd - cpuBegin;
+        ticks++;
+    }
+
+    /**
+     * @return the methods most often on top of the stack, most first
+     */
+    public List<MethodStats> topMethods(int limit) {
+        return trie.topMethods(limit);
+    }
+
+    /**
+     * @requires out != null
+     * @effects writes the profile as collapsed stacks, one "outer;...;inner count" line per stack
+     * @throws IOException if out cannot be written
+     */
+    public void writeCollapsedStacks(Writer out) throws IOException {
+        trie.writeCollapsed(out);
+    }
+
+    /**
+     * @return the stacks folded into the profile so far
+     */
+    public long getSampleCount() {
+        return trie.getSampleCount();
+    }
+
+    /**
+     * @return the stacks cut short because the node budget was exhausted
+     */
+    public long getTruncatedCount() {
+        return trie.getTruncatedCount();
+    }
+
+    public int getNodeCount() {
+        return trie.getNodeCount();
+    }
+
+    public long getEstimatedBytes() {
+        return trie.estimatedBytes();
+    }
+
+    /**
+     * @return the scheduled ticks that failed since sampling started
+     */
+    public long getFailedTicks() {
+        return failedTicks;
+    }
+
+    /**
+     * @return what the last failed tick threw, or null if none has failed
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * @return the mean wall time of one sampling tick, in microseconds
+     */
+    public double getMeanTickMicros() {
+        long n = ticks;
+        return n == 0 ? 0 : samplingNanos / 1000.0 / n;
+    }
+
+    /**
+     * @return the CPU time spent sampling as a percentage of one core over the profiling run
+     */
+    public double getOverheadPercent() {
+        long start = startNanos;
+        if (start == 0) return 0;
+        long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+        long elapsed = end - start;
+        long spent = samplingCpuNanos > 0 ? samplingCpuNanos : samplingNanos;
+        return elapsed <= 0 ? 0 : spent * 100.0 / elapsed;
+    }
+}
@@ -0,0 +1,230 @@
+package logic;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The monitor's own cost: a latency histogram per collection phase, and the CPU time and
+ * bytes the collector thread spends. Recording is lock-free and never allocates, so it can
+ * stay on in production; the MBean reads percentiles from a copy of the counts.
+ */
+public final class SelfMetrics implements SelfMetricsMBean {
+    public static final String OBJECT_NAME = "threadmanager:type=SelfMetrics";
+
+    /** The phases of one tick, in the order they run. */
+    public enum Phase {
+        /** Walking the thread groups and reading each thread's name, group and state. */
+        ENUMERATION,
+        /** Bulk CPU, allocation and native scheduler sampling of the enumerated threads. */
+        SAMPLING,
+        /** Reading every thread's lock state and building the contention report. */
+        CONTENTION,
+        /** Diffing the new snapshot against the last one, on the collector thread. */
+        DIFF,
+        /** Applying the diff to the table on the FX thread. */
+        APPLY
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+    private final LongAdder[] totalNanos = new LongAdder[PHASES.length];
+    private final AtomicLong[] maxNanos = new AtomicLong[PHASES.length];
+    private final LongAdder collections = new LongAdder();
+    private final LongAdder collectorCpuNanos = new LongAdder();
+    private final LongAdder collectorAllocatedBytes = new LongAdder();
+    private volatile long startNanos = System.nanoTime();
+
+    public SelfMetrics() {
+        for (int p = 0; p < PHASES.length; p++) {
+            histograms[p] = new LatencyHistogram();
+            totalNanos[p] = new LongAdder();
+            maxNanos[p] = new AtomicLong();
+        }
+    }
+
+    /**
+     * @effects registers this with the platform MBean server under OBJECT_NAME, unless a SelfMetrics is registered
+     * @throws JMException if it cannot be registered
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) return;
+        try {
+            server.registerMBean(this, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // registered concurrently
+        }
+    }
+
+    /**
+     * @modifies this
+     * @effects counts one run of phase that took nanos nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        int p = phase.ordinal();
+        histograms[p].record(nanos);
+        totalNanos[p].add(nanos);
+        maxNanos[p].accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @modifies this
+     * @effects counts one collection that cost the collector thread cpuNanos of CPU time and allocatedBytes
+     */
+    public void recordCollection(long cpuNanos, long allocatedBytes) {
+        collections.increment();
+        collectorCpuNanos.add(Math.max(0, cpuNanos));
+        collectorAllocatedBytes.add(Math.max(0, allocatedBytes));
+    }
+
+    /**
+     * @return the number of recorded runs of phase
+     */
+    public long getCount(Phase phase) {
+        return histograms[phase.ordinal()].count();
+    }
+
+    /**
+     * @requires 0 <= quantile <= 1
+     * @return the duration of phase at quantile in microseconds, within 1/8 of its magnitude, or 0 if it never ran
+     */
+    public double getPercentileMicros(Phase phase, double quantile) {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        histograms[phase.ordinal()].copyCounts(counts);
+        long total = 0;
+        for (long count : counts) total += count;
+        return LatencyHistogram.percentile(counts, total, quantile);
+    }
+
+    /**
+     * @return the longest recorded run of phase in microseconds
+     */
+    public double getMaxMicros(Phase phase) {
+        return maxNanos[phase.ordinal()].get() / 1000.0;
+    }
+
+    /**
+     * @return the mean run of phase in microseconds, or 0 if it never ran
+     */
+    public double getMeanMicros(Phase phase) {
+        long count = getCount(phase);
+        return count == 0 ? 0 : totalNanos[phase.ordinal()].sum() / 1000.0 / count;
+    }
+
+    /**
+     * @return the nanoseconds of recorded time spent in phase
+     */
+    public long getTotalNanos(Phase phase) {
+        return totalNanos[phase.ordinal()].sum();
+    }
+
+    @Override
+    public String[] getPhases() {
+        String[] names = new String[PHASES.length];
+        for (int p = 0; p < PHASES.length; p++) names[p] = PHASES[p].name();
+        return names;
+    }
+
+    @Override
+    public long[] getCounts() {
+        long[] counts = new long[PHASES.length];
+        for (int p = 0; p < PHASES.length; p++) counts[p] = getCount(PHASES[p]);
+        return counts;
+    }
+
+    @Override
+    public double[] getP50Micros() {
+        return percentiles(0.5);
+    }
+
+    @Override
+    public double[] getP99Micros() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public double[] getP999Micros() {
+        return percentiles(0.999);
+    }
+
+    @Override
+    public double[] getMaxMicros() {
+        double[] max = new double[PHASES.length];
+        for (int p = 0; p < PHASES.length; p++) max[p] = getMaxMicros(PHASES[p]);
+        return max;
+    }
+
+    @Override
+    public double getPercentileMicros(String phase, double quantile) {
+        if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be in [0, 1]: " + quantile);
+        return getPercentileMicros(Phase.valueOf(phase.trim().toUpperCase()), quantile);
+    }
+
+    @Override
+    public long getCollections() {
+        return collections.sum();
+    }
+
+    @Override
+    public long getCollectorCpuNanos() {
+        return collectorCpuNanos.sum();
+    }
+
+    @Override
+    public long getCollectorAllocatedBytes() {
+        return collectorAllocatedBytes.sum();
+    }
+
+    @Override
+    public double getCollectorCpuPercent() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : 100.0 * getCollectorCpuNanos() / elapsed;
+    }
+
+    @Override
+    public double getCollectorAllocationRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : getCollectorAllocatedBytes() * 1e9 / elapsed;
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Phase phase : PHASES) {
+            summary.append(String.format("%s p50 %.0fus p99 %.0fus max %.0fus, ", phase.name().toLowerCase(),
+                    getPercentileMicros(phase, 0.5), getPercentileMicros(phase, 0.99), getMaxMicros(phase)));
+        }
+        return summary.append(String.format("collector %.2f%% CPU %.0f B/s", getCollectorCpuPercent(),
+                getCollectorAllocationRate())).toString();
+    }
+
+    /**
+     * @modifies this
+     * @effects forgets every recorded run and collection; a run recorded concurrently may be half forgotten
+     */
+    @Override
+    public void reset() {
+        for (int p = 0; p < PHASES.length; p++) {
+            histograms[p].reset();
+            totalNanos[p].reset();
+            maxNanos[p].set(0);
+        }
+        collections.reset();
+        collectorCpuNanos.reset();
+        collectorAllocatedBytes.reset();
+        startNanos = System.nanoTime();
+    }
+
+    private double[] percentiles(double quantile) {
+        double[] values = new double[PHASES.length];
+        for (int p = 0; p < PHASES.length; p++) values[p] = getPercentileMicros(PHASES[p], quantile);
+        return values;
+    }
+}
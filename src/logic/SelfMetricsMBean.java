@@ -0,0 +1,52 @@
+package logic;
+
+/**
+ * The management interface of the monitor's own cost. The array attributes hold one entry
+ * per phase, in the order of getPhases; durations are in microseconds and cover every tick
+ * since start or the last reset.
+ */
+public interface SelfMetricsMBean {
+    String[] getPhases();
+
+    long[] getCounts();
+
+    double[] getP50Micros();
+
+    double[] getP99Micros();
+
+    double[] getP999Micros();
+
+    double[] getMaxMicros();
+
+    /**
+     * @return the duration of the named phase at quantile in microseconds
+     * @throws IllegalArgumentException if there is no such phase or quantile is outside [0, 1]
+     */
+    double getPercentileMicros(String phase, double quantile);
+
+    /**
+     * @return the number of collections made on the collector thread
+     */
+    long getCollections();
+
+    long getCollectorCpuNanos();
+
+    long getCollectorAllocatedBytes();
+
+    /**
+     * @return the collector thread's CPU time as a percentage of one core, averaged since start or the last reset
+     */
+    double getCollectorCpuPercent();
+
+    /**
+     * @return the bytes per second the collector thread allocated, averaged since start or the last reset
+     */
+    double getCollectorAllocationRate();
+
+    /**
+     * @return every phase's p50, p99 and max and the collector's cost on one line
+     */
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,119 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * Hands out slots, by thread id, into tables kept as parallel arrays with one array per column.
+ * Freed slots are reused first, so the columns only grow with the most ids held at once.
+ * The table keeps the id and whether each slot is in use; its owner keeps the other columns
+ * and grows them to capacity() after add.
+ */
+final class SlotTable {
+    private final LongIndexMap slots;
+    private long[] ids;
+    private boolean[] used;
+    private int[] freeSlots;
+    private int freeCount;
+    private int limit;
+
+    /**
+     * @requires capacity > 0
+     * @param capacity the slots the owner's columns start with
+     */
+    SlotTable(int capacity) {
+        slots = new LongIndexMap(capacity);
+        ids = new long[capacity];
+        used = new boolean[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    /**
+     * @return the slot of id, or -1 if it has none
+     */
+    int get(long id) {
+        return slots.get(id);
+    }
+
+    /**
+     * @requires get(id) < 0
+     * @modifies this
+     * @return the slot now holding id; its columns hold whatever the slot's last id left there
+     */
+    int add(long id) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (limit == ids.length) {
+                int grown = limit * 2;
+                ids = Arrays.copyOf(ids, grown);
+                used = Arrays.copyOf(used, grown);
+                freeSlots = Arrays.copyOf(freeSlots, grown);
+            }
+            slot = limit++;
+        }
+        slots.put(id, slot);
+        ids[slot] = id;
+        used[slot] = true;
+        return slot;
+    }
+
+    /**
+     * @modifies this
+     * @return the slot id held, now free, or -1 if it had none
+     */
+    int remove(long id) {
+        int slot = slots.get(id);
+        if (slot >= 0) release(slot);
+        return slot;
+    }
+
+    /**
+     * @requires isUsed(slot)
+     * @modifies this
+     * @effects frees slot for the next add
+     */
+    void release(int slot) {
+        slots.remove(ids[slot]);
+        used[slot] = false;
+        freeSlots[freeCount++] = slot;
+    }
+
+    long getId(int slot) {
+        return ids[slot];
+    }
+
+    boolean isUsed(int slot) {
+        return used[slot];
+    }
+
+    /**
+     * @return one more than the highest slot ever handed out; every used slot is below it
+     */
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * @return the length the owner's columns need so every slot fits
+     */
+    int capacity() {
+        return ids.length;
+    }
+
+    /**
+     * @return the number of slots in use
+     */
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * @requires into.length >= size()
+     * @modifies into
+     * @return the number of ids written to into, one per slot in use
+     */
+    int ids(long[] into) {
+        return slots.keys(into);
+    }
+}
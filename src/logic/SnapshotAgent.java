@@ -0,0 +1,23 @@
+package logic;
+
+import java.lang.instrument.Instrumentation;
+import java.util.Arrays;
+
+/**
+ * The java agent RemoteSnapshotSource loads into a monitored jvm to register the SnapshotService.
+ * Given creation-sites as its argument, e.g. -javaagent:thread-manager.jar=creation-sites, it
+ * also starts tracking where threads are started, from jvm start when loaded with -javaagent.
+ */
+public final class SnapshotAgent {
+    private SnapshotAgent() {
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) throws Exception {
+        premain(args, instrumentation);
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) throws Exception {
+        SnapshotService.register();
+        if (args != null && Arrays.asList(args.split(",")).contains("creation-sites")) CreationSiteTracker.start();
+    }
+}
@@ -0,0 +1,207 @@
+package logic;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Captures snapshots on its own background thread and hands each consumer the diff
+ * against the previously collected snapshot, so no enumeration or diffing runs on the UI thread.
+ * With a recorder every captured snapshot is recorded as well, and recorded ticks can be
+ * replayed: the diff is then against whatever was handed out last, live or replayed.
+ * The CPU time of each asynchronous collection, consumer included, is measured for whoever
+ * paces the refreshes, and with self metrics counted there along with the bytes it allocated
+ * and the time spent diffing.
+ */
+public class SnapshotCollector {
+    private static final long NO_REPLAY = Long.MIN_VALUE;
+
+    private final SnapshotSource source;
+    private final ExecutorService executor;
+    private final AtomicBoolean pending;
+    private final AtomicLong pendingReplay;
+    private volatile Consumer<IOException> onError;
+    private volatile HistoryRecorder recorder;
+    private volatile ObjLongConsumer<SnapshotDiff> onCollected;
+    private volatile SelfMetrics selfMetrics;
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean sunThreadBean = threadBean instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) threadBean : null;
+    private ThreadSnapshot previous; // only touched on the collector thread
+
+    /**
+     * @requires threadManager != null
+     * @param threadManager the manager whose snapshots are collected
+     */
+    public SnapshotCollector(ThreadManager threadManager) {
+        this(new InProcessSnapshotSource(threadManager));
+    }
+
+    /**
+     * @requires source != null
+     * @param source where the snapshots are captured
+     */
+    public SnapshotCollector(SnapshotSource source) {
+        this.source = source;
+        this.pending = new AtomicBoolean();
+        this.pendingReplay = new AtomicLong(NO_REPLAY);
+        this.onError = e -> { };
+        this.onCollected = (diff, costNanos) -> { };
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thread-manager-collector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SnapshotSource getSource() {
+        return source;
+    }
+
+    /**
+     * @param onError called on the collector thread when an asynchronous collection fails
+     * @requires onError != null
+     */
+    public void setOnError(Consumer<IOException> onError) {
+        this.onError = onError;
+    }
+
+    /**
+     * @param onCollected called on the collector thread after each asynchronous collection's consumer,
+     *                    with the diff and the nanoseconds of CPU time (wall time if the jvm cannot measure it) both took
+     * @requires onCollected != null
+     */
+    public void setOnCollected(ObjLongConsumer<SnapshotDiff> onCollected) {
+        this.onCollected = onCollected;
+    }
+
+    /**
+     * @param recorder records every snapshot captured from now on, or null to stop recording
+     */
+    public void setRecorder(HistoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @param selfMetrics counts the cost of every collection from now on, or null to stop counting
+     */
+    public void setSelfMetrics(SelfMetrics selfMetrics) {
+        this.selfMetrics = selfMetrics;
+    }
+
+    /**
+     * Collects on the calling thread; an in-process source refreshes the manager's contention report as well.
+     * @modifies this.previous, the source, the recorder
+     * @return the diff between the last collected snapshot and a freshly captured one
+     * @throws UncheckedIOException if the source cannot be reached
+     */
+    public synchronized SnapshotDiff collect() {
+        return show(capture());
+    }
+
+    private ThreadSnapshot capture() {
+        ThreadSnapshot current;
+        try {
+            current = source.capture();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        HistoryRecorder history = recorder;
+        if (history != null) history.record(current, System.currentTimeMillis());
+        return current;
+    }
+
+    private synchronized SnapshotDiff show(ThreadSnapshot current) {
+        long start = System.nanoTime();
+        SnapshotDiff diff = SnapshotDiff.between(previous, current);
+        SelfMetrics metrics = selfMetrics;
+        if (metrics != null) metrics.record(SelfMetrics.Phase.DIFF, System.nanoTime() - start);
+        previous = current;
+        return diff;
+    }
+
+    /**
+     * Requests a collection on the collector thread. Requests made while one is
+     * already queued are coalesced into it and their consumer is not called.
+     * @requires consumer != null
+     * @param consumer receives the diff on the collector thread
+     */
+    public void collectAsync(Consumer<SnapshotDiff> consumer) {
+        if (!pending.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            pending.set(false);
+            long start = cpuNanos();
+            long startBytes = allocatedBytes();
+            SnapshotDiff diff;
+            try {
+                diff = collect();
+            } catch (UncheckedIOException e) {
+                onError.accept(e.getCause());
+                return;
+            }
+            consumer.accept(diff);
+            long cost = cpuNanos() - start;
+            SelfMetrics metrics = selfMetrics;
+            if (metrics != null) metrics.recordCollection(cost, allocatedBytes() - startBytes);
+            onCollected.accept(diff, cost);
+        });
+    }
+
+    private long cpuNanos() {
+        long cpu = threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+        return cpu >= 0 ? cpu : System.nanoTime();
+    }
+
+    /**
+     * @return the bytes the current thread has allocated, or 0 if the jvm cannot measure it
+     */
+    private long allocatedBytes() {
+        return sunThreadBean != null && sunThreadBean.isThreadAllocatedMemoryEnabled()
+                ? Math.max(0, sunThreadBean.getCurrentThreadAllocatedBytes()) : 0;
+    }
+
+    /**
+     * Requests a capture that is only recorded, for while a replayed tick is shown.
+     * Coalesced with collectAsync requests.
+     */
+    public void recordAsync() {
+        if (!pending.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            pending.set(false);
+            try {
+                capture();
+            } catch (UncheckedIOException e) {
+                onError.accept(e.getCause());
+            }
+        });
+    }
+
+    /**
+     * Requests the recorded tick at or before millis. Requests made while one is already
+     * queued replace its time and their consumer is not called, so dragging through
+     * the history reads only the ticks there is time to show.
+     * @requires consumer != null, a recorder has been set
+     * @param consumer receives the diff on the collector thread; not called if nothing was recorded by then
+     */
+    public void replayAsync(long millis, Consumer<SnapshotDiff> consumer) {
+        if (pendingReplay.getAndSet(millis) != NO_REPLAY) return;
+        executor.execute(() -> {
+            ThreadSnapshot replayed = recorder.read(pendingReplay.getAndSet(NO_REPLAY));
+            if (replayed != null) consumer.accept(show(replayed));
+        });
+    }
+
+    /**
+     * @effects stops the collector thread; queued requests are dropped
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,181 @@
+package logic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds snapshots from the frames of a SnapshotEncoder, which must be fed in order.
+ * Rows that did not change are copied from the previous snapshot, names included, so
+ * a quiet tick costs a few array copies and no strings. A delta whose base is not the last
+ * frame decoded is rejected, and after any rejected frame only a keyframe is accepted.
+ */
+final class SnapshotDecoder {
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    private final List<String> strings = new ArrayList<>();
+    private ThreadSnapshot previous;
+    private String[] allGroupNames = new String[0];
+    private long sequence;
+
+    /**
+     * @return the sequence number of the last frame decoded, 0 before the first or after a reset
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @modifies this
+     * @effects forgets the frames decoded so far, so the next frame has to be a keyframe
+     */
+    void reset() {
+        previous = null;
+        strings.clear();
+        allGroupNames = new String[0];
+        sequence = 0;
+    }
+
+    /**
+     * @modifies this
+     * @return the snapshot the frame leads to
+     * @throws IOException if the frame is malformed or is a delta from another frame than the
+     *         last one decoded; the decoder is then reset
+     */
+    ThreadSnapshot decode(byte[] frame) throws IOException {
+        try {
+            return apply(frame);
+        } catch (IOException e) {
+            reset();
+            throw e;
+        }
+    }
+
+    private ThreadSnapshot apply(byte[] frame) throws IOException {
+        BinaryReader in = new BinaryReader(frame);
+        int version = in.readByte();
+        if (version != SnapshotEncoder.VERSION) throw new IOException("Unsupported snapshot frame version " + version);
+        long flags = in.readVarLong();
+        long frameSequence = in.readVarLong();
+        long base = in.readVarLong();
+        if ((flags & SnapshotEncoder.KEYFRAME) != 0) {
+            previous = null;
+            strings.clear();
+        } else if (previous == null) {
+            throw new IOException("Snapshot delta received before a keyframe");
+        } else if (base != sequence) {
+            throw new IOException("Snapshot frame " + frameSequence + " is a delta from frame " + base
+                    + ", but the last frame decoded is " + sequence);
+        }
+        int newStrings = in.readVarInt();
+        for (int k = 0; k < newStrings; k++) strings.add(in.readString());
+        if ((flags & SnapshotEncoder.GROUPS) != 0) {
+            String[] groupNames = new String[in.readVarInt()];
+            for (int g = 0; g < groupNames.length; g++) groupNames[g] = string(in);
+            allGroupNames = groupNames;
+        }
+
+        int previousSize = previous == null ? 0 : previous.size();
+        boolean[] removed = new boolean[previousSize];
+        int removedCount = in.readVarInt();
+        long id = 0;
+        for (int k = 0; k < removedCount; k++) {
+            id += in.readSignedVarLong();
+            int p = previous.indexOf(id);
+            if (p < 0) throw new IOException("Snapshot frame removes unknown thread " + id);
+            removed[p] = true;
+        }
+        int addedCount = in.readVarInt();
+        int size = previousSize - removedCount + addedCount;
+
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        String[] groups = new String[size];
+        boolean[] daemon = new boolean[size];
+        int[] priorities = new int[size];
+        Thread.State[] states = new Thread.State[size];
+        double[] cpu = new double[size];
+        double[] user = new double[size];
+        double[] alloc = new double[size];
+
+        int[] moved = new int[previousSize];
+        int n = 0;
+        for (int p = 0; p < previousSize; p++) {
+            if (removed[p]) {
+                moved[p] = -1;
+                continue;
+            }
+            moved[p] = n;
+            ids[n] = previous.getId(p);
+            names[n] = previous.getName(p);
+            groups[n] = previous.getGroupName(p);
+            daemon[n] = previous.isDaemon(p);
+            priorities[n] = previous.getPriority(p);
+            states[n] = previous.getState(p);
+            cpu[n] = previous.getCpuPercent(p);
+            user[n] = previous.getUserPercent(p);
+            alloc[n] = previous.getAllocationRate(p);
+            n++;
+        }
+        id = 0;
+        for (int k = 0; k < addedCount; k++, n++) {
+            id += in.readSignedVarLong();
+            ids[n] = id;
+            names[n] = in.readString();
+            groups[n] = string(in);
+            int packed = in.readByte();
+            states[n] = state(packed);
+            daemon[n] = (packed & 8) != 0;
+            priorities[n] = packed >> 4;
+            cpu[n] = percent(in.readVarLong());
+            user[n] = percent(in.readVarLong());
+            alloc[n] = rate(in.readVarLong());
+        }
+        int changedCount = in.readVarInt();
+        id = 0;
+        for (int k = 0; k < changedCount; k++) {
+            id += in.readSignedVarLong();
+            int p = previous == null ? -1 : previous.indexOf(id);
+            if (p < 0 || moved[p] < 0) throw new IOException("Snapshot frame changes unknown thread " + id);
+            int i = moved[p];
+            long mask = in.readVarLong();
+            if ((mask & SnapshotEncoder.FIELD_NAME) != 0) names[i] = in.readString();
+            if ((mask & SnapshotEncoder.FIELD_GROUP) != 0) groups[i] = string(in);
+            if ((mask & SnapshotEncoder.FIELD_FLAGS) != 0) {
+                int packed = in.readByte();
+                states[i] = state(packed);
+                daemon[i] = (packed & 8) != 0;
+                priorities[i] = packed >> 4;
+            }
+            if ((mask & SnapshotEncoder.FIELD_CPU) != 0) cpu[i] = percent(in.readVarLong());
+            if ((mask & SnapshotEncoder.FIELD_USER) != 0) user[i] = percent(in.readVarLong());
+            if ((mask & SnapshotEncoder.FIELD_ALLOC) != 0) alloc[i] = rate(in.readVarLong());
+        }
+        if (in.hasRemaining()) throw new IOException("Trailing bytes in snapshot frame");
+
+        previous = ThreadSnapshot.fromColumns(ids, names, groups, daemon, priorities, states, cpu, user, alloc,
+                allGroupNames);
+        sequence = frameSequence;
+        return previous;
+    }
+
+    private String string(BinaryReader in) throws IOException {
+        int ref = in.readVarInt();
+        if (ref >= strings.size()) throw new IOException("Unknown string ref " + ref + " in snapshot frame");
+        return strings.get(ref);
+    }
+
+    private static Thread.State state(int packed) throws IOException {
+        int ordinal = packed & 7;
+        if (ordinal >= STATES.length) throw new IOException("Unknown thread state " + ordinal + " in snapshot frame");
+        return STATES[ordinal];
+    }
+
+    private static double percent(long encoded) {
+        return encoded == 0 ? ThreadMetricsSampler.UNAVAILABLE : (encoded - 1) / 100.0;
+    }
+
+    private static double rate(long encoded) {
+        return encoded == 0 ? ThreadMetricsSampler.UNAVAILABLE : encoded - 1;
+    }
+}
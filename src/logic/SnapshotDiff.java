@@ -0,0 +1,126 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * The delta between two consecutive snapshots, keyed by thread id.
+ * Added and changed threads are given as indexes into the current snapshot,
+ * removed threads as the ids they had in the previous one.
+ */
+public final class SnapshotDiff {
+    private static final int[] NO_INDEXES = new int[0];
+    private static final long[] NO_IDS = new long[0];
+
+    private final ThreadSnapshot current;
+    private final int[] added;
+    private final int[] changed;
+    private final long[] removed;
+
+    private SnapshotDiff(ThreadSnapshot current, int[] added, int[] changed, long[] removed) {
+        this.current = current;
+        this.added = added;
+        this.changed = changed;
+        this.removed = removed;
+    }
+
+    /**
+     * @requires current != null
+     * @param previous the snapshot the receiver last saw, or null if it has seen none
+     * @param current the newly captured snapshot
+     * @return the threads added, removed or changed going from previous to current
+     */
+    public static SnapshotDiff between(ThreadSnapshot previous, ThreadSnapshot current) {
+        int size = current.size();
+        if (previous == null) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) all[i] = i;
+            return new SnapshotDiff(current, all, NO_INDEXES, NO_IDS);
+        }
+        int[] added = new int[size];
+        int[] changed = new int[size];
+        int addedCount = 0, changedCount = 0;
+        for (int i = 0; i < size; i++) {
+            int before = previous.indexOf(current.getId(i));
+            if (before < 0) {
+                added[addedCount++] = i;
+            } else if (!sameValues(previous, before, current, i)) {
+                changed[changedCount++] = i;
+            }
+        }
+        long[] removed = new long[previous.size()];
+        int removedCount = 0;
+        for (int i = 0; i < previous.size(); i++) {
+            long id = previous.getId(i);
+            if (current.indexOf(id) < 0) removed[removedCount++] = id;
+        }
+        return new SnapshotDiff(current,
+                addedCount == 0 ? NO_INDEXES : Arrays.copyOf(added, addedCount),
+                changedCount == 0 ? NO_INDEXES : Arrays.copyOf(changed, changedCount),
+                removedCount == 0 ? NO_IDS : Arrays.copyOf(removed, removedCount));
+    }
+
+    private static boolean sameValues(ThreadSnapshot a, int i, ThreadSnapshot b, int j) {
+        return a.getCpuPercent(i) == b.getCpuPercent(j)
+                && a.getAllocationRate(i) == b.getAllocationRate(j)
+                && a.getUserPercent(i) == b.getUserPercent(j)
+                && a.getPriority(i) == b.getPriority(j)
+                && a.getState(i) == b.getState(j)
+                && a.isDaemon(i) == b.isDaemon(j)
+                && a.getGroup(i) == b.getGroup(j)
+                && a.getGroupName(i).equals(b.getGroupName(j))
+                && a.getName(i).equals(b.getName(j))
+                && a.getNativeId(i) == b.getNativeId(j)
+                && a.getVoluntarySwitchRate(i) == b.getVoluntarySwitchRate(j)
+                && a.getInvoluntarySwitchRate(i) == b.getInvoluntarySwitchRate(j)
+                && a.getLastCpu(i) == b.getLastCpu(j)
+                && a.getNice(i) == b.getNice(j)
+                && a.getNativeCpuNanos(i) == b.getNativeCpuNanos(j);
+    }
+
+    /**
+     * @return the snapshot this diff leads to
+     */
+    public ThreadSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return true if no thread was added, removed or changed
+     */
+    public boolean isEmpty() {
+        return added.length == 0 && changed.length == 0 && removed.length == 0;
+    }
+
+    public int getAddedCount() {
+        return added.length;
+    }
+
+    /**
+     * @return the index in getCurrent() of the k-th added thread
+     */
+    public int getAddedIndex(int k) {
+        return added[k];
+    }
+
+    public int getChangedCount() {
+        return changed.length;
+    }
+
+    /**
+     * @return the index in getCurrent() of the k-th changed thread
+     */
+    public int getChangedIndex(int k) {
+        return changed[k];
+    }
+
+    public int getRemovedCount() {
+        return removed.length;
+    }
+
+    /**
+     * @return the id of the k-th removed thread
+     */
+    public long getRemovedId(int k) {
+        return removed[k];
+    }
+}
@@ -0,0 +1,209 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes consecutive snapshots as compact binary frames, each holding only what changed
+ * since the previous frame. A SnapshotDecoder fed the same frames in order rebuilds the snapshots.
+ *
+ * Frame layout, every number an unsigned LEB128 varint unless noted:
+ * version byte, flags (KEYFRAME, GROUPS), the frame's sequence number, the sequence number of the
+ * frame it is a delta from (0 in a keyframe), count and text of group names new to the string table,
+ * [if GROUPS: count and string-table refs of every thread-group],
+ * removed count and ids, added count and full rows, changed count and partial rows.
+ * Ids are zigzag deltas from the previous id in the section. A full row is
+ * id, name, group ref, flags byte, cpu, user, alloc; a partial row is id, a field mask,
+ * then just the masked fields. The flags byte packs state (3 bits), daemon (1) and priority (4).
+ * CPU and user percentages travel in hundredths and allocation rates in bytes/s, each plus one
+ * so that 0 can mean unavailable.
+ */
+final class SnapshotEncoder {
+    static final int VERSION = 2;
+    static final int KEYFRAME = 1;
+    static final int GROUPS = 2;
+
+    static final int FIELD_NAME = 1;
+    static final int FIELD_GROUP = 2;
+    static final int FIELD_FLAGS = 4;
+    static final int FIELD_CPU = 8;
+    static final int FIELD_USER = 16;
+    static final int FIELD_ALLOC = 32;
+
+    private final Map<String, Integer> groupRefs = new HashMap<>();
+    private ThreadSnapshot previous;
+    private String[] previousGroupNames;
+    private int[] refs = new int[0];
+    private long sequence;
+
+    /**
+     * @return the sequence number of the last frame encoded, 0 before the first
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sequence numbers keep counting across resets, so a decoder can tell a stale frame from a fresh one.
+     * @modifies this
+     * @effects the next frame is a keyframe, for a decoder that starts afresh
+     */
+    void reset() {
+        previous = null;
+        previousGroupNames = null;
+        groupRefs.clear();
+    }
+
+    /**
+     * @requires current != null && out != null
+     * @modifies this, out
+     * @effects appends to out the frame leading from the previously encoded snapshot to current
+     */
+    void encode(ThreadSnapshot current, BinaryWriter out) {
+        boolean keyframe = previous == null;
+        if (keyframe) groupRefs.clear();
+        String[] groupNames = current.getGroupNames();
+        boolean groupsChanged = !Arrays.equals(groupNames, previousGroupNames);
+        out.writeByte(VERSION);
+        out.writeVarLong((keyframe ? KEYFRAME : 0) | (groupsChanged ? GROUPS : 0));
+        out.writeVarLong(sequence + 1);
+        out.writeVarLong(keyframe ? 0 : sequence);
+
+        int size = current.size();
+        if (refs.length < size) refs = new int[size + size / 2];
+        int firstNew = groupRefs.size();
+        for (int i = 0; i < size; i++) refs[i] = ref(current.getGroupName(i));
+        int[] allRefs = null;
+        if (groupsChanged) {
+            allRefs = new int[groupNames.length];
+            for (int g = 0; g < groupNames.length; g++) allRefs[g] = ref(groupNames[g]);
+        }
+        writeNewStrings(firstNew, out);
+        if (groupsChanged) {
+            out.writeVarLong(allRefs.length);
+            for (int ref : allRefs) out.writeVarLong(ref);
+        }
+
+        writeRemoved(current, out);
+        int added = 0;
+        for (int i = 0; i < size; i++) {
+            if (keyframe || previous.indexOf(current.getId(i)) < 0) added++;
+        }
+        out.writeVarLong(added);
+        long lastId = 0;
+        for (int i = 0; i < size && added > 0; i++) {
+            if (!keyframe && previous.indexOf(current.getId(i)) >= 0) continue;
+            lastId = writeId(current.getId(i), lastId, out);
+            out.writeString(current.getName(i));
+            out.writeVarLong(refs[i]);
+            out.writeByte(flags(current, i));
+            out.writeVarLong(percent(current.getCpuPercent(i)));
+            out.writeVarLong(percent(current.getUserPercent(i)));
+            out.writeVarLong(rate(current.getAllocationRate(i)));
+        }
+        writeChanged(current, keyframe, out);
+
+        previous = current;
+        previousGroupNames = groupNames;
+        sequence++;
+    }
+
+    private int ref(String name) {
+        Integer ref = groupRefs.get(name);
+        if (ref != null) return ref;
+        int next = groupRefs.size();
+        groupRefs.put(name, next);
+        return next;
+    }
+
+    /**
+     * @effects writes the names that were given refs from firstNew on, in ref order
+     */
+    private void writeNewStrings(int firstNew, BinaryWriter out) {
+        int count = groupRefs.size() - firstNew;
+        out.writeVarLong(count);
+        if (count == 0) return;
+        String[] fresh = new String[count];
+        for (Map.Entry<String, Integer> entry : groupRefs.entrySet()) {
+            if (entry.getValue() >= firstNew) fresh[entry.getValue() - firstNew] = entry.getKey();
+        }
+        for (String name : fresh) out.writeString(name);
+    }
+
+    private void writeRemoved(ThreadSnapshot current, BinaryWriter out) {
+        if (previous == null) {
+            out.writeVarLong(0);
+            return;
+        }
+        int removed = 0;
+        for (int p = 0; p < previous.size(); p++) {
+            if (current.indexOf(previous.getId(p)) < 0) removed++;
+        }
+        out.writeVarLong(removed);
+        long lastId = 0;
+        for (int p = 0; p < previous.size() && removed > 0; p++) {
+            if (current.indexOf(previous.getId(p)) < 0) lastId = writeId(previous.getId(p), lastId, out);
+        }
+    }
+
+    private void writeChanged(ThreadSnapshot current, boolean keyframe, BinaryWriter out) {
+        if (keyframe) {
+            out.writeVarLong(0);
+            return;
+        }
+        int size = current.size();
+        int changed = 0;
+        for (int i = 0; i < size; i++) {
+            int p = previous.indexOf(current.getId(i));
+            if (p >= 0 && mask(current, i, p) != 0) changed++;
+        }
+        out.writeVarLong(changed);
+        long lastId = 0;
+        for (int i = 0; i < size && changed > 0; i++) {
+            int p = previous.indexOf(current.getId(i));
+            if (p < 0) continue;
+            int mask = mask(current, i, p);
+            if (mask == 0) continue;
+            lastId = writeId(current.getId(i), lastId, out);
+            out.writeVarLong(mask);
+            if ((mask & FIELD_NAME) != 0) out.writeString(current.getName(i));
+            if ((mask & FIELD_GROUP) != 0) out.writeVarLong(refs[i]);
+            if ((mask & FIELD_FLAGS) != 0) out.writeByte(flags(current, i));
+            if ((mask & FIELD_CPU) != 0) out.writeVarLong(percent(current.getCpuPercent(i)));
+            if ((mask & FIELD_USER) != 0) out.writeVarLong(percent(current.getUserPercent(i)));
+            if ((mask & FIELD_ALLOC) != 0) out.writeVarLong(rate(current.getAllocationRate(i)));
+        }
+    }
+
+    /**
+     * @return the fields of row i of current that differ, once encoded, from row p of previous
+     */
+    private int mask(ThreadSnapshot current, int i, int p) {
+        int mask = 0;
+        if (!current.getName(i).equals(previous.getName(p))) mask |= FIELD_NAME;
+        if (!current.getGroupName(i).equals(previous.getGroupName(p))) mask |= FIELD_GROUP;
+        if (flags(current, i) != flags(previous, p)) mask |= FIELD_FLAGS;
+        if (percent(current.getCpuPercent(i)) != percent(previous.getCpuPercent(p))) mask |= FIELD_CPU;
+        if (percent(current.getUserPercent(i)) != percent(previous.getUserPercent(p))) mask |= FIELD_USER;
+        if (rate(current.getAllocationRate(i)) != rate(previous.getAllocationRate(p))) mask |= FIELD_ALLOC;
+        return mask;
+    }
+
+    private static long writeId(long id, long lastId, BinaryWriter out) {
+        out.writeSignedVarLong(id - lastId);
+        return id;
+    }
+
+    static int flags(ThreadSnapshot snapshot, int i) {
+        return snapshot.getState(i).ordinal() | (snapshot.isDaemon(i) ? 8 : 0) | (snapshot.getPriority(i) << 4);
+    }
+
+    static long percent(double value) {
+        return value < 0 ? 0 : Math.round(value * 100) + 1;
+    }
+
+    static long rate(double value) {
+        return value < 0 ? 0 : Math.round(value) + 1;
+    }
+}
@@ -0,0 +1,97 @@
+package logic;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs inside the monitored jvm, loaded there by SnapshotAgent. Each session has its own
+ * enumerator, rate sampler and encoder, so several monitors can watch the same jvm.
+ * Sessions left idle for a minute, e.g. by a monitor that died, are dropped.
+ */
+public final class SnapshotService implements SnapshotServiceMBean {
+    static final String OBJECT_NAME = "threadmanager:type=SnapshotService";
+    private static final long SESSION_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<Long, Session> sessions = new HashMap<>();
+    private long nextSession = 1;
+
+    private static final class Session {
+        final ThreadEnumerator enumerator = new ThreadEnumerator();
+        final ThreadMetricsSampler sampler = new ThreadMetricsSampler();
+        final SnapshotEncoder encoder = new SnapshotEncoder();
+        final BinaryWriter writer = new BinaryWriter(64 * 1024);
+        long lastUsedNanos = System.nanoTime();
+    }
+
+    /**
+     * @effects registers a SnapshotService with the platform MBean server unless one is registered
+     * @throws JMException if it cannot be registered
+     */
+    static void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) return;
+        try {
+            server.registerMBean(new SnapshotService(), name);
+        } catch (InstanceAlreadyExistsException e) {
+            // registered concurrently
+        }
+    }
+
+    @Override
+    public synchronized long openSession() {
+        expireIdle();
+        long id = nextSession++;
+        sessions.put(id, new Session());
+        return id;
+    }
+
+    @Override
+    public byte[] nextFrame(long session, long lastApplied) {
+        Session current;
+        synchronized (this) {
+            expireIdle();
+            current = sessions.get(session);
+            if (current == null) throw new IllegalArgumentException("Unknown or expired session " + session);
+            current.lastUsedNanos = System.nanoTime();
+        }
+        synchronized (current) {
+            ThreadSnapshot snapshot = current.enumerator.capture(rootGroup(), current.sampler, null);
+            current.writer.reset();
+            // the caller missed or rejected a frame, so it has no base for a delta
+            if (lastApplied != current.encoder.getSequence()) current.encoder.reset();
+            current.encoder.encode(snapshot, current.writer);
+            return current.writer.toByteArray();
+        }
+    }
+
+    @Override
+    public synchronized void closeSession(long session) {
+        sessions.remove(session);
+    }
+
+    @Override
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void expireIdle() {
+        long now = System.nanoTime();
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastUsedNanos > SESSION_TIMEOUT_NANOS) it.remove();
+        }
+    }
+
+    private static ThreadGroup rootGroup() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) root = root.getParent();
+        return root;
+    }
+}
@@ -0,0 +1,28 @@
+package logic;
+
+/**
+ * The management interface a monitored jvm exposes to RemoteSnapshotSource.
+ * One call per tick returns the whole tick as a single delta-encoded frame.
+ */
+public interface SnapshotServiceMBean {
+    /**
+     * @return a new session; its first frame is a keyframe
+     */
+    long openSession();
+
+    /**
+     * @param lastApplied the sequence number of the last frame the caller decoded, 0 if none;
+     *        if it is not the last frame the session sent, e.g. because a reply was lost, the
+     *        next frame is a keyframe
+     * @return the next frame of the session, see SnapshotEncoder for the layout
+     * @throws IllegalArgumentException if the session is unknown or has expired
+     */
+    byte[] nextFrame(long session, long lastApplied);
+
+    void closeSession(long session);
+
+    /**
+     * @return the number of open sessions
+     */
+    int getSessionCount();
+}
@@ -0,0 +1,31 @@
+package logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where the snapshots shown by the UI come from: this jvm, or another one on the same machine.
+ */
+public interface SnapshotSource extends Closeable {
+    /**
+     * Captures the target's threads. Should be called once per refresh tick, from one thread at a time.
+     * @return the new snapshot
+     * @throws IOException if the target cannot be reached
+     */
+    ThreadSnapshot capture() throws IOException;
+
+    /**
+     * @return the contention report of the last capture, or null if the source does not analyze contention
+     */
+    ContentionReport getContentionReport();
+
+    /**
+     * @return true if the snapshots hold this jvm's Thread objects, which can then be acted on
+     */
+    boolean isLocal();
+
+    /**
+     * @return a short description of the target, for window titles
+     */
+    String describe();
+}
@@ -0,0 +1,168 @@
+package logic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams the snapshots of a source to an output stream at a fixed rate, for running without a UI.
+ * Every tick is encoded into one reusable buffer and written with a single write, so apart from
+ * capturing the snapshot itself a tick allocates next to nothing.
+ *
+ * NDJSON writes one object per line: {"type":"snapshot","time":ms,"threads":[row...]}, or with
+ * deltas {"type":"delta","time":ms,"added":[row...],"changed":[row...],"removed":[id...]}, where a
+ * row is {"id","name","group","state","daemon","priority","cpu","user","alloc"}.
+ * BINARY writes each tick as a varint byte length followed by a SnapshotEncoder frame;
+ * without deltas every frame is a keyframe.
+ */
+public final class SnapshotStreamer {
+    public enum Format { NDJSON, BINARY }
+
+    private final SnapshotSource source;
+    private final Format format;
+    private final boolean deltas;
+    private final OutputStream out;
+    private final BinaryWriter buffer = new BinaryWriter(64 * 1024);
+    private final BinaryWriter header = new BinaryWriter(16);
+    private final SnapshotEncoder encoder = new SnapshotEncoder();
+    private Consumer<ThreadSnapshot> onTick = snapshot -> { };
+    private ThreadSnapshot previous;
+    private long ticks;
+    private long overruns;
+
+    /**
+     * @requires source != null && format != null && out != null
+     * @param deltas whether to write only what changed since the previous tick
+     * @param out where to write; buffered by the caller if needed, flushed after every tick
+     */
+    public SnapshotStreamer(SnapshotSource source, Format format, boolean deltas, OutputStream out) {
+        this.source = source;
+        this.format = format;
+        this.deltas = deltas;
+        this.out = out;
+    }
+
+    /**
+     * @param onTick called with each tick's snapshot after it is written
+     * @requires onTick != null
+     */
+    public void setOnTick(Consumer<ThreadSnapshot> onTick) {
+        this.onTick = onTick;
+    }
+
+    /**
+     * Ticks at a fixed rate until maxTicks ticks have been written or the thread is interrupted.
+     * A tick that starts late does not cause a burst of catch-up ticks; it is counted as an overrun.
+     * @requires ticksPerSecond > 0
+     * @param maxTicks the number of ticks to write, or 0 to run until interrupted
+     * @throws IOException if the source cannot be reached or out cannot be written
+     */
+    public void run(double ticksPerSecond, long maxTicks) throws IOException {
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond);
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted() && (maxTicks == 0 || ticks < maxTicks)) {
+            writeTick();
+            next += period;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                overruns++;
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * @modifies this, out
+     * @effects captures one snapshot and writes it, or its delta, to out
+     * @throws IOException if the source cannot be reached or out cannot be written
+     */
+    public void writeTick() throws IOException {
+        ThreadSnapshot current = source.capture();
+        buffer.reset();
+        if (format == Format.BINARY) {
+            if (!deltas) encoder.reset();
+            encoder.encode(current, buffer);
+            header.reset();
+            header.writeVarLong(buffer.size());
+            header.writeTo(out);
+        } else if (deltas) {
+            writeDelta(SnapshotDiff.between(previous, current));
+        } else {
+            writeSnapshot(current);
+        }
+        buffer.writeTo(out);
+        out.flush();
+        previous = current;
+        ticks++;
+        onTick.accept(current);
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return the number of ticks that started later than scheduled
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    private void writeSnapshot(ThreadSnapshot snapshot) {
+        buffer.writeAscii("{\"type\":\"snapshot\",\"time\":");
+        buffer.writeDecimal(System.currentTimeMillis());
+        buffer.writeAscii(",\"threads\":[");
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (i > 0) buffer.writeByte(',');
+            writeRow(snapshot, i);
+        }
+        buffer.writeAscii("]}\n");
+    }
+
+    private void writeDelta(SnapshotDiff diff) {
+        ThreadSnapshot snapshot = diff.getCurrent();
+        buffer.writeAscii("{\"type\":\"delta\",\"time\":");
+        buffer.writeDecimal(System.currentTimeMillis());
+        buffer.writeAscii(",\"added\":[");
+        for (int k = 0; k < diff.getAddedCount(); k++) {
+            if (k > 0) buffer.writeByte(',');
+            writeRow(snapshot, diff.getAddedIndex(k));
+        }
+        buffer.writeAscii("],\"changed\":[");
+        for (int k = 0; k < diff.getChangedCount(); k++) {
+            if (k > 0) buffer.writeByte(',');
+            writeRow(snapshot, diff.getChangedIndex(k));
+        }
+        buffer.writeAscii("],\"removed\":[");
+        for (int k = 0; k < diff.getRemovedCount(); k++) {
+            if (k > 0) buffer.writeByte(',');
+            buffer.writeDecimal(diff.getRemovedId(k));
+        }
+        buffer.writeAscii("]}\n");
+    }
+
+    private void writeRow(ThreadSnapshot snapshot, int i) {
+        buffer.writeAscii("{\"id\":");
+        buffer.writeDecimal(snapshot.getId(i));
+        buffer.writeAscii(",\"name\":");
+        buffer.writeJsonString(snapshot.getName(i));
+        buffer.writeAscii(",\"group\":");
+        buffer.writeJsonString(snapshot.getGroupName(i));
+        buffer.writeAscii(",\"state\":\"");
+        buffer.writeAscii(snapshot.getState(i).name());
+        buffer.writeAscii(snapshot.isDaemon(i) ? "\",\"daemon\":true" : "\",\"daemon\":false");
+        buffer.writeAscii(",\"priority\":");
+        buffer.writeDecimal(snapshot.getPriority(i));
+        buffer.writeAscii(",\"cpu\":");
+        buffer.writeHundredths(snapshot.getCpuPercent(i));
+        buffer.writeAscii(",\"user\":");
+        buffer.writeHundredths(snapshot.getUserPercent(i));
+        buffer.writeAscii(",\"alloc\":");
+        buffer.writeDecimal(snapshot.getAllocationRate(i) < 0 ? -1 : Math.round(snapshot.getAllocationRate(i)));
+        buffer.writeByte('}');
+    }
+}
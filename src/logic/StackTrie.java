@@ -0,0 +1,242 @@
+package logic;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds sampled stacks into a trie of method frames, root (outermost call) first.
+ * Nodes live in parallel int arrays and children are found through one id map keyed by
+ * (parent, frame), so a sample costs one hash probe per frame and no allocation once its
+ * path exists. The number of nodes, and therefore the memory used, is capped at maxNodes;
+ * samples that would grow the trie past the cap are counted at the deepest existing node.
+ */
+public final class StackTrie {
+    private static final int ROOT = 0;
+    /** Rough bytes held per node: five int columns plus the child-index slots. */
+    private static final int BYTES_PER_NODE = 5 * 4 + 2 * 12;
+
+    private final int maxNodes;
+    private int[] frame;
+    private int[] parent;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] self;
+    private int nodeCount;
+    private final LongIndexMap childIndex;
+
+    private final Map<String, Map<String, Integer>> frameIds;
+    private String[] frameNames;
+    private int[] frameSelf;
+    private int[] frameTotal;
+    private int[] frameStamp;
+    private int frameCount;
+    private int stamp;
+
+    private long samples;
+    private long truncated;
+
+    /**
+     * @requires maxNodes > 1
+     * @param maxNodes the most nodes (and distinct frames) the trie may hold
+     */
+    public StackTrie(int maxNodes) {
+        this.maxNodes = maxNodes;
+        int initial = Math.min(maxNodes, 1024);
+        frame = new int[initial];
+        parent = new int[initial];
+        firstChild = new int[initial];
+        nextSibling = new int[initial];
+        self = new int[initial];
+        childIndex = new LongIndexMap(initial);
+        frameIds = new HashMap<>();
+        frameNames = new String[initial];
+        frameSelf = new int[initial];
+        frameTotal = new int[initial];
+        frameStamp = new int[initial];
+        clearNodes();
+    }
+
+    private void clearNodes() {
+        frame[ROOT] = -1;
+        parent[ROOT] = -1;
+        firstChild[ROOT] = -1;
+        nextSibling[ROOT] = -1;
+        self[ROOT] = 0;
+        nodeCount = 1;
+    }
+
+    /**
+     * @requires stack != null, ordered innermost frame first as returned by ThreadInfo.getStackTrace
+     * @modifies this
+     * @effects adds one sample along the stack's path
+     */
+    public synchronized void add(StackTraceElement[] stack) {
+        if (stack.length == 0) return;
+        samples++;
+        stamp++;
+        int node = ROOT;
+        boolean cut = false;
+        for (int d = stack.length - 1; d >= 0; d--) {
+            int f = frameId(stack[d]);
+            if (f < 0) {
+                cut = true;
+                break;
+            }
+            // count each method once per sample so recursion does not inflate its total
+            if (frameStamp[f] != stamp) {
+                frameStamp[f] = stamp;
+                frameTotal[f]++;
+            }
+            long key = ((long) node << 32) | f;
+            int child = childIndex.get(key);
+            if (child < 0) {
+                if (nodeCount >= maxNodes) {
+                    cut = true;
+                    break;
+                }
+                child = newNode(node, f);
+                childIndex.put(key, child);
+            }
+            node = child;
+        }
+        self[node]++;
+        if (cut) {
+            truncated++;
+        } else {
+            frameSelf[frame[node]]++;
+        }
+    }
+
+    private int frameId(StackTraceElement element) {
+        Map<String, Integer> methods = frameIds.get(element.getClassName());
+        Integer id = methods == null ? null : methods.get(element.getMethodName());
+        if (id != null) return id;
+        if (frameCount >= maxNodes) return -1;
+        if (frameCount == frameNames.length) {
+            int size = Math.min(maxNodes, frameNames.length * 2);
+            frameNames = Arrays.copyOf(frameNames, size);
+            frameSelf = Arrays.copyOf(frameSelf, size);
+            frameTotal = Arrays.copyOf(frameTotal, size);
+            frameStamp = Arrays.copyOf(frameStamp, size);
+        }
+        int f = frameCount++;
+        frameNames[f] = element.getClassName() + "." + element.getMethodName();
+        frameIds.computeIfAbsent(element.getClassName(), k -> new HashMap<>()).put(element.getMethodName(), f);
+        return f;
+    }
+
+    private int newNode(int parentNode, int f) {
+        if (nodeCount == frame.length) {
+            int size = Math.min(maxNodes, frame.length * 2);
+            frame = Arrays.copyOf(frame, size);
+            parent = Arrays.copyOf(parent, size);
+            firstChild = Arrays.copyOf(firstChild, size);
+            nextSibling = Arrays.copyOf(nextSibling, size);
+            self = Arrays.copyOf(self, size);
+        }
+        int n = nodeCount++;
+        frame[n] = f;
+        parent[n] = parentNode;
+        firstChild[n] = -1;
+        self[n] = 0;
+        nextSibling[n] = firstChild[parentNode];
+        firstChild[parentNode] = n;
+        return n;
+    }
+
+    /**
+     * @param limit the most methods to return
+     * @return the methods with the most samples on top of the stack, most first
+     */
+    public synchronized List<MethodStats> topMethods(int limit) {
+        Integer[] order = new Integer[frameCount];
+        for (int f = 0; f < frameCount; f++) order[f] = f;
+        Arrays.sort(order, (a, b) -> frameSelf[b] != frameSelf[a]
+                ? Integer.compare(frameSelf[b], frameSelf[a])
+                : Integer.compare(frameTotal[b], frameTotal[a]));
+        int n = Math.min(limit, frameCount);
+        List<MethodStats> top = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int f = order[i];
+            top.add(new MethodStats(frameNames[f], frameSelf[f], frameTotal[f], samples));
+        }
+        return top;
+    }
+
+    /**
+     * Writes the trie in the collapsed-stack format read by flamegraph.pl and speedscope:
+     * one "outer;...;inner count" line per distinct stack.
+     * @requires out != null
+     * @throws IOException if out cannot be written
+     */
+    public synchronized void writeCollapsed(Writer out) throws IOException {
+        StringBuilder path = new StringBuilder(256);
+        int[] pathLength = new int[nodeCount];
+        int node = firstChild[ROOT];
+        while (node >= 0) {
+            int start = parent[node] == ROOT ? 0 : pathLength[parent[node]];
+            path.setLength(start);
+            if (start > 0) path.append(';');
+            path.append(frameNames[frame[node]]);
+            pathLength[node] = path.length();
+            if (self[node] > 0) {
+                out.append(path).append(' ').append(Integer.toString(self[node])).append('\n');
+            }
+            node = nextInPreorder(node);
+        }
+    }
+
+    private int nextInPreorder(int node) {
+        if (firstChild[node] >= 0) return firstChild[node];
+        while (node != ROOT) {
+            if (nextSibling[node] >= 0) return nextSibling[node];
+            node = parent[node];
+        }
+        return -1;
+    }
+
+    /**
+     * @modifies this
+     * @effects discards every sample, keeping the allocated capacity
+     */
+    public synchronized void clear() {
+        childIndex.clear();
+        frameIds.clear();
+        Arrays.fill(frameNames, 0, frameCount, null);
+        Arrays.fill(frameSelf, 0, frameCount, 0);
+        Arrays.fill(frameTotal, 0, frameCount, 0);
+        Arrays.fill(frameStamp, 0, frameCount, 0);
+        frameCount = 0;
+        stamp = 0;
+        samples = 0;
+        truncated = 0;
+        clearNodes();
+    }
+
+    public synchronized long getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * @return the samples whose full path did not fit in the node budget
+     */
+    public synchronized long getTruncatedCount() {
+        return truncated;
+    }
+
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return a rough upper bound of the bytes held by the nodes, excluding frame names
+     */
+    public synchronized long estimatedBytes() {
+        return (long) frame.length * BYTES_PER_NODE;
+    }
+}
@@ -0,0 +1,100 @@
+package logic;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Interrupts every thread of a snapshot matching a group, a name pattern and a state in one
+ * pass, then tracks the targets on a single background thread until they terminate.
+ * Tracking polls Thread.isAlive over the shrinking set of survivors, so it costs nothing
+ * per thread once it has stopped and never needs a thread per target.
+ */
+final class ThreadCanceller {
+    private static final long POLL_MILLIS = 10;
+    private static final String CANCELLER_NAME = "thread-manager-canceller";
+    private static final String MONITOR_PREFIX = "thread-manager-";
+    private static final String[] TOOLKIT_PREFIXES = {"JavaFX Application Thread", "JavaFX-Launcher",
+            "QuantumRenderer-", "InvokeLaterDispatcher", "Prism Font Disposer"};
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * A target is any thread matching every given criterion. Threads directly in the root
+     * (system) group are JVM internals and only match when group is the root group itself.
+     * The calling thread, the monitor's own thread-manager-* threads and the JavaFX toolkit's
+     * threads are never targets.
+     * @requires snapshot != null && deadlineMillis >= 0
+     * @param group matches threads in group or any of its subgroups, or null for any group
+     * @param namePattern matches threads whose whole name matches, or null for any name
+     * @param state matches threads in that state at capture time, or null for any state
+     * @return the started cancellation
+     */
+    synchronized Cancellation cancel(ThreadSnapshot snapshot, ThreadGroup group, Pattern namePattern,
+                                     Thread.State state, long deadlineMillis) {
+        ThreadGroup root = snapshot.getThreadGroups()[0];
+        Thread[] targets = new Thread[snapshot.size()];
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (isTarget(snapshot, i, root, group, namePattern, state)) targets[count++] = snapshot.getThread(i);
+        }
+        Thread[] exact = new Thread[count];
+        System.arraycopy(targets, 0, exact, 0, count);
+        Cancellation cancellation = new Cancellation(exact, deadlineMillis);
+        cancellation.interruptAll();
+        schedule(cancellation);
+        return cancellation;
+    }
+
+    /**
+     * @requires snapshot != null
+     * @return the number of threads of snapshot cancel would interrupt with the same criteria
+     */
+    int countTargets(ThreadSnapshot snapshot, ThreadGroup group, Pattern namePattern, Thread.State state) {
+        ThreadGroup root = snapshot.getThreadGroups()[0];
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (isTarget(snapshot, i, root, group, namePattern, state)) count++;
+        }
+        return count;
+    }
+
+    private static boolean isTarget(ThreadSnapshot snapshot, int i, ThreadGroup root, ThreadGroup group,
+                                    Pattern namePattern, Thread.State state) {
+        Thread thread = snapshot.getThread(i);
+        ThreadGroup threadGroup = snapshot.getGroup(i);
+        if (thread == Thread.currentThread() || isProtected(snapshot.getName(i))) return false;
+        if (group == null ? threadGroup == root : !group.parentOf(threadGroup)) return false;
+        if (state != null && snapshot.getState(i) != state) return false;
+        return namePattern == null || namePattern.matcher(snapshot.getName(i)).matches();
+    }
+
+    /**
+     * @return true for the monitor's own threads, this canceller's included, and the JavaFX
+     *         toolkit's, which the monitor cannot run without
+     */
+    private static boolean isProtected(String name) {
+        if (name.startsWith(MONITOR_PREFIX)) return true;
+        for (String toolkit : TOOLKIT_PREFIXES) if (name.startsWith(toolkit)) return true;
+        return false;
+    }
+
+    private void schedule(Cancellation cancellation) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, CANCELLER_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ScheduledExecutorService scheduler = executor;
+        Runnable poll = new Runnable() {
+            @Override
+            public void run() {
+                if (!cancellation.poll()) scheduler.schedule(this, POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        };
+        scheduler.execute(poll);
+    }
+}
@@ -0,0 +1,320 @@
+package logic;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A thread dump read back for comparing: per thread its id, name, group, state, CPU share,
+ * the lock it waits for and its stack, kept in primitive columns. Identical stacks are stored
+ * once, so threads can be grouped by stack id and idle pools of thousands of threads cost
+ * one stack. Read from a file written by ThreadDumpWriter, or captured from the live jvm.
+ */
+public final class ThreadDump {
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    private final long captureMillis;
+    private int size;
+    private long[] ids = new long[256];
+    private String[] names = new String[256];
+    private String[] groups = new String[256];
+    private Thread.State[] states = new Thread.State[256];
+    private double[] cpu = new double[256];
+    private String[] lockNames = new String[256];
+    private long[] lockOwners = new long[256];
+    private int[] stackIds = new int[256];
+    private final List<String[]> stacks = new ArrayList<>();
+    private Map<List<String>, Integer> stackIndex = new HashMap<>();
+    private Map<String, String> internedFrames = new HashMap<>();
+    private LongIndexMap indexById;
+
+    private ThreadDump(long captureMillis) {
+        this.captureMillis = captureMillis;
+    }
+
+    /**
+     * @requires snapshot is of this jvm
+     * @return the state and stack of every live thread, read at one safepoint, with its metrics from snapshot
+     */
+    public static ThreadDump capture(ThreadSnapshot snapshot) {
+        ThreadDump dump = new ThreadDump(System.currentTimeMillis());
+        StringBuilder frame = new StringBuilder(128);
+        ThreadInfo[] infos = ManagementFactory.getThreadMXBean().dumpAllThreads(false, false);
+        for (int k = 0; k < infos.length; k++) {
+            ThreadInfo info = infos[k];
+            infos[k] = null;
+            StackTraceElement[] trace = info.getStackTrace();
+            String[] stack = new String[trace.length];
+            for (int f = 0; f < trace.length; f++) {
+                frame.setLength(0);
+                ThreadDumpWriter.appendFrame(frame, trace[f]);
+                stack[f] = frame.toString();
+            }
+            int i = snapshot.indexOf(info.getThreadId());
+            dump.add(info.getThreadId(), info.getThreadName(), i >= 0 ? snapshot.getGroupName(i) : "",
+                    info.getThreadState(), i >= 0 ? snapshot.getCpuPercent(i) : -1, info.getLockName(),
+                    info.getLockOwnerId(), stack);
+        }
+        dump.finish();
+        return dump;
+    }
+
+    /**
+     * @requires file != null
+     * @return the dump in file, which may be gzip compressed
+     * @throws IOException if file cannot be read or is not a dump
+     */
+    public static ThreadDump read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            in.mark(2);
+            boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+            in.reset();
+            InputStream content = gzip ? new GZIPInputStream(in, 1 << 16) : in;
+            return read(new InputStreamReader(content, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @requires reader != null
+     * @param reader a dump in the format of ThreadDumpWriter
+     * @return the parsed dump
+     * @throws IOException if reader fails or the input is not a dump
+     */
+    public static ThreadDump read(Reader reader) throws IOException {
+        JsonStreamReader json = new JsonStreamReader(reader);
+        if (json.next() != JsonStreamReader.Token.BEGIN_OBJECT) throw new IOException("Not a thread dump");
+        long time = 0;
+        boolean formatSeen = false;
+        ThreadDump dump = null;
+        while (json.next() == JsonStreamReader.Token.NAME) {
+            if (json.textEquals("format")) {
+                formatSeen = json.next() == JsonStreamReader.Token.STRING && json.textEquals(ThreadDumpWriter.FORMAT);
+            } else if (json.textEquals("time")) {
+                time = readLong(json, 0);
+            } else if (json.textEquals("threads") && formatSeen) {
+                dump = new ThreadDump(time);
+                dump.readThreads(json);
+            } else {
+                json.skipValue();
+            }
+        }
+        if (dump == null) throw new IOException("Not a thread dump");
+        dump.finish();
+        return dump;
+    }
+
+    private void readThreads(JsonStreamReader json) throws IOException {
+        if (json.next() != JsonStreamReader.Token.BEGIN_ARRAY) throw new IOException("Malformed thread dump");
+        List<String> stack = new ArrayList<>();
+        while (json.next() == JsonStreamReader.Token.BEGIN_OBJECT) {
+            long id = -1;
+            String name = "";
+            String group = "";
+            Thread.State state = Thread.State.RUNNABLE;
+            double threadCpu = -1;
+            String lockName = null;
+            long lockOwner = -1;
+            stack.clear();
+            while (json.next() == JsonStreamReader.Token.NAME) {
+                if (json.textEquals("id")) {
+                    id = readLong(json, -1);
+                } else if (json.textEquals("name")) {
+                    name = readString(json, "");
+                } else if (json.textEquals("group")) {
+                    group = readString(json, "");
+                } else if (json.textEquals("state")) {
+                    state = parseState(readString(json, ""));
+                } else if (json.textEquals("cpu")) {
+                    threadCpu = json.next() == JsonStreamReader.Token.NUMBER ? Double.parseDouble(json.text()) : -1;
+                } else if (json.textEquals("lock")) {
+                    lockName = readString(json, null);
+                } else if (json.textEquals("lockOwner")) {
+                    lockOwner = readLong(json, -1);
+                } else if (json.textEquals("stack")) {
+                    if (json.next() != JsonStreamReader.Token.BEGIN_ARRAY) throw new IOException("Malformed stack of thread #" + id);
+                    while (json.next() == JsonStreamReader.Token.STRING) stack.add(json.text());
+                } else {
+                    json.skipValue();
+                }
+            }
+            if (id >= 0) add(id, name, group, state, threadCpu, lockName, lockOwner, stack.toArray(new String[0]));
+        }
+    }
+
+    private static Thread.State parseState(String name) throws IOException {
+        for (Thread.State state : STATES) {
+            if (state.name().equals(name)) return state;
+        }
+        throw new IOException("Unknown thread state " + name);
+    }
+
+    private static long readLong(JsonStreamReader json, long missing) throws IOException {
+        if (json.next() != JsonStreamReader.Token.NUMBER) return missing;
+        try {
+            return Long.parseLong(json.text());
+        } catch (NumberFormatException e) {
+            return missing;
+        }
+    }
+
+    private static String readString(JsonStreamReader json, String missing) throws IOException {
+        return json.next() == JsonStreamReader.Token.STRING ? json.text() : missing;
+    }
+
+    private void add(long id, String name, String group, Thread.State state, double threadCpu,
+                     String lockName, long lockOwner, String[] stack) {
+        if (size == ids.length) {
+            int grown = size * 2;
+            ids = Arrays.copyOf(ids, grown);
+            names = Arrays.copyOf(names, grown);
+            groups = Arrays.copyOf(groups, grown);
+            states = Arrays.copyOf(states, grown);
+            cpu = Arrays.copyOf(cpu, grown);
+            lockNames = Arrays.copyOf(lockNames, grown);
+            lockOwners = Arrays.copyOf(lockOwners, grown);
+            stackIds = Arrays.copyOf(stackIds, grown);
+        }
+        for (int f = 0; f < stack.length; f++) {
+            String existing = internedFrames.putIfAbsent(stack[f], stack[f]);
+            if (existing != null) stack[f] = existing;
+        }
+        List<String> key = Arrays.asList(stack);
+        Integer stackId = stackIndex.get(key);
+        if (stackId == null) {
+            stackId = stacks.size();
+            stacks.add(stack);
+            stackIndex.put(key, stackId);
+        }
+        ids[size] = id;
+        names[size] = name;
+        groups[size] = group;
+        states[size] = state;
+        cpu[size] = threadCpu;
+        lockNames[size] = lockName;
+        lockOwners[size] = lockOwner;
+        stackIds[size] = stackId;
+        size++;
+    }
+
+    private void finish() {
+        stackIndex = null;
+        internedFrames = null;
+        indexById = new LongIndexMap(size);
+        for (int i = 0; i < size; i++) indexById.put(ids[i], i);
+    }
+
+    /**
+     * @return the System.currentTimeMillis at which the dump was taken
+     */
+    public long getCaptureMillis() {
+        return captureMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public String getGroupName(int index) {
+        return groups[index];
+    }
+
+    public Thread.State getState(int index) {
+        return states[index];
+    }
+
+    /**
+     * @return the thread's CPU share in percent when the dump was taken, or -1 if unavailable
+     */
+    public double getCpuPercent(int index) {
+        return cpu[index];
+    }
+
+    /**
+     * @return the lock the thread waits for, as "class@identity", or null if it waits for none
+     */
+    public String getLockName(int index) {
+        return lockNames[index];
+    }
+
+    /**
+     * @return the id of the thread holding the lock the thread waits for, or -1
+     */
+    public long getLockOwnerId(int index) {
+        return lockOwners[index];
+    }
+
+    /**
+     * @return the id of the thread's stack; threads with identical stacks share an id
+     */
+    public int getStackId(int index) {
+        return stackIds[index];
+    }
+
+    public int getStackCount() {
+        return stacks.size();
+    }
+
+    /**
+     * @return the frames of a stack, innermost first
+     */
+    public String[] getStack(int stackId) {
+        return stacks.get(stackId).clone();
+    }
+
+    /**
+     * @return the frames of a stack, not to be modified
+     */
+    String[] stack(int stackId) {
+        return stacks.get(stackId);
+    }
+
+    /**
+     * @return the index of the thread with id, or -1 if the dump has none
+     */
+    public int indexOf(long id) {
+        return indexById.get(id);
+    }
+
+    /**
+     * @requires indexes are indexes into this dump
+     * @return indexes split into groups of threads with identical stacks, largest group first
+     */
+    public List<int[]> groupByStack(int[] indexes) {
+        int[] counts = new int[stacks.size()];
+        for (int i : indexes) counts[stackIds[i]]++;
+        int[][] byStack = new int[stacks.size()][];
+        List<int[]> groups = new ArrayList<>();
+        int[] filled = new int[stacks.size()];
+        for (int i : indexes) {
+            int stackId = stackIds[i];
+            if (byStack[stackId] == null) {
+                byStack[stackId] = new int[counts[stackId]];
+                groups.add(byStack[stackId]);
+            }
+            byStack[stackId][filled[stackId]++] = i;
+        }
+        groups.sort((a, b) -> Integer.compare(b.length, a.length));
+        return groups;
+    }
+}
@@ -0,0 +1,121 @@
+package logic;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * What changed between two thread dumps, keyed by thread id: threads only in the later dump,
+ * threads only in the earlier one, and threads in both whose state or stack differs.
+ * New and changed threads are indexes into the later dump, gone threads into the earlier.
+ */
+public final class ThreadDumpDiff {
+    private final ThreadDump before;
+    private final ThreadDump after;
+    private final int[] added;
+    private final int[] removed;
+    private final int[] changed;
+    private final int[] changedBefore;
+
+    private ThreadDumpDiff(ThreadDump before, ThreadDump after, int[] added, int[] removed,
+                           int[] changed, int[] changedBefore) {
+        this.before = before;
+        this.after = after;
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+        this.changedBefore = changedBefore;
+    }
+
+    /**
+     * @requires before != null && after != null
+     * @return the differences going from before to after
+     */
+    public static ThreadDumpDiff between(ThreadDump before, ThreadDump after) {
+        int[] added = new int[after.size()];
+        int[] changed = new int[after.size()];
+        int[] changedBefore = new int[after.size()];
+        int addedCount = 0, changedCount = 0;
+        for (int i = 0; i < after.size(); i++) {
+            int j = before.indexOf(after.getId(i));
+            if (j < 0) {
+                added[addedCount++] = i;
+            } else if (before.getState(j) != after.getState(i)
+                    || !Arrays.equals(before.stack(before.getStackId(j)), after.stack(after.getStackId(i)))) {
+                changed[changedCount] = i;
+                changedBefore[changedCount++] = j;
+            }
+        }
+        int[] removed = new int[before.size()];
+        int removedCount = 0;
+        for (int j = 0; j < before.size(); j++) {
+            if (after.indexOf(before.getId(j)) < 0) removed[removedCount++] = j;
+        }
+        return new ThreadDumpDiff(before, after, Arrays.copyOf(added, addedCount), Arrays.copyOf(removed, removedCount),
+                Arrays.copyOf(changed, changedCount), Arrays.copyOf(changedBefore, changedCount));
+    }
+
+    public ThreadDump getBefore() {
+        return before;
+    }
+
+    public ThreadDump getAfter() {
+        return after;
+    }
+
+    /**
+     * @return the indexes in getAfter() of the threads that are new
+     */
+    public int[] getAdded() {
+        return added.clone();
+    }
+
+    /**
+     * @return the indexes in getBefore() of the threads that are gone
+     */
+    public int[] getRemoved() {
+        return removed.clone();
+    }
+
+    /**
+     * @return the indexes in getAfter() of the threads whose state or stack changed
+     */
+    public int[] getChanged() {
+        return changed.clone();
+    }
+
+    /**
+     * @return the index in getBefore() of the k-th changed thread
+     */
+    public int getChangedBeforeIndex(int k) {
+        return changedBefore[k];
+    }
+
+    /**
+     * @requires out != null
+     * @modifies out
+     * @effects writes the new, gone and changed threads as text, each section grouped by
+     *          identical stack with the largest group first; at most namesPerGroup names are listed per group
+     * @throws IOException if out cannot be written
+     */
+    public void writeReport(Appendable out, int namesPerGroup) throws IOException {
+        writeSection(out, "New", after, added, false, namesPerGroup);
+        writeSection(out, "Gone", before, removed, false, namesPerGroup);
+        writeSection(out, "Changed", after, changed, true, namesPerGroup);
+    }
+
+    private void writeSection(Appendable out, String title, ThreadDump dump, int[] indexes, boolean transitions,
+                              int namesPerGroup) throws IOException {
+        out.append(title).append(" (").append(String.valueOf(indexes.length)).append(")\n");
+        for (int[] group : dump.groupByStack(indexes)) {
+            out.append("  ").append(String.valueOf(group.length)).append(group.length == 1 ? " thread\n" : " threads\n");
+            for (int g = 0; g < Math.min(group.length, namesPerGroup); g++) {
+                int i = group[g];
+                out.append("    #").append(String.valueOf(dump.getId(i))).append(" \"").append(dump.getName(i)).append("\" ");
+                if (transitions) out.append(before.getState(before.indexOf(dump.getId(i))).name()).append(" -> ");
+                out.append(dump.getState(i).name()).append('\n');
+            }
+            if (group.length > namesPerGroup) out.append("    ...\n");
+            for (String frame : dump.stack(dump.getStackId(group[0]))) out.append("      at ").append(frame).append('\n');
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package logic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a full thread dump as one JSON document: the state, stack and locks of every thread,
+ * read from ThreadMXBean at one safepoint, with the thread's metrics from a snapshot. Threads
+ * are encoded one at a time into a reused buffer that is written out whenever it fills, so
+ * the dump is never held as text. Reading all threads in one call is what keeps a 20k thread
+ * dump fast: each call pays for a safepoint and a walk of the thread list.
+ * <pre>
+ * {"format":"thread-manager-dump","version":1,"time":ms,"pid":n,"threads":[
+ * {"id","name","group","state","daemon","priority","cpu","user","alloc",
+ *  "nativeId","voluntarySwitches","involuntarySwitches","lastCpu","nice",
+ *  "blockedCount","waitedCount","lock","lockOwner","stack":[frame...],
+ *  "lockedMonitors":[{"depth","lock"}...],"lockedSynchronizers":[lock...]},
+ * ...]}
+ * </pre>
+ * A frame reads like a StackTraceElement without its module, e.g. "java.lang.Thread.sleep(Native Method)".
+ */
+public final class ThreadDumpWriter {
+    public static final String FORMAT = "thread-manager-dump";
+    public static final int VERSION = 1;
+    /** Buffered bytes at which the buffer is written out. */
+    private static final int FLUSH_BYTES = 1 << 16;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final BinaryWriter buffer = new BinaryWriter(FLUSH_BYTES * 2);
+    private final StringBuilder frame = new StringBuilder(128);
+    private final BinaryWriter frameBuffer = new BinaryWriter(256);
+    // the encoded frames of the dump being written; thousands of pooled threads share a few stacks
+    private final Map<StackTraceElement, byte[]> encodedFrames = new HashMap<>();
+
+    /**
+     * @requires snapshot is of this jvm && out != null
+     * @modifies out
+     * @effects writes the dump of every live thread; out is not closed. Threads started since
+     *          snapshot have no group and their metrics are -1
+     * @return the number of threads written
+     * @throws IOException if out cannot be written
+     */
+    public int write(ThreadSnapshot snapshot, OutputStream out) throws IOException {
+        buffer.reset();
+        buffer.writeAscii("{\"format\":\"" + FORMAT + "\",\"version\":" + VERSION + ",\"time\":");
+        buffer.writeDecimal(System.currentTimeMillis());
+        buffer.writeAscii(",\"pid\":");
+        buffer.writeDecimal(ProcessHandle.current().pid());
+        buffer.writeAscii(",\"threads\":[\n");
+        ThreadInfo[] infos = threadMXBean.dumpAllThreads(threadMXBean.isObjectMonitorUsageSupported(),
+                threadMXBean.isSynchronizerUsageSupported());
+        for (int k = 0; k < infos.length; k++) {
+            if (k > 0) buffer.writeAscii(",\n");
+            writeThread(snapshot, snapshot.indexOf(infos[k].getThreadId()), infos[k]);
+            infos[k] = null;
+            if (buffer.size() >= FLUSH_BYTES) {
+                buffer.writeTo(out);
+                buffer.reset();
+            }
+        }
+        buffer.writeAscii("\n]}\n");
+        buffer.writeTo(out);
+        buffer.reset();
+        encodedFrames.clear();
+        out.flush();
+        return infos.length;
+    }
+
+    /**
+     * @param i the thread's index in snapshot, or -1 if it is not in snapshot
+     */
+    private void writeThread(ThreadSnapshot snapshot, int i, ThreadInfo info) {
+        buffer.writeAscii("{\"id\":");
+        buffer.writeDecimal(info.getThreadId());
+        buffer.writeAscii(",\"name\":");
+        buffer.writeJsonString(info.getThreadName());
+        buffer.writeAscii(",\"group\":");
+        buffer.writeJsonString(i >= 0 ? snapshot.getGroupName(i) : "");
+        buffer.writeAscii(",\"state\":\"");
+        buffer.writeAscii(info.getThreadState().name());
+        buffer.writeAscii(info.isDaemon() ? "\",\"daemon\":true" : "\",\"daemon\":false");
+        buffer.writeAscii(",\"priority\":");
+        buffer.writeDecimal(info.getPriority());
+        buffer.writeAscii(",\"cpu\":");
+        buffer.writeHundredths(i >= 0 ? snapshot.getCpuPercent(i) : -1);
+        buffer.writeAscii(",\"user\":");
+        buffer.writeHundredths(i >= 0 ? snapshot.getUserPercent(i) : -1);
+        buffer.writeAscii(",\"alloc\":");
+        buffer.writeDecimal(i < 0 || snapshot.getAllocationRate(i) < 0 ? -1 : Math.round(snapshot.getAllocationRate(i)));
+        if (i >= 0 && snapshot.getNativeId(i) >= 0) {
+            buffer.writeAscii(",\"nativeId\":");
+            buffer.writeDecimal(snapshot.getNativeId(i));
+            buffer.writeAscii(",\"voluntarySwitches\":");
+            buffer.writeHundredths(snapshot.getVoluntarySwitchRate(i));
+            buffer.writeAscii(",\"involuntarySwitches\":");
+            buffer.writeHundredths(snapshot.getInvoluntarySwitchRate(i));
+            buffer.writeAscii(",\"lastCpu\":");
+            buffer.writeDecimal(snapshot.getLastCpu(i));
+            buffer.writeAscii(",\"nice\":");
+            buffer.writeDecimal(snapshot.getNice(i));
+        }
+        buffer.writeAscii(",\"blockedCount\":");
+        buffer.writeDecimal(info.getBlockedCount());
+        buffer.writeAscii(",\"waitedCount\":");
+        buffer.writeDecimal(info.getWaitedCount());
+        if (info.getLockName() != null) {
+            buffer.writeAscii(",\"lock\":");
+            buffer.writeJsonString(info.getLockName());
+            buffer.writeAscii(",\"lockOwner\":");
+            buffer.writeDecimal(info.getLockOwnerId());
+        }
+        buffer.writeAscii(",\"stack\":[");
+        StackTraceElement[] stack = info.getStackTrace();
+        for (int f = 0; f < stack.length; f++) {
+            if (f > 0) buffer.writeByte(',');
+            buffer.writeBytes(encodedFrames.computeIfAbsent(stack[f], this::encode));
+        }
+        buffer.writeAscii("],\"lockedMonitors\":[");
+        MonitorInfo[] monitors = info.getLockedMonitors();
+        for (int m = 0; m < monitors.length; m++) {
+            if (m > 0) buffer.writeByte(',');
+            buffer.writeAscii("{\"depth\":");
+            buffer.writeDecimal(monitors[m].getLockedStackDepth());
+            buffer.writeAscii(",\"lock\":");
+            writeLock(monitors[m]);
+            buffer.writeByte('}');
+        }
+        buffer.writeAscii("],\"lockedSynchronizers\":[");
+        LockInfo[] synchronizers = info.getLockedSynchronizers();
+        for (int s = 0; s < synchronizers.length; s++) {
+            if (s > 0) buffer.writeByte(',');
+            writeLock(synchronizers[s]);
+        }
+        buffer.writeAscii("]}");
+    }
+
+    private byte[] encode(StackTraceElement element) {
+        frame.setLength(0);
+        appendFrame(frame, element);
+        frameBuffer.reset();
+        frameBuffer.writeJsonString(frame);
+        return frameBuffer.toByteArray();
+    }
+
+    private void writeLock(LockInfo lock) {
+        frame.setLength(0);
+        frame.append(lock.getClassName()).append('@').append(Integer.toHexString(lock.getIdentityHashCode()));
+        buffer.writeJsonString(frame);
+    }
+
+    /**
+     * @modifies to
+     * @effects appends frame as "class.method(File.java:line)", "(Native Method)" or "(Unknown Source)"
+     */
+    static void appendFrame(StringBuilder to, StackTraceElement frame) {
+        to.append(frame.getClassName()).append('.').append(frame.getMethodName()).append('(');
+        if (frame.isNativeMethod()) {
+            to.append("Native Method");
+        } else if (frame.getFileName() == null) {
+            to.append("Unknown Source");
+        } else {
+            to.append(frame.getFileName());
+            if (frame.getLineNumber() >= 0) to.append(':').append(frame.getLineNumber());
+        }
+        to.append(')');
+    }
+}
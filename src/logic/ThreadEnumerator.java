@@ -0,0 +1,138 @@
+package logic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Enumerates every live platform thread without losing any to churn.
+ * ThreadMXBean.getAllThreadIds sizes a reusable buffer with headroom, ThreadGroup.enumerate
+ * fills it and is retried with a larger buffer whenever it comes back full. The ids the MXBean
+ * reported are then checked off against the enumeration; if a thread it listed is still alive
+ * (bulk getThreadInfo) yet was not enumerated, the enumeration is repeated.
+ */
+final class ThreadEnumerator {
+    /** Enumeration passes before accepting a result that still misses a live thread. */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ThreadMXBean threadBean;
+    private Thread[] threads = new Thread[256];
+    private ThreadGroup[] groups = new ThreadGroup[32];
+    private final LongIndexMap enumerated = new LongIndexMap(256);
+    private long retries;
+
+    ThreadEnumerator() {
+        threadBean = ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * @requires root != null
+     * @param sampler samples per-thread rates, or null
+     * @param nativeSampler samples the native thread columns, or null
+     * @modifies this
+     * @return a snapshot of every live thread and group under root
+     */
+    synchronized ThreadSnapshot capture(ThreadGroup root, ThreadMetricsSampler sampler, NativeThreadSampler nativeSampler) {
+        int count = enumerateThreads(root);
+        ThreadGroup[] allGroups = enumerateGroups(root);
+        ThreadSnapshot snapshot = ThreadSnapshot.capture(threads, count, allGroups, sampler, nativeSampler);
+        // drop the references so dead threads are not kept reachable until the next tick
+        Arrays.fill(threads, null);
+        return snapshot;
+    }
+
+    /**
+     * @requires root != null
+     * @modifies this
+     * @return an exactly sized array of every live thread under root
+     */
+    synchronized Thread[] threads(ThreadGroup root) {
+        int count = enumerateThreads(root);
+        Thread[] result = Arrays.copyOf(threads, count);
+        Arrays.fill(threads, null);
+        return result;
+    }
+
+    /**
+     * @requires root != null
+     * @modifies this
+     * @return an exactly sized array of root followed by every group under it
+     */
+    synchronized ThreadGroup[] enumerateGroups(ThreadGroup root) {
+        int count;
+        while ((count = root.enumerate(groups, true)) >= groups.length) {
+            groups = new ThreadGroup[withHeadroom(groups.length)];
+        }
+        ThreadGroup[] result = new ThreadGroup[count + 1];
+        result[0] = root;
+        System.arraycopy(groups, 0, result, 1, count);
+        Arrays.fill(groups, 0, count, null);
+        return result;
+    }
+
+    /**
+     * @return the number of times an enumeration had to be repeated, for diagnostics
+     */
+    synchronized long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @modifies this.threads
+     * @return the number of threads now at the front of this.threads
+     */
+    private int enumerateThreads(ThreadGroup root) {
+        long[] ids = threadBean.getAllThreadIds();
+        if (threads.length <= ids.length) threads = new Thread[withHeadroom(ids.length)];
+        int count = 0;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            count = fill(root);
+            long[] missing = missing(ids, count);
+            if (missing.length == 0 || !anyAlive(missing)) return count;
+            retries++;
+            ids = threadBean.getAllThreadIds();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of threads enumerated, after growing the buffer until it was not filled
+     */
+    private int fill(ThreadGroup root) {
+        int count;
+        while ((count = root.enumerate(threads, true)) >= threads.length) {
+            retries++;
+            threads = new Thread[withHeadroom(threads.length)];
+        }
+        return count;
+    }
+
+    /**
+     * @return the ids the MXBean reported that are not among the first count enumerated threads
+     */
+    private long[] missing(long[] ids, int count) {
+        enumerated.clear();
+        for (int i = 0; i < count; i++) enumerated.put(threads[i].getId(), i);
+        long[] missing = null;
+        int missingCount = 0;
+        for (long id : ids) {
+            if (enumerated.get(id) >= 0) continue;
+            if (missing == null) missing = new long[Math.min(ids.length, 16)];
+            if (missingCount == missing.length) missing = Arrays.copyOf(missing, missingCount * 2);
+            missing[missingCount++] = id;
+        }
+        return missing == null ? new long[0] : Arrays.copyOf(missing, missingCount);
+    }
+
+    private boolean anyAlive(long[] ids) {
+        for (ThreadInfo info : threadBean.getThreadInfo(ids, 0)) {
+            if (info != null && info.getThreadState() != Thread.State.TERMINATED) return true;
+        }
+        return false;
+    }
+
+    private static int withHeadroom(int size) {
+        return size + (size >> 1) + 16;
+    }
+}
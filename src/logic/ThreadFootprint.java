@@ -0,0 +1,358 @@
+package logic;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The memory the threads of this jvm cost, per thread and rolled up per thread-group, next to
+ * an estimate of what the same threads would cost as virtual threads. Groups are told apart
+ * by identity, so groups sharing a name are rolled up separately.
+ * A thread's reserved stack is the jvm's ThreadStackSize; a stack size passed to a Thread
+ * constructor cannot be read back, so such threads are counted at the default. The jvm's own
+ * threads, the compiler threads among them, are not visible to ThreadMXBean and are only
+ * part of the Native Memory Tracking totals. A thread's depth is read from its stack.
+ * With Native Memory Tracking on, the java threads' share of the committed stack memory is
+ * split between them by depth, and the native structures of every thread evenly; without it
+ * both are unknown (-1).
+ * A virtual thread is estimated at VIRTUAL_THREAD_BYTES plus FRAME_BYTES per frame of heap,
+ * since its stack is copied to the heap at the depth it actually has.
+ */
+public final class ThreadFootprint {
+    /** Frames read per stack; deeper stacks count as this deep. */
+    static final int MAX_DEPTH = 1024;
+    /** The estimated bytes of one frame of a stack. */
+    public static final long FRAME_BYTES = 128;
+    /** The estimated fixed bytes of a virtual thread: its Thread, continuation and stack chunk header. */
+    public static final long VIRTUAL_THREAD_BYTES = 1024;
+
+    private final long measuredMillis;
+    private final NativeMemorySummary summary;
+    private final long[] ids;
+    private final String[] names;
+    private final String[] groupNames;
+    private final int[] groupIndexes;
+    private final int[] depths;
+    private final long[] stackSizes;
+    private final long[] committed;
+    private final String[] groups;
+    private final ThreadGroup[] threadGroups;
+    private final int[] groupThreads;
+    private final long[] groupReserved;
+    private final long[] groupCommitted;
+    private final long[] groupNative;
+    private final int[] groupMaxDepth;
+    private final long[] groupDepths;
+    private final long[] groupVirtual;
+
+    private ThreadFootprint(NativeMemorySummary summary, long[] ids, String[] names, ThreadGroup[] threadGroupOf,
+                            String[] groupNames, int[] depths, long[] stackSizes, long[] committed) {
+        this.measuredMillis = System.currentTimeMillis();
+        this.summary = summary;
+        this.ids = ids;
+        this.names = names;
+        this.groupNames = groupNames;
+        this.depths = depths;
+        this.stackSizes = stackSizes;
+        this.committed = committed;
+        long nativePerThread = summary.isAvailable() && summary.getThreads() > 0
+                ? summary.getNative() / summary.getThreads() : -1;
+
+        // by identity, by name only for threads whose group is not known
+        Map<ThreadGroup, Integer> byGroup = new IdentityHashMap<>();
+        Map<String, Integer> byName = new HashMap<>();
+        int[] unsorted = new int[ids.length];
+        List<ThreadGroup> firstGroups = new ArrayList<>();
+        List<String> firstNames = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            ThreadGroup group = threadGroupOf[i];
+            Integer index = group != null ? byGroup.get(group) : byName.get(groupNames[i]);
+            if (index == null) {
+                index = firstNames.size();
+                if (group != null) byGroup.put(group, index);
+                else byName.put(groupNames[i], index);
+                firstGroups.add(group);
+                firstNames.add(groupNames[i]);
+            }
+            unsorted[i] = index;
+        }
+        int n = firstNames.size();
+        int[] threads = new int[n];
+        long[] reserved = new long[n];
+        long[] committedSum = new long[n];
+        int[] maxDepth = new int[n];
+        long[] depthSum = new long[n];
+        for (int i = 0; i < ids.length; i++) {
+            int g = unsorted[i];
+            threads[g]++;
+            reserved[g] += Math.max(0, stackSizes[i]);
+            committedSum[g] += committed[i];
+            maxDepth[g] = Math.max(maxDepth[g], depths[i]);
+            depthSum[g] += depths[i];
+        }
+        // largest reservation first
+        Integer[] order = new Integer[n];
+        for (int g = 0; g < n; g++) order[g] = g;
+        Arrays.sort(order, Comparator.<Integer>comparingLong(g -> -reserved[g]).thenComparingInt(g -> -threads[g]));
+        int[] sortedIndex = new int[n];
+        groups = new String[n];
+        threadGroups = new ThreadGroup[n];
+        groupThreads = new int[n];
+        groupReserved = new long[n];
+        groupCommitted = new long[n];
+        groupNative = new long[n];
+        groupMaxDepth = new int[n];
+        groupDepths = new long[n];
+        groupVirtual = new long[n];
+        for (int k = 0; k < n; k++) {
+            int g = order[k];
+            sortedIndex[g] = k;
+            groups[k] = firstNames.get(g);
+            threadGroups[k] = firstGroups.get(g);
+            groupThreads[k] = threads[g];
+            groupReserved[k] = reserved[g];
+            groupCommitted[k] = summary.isAvailable() ? committedSum[g] : -1;
+            groupNative[k] = nativePerThread >= 0 ? nativePerThread * threads[g] : -1;
+            groupMaxDepth[k] = maxDepth[g];
+            groupDepths[k] = depthSum[g];
+            groupVirtual[k] = threads[g] * VIRTUAL_THREAD_BYTES + depthSum[g] * FRAME_BYTES;
+        }
+        groupIndexes = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) groupIndexes[i] = sortedIndex[unsorted[i]];
+    }
+
+    /**
+     * Reads the Native Memory Tracking summary and the stack of every thread in snapshot. Takes
+     * a safepoint to read up to MAX_DEPTH frames of every stack, so it belongs on a slow cadence.
+     * @requires snapshot is of this jvm
+     * @return the footprint of the threads of snapshot that are still alive
+     */
+    public static ThreadFootprint measure(ThreadSnapshot snapshot) {
+        NativeMemorySummary summary = NativeMemorySummary.read();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long[] snapshotIds = new long[snapshot.size()];
+        for (int i = 0; i < snapshotIds.length; i++) snapshotIds[i] = snapshot.getId(i);
+        ThreadInfo[] infos = threadBean.getThreadInfo(snapshotIds, MAX_DEPTH);
+        long threadStack = stackSizeOption("ThreadStackSize");
+
+        int n = 0;
+        for (ThreadInfo info : infos) if (info != null) n++;
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        ThreadGroup[] threadGroups = new ThreadGroup[n];
+        String[] groupNames = new String[n];
+        int[] depths = new int[n];
+        long[] stackSizes = new long[n];
+        long depthWeight = 0;
+        for (int i = 0, k = 0; i < infos.length; i++) {
+            ThreadInfo info = infos[i];
+            if (info == null) continue;
+            ids[k] = info.getThreadId();
+            names[k] = info.getThreadName();
+            threadGroups[k] = snapshot.getGroup(i);
+            groupNames[k] = snapshot.getGroupName(i);
+            depths[k] = info.getStackTrace().length;
+            stackSizes[k] = threadStack;
+            depthWeight += depths[k] + 1;
+            infos[i] = null;
+            k++;
+        }
+        long[] committed = new long[n];
+        if (summary.isAvailable() && summary.getThreads() > 0) {
+            // the java threads' share by count, split between them by depth
+            double share = summary.getStackCommitted() * Math.min(1.0, (double) n / summary.getThreads());
+            for (int k = 0; k < n; k++) committed[k] = Math.round(share * (depths[k] + 1) / depthWeight);
+        } else {
+            Arrays.fill(committed, -1);
+        }
+        return new ThreadFootprint(summary, ids, names, threadGroups, groupNames, depths, stackSizes, committed);
+    }
+
+    /**
+     * @return the jvm's stack size option in bytes, or -1 if it is 0 (the platform's default) or unreadable
+     */
+    private static long stackSizeOption(String option) {
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            long kilobytes = Long.parseLong(hotSpot.getVMOption(option).getValue());
+            return kilobytes > 0 ? kilobytes << 10 : -1;
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    public long getMeasuredMillis() {
+        return measuredMillis;
+    }
+
+    /**
+     * @return the jvm-wide thread figures of Native Memory Tracking
+     */
+    public NativeMemorySummary getNativeMemory() {
+        return summary;
+    }
+
+    /**
+     * @return the number of threads measured
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public String getGroupName(int index) {
+        return groupNames[index];
+    }
+
+    /**
+     * @return the index of the thread's group among the groups of this footprint
+     */
+    public int getGroupIndex(int index) {
+        return groupIndexes[index];
+    }
+
+    /**
+     * @return the frames on the thread's stack, at most MAX_DEPTH
+     */
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    /**
+     * @return the bytes reserved for the thread's stack, or -1 if the jvm uses the platform's default
+     */
+    public long getStackSize(int index) {
+        return stackSizes[index];
+    }
+
+    /**
+     * @return the estimated bytes of the thread's stack that are committed, or -1 without Native Memory Tracking
+     */
+    public long getCommittedEstimate(int index) {
+        return committed[index];
+    }
+
+    /**
+     * @return the number of thread-groups, largest reservation first
+     */
+    public int getGroupCount() {
+        return groups.length;
+    }
+
+    public String getGroup(int group) {
+        return groups[group];
+    }
+
+    /**
+     * @return the thread-group rolled up, or null if the snapshot only named it
+     */
+    public ThreadGroup getThreadGroup(int group) {
+        return threadGroups[group];
+    }
+
+    public int getGroupThreads(int group) {
+        return groupThreads[group];
+    }
+
+    /**
+     * @return the bytes reserved for the stacks of the group's threads, not counting those of unknown size
+     */
+    public long getGroupReserved(int group) {
+        return groupReserved[group];
+    }
+
+    /**
+     * @return the estimated committed stack bytes of the group's threads, or -1 without Native Memory Tracking
+     */
+    public long getGroupCommitted(int group) {
+        return groupCommitted[group];
+    }
+
+    /**
+     * @return the estimated native bytes of the group's threads outside their stacks, or -1 without Native Memory Tracking
+     */
+    public long getGroupNative(int group) {
+        return groupNative[group];
+    }
+
+    public int getGroupMaxDepth(int group) {
+        return groupMaxDepth[group];
+    }
+
+    public double getGroupMeanDepth(int group) {
+        return groupThreads[group] == 0 ? 0 : (double) groupDepths[group] / groupThreads[group];
+    }
+
+    /**
+     * @return the estimated heap bytes the group's threads would take as virtual threads at their current depths
+     */
+    public long getGroupVirtualEstimate(int group) {
+        return groupVirtual[group];
+    }
+
+    /**
+     * @return the bytes reserved for every measured thread's stack
+     */
+    public long getTotalReserved() {
+        long total = 0;
+        for (long reserved : groupReserved) total += reserved;
+        return total;
+    }
+
+    /**
+     * @return the estimated committed stack bytes of every measured thread, or -1 without Native Memory Tracking
+     */
+    public long getTotalCommitted() {
+        if (!summary.isAvailable()) return -1;
+        long total = 0;
+        for (long bytes : committed) total += bytes;
+        return total;
+    }
+
+    /**
+     * @return the estimated heap bytes every measured thread would take as a virtual thread
+     */
+    public long getTotalVirtualEstimate() {
+        long total = 0;
+        for (long bytes : groupVirtual) total += bytes;
+        return total;
+    }
+
+    /**
+     * @return the first maxGroups thread-groups as a table in KB, one line each, unknown figures as "-"
+     */
+    public String format(int maxGroups) {
+        StringBuilder table = new StringBuilder(String.format("%8s %11s %11s %10s %9s %9s %11s  %s%n",
+                "threads", "reservedKB", "committedKB", "nativeKB", "meanDepth", "maxDepth", "virtualKB", "group"));
+        for (int g = 0; g < Math.min(maxGroups, getGroupCount()); g++) {
+            table.append(String.format("%8d %11s %11s %10s %9.1f %9d %11s  %s%n", groupThreads[g],
+                    kilobytes(groupReserved[g]), kilobytes(groupCommitted[g]), kilobytes(groupNative[g]),
+                    getGroupMeanDepth(g), groupMaxDepth[g], kilobytes(groupVirtual[g]), groups[g]));
+        }
+        if (getGroupCount() > maxGroups) table.append("... ").append(getGroupCount() - maxGroups).append(" more groups\n");
+        return table.toString();
+    }
+
+    /**
+     * @return bytes in whole KB, or "-" if bytes is negative
+     */
+    public static String kilobytes(long bytes) {
+        return bytes < 0 ? "-" : Long.toString((bytes + 512) >> 10);
+    }
+}
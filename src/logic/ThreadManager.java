@@ -1,54 +1,193 @@
 package logic;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 public class ThreadManager {
+    /** How old a footprint getFootprint answers with before measuring a new one. */
+    static final long FOOTPRINT_MAX_AGE_MILLIS = 30_000;
 
     private ThreadRunnable runnable;
+    private final ThreadGroup createdGroup;
+    private final Map<String, ManagedPool> pools;
+    private final Map<String, ThreadGroup> poolGroups;
+    private final List<Workload> workloads;
+    private final Map<WorkloadProfile, ThreadGroup> workloadGroups;
+    private int workloadCount;
+    private final ThreadCanceller canceller;
+    private final ThreadEnumerator enumerator;
+    private final ThreadMetricsSampler metricsSampler;
+    private final NativeThreadSampler nativeSampler;
+    private volatile boolean nativeStatsEnabled;
+    private final ContentionAnalyzer contentionAnalyzer;
+    private final SelfMetrics selfMetrics;
+    private volatile ThreadSnapshot snapshot;
+    private volatile ContentionReport contentionReport;
+    private volatile ThreadFootprint footprint;
+    private final AtomicBoolean footprintPending = new AtomicBoolean();
 
     /**
      * @modifies this.allThreads, this.allGroups
      */
     public ThreadManager(){
         runnable = new ThreadRunnable();
+        createdGroup = new ThreadGroup("MyGroup");
+        pools = new LinkedHashMap<>();
+        poolGroups = new HashMap<>();
+        workloads = new ArrayList<>();
+        workloadGroups = new EnumMap<>(WorkloadProfile.class);
+        canceller = new ThreadCanceller();
+        enumerator = new ThreadEnumerator();
+        metricsSampler = new ThreadMetricsSampler();
+        nativeSampler = NativeThreadSampler.isSupported() ? new NativeThreadSampler() : null;
+        nativeStatsEnabled = nativeSampler != null;
+        contentionAnalyzer = new ContentionAnalyzer();
+        selfMetrics = new SelfMetrics();
     }
 
     /**
      * @requires returnable of getRootThreadGroup != null
-     * @return an array of all thread-groups running in the jvm.
+     * @return an array of all thread-groups running in the jvm, root first.
      */
     public ThreadGroup[] getAllThreadGroups() {
         assert getRootThreadGroup() != null
                 : "getRootThreadGroup() is returning null";
-        final ThreadGroup root = getRootThreadGroup();
-        int arrayAlloc = root.activeGroupCount(), i;
-        ThreadGroup[] groups;
-        do {
-            arrayAlloc *= 2;
-            groups = new ThreadGroup[arrayAlloc];
-            i = root.enumerate( groups, true );
-        } while (i == arrayAlloc);
-
-        ThreadGroup[] returnable = new ThreadGroup[i + 1];
-        returnable[0] = root;
-        System.arraycopy(groups, 0, returnable, 1, i);
-        return returnable;
+        return enumerator.enumerateGroups(getRootThreadGroup());
     }
 
     /**
      * @requires returnable of getRootThreadGroup != null
-     * @return an array of all the running threads
+     * @return an array of all the running threads, without null entries.
      */
     public Thread[] getAllThreads(){
         assert getRootThreadGroup() != null
                 : "getRootThreadGroup() is returning null";
-        ThreadGroup rootGroup = getRootThreadGroup();
-        int size = rootGroup.activeCount();
-        Thread[] returnable = new Thread[size];
-        rootGroup.enumerate(returnable);
-        return returnable;
+        return enumerator.threads(getRootThreadGroup());
+    }
+
+    /**
+     * Enumerates the jvm once, samples CPU and allocation rates for every thread in bulk,
+     * and on Linux each thread's native scheduler statistics, and publishes the result as the
+     * current snapshot. The enumeration and sampling are timed into the self metrics.
+     * Should be called once per refresh tick; all queries below answer from the current snapshot.
+     * @modifies this.snapshot, this.metricsSampler, this.nativeSampler, this.selfMetrics
+     * @return the newly captured snapshot
+     */
+    public ThreadSnapshot refresh() {
+        long start = System.nanoTime();
+        ThreadSnapshot captured = enumerator.capture(getRootThreadGroup(), metricsSampler,
+                nativeStatsEnabled ? nativeSampler : null);
+        long sampling = captured.getSamplingNanos();
+        selfMetrics.record(SelfMetrics.Phase.ENUMERATION, System.nanoTime() - start - sampling);
+        selfMetrics.record(SelfMetrics.Phase.SAMPLING, sampling);
+        snapshot = captured;
+        return captured;
+    }
+
+    /**
+     * @modifies this.snapshot
+     * @return the current snapshot, capturing one first if none has been taken yet
+     */
+    public ThreadSnapshot getSnapshot() {
+        ThreadSnapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Reads every thread's lock state, builds the waits-for graph, ranks contended locks
+     * and runs deadlock detection. Should be called once per refresh tick.
+     * @modifies this.contentionReport, this.selfMetrics
+     * @return the newly built report
+     */
+    public ContentionReport analyzeContention() {
+        long start = System.nanoTime();
+        ContentionReport report = contentionAnalyzer.analyze();
+        selfMetrics.record(SelfMetrics.Phase.CONTENTION, System.nanoTime() - start);
+        contentionReport = report;
+        return report;
+    }
+
+    /**
+     * @modifies this.contentionReport
+     * @return the current contention report, building one first if none has been built yet
+     */
+    public ContentionReport getContentionReport() {
+        ContentionReport current = contentionReport;
+        return current != null ? current : analyzeContention();
+    }
+
+    /**
+     * @return the cost of this manager's refreshes, and of the collectors and tables that are given it
+     */
+    public SelfMetrics getSelfMetrics() {
+        return selfMetrics;
+    }
+
+    /**
+     * Starts recording the call site of every thread started in this jvm, see CreationSiteTracker.
+     * The tracker is shared by the whole jvm, so this is a no-op if any manager or the agent started it.
+     * @return the shared tracker
+     * @throws IllegalStateException if this jvm cannot record JFR events
+     */
+    public CreationSiteTracker trackCreationSites() {
+        return CreationSiteTracker.start();
+    }
+
+    /**
+     * @return the live threads and thread-groups of the current snapshot by creation site,
+     *         or null if creation sites are not being tracked
+     */
+    public CreationSiteReport getCreationSites() {
+        CreationSiteTracker tracker = CreationSiteTracker.getShared();
+        return tracker == null ? null : tracker.report(getSnapshot());
+    }
+
+    /**
+     * Measures the memory footprint of the threads of the current snapshot, see ThreadFootprint.
+     * @modifies this.footprint
+     * @return the new footprint
+     */
+    public ThreadFootprint measureFootprint() {
+        ThreadFootprint measured = ThreadFootprint.measure(getSnapshot());
+        footprint = measured;
+        return measured;
+    }
+
+    /**
+     * Answers from the last measured footprint, and if it is older than FOOTPRINT_MAX_AGE_MILLIS
+     * measures a new one on a background thread, so a refresh tick never waits for the stacks to be read.
+     * @modifies this.footprint
+     * @return the last footprint, or null until the first measurement finishes
+     */
+    public ThreadFootprint getFootprint() {
+        ThreadFootprint current = footprint;
+        boolean stale = current == null || System.currentTimeMillis() - current.getMeasuredMillis() > FOOTPRINT_MAX_AGE_MILLIS;
+        if (stale && footprintPending.compareAndSet(false, true)) {
+            Thread measurer = new Thread(() -> {
+                try {
+                    measureFootprint();
+                } finally {
+                    footprintPending.set(false);
+                }
+            }, "thread-manager-footprint");
+            measurer.setDaemon(true);
+            measurer.start();
+        }
+        return current;
     }
 
     /**
@@ -67,83 +206,56 @@ public class ThreadManager {
 
     /**
      * mostly for testing purposes
-     * @requires allThreads != null
-     * @effects displays all the currently running threads in the JVM to standard out
+     * @effects displays all the threads in the current snapshot to standard out
      */
     public void displayAllThreads() {
-        assert getAllThreads() != null
-                : "allThreads is null";
-        System.out.println("No of threads: " + getAllThreads().length);
-        for (Thread thread :
-                getAllThreads()) {
-            System.out.println("Thread group: " + thread.getThreadGroup().getName() + "    Thread name: " + thread.getName());
+        ThreadSnapshot current = getSnapshot();
+        System.out.println("No of threads: " + current.size());
+        for (int i = 0; i < current.size(); i++) {
+            System.out.println("Thread group: " + current.getGroupName(i) + "    Thread name: " + current.getName(i));
         }
     }
 
     /**
      * mostly for testing purposes
-     * @requires allGroups != null
-     * @effects Displays all the thread groups in the JVM to standard out
+     * @effects Displays all the thread groups in the current snapshot to standard out
      */
     public void displayAllThreadGroups(){
-        assert getAllThreadGroups() != null
-                : "allGroups is null";
-        System.out.println("No of thread-groups: " + getAllThreadGroups().length);
+        ThreadGroup[] groups = getSnapshot().getThreadGroups();
+        System.out.println("No of thread-groups: " + groups.length);
         for (ThreadGroup threadgroup :
-                getAllThreadGroups()) {
+                groups) {
             System.out.println("ThreadGroup Name: " + threadgroup.getName());
         }
     }
 
     /**
-     * @requires allThreads != null && search != null
+     * @requires search != null
      * @param search the thread the user wants to search for
-     * @return the matching thread. returns null if no match is found.
+     * @return the matching thread from the current snapshot. returns null if no match is found.
      */
     public Thread searchThread(String search){
-        search = search.toLowerCase(Locale.ENGLISH);
-        for (Thread thread :
-                getAllThreads()) {
-            String curThreadName = thread.getName().toLowerCase(Locale.ENGLISH);
-            if(curThreadName.equals(search)) {
-                return thread;
-            }
-        }
-        return null;
+        List<Thread> matches = getSnapshot().findByName(search);
+        return matches.isEmpty() ? null : matches.get(0);
     }
 
     /**
-     * @requires allGroups != null && search != null
+     * @requires search != null
      * @param search The thread group the user wants to search for
-     * @return The thread matching the string. Will return null if no match is found
+     * @return The thread group matching the string. Will return null if no match is found
      */
     public ThreadGroup searchThreadGroup(String search){
-        search = search.toLowerCase(Locale.ENGLISH);
-        for (ThreadGroup threadGroup :
-                getAllThreadGroups()) {
-            String curGroupName = threadGroup.getName().toLowerCase(Locale.ENGLISH);
-            if (curGroupName.equals(search)) {
-                return threadGroup;
-            }
-        }
-        return null;
+        List<ThreadGroup> matches = getSnapshot().findGroupsByName(search);
+        return matches.isEmpty() ? null : matches.get(0);
     }
 
     /**
-     * @requires filter != null && allThreads != null
+     * @requires filter != null
      * @param filter the thread-group the user wishes to filter by
-     * @return an arraylist of threads belonging to the filter thread-group
+     * @return an arraylist of threads in the current snapshot belonging to the filter thread-group
      */
     public ArrayList<Thread> filterByGroup(ThreadGroup filter){
-        ArrayList<Thread> returnable = new ArrayList<>();
-        for (Thread thread :
-                getAllThreads()) {
-            ThreadGroup threadGroup = thread.getThreadGroup();
-            if (threadGroup.equals(filter)) {
-                returnable.add(thread);
-            }
-        }
-        return returnable;
+        return new ArrayList<>(getSnapshot().findByGroup(filter));
     }
 
     /**
@@ -153,8 +265,200 @@ public class ThreadManager {
      * @return the created thread
      */
     public Thread createThread(String name) {
-        ThreadGroup threadGroup = new ThreadGroup("MyGroup");
-        return new Thread(threadGroup, runnable, name);
+        return createThread(name, false);
+    }
+
+    /**
+     * @requires name != null && (!virtual || canCreateVirtualThreads())
+     * @effects new thread is created
+     * @param name the name to give the created thread
+     * @param virtual whether to create a virtual thread instead of a platform thread
+     * @return the created, unstarted thread
+     * @throws UnsupportedOperationException if virtual and this jvm has no virtual threads
+     */
+    public Thread createThread(String name, boolean virtual) {
+        if (virtual) {
+            return VirtualThreads.newVirtualThread(name, runnable);
+        }
+        return new Thread(createdGroup, runnable, name);
+    }
+
+    /**
+     * @requires name != null && (size > 0 || kind == PoolKind.VIRTUAL)
+     * @modifies this.pools
+     * A pool created again under the name of one shut down reuses its thread-group, so the
+     * group tree does not grow with every create and shutdown.
+     * @param name the name of the pool, its thread-group and the prefix of its workers' names
+     * @param kind the kind of executor to run
+     * @param size threads for FIXED, maximum threads for CACHED, parallelism for WORK_STEALING; ignored for VIRTUAL
+     * @return the new pool
+     * @throws IllegalArgumentException if a pool with name exists or size is not positive
+     * @throws UnsupportedOperationException if kind is VIRTUAL and this jvm has no virtual threads
+     */
+    public ManagedPool createPool(String name, PoolKind kind, int size) {
+        if (kind != PoolKind.VIRTUAL && size <= 0) throw new IllegalArgumentException("Pool size must be positive: " + size);
+        synchronized (pools) {
+            if (pools.containsKey(name)) throw new IllegalArgumentException("A pool named " + name + " exists");
+            ThreadGroup group = kind.hasThreadGroup() ? poolGroups.computeIfAbsent(name, ThreadGroup::new) : null;
+            ManagedPool pool = new ManagedPool(name, kind, size, group);
+            pools.put(name, pool);
+            return pool;
+        }
+    }
+
+    /**
+     * @return the pool named name, or null if there is none
+     */
+    public ManagedPool getPool(String name) {
+        synchronized (pools) {
+            return pools.get(name);
+        }
+    }
+
+    /**
+     * @return the pools that have not been shut down, in creation order
+     */
+    public List<ManagedPool> getPools() {
+        synchronized (pools) {
+            return new ArrayList<>(pools.values());
+        }
+    }
+
+    /**
+     * @requires size > 0
+     * @effects resizes the pool named name, see ManagedPool.resize
+     * @throws IllegalArgumentException if there is no pool named name
+     */
+    public void resizePool(String name, int size) {
+        requirePool(name).resize(size);
+    }
+
+    /**
+     * @modifies this.pools
+     * @effects shuts down the pool named name and forgets it; queued and running tasks still complete
+     * @throws IllegalArgumentException if there is no pool named name
+     */
+    public void shutdownPool(String name) {
+        ManagedPool pool;
+        synchronized (pools) {
+            pool = pools.remove(name);
+        }
+        if (pool == null) throw new IllegalArgumentException("No pool named " + name);
+        pool.shutdown();
+    }
+
+    private ManagedPool requirePool(String name) {
+        ManagedPool pool = getPool(name);
+        if (pool == null) throw new IllegalArgumentException("No pool named " + name);
+        return pool;
+    }
+
+    /**
+     * @requires profile != null
+     * @modifies this.workloads
+     * @param count threads to run, or for CHURN the most alive at once
+     * @param rate operations per second across the threads, or for CHURN threads started per second; 0 is unthrottled
+     * @return the started workload, named after its profile, e.g. workload-cpu-spin-1, with its
+     *         threads in the one thread-group kept for the profile, e.g. workload-cpu-spin
+     * @throws IllegalArgumentException if count is not positive or rate is negative
+     * @throws IOException if a FILE_IO workload cannot create its temporary directory
+     */
+    public Workload startWorkload(WorkloadProfile profile, int count, double rate) throws IOException {
+        Workload workload;
+        synchronized (workloads) {
+            String prefix = "workload-" + profile.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            ThreadGroup group = workloadGroups.computeIfAbsent(profile, p -> new ThreadGroup(prefix));
+            workload = new Workload(prefix + "-" + ++workloadCount, profile, count, rate, group);
+        }
+        workload.start();
+        synchronized (workloads) {
+            workloads.add(workload);
+        }
+        return workload;
+    }
+
+    /**
+     * @return the workloads that have not been stopped, in start order
+     */
+    public List<Workload> getWorkloads() {
+        synchronized (workloads) {
+            return new ArrayList<>(workloads);
+        }
+    }
+
+    /**
+     * @modifies this.workloads
+     * @effects stops workload and forgets it
+     */
+    public void stopWorkload(Workload workload) {
+        synchronized (workloads) {
+            workloads.remove(workload);
+        }
+        workload.stop();
+    }
+
+    /**
+     * @return true if refresh samples the native thread columns: on Linux, unless turned off
+     */
+    public boolean hasNativeThreadStats() {
+        return nativeStatsEnabled;
+    }
+
+    /**
+     * Reading /proc costs two file reads per thread per refresh, which a caller not showing
+     * the native columns can save.
+     * @param enabled whether refresh samples the native thread columns; ignored where /proc is missing
+     * @modifies this.nativeStatsEnabled
+     */
+    public void setNativeThreadStats(boolean enabled) {
+        nativeStatsEnabled = enabled && nativeSampler != null;
+    }
+
+    /**
+     * @return true if this jvm can create virtual threads (JDK 21+)
+     */
+    public boolean canCreateVirtualThreads() {
+        return VirtualThreads.canCreate();
+    }
+
+    /**
+     * Virtual threads are invisible to the snapshot, which only sees platform threads.
+     * Dumping them is far more expensive than a snapshot, so it is done on demand.
+     * @requires VirtualThreadDump.isSupported()
+     * @return every thread in the jvm, virtual ones included
+     * @throws IOException if the dump cannot be written or read
+     */
+    public VirtualThreadDump dumpVirtualThreads() throws IOException {
+        return VirtualThreadDump.capture();
+    }
+
+    /**
+     * Writes the state, stack and locks of every live thread, with its metrics from the current
+     * snapshot, streamed so the dump is never held in memory as text.
+     * @requires file != null
+     * @param file where to write; a name ending in .gz is gzip compressed, favouring speed over size
+     * @return the number of threads written
+     * @throws IOException if file cannot be written
+     */
+    public int writeThreadDump(Path file) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            out = new GZIPOutputStream(out, 1 << 16) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+        }
+        try (OutputStream dump = out) {
+            return new ThreadDumpWriter().write(getSnapshot(), dump);
+        }
+    }
+
+    /**
+     * @return the state and stack of every live thread, to compare with a written dump
+     */
+    public ThreadDump captureThreadDump() {
+        return ThreadDump.capture(getSnapshot());
     }
 
     /**
@@ -163,14 +467,32 @@ public class ThreadManager {
      * @effects thread with id is interrupted
      */
      public void killThread(Long id) {
-        Thread[] allThreads = getAllThreads();
-        Thread killThread = null;
-        for (Thread t :
-                allThreads) {
-            if (t.getId() == id) {
-                killThread = t;
-            }
-        }
+        Thread killThread = getSnapshot().findById(id);
         if (killThread != null) killThread.interrupt();
     }
+
+    /**
+     * Interrupts, in a single pass over a fresh snapshot, every thread matching all the given
+     * criteria, then tracks the targets in the background until they terminate or the deadline passes.
+     * Threads directly in the root (system) group only match when group is the root group, and
+     * the monitor's own thread-manager-* threads and the JavaFX toolkit's threads never match.
+     * @requires deadlineMillis >= 0
+     * @param group matches threads in group or its subgroups, or null for any group
+     * @param namePattern matches threads whose whole name matches, or null for any name
+     * @param state matches threads in that state, or null for any state
+     * @param deadlineMillis how long to wait for the targets to terminate
+     * @modifies this.snapshot
+     * @return the cancellation, whose result reports the threads that did not terminate with their stacks
+     */
+    public Cancellation cancelThreads(ThreadGroup group, Pattern namePattern, Thread.State state, long deadlineMillis) {
+        return canceller.cancel(refresh(), group, namePattern, state, deadlineMillis);
+    }
+
+    /**
+     * @modifies this.snapshot
+     * @return the number of threads cancelThreads would interrupt with the same criteria right now
+     */
+    public int countCancellationTargets(ThreadGroup group, Pattern namePattern, Thread.State state) {
+        return canceller.countTargets(refresh(), group, namePattern, state);
+    }
 }
@@ -0,0 +1,80 @@
+package logic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Samples per-thread CPU time, user time and allocated bytes with the bulk (array) overloads
+ * of ThreadMXBean and turns them into per-interval rates. The previous sample is kept in
+ * primitive arrays keyed by thread id, so a tick allocates only the arrays the MXBean returns.
+ */
+final class ThreadMetricsSampler {
+    /** Written into an output slot when the jvm cannot measure the value. */
+    static final double UNAVAILABLE = -1;
+
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean sunThreadBean;
+    private final boolean cpuSupported;
+    private final boolean allocSupported;
+
+    private long[] previousCpu = new long[0];
+    private long[] previousUser = new long[0];
+    private long[] previousAlloc = new long[0];
+    private final LongIndexMap previousIndex = new LongIndexMap(256);
+    private long previousNanos;
+
+    ThreadMetricsSampler() {
+        threadBean = ManagementFactory.getThreadMXBean();
+        sunThreadBean = threadBean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threadBean : null;
+        cpuSupported = sunThreadBean != null && threadBean.isThreadCpuTimeSupported();
+        if (cpuSupported && !threadBean.isThreadCpuTimeEnabled()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+        allocSupported = sunThreadBean != null && sunThreadBean.isThreadAllocatedMemorySupported();
+        if (allocSupported && !sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+            sunThreadBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * @requires ids, cpuOut, userOut and allocOut all have the same length, ids is not modified afterwards
+     * @param ids the ids of the threads to sample
+     * @param nanos the System.nanoTime of the sample
+     * @modifies this, cpuOut, userOut, allocOut
+     * @effects writes the CPU %, user CPU % (of one core) and bytes/sec since the previous
+     *          sample for each id. Threads seen for the first time get 0, unmeasurable values UNAVAILABLE.
+     */
+    synchronized void sample(long[] ids, long nanos, double[] cpuOut, double[] userOut, double[] allocOut) {
+        long[] cpu = cpuSupported ? sunThreadBean.getThreadCpuTime(ids) : null;
+        long[] user = cpuSupported ? sunThreadBean.getThreadUserTime(ids) : null;
+        long[] alloc = allocSupported ? sunThreadBean.getThreadAllocatedBytes(ids) : null;
+        long elapsed = nanos - previousNanos;
+        boolean hasPrevious = previousNanos != 0 && elapsed > 0;
+
+        for (int i = 0; i < ids.length; i++) {
+            int before = hasPrevious ? previousIndex.get(ids[i]) : -1;
+            cpuOut[i] = rate(cpu, previousCpu, i, before, elapsed, 100.0);
+            userOut[i] = rate(user, previousUser, i, before, elapsed, 100.0);
+            allocOut[i] = rate(alloc, previousAlloc, i, before, elapsed, 1e9);
+        }
+
+        previousIndex.clear();
+        for (int i = 0; i < ids.length; i++) previousIndex.put(ids[i], i);
+        previousCpu = cpu;
+        previousUser = user;
+        previousAlloc = alloc;
+        previousNanos = nanos;
+    }
+
+    /**
+     * @return (current - previous) per elapsed nanosecond, scaled; 0 with no previous value
+     */
+    private static double rate(long[] current, long[] previous, int i, int before, long elapsed, double scale) {
+        if (current == null || current[i] < 0) return UNAVAILABLE;
+        if (before < 0 || previous == null || previous[before] < 0) return 0;
+        long delta = current[i] - previous[before];
+        return delta <= 0 ? 0 : delta * scale / elapsed;
+    }
+
+}
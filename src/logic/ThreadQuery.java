@@ -0,0 +1,264 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A parsed thread search. Terms are separated by spaces and must all match; a leading '-'
+ * negates a term and double quotes keep spaces in a value. Text is matched case-insensitively.
+ * <pre>
+ *   worker            name contains "worker" (also name:worker)
+ *   name~^pool-\d+    name matches the regex
+ *   group:foo         group name contains "foo"
+ *   state:BLOCKED     state starts with "blocked", so state:timed finds TIMED_WAITING
+ *   daemon:true
+ *   cpu>5%  user<=1   alloc>1MB  prio>=7  id:42     ':' is '='; alloc takes K, M and G suffixes
+ * </pre>
+ */
+public final class ThreadQuery {
+    private static final Pattern FIELD = Pattern.compile("([a-zA-Z]+)(~|:|>=|<=|>|<|=)(.*)", Pattern.DOTALL);
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    /** One condition on the thread at an index of a snapshot, given its lower-case name. */
+    private interface Term {
+        boolean test(ThreadSnapshot snapshot, int index, String lowerName);
+    }
+
+    private final List<Term> terms;
+    private final List<String> nameFragments;
+
+    private ThreadQuery(List<Term> terms, List<String> nameFragments) {
+        this.terms = terms;
+        this.nameFragments = nameFragments;
+    }
+
+    /**
+     * @requires text != null
+     * @return the query text describes; empty text matches every thread
+     * @throws IllegalArgumentException if a term cannot be parsed, with a message fit for the user
+     */
+    public static ThreadQuery parse(String text) {
+        List<Term> terms = new ArrayList<>();
+        List<String> fragments = new ArrayList<>();
+        for (String token : tokenize(text)) {
+            boolean negated = token.length() > 1 && token.charAt(0) == '-';
+            String body = negated ? token.substring(1) : token;
+            Matcher field = FIELD.matcher(body);
+            Term term = field.matches() ? fieldTerm(field.group(1).toLowerCase(Locale.ENGLISH), field.group(2),
+                    unquote(field.group(3))) : null;
+            if (term == null) {
+                // a bare word, or something like http://host whose prefix is no field
+                String fragment = unquote(body).toLowerCase(Locale.ENGLISH);
+                term = (snapshot, index, lowerName) -> lowerName.contains(fragment);
+                if (!negated) fragments.add(fragment);
+            } else if (!negated && field.group(1).equalsIgnoreCase("name") && field.group(2).equals(":")) {
+                fragments.add(unquote(field.group(3)).toLowerCase(Locale.ENGLISH));
+            }
+            if (negated) {
+                Term positive = term;
+                term = (snapshot, index, lowerName) -> !positive.test(snapshot, index, lowerName);
+            }
+            terms.add(term);
+        }
+        return new ThreadQuery(terms, fragments);
+    }
+
+    /**
+     * @return the term for field, or null if field is not a known field
+     * @throws IllegalArgumentException if the operator or value does not suit the field
+     */
+    private static Term fieldTerm(String field, String operator, String value) {
+        switch (field) {
+            case "name":
+                if (operator.equals("~")) {
+                    Pattern regex = regex(value);
+                    return (snapshot, index, lowerName) -> regex.matcher(snapshot.getName(index)).find();
+                }
+                String fragment = text(field, operator, value);
+                return (snapshot, index, lowerName) -> lowerName.contains(fragment);
+            case "group":
+                if (operator.equals("~")) {
+                    Pattern regex = regex(value);
+                    return (snapshot, index, lowerName) -> regex.matcher(snapshot.getGroupName(index)).find();
+                }
+                String group = text(field, operator, value);
+                return (snapshot, index, lowerName) -> snapshot.getGroupName(index).toLowerCase(Locale.ENGLISH).contains(group);
+            case "state":
+                boolean[] states = new boolean[STATES.length];
+                String prefix = text(field, operator, value);
+                boolean any = false;
+                for (Thread.State state : STATES) {
+                    if (state.name().toLowerCase(Locale.ENGLISH).startsWith(prefix)) any = states[state.ordinal()] = true;
+                }
+                if (!any) throw new IllegalArgumentException("Unknown thread state: " + value);
+                return (snapshot, index, lowerName) -> states[snapshot.getState(index).ordinal()];
+            case "daemon":
+                String flag = text(field, operator, value);
+                if (!flag.equals("true") && !flag.equals("false")) {
+                    throw new IllegalArgumentException("daemon: takes true or false, not " + value);
+                }
+                boolean daemon = flag.equals("true");
+                return (snapshot, index, lowerName) -> snapshot.isDaemon(index) == daemon;
+            case "id":
+                return compare(operator, number(field, operator, value, false), ThreadSnapshot::getId);
+            case "cpu":
+                return compare(operator, number(field, operator, value, false), ThreadSnapshot::getCpuPercent);
+            case "user":
+                return compare(operator, number(field, operator, value, false), ThreadSnapshot::getUserPercent);
+            case "alloc":
+                return compare(operator, number(field, operator, value, true), ThreadSnapshot::getAllocationRate);
+            case "prio":
+            case "priority":
+                return compare(operator, number(field, operator, value, false), ThreadSnapshot::getPriority);
+            default:
+                return null;
+        }
+    }
+
+    private interface Column {
+        double get(ThreadSnapshot snapshot, int index);
+    }
+
+    /**
+     * @param operator one of = &lt; &lt;= &gt; &gt;=, or ':' meaning =
+     */
+    private static Term compare(String operator, double bound, Column column) {
+        switch (operator) {
+            case ">":
+                return (snapshot, index, lowerName) -> column.get(snapshot, index) > bound;
+            case ">=":
+                return (snapshot, index, lowerName) -> column.get(snapshot, index) >= bound;
+            case "<":
+                return (snapshot, index, lowerName) -> column.get(snapshot, index) < bound;
+            case "<=":
+                return (snapshot, index, lowerName) -> column.get(snapshot, index) <= bound;
+            default:
+                return (snapshot, index, lowerName) -> column.get(snapshot, index) == bound;
+        }
+    }
+
+    private static String text(String field, String operator, String value) {
+        if (!operator.equals(":")) throw new IllegalArgumentException(field + " takes ':', not '" + operator + "'");
+        if (value.isEmpty()) throw new IllegalArgumentException("Missing value after " + field + ":");
+        return value.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static Pattern regex(String value) {
+        try {
+            return Pattern.compile(value, Pattern.CASE_INSENSITIVE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Bad regex " + value + ": " + e.getDescription());
+        }
+    }
+
+    /**
+     * @param bytes whether the value may have a K, M or G suffix, in powers of 1024
+     */
+    private static double number(String field, String operator, String value, boolean bytes) {
+        if (operator.equals("~")) {
+            throw new IllegalArgumentException(field + " takes one of : = < <= > >=, not '~'");
+        }
+        String number = value.toUpperCase(Locale.ENGLISH);
+        if (number.endsWith("%")) number = number.substring(0, number.length() - 1);
+        double scale = 1;
+        if (bytes) {
+            if (number.endsWith("B")) number = number.substring(0, number.length() - 1);
+            if (number.endsWith("K")) scale = 1024;
+            else if (number.endsWith("M")) scale = 1024 * 1024;
+            else if (number.endsWith("G")) scale = 1024 * 1024 * 1024;
+            if (scale > 1) number = number.substring(0, number.length() - 1);
+        }
+        try {
+            return Double.parseDouble(number) * scale;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number after " + field + operator + ": " + value);
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') quoted = !quoted;
+            if (!quoted && Character.isWhitespace(c)) {
+                if (token.length() > 0) tokens.add(token.toString());
+                token.setLength(0);
+            } else {
+                token.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unclosed quote");
+        if (token.length() > 0) tokens.add(token.toString());
+        return tokens;
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "");
+    }
+
+    /**
+     * @requires group != null
+     * @return this query restricted to the threads directly in the group named group
+     */
+    public ThreadQuery withGroup(String group) {
+        List<Term> restricted = new ArrayList<>(terms);
+        restricted.add((snapshot, index, lowerName) -> snapshot.getGroupName(index).equals(group));
+        return new ThreadQuery(restricted, nameFragments);
+    }
+
+    /**
+     * Unlike withGroup, tells apart groups that share a name.
+     * @requires group != null || name != null
+     * @param group the group whose threads, including those of its subgroups, to keep; null for a group of another jvm
+     * @param name the name of the group, used when group is null
+     * @return this query restricted to the threads of one group
+     */
+    public ThreadQuery withGroupTree(ThreadGroup group, String name) {
+        if (group == null) return withGroup(name);
+        List<Term> restricted = new ArrayList<>(terms);
+        restricted.add((snapshot, index, lowerName) -> {
+            ThreadGroup threadGroup = snapshot.getGroup(index);
+            return threadGroup != null && group.parentOf(threadGroup);
+        });
+        return new ThreadQuery(restricted, nameFragments);
+    }
+
+    /**
+     * @return true if this query matches every thread
+     */
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    /**
+     * @return lower-case strings every matching name contains, for narrowing a search by index
+     */
+    public List<String> getNameFragments() {
+        return Collections.unmodifiableList(nameFragments);
+    }
+
+    /**
+     * @requires snapshot != null && 0 <= index < snapshot.size()
+     * @return true if the thread at index matches every term
+     */
+    public boolean matches(ThreadSnapshot snapshot, int index) {
+        return matches(snapshot, index, snapshot.getName(index).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @param lowerName the lower-case name of the thread at index, as already computed by an index
+     */
+    boolean matches(ThreadSnapshot snapshot, int index, String lowerName) {
+        for (Term term : terms) {
+            if (!term.test(snapshot, index, lowerName)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A trigram index over the thread names of the latest snapshot, for searching tens of
+ * thousands of threads as the user types. Each update only indexes the threads that are new
+ * or were renamed and unindexes the ones that are gone. A search looks up the rarest trigram
+ * of the query's name fragments and checks the query on those threads alone; a query without
+ * a fragment of three or more characters checks every thread.
+ */
+public final class ThreadSearchIndex {
+    private ThreadSnapshot snapshot;
+    private String[] lowerNames = new String[0];
+    private final LongIndexMap trigramSlots = new LongIndexMap(1024);
+    /** The ids of the threads whose name contains each trigram, by slot. */
+    private final List<LongIndexMap> postings = new ArrayList<>();
+    private long[] candidates = new long[64];
+
+    /**
+     * @requires current != null
+     * @modifies this
+     * @effects the index reflects the names in current
+     */
+    public synchronized void update(ThreadSnapshot current) {
+        ThreadSnapshot previous = snapshot;
+        if (previous != null) {
+            for (int p = 0; p < previous.size(); p++) {
+                if (current.indexOf(previous.getId(p)) < 0) unindex(previous.getId(p), lowerNames[p]);
+            }
+        }
+        String[] lower = new String[current.size()];
+        for (int i = 0; i < lower.length; i++) {
+            long id = current.getId(i);
+            String name = current.getName(i);
+            int p = previous == null ? -1 : previous.indexOf(id);
+            if (p >= 0 && previous.getName(p).equals(name)) {
+                lower[i] = lowerNames[p];
+                continue;
+            }
+            if (p >= 0) unindex(id, lowerNames[p]);
+            lower[i] = name.toLowerCase(Locale.ENGLISH);
+            index(id, lower[i]);
+        }
+        snapshot = current;
+        lowerNames = lower;
+    }
+
+    /**
+     * @requires query != null
+     * @return the ids of the threads of the last update that match query, in no particular order
+     */
+    public synchronized long[] search(ThreadQuery query) {
+        if (snapshot == null) return new long[0];
+        LongIndexMap rarest = null;
+        for (String fragment : query.getNameFragments()) {
+            for (int j = 0; j + 3 <= fragment.length(); j++) {
+                int slot = trigramSlots.get(trigram(fragment, j));
+                if (slot < 0) return new long[0];
+                LongIndexMap posting = postings.get(slot);
+                if (rarest == null || posting.size() < rarest.size()) rarest = posting;
+            }
+        }
+        long[] matches = new long[16];
+        int count = 0;
+        if (rarest == null) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (!query.matches(snapshot, i, lowerNames[i])) continue;
+                if (count == matches.length) matches = Arrays.copyOf(matches, count * 2);
+                matches[count++] = snapshot.getId(i);
+            }
+        } else {
+            if (candidates.length < rarest.size()) candidates = new long[rarest.size() * 2];
+            int candidateCount = rarest.keys(candidates);
+            for (int k = 0; k < candidateCount; k++) {
+                int i = snapshot.indexOf(candidates[k]);
+                if (i < 0 || !query.matches(snapshot, i, lowerNames[i])) continue;
+                if (count == matches.length) matches = Arrays.copyOf(matches, count * 2);
+                matches[count++] = candidates[k];
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private void index(long id, String lowerName) {
+        for (int j = 0; j + 3 <= lowerName.length(); j++) {
+            long trigram = trigram(lowerName, j);
+            int slot = trigramSlots.get(trigram);
+            if (slot < 0) {
+                slot = postings.size();
+                postings.add(new LongIndexMap(4));
+                trigramSlots.put(trigram, slot);
+            }
+            postings.get(slot).put(id, 0);
+        }
+    }
+
+    private void unindex(long id, String lowerName) {
+        for (int j = 0; j + 3 <= lowerName.length(); j++) {
+            int slot = trigramSlots.get(trigram(lowerName, j));
+            if (slot >= 0) postings.get(slot).remove(id);
+        }
+    }
+
+    /**
+     * @return the three chars of s at j packed into a non-negative long
+     */
+    private static long trigram(String s, int j) {
+        return (long) s.charAt(j) << 32 | (long) s.charAt(j + 1) << 16 | s.charAt(j + 2);
+    }
+}
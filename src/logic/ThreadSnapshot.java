@@ -0,0 +1,418 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable view of every live thread and thread-group, captured once per refresh tick.
+ * Per-thread values are copied at capture time so every reader of the same snapshot sees
+ * the same names, groups, priorities and states, even if the threads change underneath.
+ * A snapshot decoded from another jvm has the same values but no Thread or ThreadGroup
+ * objects: getThread and getGroup return null and the find methods find nothing.
+ * The native thread columns are only filled in for this jvm on Linux.
+ */
+public final class ThreadSnapshot {
+    private final long captureNanos;
+    private final long samplingNanos;
+    private final Thread[] threads;
+    private final long[] ids;
+    private final String[] names;
+    private final ThreadGroup[] groups;
+    private final String[] groupNames;
+    private final boolean[] daemon;
+    private final int[] priorities;
+    private final Thread.State[] states;
+    private final double[] cpuPercent;
+    private final double[] userPercent;
+    private final double[] allocationRate;
+    // null when not sampled
+    private final long[] nativeIds;
+    private final double[] voluntarySwitchRate;
+    private final double[] involuntarySwitchRate;
+    private final int[] lastCpu;
+    private final int[] nice;
+    private final long[] nativeCpuNanos;
+    private final ThreadGroup[] allGroups;
+    private final String[] allGroupNames;
+
+    private final LongIndexMap idIndex;
+    // built on first use: a snapshot that is only diffed or streamed never needs them
+    private volatile Map<String, List<Thread>> nameIndex;
+    private volatile Map<ThreadGroup, List<Thread>> groupIndex;
+    private volatile Map<String, List<ThreadGroup>> groupNameIndex;
+
+    /**
+     * @requires threads != null && 0 <= count <= threads.length && allGroups != null
+     * @param threads the enumerated threads; entries may be null or terminated threads
+     * @param count the number of entries of threads to read
+     * @param allGroups every thread-group in the jvm
+     * @param sampler samples the per-thread rates, or null to leave them at 0
+     * @param nativeSampler samples the native thread columns, or null to leave them unknown
+     * @return a snapshot of the live threads in threads; threads itself is not kept
+     */
+    static ThreadSnapshot capture(Thread[] threads, int count, ThreadGroup[] allGroups, ThreadMetricsSampler sampler,
+                                  NativeThreadSampler nativeSampler) {
+        return new ThreadSnapshot(threads, count, allGroups, sampler, nativeSampler);
+    }
+
+    private ThreadSnapshot(Thread[] source, int n, ThreadGroup[] allGroups, ThreadMetricsSampler sampler,
+                           NativeThreadSampler nativeSampler) {
+        captureNanos = System.nanoTime();
+        Thread[] liveThreads = new Thread[n];
+        long[] liveIds = new long[n];
+        String[] liveNames = new String[n];
+        ThreadGroup[] liveGroups = new ThreadGroup[n];
+        boolean[] liveDaemon = new boolean[n];
+        int[] livePriorities = new int[n];
+        Thread.State[] liveStates = new Thread.State[n];
+        int count = 0;
+        for (int s = 0; s < n; s++) {
+            Thread thread = source[s];
+            if (thread == null) continue;
+            // a terminated thread reports a null group
+            ThreadGroup group = thread.getThreadGroup();
+            if (group == null) continue;
+            liveThreads[count] = thread;
+            liveIds[count] = thread.getId();
+            liveNames[count] = thread.getName();
+            liveGroups[count] = group;
+            liveDaemon[count] = thread.isDaemon();
+            livePriorities[count] = thread.getPriority();
+            liveStates[count] = thread.getState();
+            count++;
+        }
+        if (count == n) {
+            threads = liveThreads;
+            ids = liveIds;
+            names = liveNames;
+            groups = liveGroups;
+            daemon = liveDaemon;
+            priorities = livePriorities;
+            states = liveStates;
+        } else {
+            threads = Arrays.copyOf(liveThreads, count);
+            ids = Arrays.copyOf(liveIds, count);
+            names = Arrays.copyOf(liveNames, count);
+            groups = Arrays.copyOf(liveGroups, count);
+            daemon = Arrays.copyOf(liveDaemon, count);
+            priorities = Arrays.copyOf(livePriorities, count);
+            states = Arrays.copyOf(liveStates, count);
+        }
+        this.allGroups = allGroups.clone();
+        groupNames = new String[count];
+        for (int i = 0; i < count; i++) groupNames[i] = groups[i].getName();
+        allGroupNames = new String[this.allGroups.length];
+        for (int g = 0; g < allGroupNames.length; g++) allGroupNames[g] = this.allGroups[g].getName();
+        cpuPercent = new double[count];
+        userPercent = new double[count];
+        allocationRate = new double[count];
+        long samplingStart = System.nanoTime();
+        if (sampler != null) sampler.sample(ids, captureNanos, cpuPercent, userPercent, allocationRate);
+        if (nativeSampler != null) {
+            nativeIds = new long[count];
+            voluntarySwitchRate = new double[count];
+            involuntarySwitchRate = new double[count];
+            lastCpu = new int[count];
+            nice = new int[count];
+            nativeCpuNanos = new long[count];
+            nativeSampler.sample(ids, captureNanos, nativeIds, voluntarySwitchRate, involuntarySwitchRate, lastCpu,
+                    nice, nativeCpuNanos);
+        } else {
+            nativeIds = null;
+            voluntarySwitchRate = null;
+            involuntarySwitchRate = null;
+            lastCpu = null;
+            nice = null;
+            nativeCpuNanos = null;
+        }
+        samplingNanos = System.nanoTime() - samplingStart;
+
+        idIndex = new LongIndexMap(count);
+        for (int i = 0; i < count; i++) idIndex.put(ids[i], i);
+    }
+
+    /**
+     * @requires every array has the same length n, allGroupNames != null
+     * @return a snapshot of another jvm's threads, taking ownership of the arrays
+     */
+    static ThreadSnapshot fromColumns(long[] ids, String[] names, String[] groupNames, boolean[] daemon,
+                                      int[] priorities, Thread.State[] states, double[] cpuPercent,
+                                      double[] userPercent, double[] allocationRate, String[] allGroupNames) {
+        return new ThreadSnapshot(ids, names, groupNames, daemon, priorities, states, cpuPercent, userPercent,
+                allocationRate, allGroupNames);
+    }
+
+    private ThreadSnapshot(long[] ids, String[] names, String[] groupNames, boolean[] daemon, int[] priorities,
+                           Thread.State[] states, double[] cpuPercent, double[] userPercent,
+                           double[] allocationRate, String[] allGroupNames) {
+        captureNanos = System.nanoTime();
+        samplingNanos = 0;
+        int count = ids.length;
+        this.threads = new Thread[count];
+        this.groups = new ThreadGroup[count];
+        this.allGroups = new ThreadGroup[0];
+        this.ids = ids;
+        this.names = names;
+        this.groupNames = groupNames;
+        this.daemon = daemon;
+        this.priorities = priorities;
+        this.states = states;
+        this.cpuPercent = cpuPercent;
+        this.userPercent = userPercent;
+        this.allocationRate = allocationRate;
+        this.allGroupNames = allGroupNames;
+        nativeIds = null;
+        voluntarySwitchRate = null;
+        involuntarySwitchRate = null;
+        lastCpu = null;
+        nice = null;
+        nativeCpuNanos = null;
+        idIndex = new LongIndexMap(count);
+        for (int i = 0; i < count; i++) idIndex.put(ids[i], i);
+        nameIndex = Collections.emptyMap();
+        groupIndex = Collections.emptyMap();
+        groupNameIndex = Collections.emptyMap();
+    }
+
+    /*
+     * The lazy indexes may be built twice by racing readers; both results are equal and immutable.
+     */
+
+    private Map<String, List<Thread>> nameIndex() {
+        Map<String, List<Thread>> index = nameIndex;
+        if (index == null) {
+            Map<String, List<Thread>> byName = new HashMap<>(threads.length * 2);
+            for (int i = 0; i < threads.length; i++) {
+                byName.computeIfAbsent(names[i].toLowerCase(Locale.ENGLISH), k -> new ArrayList<>(1)).add(threads[i]);
+            }
+            nameIndex = index = freeze(byName);
+        }
+        return index;
+    }
+
+    private Map<ThreadGroup, List<Thread>> groupIndex() {
+        Map<ThreadGroup, List<Thread>> index = groupIndex;
+        if (index == null) {
+            Map<ThreadGroup, List<Thread>> byGroup = new IdentityHashMap<>();
+            for (int i = 0; i < threads.length; i++) {
+                byGroup.computeIfAbsent(groups[i], k -> new ArrayList<>()).add(threads[i]);
+            }
+            groupIndex = index = freeze(byGroup);
+        }
+        return index;
+    }
+
+    private Map<String, List<ThreadGroup>> groupNameIndex() {
+        Map<String, List<ThreadGroup>> index = groupNameIndex;
+        if (index == null) {
+            Map<String, List<ThreadGroup>> byGroupName = new HashMap<>();
+            for (ThreadGroup group : allGroups) {
+                byGroupName.computeIfAbsent(group.getName().toLowerCase(Locale.ENGLISH), k -> new ArrayList<>(1)).add(group);
+            }
+            groupNameIndex = index = freeze(byGroupName);
+        }
+        return index;
+    }
+
+    private static <K, V> Map<K, List<V>> freeze(Map<K, List<V>> index) {
+        index.replaceAll((key, list) -> Collections.unmodifiableList(list));
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * @return the System.nanoTime at which this snapshot was captured
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    /**
+     * @return the nanoseconds spent sampling the rate and native columns while capturing, 0 if decoded
+     */
+    long getSamplingNanos() {
+        return samplingNanos;
+    }
+
+    /**
+     * @return the number of live threads in this snapshot
+     */
+    public int size() {
+        return threads.length;
+    }
+
+    /**
+     * @return the thread at index, or null if this snapshot was decoded from another jvm
+     */
+    public Thread getThread(int index) {
+        return threads[index];
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @return the group of the thread at index, or null if this snapshot was decoded from another jvm
+     */
+    public ThreadGroup getGroup(int index) {
+        return groups[index];
+    }
+
+    public String getGroupName(int index) {
+        return groupNames[index];
+    }
+
+    public boolean isDaemon(int index) {
+        return daemon[index];
+    }
+
+    public int getPriority(int index) {
+        return priorities[index];
+    }
+
+    public Thread.State getState(int index) {
+        return states[index];
+    }
+
+    /**
+     * @return the CPU time used since the previous snapshot, as a percentage of one core.
+     *         Negative if the jvm cannot measure it.
+     */
+    public double getCpuPercent(int index) {
+        return cpuPercent[index];
+    }
+
+    /**
+     * @return the user-mode CPU time used since the previous snapshot, as a percentage of one core.
+     *         Negative if the jvm cannot measure it.
+     */
+    public double getUserPercent(int index) {
+        return userPercent[index];
+    }
+
+    /**
+     * @return the bytes allocated per second since the previous snapshot. Negative if the jvm cannot measure it.
+     */
+    public double getAllocationRate(int index) {
+        return allocationRate[index];
+    }
+
+    /**
+     * @return the Linux tid of the thread at index, or -1 if unknown
+     */
+    public long getNativeId(int index) {
+        return nativeIds == null ? -1 : nativeIds[index];
+    }
+
+    /**
+     * @return the voluntary context switches per second since the previous snapshot, negative if unknown
+     */
+    public double getVoluntarySwitchRate(int index) {
+        return voluntarySwitchRate == null ? -1 : voluntarySwitchRate[index];
+    }
+
+    /**
+     * @return the involuntary context switches per second since the previous snapshot, negative if unknown
+     */
+    public double getInvoluntarySwitchRate(int index) {
+        return involuntarySwitchRate == null ? -1 : involuntarySwitchRate[index];
+    }
+
+    /**
+     * @return the CPU the native thread last ran on, or -1 if unknown
+     */
+    public int getLastCpu(int index) {
+        return lastCpu == null ? -1 : lastCpu[index];
+    }
+
+    /**
+     * @return the nice value of the native thread; 0 if unknown, so check getNativeId first
+     */
+    public int getNice(int index) {
+        return nice == null ? 0 : nice[index];
+    }
+
+    /**
+     * @return the user plus system CPU time of the native thread in nanoseconds, or -1 if unknown
+     */
+    public long getNativeCpuNanos(int index) {
+        return nativeCpuNanos == null ? -1 : nativeCpuNanos[index];
+    }
+
+    /**
+     * @return a copy of the threads in this snapshot
+     */
+    public Thread[] getThreads() {
+        return threads.clone();
+    }
+
+    /**
+     * @return a copy of the thread-groups in this snapshot, root first
+     */
+    public ThreadGroup[] getThreadGroups() {
+        return allGroups.clone();
+    }
+
+    /**
+     * @return a copy of the names of the thread-groups in this snapshot, root first
+     */
+    public String[] getGroupNames() {
+        return allGroupNames.clone();
+    }
+
+    /**
+     * @param id the thread id to look up
+     * @return the index of the thread with id, or -1 if it was not live at capture time
+     */
+    public int indexOf(long id) {
+        return idIndex.get(id);
+    }
+
+    /**
+     * @param id the thread id to look up
+     * @return the thread with id, or null if it was not live at capture time
+     */
+    public Thread findById(long id) {
+        int index = idIndex.get(id);
+        return index < 0 ? null : threads[index];
+    }
+
+    /**
+     * @requires name != null
+     * @param name the thread name, matched case-insensitively
+     * @return the threads with that name, in enumeration order. Empty if none match.
+     */
+    public List<Thread> findByName(String name) {
+        List<Thread> matches = nameIndex().get(name.toLowerCase(Locale.ENGLISH));
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    /**
+     * @param group the thread-group to look up
+     * @return the threads directly in group. Empty if none.
+     */
+    public List<Thread> findByGroup(ThreadGroup group) {
+        List<Thread> matches = groupIndex().get(group);
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    /**
+     * @requires name != null
+     * @param name the thread-group name, matched case-insensitively
+     * @return the groups with that name, in enumeration order. Empty if none match.
+     */
+    public List<ThreadGroup> findGroupsByName(String name) {
+        List<ThreadGroup> matches = groupNameIndex().get(name.toLowerCase(Locale.ENGLISH));
+        return matches == null ? Collections.emptyList() : matches;
+    }
+}
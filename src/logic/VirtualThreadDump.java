@@ -0,0 +1,300 @@
+package logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Every thread in the jvm, virtual ones included, read from a JSON thread dump
+ * (HotSpotDiagnosticMXBean.dumpThreads, JDK 21+). ThreadGroup.enumerate and ThreadMXBean only
+ * see platform threads, so this is the only way to count virtual threads.
+ * The dump is parsed as a stream into primitive columns, stacks are only measured, and
+ * virtual threads are aggregated by container and carrier and read back in pages, so
+ * 100k+ virtual threads never turn into 100k objects.
+ */
+public final class VirtualThreadDump {
+    /** Carrier id of a virtual thread that is not mounted, or whose carrier the dump does not say. */
+    public static final long NO_CARRIER = -1;
+
+    private final long captureMillis;
+    private int size;
+    private long[] ids = new long[1024];
+    private String[] names = new String[1024];
+    private int[] containers = new int[1024];
+    private long[] carriers = new long[1024];
+    private int[] stackDepths = new int[1024];
+    private boolean[] virtual = new boolean[1024];
+    private int[] virtualIndexes;
+    private final List<String> containerNames = new ArrayList<>();
+    private final Map<String, String> internedNames = new HashMap<>();
+
+    private VirtualThreadDump(long captureMillis) {
+        this.captureMillis = captureMillis;
+    }
+
+    /**
+     * @return true if this jvm can dump virtual threads
+     */
+    public static boolean isSupported() {
+        return VirtualThreads.canDump();
+    }
+
+    /**
+     * Dumps every thread to a temporary file and parses it.
+     * @requires isSupported()
+     * @return the parsed dump
+     * @throws IOException if the dump cannot be written or read
+     * @throws UnsupportedOperationException if this jvm cannot dump threads as JSON
+     */
+    public static VirtualThreadDump capture() throws IOException {
+        Path directory = Files.createTempDirectory("thread-manager");
+        Path file = directory.resolve("threads.json");
+        try {
+            VirtualThreads.dumpThreads(file.toAbsolutePath().toString());
+            LongIndexMap platform = new LongIndexMap(1024);
+            for (long id : ManagementFactory.getThreadMXBean().getAllThreadIds()) platform.put(id, 0);
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return parse(reader, id -> platform.get(id) >= 0);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * @requires reader != null && isPlatform != null
+     * @param reader a thread dump in the JSON format of HotSpotDiagnosticMXBean.dumpThreads
+     * @param isPlatform identifies platform thread ids, for dumps that do not mark virtual threads
+     * @return the parsed dump
+     * @throws IOException if reader fails or the dump is not valid JSON
+     */
+    public static VirtualThreadDump parse(Reader reader, LongPredicate isPlatform) throws IOException {
+        VirtualThreadDump dump = new VirtualThreadDump(System.currentTimeMillis());
+        JsonStreamReader json = new JsonStreamReader(reader);
+        JsonStreamReader.Token token;
+        while ((token = json.next()) != JsonStreamReader.Token.END) {
+            if (token == JsonStreamReader.Token.NAME && json.textEquals("threadContainers")) {
+                dump.readContainers(json, isPlatform);
+            }
+        }
+        dump.finish();
+        return dump;
+    }
+
+    private void readContainers(JsonStreamReader json, LongPredicate isPlatform) throws IOException {
+        if (json.next() != JsonStreamReader.Token.BEGIN_ARRAY) return;
+        JsonStreamReader.Token token;
+        while ((token = json.next()) == JsonStreamReader.Token.BEGIN_OBJECT) {
+            int container = containerNames.size();
+            containerNames.add("<unnamed>");
+            while ((token = json.next()) == JsonStreamReader.Token.NAME) {
+                if (json.textEquals("container")) {
+                    if (json.next() == JsonStreamReader.Token.STRING) containerNames.set(container, json.text());
+                } else if (json.textEquals("threads")) {
+                    readThreads(json, container, isPlatform);
+                } else {
+                    json.skipValue();
+                }
+            }
+        }
+    }
+
+    private void readThreads(JsonStreamReader json, int container, LongPredicate isPlatform) throws IOException {
+        if (json.next() != JsonStreamReader.Token.BEGIN_ARRAY) return;
+        while (json.next() == JsonStreamReader.Token.BEGIN_OBJECT) {
+            long id = -1;
+            long carrier = NO_CARRIER;
+            String name = "";
+            int depth = 0;
+            Boolean markedVirtual = null;
+            JsonStreamReader.Token token;
+            while ((token = json.next()) == JsonStreamReader.Token.NAME) {
+                if (json.textEquals("tid")) {
+                    id = readLong(json);
+                } else if (json.textEquals("name")) {
+                    if (json.next() == JsonStreamReader.Token.STRING) name = intern(json.text());
+                } else if (json.textEquals("virtual")) {
+                    markedVirtual = json.next() == JsonStreamReader.Token.TRUE;
+                } else if (json.textEquals("carrier")) {
+                    carrier = readLong(json);
+                } else if (json.textEquals("stack")) {
+                    depth = json.skipArrayCountingElements();
+                } else {
+                    json.skipValue();
+                }
+            }
+            if (id < 0) continue;
+            boolean isVirtual = markedVirtual != null ? markedVirtual : !isPlatform.test(id);
+            add(id, name, container, carrier, depth, isVirtual);
+        }
+    }
+
+    private static long readLong(JsonStreamReader json) throws IOException {
+        JsonStreamReader.Token token = json.next();
+        if (token != JsonStreamReader.Token.STRING && token != JsonStreamReader.Token.NUMBER) return -1;
+        try {
+            return Long.parseLong(json.text());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Virtual threads are usually unnamed, so most names collapse onto a handful of strings.
+     */
+    private String intern(String name) {
+        if (name.isEmpty()) return "";
+        String existing = internedNames.putIfAbsent(name, name);
+        return existing != null ? existing : name;
+    }
+
+    private void add(long id, String name, int container, long carrier, int depth, boolean isVirtual) {
+        if (size == ids.length) {
+            int grown = size * 2;
+            ids = Arrays.copyOf(ids, grown);
+            names = Arrays.copyOf(names, grown);
+            containers = Arrays.copyOf(containers, grown);
+            carriers = Arrays.copyOf(carriers, grown);
+            stackDepths = Arrays.copyOf(stackDepths, grown);
+            virtual = Arrays.copyOf(virtual, grown);
+        }
+        ids[size] = id;
+        names[size] = name;
+        containers[size] = container;
+        carriers[size] = carrier;
+        stackDepths[size] = depth;
+        virtual[size] = isVirtual;
+        size++;
+    }
+
+    private void finish() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (virtual[i]) count++;
+        }
+        virtualIndexes = new int[count];
+        count = 0;
+        for (int i = 0; i < size; i++) {
+            if (virtual[i]) virtualIndexes[count++] = i;
+        }
+        internedNames.clear();
+    }
+
+    /**
+     * @return the System.currentTimeMillis at which the dump was parsed
+     */
+    public long getCaptureMillis() {
+        return captureMillis;
+    }
+
+    /**
+     * @return the number of threads in the dump, platform and virtual
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getVirtualCount() {
+        return virtualIndexes.length;
+    }
+
+    public int getPlatformCount() {
+        return size - virtualIndexes.length;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public boolean isVirtual(int index) {
+        return virtual[index];
+    }
+
+    public String getContainer(int index) {
+        return containerNames.get(containers[index]);
+    }
+
+    /**
+     * @return the id of the platform thread carrying this virtual thread, or NO_CARRIER
+     */
+    public long getCarrierId(int index) {
+        return carriers[index];
+    }
+
+    public int getStackDepth(int index) {
+        return stackDepths[index];
+    }
+
+    /**
+     * @param offset the first virtual thread of the page
+     * @param limit the most threads in the page
+     * @return the indexes of one page of virtual threads, in dump order
+     */
+    public int[] getVirtualPage(int offset, int limit) {
+        int from = Math.max(0, Math.min(offset, virtualIndexes.length));
+        int to = Math.min(virtualIndexes.length, from + Math.max(0, limit));
+        return Arrays.copyOfRange(virtualIndexes, from, to);
+    }
+
+    /**
+     * @return the number of virtual threads in each thread container, largest first
+     */
+    public Map<String, Integer> countVirtualByContainer() {
+        int[] counts = new int[containerNames.size()];
+        for (int i : virtualIndexes) counts[containers[i]]++;
+        Integer[] order = new Integer[counts.length];
+        for (int c = 0; c < counts.length; c++) order[c] = c;
+        Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int c : order) {
+            if (counts[c] > 0) result.merge(containerNames.get(c), counts[c], Integer::sum);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of mounted virtual threads on each carrier id, largest first;
+     *         unmounted threads are counted under NO_CARRIER
+     */
+    public Map<Long, Integer> countVirtualByCarrier() {
+        LongIndexMap slots = new LongIndexMap(64);
+        long[] carrierIds = new long[16];
+        int[] counts = new int[16];
+        int distinct = 0;
+        for (int i : virtualIndexes) {
+            int slot = slots.get(carriers[i]);
+            if (slot < 0) {
+                if (distinct == carrierIds.length) {
+                    carrierIds = Arrays.copyOf(carrierIds, distinct * 2);
+                    counts = Arrays.copyOf(counts, distinct * 2);
+                }
+                slot = distinct++;
+                slots.put(carriers[i], slot);
+                carrierIds[slot] = carriers[i];
+            }
+            counts[slot]++;
+        }
+        Integer[] order = new Integer[distinct];
+        for (int k = 0; k < distinct; k++) order[k] = k;
+        int[] finalCounts = counts;
+        Arrays.sort(order, (a, b) -> Integer.compare(finalCounts[b], finalCounts[a]));
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        for (int k : order) result.put(carrierIds[k], counts[k]);
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package logic;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reaches the virtual-thread APIs of JDK 21+ reflectively, so the tool still builds and runs
+ * on older JDKs where they are simply reported as unsupported.
+ */
+final class VirtualThreads {
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_UNSTARTED;
+    private static final Method PER_TASK_EXECUTOR;
+    private static final Method DUMP_THREADS;
+    private static final Object JSON_FORMAT;
+
+    static {
+        Method ofVirtual = null, name = null, unstarted = null, perTask = null, dumpThreads = null;
+        Object json = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        try {
+            Class<?> format = Class.forName("com.sun.management.HotSpotDiagnosticMXBean$ThreadDumpFormat");
+            dumpThreads = HotSpotDiagnosticMXBean.class.getMethod("dumpThreads", String.class, format);
+            for (Object constant : format.getEnumConstants()) {
+                if (constant.toString().equals("JSON")) json = constant;
+            }
+        } catch (ReflectiveOperationException e) {
+            dumpThreads = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_UNSTARTED = unstarted;
+        PER_TASK_EXECUTOR = ofVirtual == null ? null : perTask;
+        DUMP_THREADS = json == null ? null : dumpThreads;
+        JSON_FORMAT = json;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if this jvm can create virtual threads
+     */
+    static boolean canCreate() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return true if this jvm can dump every thread, virtual ones included, as JSON
+     */
+    static boolean canDump() {
+        return DUMP_THREADS != null;
+    }
+
+    /**
+     * @requires canCreate()
+     * @return an unstarted virtual thread running runnable
+     * @throws UnsupportedOperationException if this jvm has no virtual threads
+     */
+    static Thread newVirtualThread(String name, Runnable runnable) {
+        if (!canCreate()) throw new UnsupportedOperationException("Virtual threads need JDK 21 or later");
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, name);
+            return (Thread) BUILDER_UNSTARTED.invoke(builder, runnable);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Could not create a virtual thread", e);
+        }
+    }
+
+    /**
+     * @requires canCreate()
+     * @param prefix the name of the executor; threads are named prefix-1, prefix-2, ...
+     * @return an executor starting a new virtual thread for every task
+     * @throws UnsupportedOperationException if this jvm has no virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        if (!canCreate()) throw new UnsupportedOperationException("Virtual threads need JDK 21 or later");
+        AtomicLong count = new AtomicLong();
+        ThreadFactory factory = task -> newVirtualThread(prefix + "-" + count.incrementAndGet(), task);
+        try {
+            return (ExecutorService) PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Could not create a virtual-thread executor", e);
+        }
+    }
+
+    /**
+     * @requires canDump() && path is absolute and does not exist
+     * @effects writes a JSON dump of every thread, grouped by thread container, to path
+     * @throws IOException if the dump cannot be written
+     * @throws UnsupportedOperationException if this jvm cannot dump threads as JSON
+     */
+    static void dumpThreads(String path) throws IOException {
+        if (!canDump()) throw new UnsupportedOperationException("Thread dumps as JSON need JDK 21 or later");
+        try {
+            DUMP_THREADS.invoke(ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class), path, JSON_FORMAT);
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException("Could not dump threads", e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new UnsupportedOperationException("Could not dump threads", e.getCause());
+        }
+    }
+}
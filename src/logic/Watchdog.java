@@ -0,0 +1,182 @@
+package logic;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates watchdog rules against every refresh. Work per tick is proportional to the
+ * threads that were added or changed plus the threads currently holding a condition, so
+ * thousands of idle threads cost nothing. A rule fires once per episode: it re-arms when
+ * its condition stops holding for the thread. Not thread safe; call update from one thread.
+ */
+public final class Watchdog {
+    /** Frames kept of a captured or fingerprinted stack. */
+    private static final int STACK_DEPTH = 64;
+
+    private final RuleState[] rules;
+    private final boolean inProcess;
+    private final PrintStream log;
+    private final Consumer<WatchdogAlert> onAlert;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * @requires rules != null && log != null && onAlert != null
+     * @param inProcess true if the snapshots are of this JVM, so stacks can be read and
+     *                  stuck: rules evaluated; stuck: rules never fire otherwise
+     * @param log where the log action writes
+     * @param onAlert told of every alert, on the thread calling update
+     */
+    public Watchdog(List<WatchdogRule> rules, boolean inProcess, PrintStream log, Consumer<WatchdogAlert> onAlert) {
+        this.rules = new RuleState[rules.size()];
+        for (int r = 0; r < this.rules.length; r++) this.rules[r] = new RuleState(rules.get(r));
+        this.inProcess = inProcess;
+        this.log = log;
+        this.onAlert = onAlert;
+    }
+
+    /**
+     * @requires diff was taken against the snapshot passed to the previous call, or against null
+     * @modifies this, the threads an interrupt rule fires for
+     * @effects re-evaluates the added and changed threads, forgets the removed ones and fires
+     *          every rule whose condition has now held long enough
+     * @return the number of alerts fired
+     */
+    public int update(SnapshotDiff diff) {
+        ThreadSnapshot snapshot = diff.getCurrent();
+        long now = snapshot.getCaptureNanos();
+        int fired = 0;
+        for (RuleState rule : rules) {
+            for (int k = 0; k < diff.getRemovedCount(); k++) rule.release(diff.getRemovedId(k));
+            for (int k = 0; k < diff.getAddedCount(); k++) rule.evaluate(snapshot, diff.getAddedIndex(k), now);
+            for (int k = 0; k < diff.getChangedCount(); k++) rule.evaluate(snapshot, diff.getChangedIndex(k), now);
+            if (rule.holderCount() > 0) fired += check(rule, snapshot, now);
+        }
+        return fired;
+    }
+
+    /**
+     * @return the number of threads currently holding any rule's condition
+     */
+    public int getHolderCount() {
+        int count = 0;
+        for (RuleState rule : rules) count += rule.holderCount();
+        return count;
+    }
+
+    private int check(RuleState rule, ThreadSnapshot snapshot, long now) {
+        int stuckSamples = rule.rule.getStuckSamples();
+        if (stuckSamples > 0) {
+            if (!inProcess) return 0;
+            sampleStacks(rule);
+        }
+        int fired = 0;
+        for (int slot = 0; slot < rule.holders.limit(); slot++) {
+            if (!rule.holders.isUsed(slot) || rule.slotFired[slot]) continue;
+            long held = now - rule.slotSince[slot];
+            if (held < rule.rule.getDurationNanos()) continue;
+            if (stuckSamples > 0 && rule.slotSameStack[slot] < stuckSamples) continue;
+            rule.slotFired[slot] = true;
+            fire(rule.rule, snapshot, rule.holders.getId(slot), held);
+            fired++;
+        }
+        return fired;
+    }
+
+    /**
+     * Reads the stacks of the holders that have not fired yet in one bulk call and counts,
+     * per thread, how many samples in a row the stack has been the same in.
+     */
+    private void sampleStacks(RuleState rule) {
+        long[] ids = new long[rule.holderCount()];
+        int[] slots = new int[ids.length];
+        int count = 0;
+        for (int slot = 0; slot < rule.holders.limit(); slot++) {
+            if (!rule.holders.isUsed(slot) || rule.slotFired[slot]) continue;
+            ids[count] = rule.holders.getId(slot);
+            slots[count++] = slot;
+        }
+        if (count == 0) return;
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(Arrays.copyOf(ids, count), STACK_DEPTH);
+        for (int k = 0; k < count; k++) {
+            int slot = slots[k];
+            if (infos[k] == null) {
+                rule.slotSameStack[slot] = 0;
+                continue;
+            }
+            int fingerprint = Arrays.hashCode(infos[k].getStackTrace());
+            boolean same = rule.slotSameStack[slot] > 0 && rule.slotFingerprint[slot] == fingerprint;
+            rule.slotSameStack[slot] = same ? rule.slotSameStack[slot] + 1 : 1;
+            rule.slotFingerprint[slot] = fingerprint;
+        }
+    }
+
+    private void fire(WatchdogRule rule, ThreadSnapshot snapshot, long id, long held) {
+        int index = snapshot.indexOf(id);
+        StackTraceElement[] stack = null;
+        if (inProcess && rule.getActions().contains(WatchdogRule.Action.STACK)) {
+            ThreadInfo info = threadMXBean.getThreadInfo(id, STACK_DEPTH);
+            if (info != null) stack = info.getStackTrace();
+        }
+        boolean interrupted = false;
+        if (rule.getActions().contains(WatchdogRule.Action.INTERRUPT)) {
+            Thread thread = snapshot.getThread(index);
+            if (thread != null) {
+                thread.interrupt();
+                interrupted = true;
+            }
+        }
+        WatchdogAlert alert = new WatchdogAlert(rule, id, snapshot.getName(index), held, stack, interrupted);
+        if (rule.getActions().contains(WatchdogRule.Action.LOG)) log.println(alert);
+        onAlert.accept(alert);
+    }
+
+    /**
+     * One rule and, per thread holding its condition, when it started holding, whether the
+     * rule has fired in this episode and the stuck: bookkeeping.
+     */
+    private static final class RuleState {
+        final WatchdogRule rule;
+        final SlotTable holders = new SlotTable(16);
+        long[] slotSince = new long[16];
+        boolean[] slotFired = new boolean[16];
+        int[] slotFingerprint = new int[16];
+        int[] slotSameStack = new int[16];
+
+        RuleState(WatchdogRule rule) {
+            this.rule = rule;
+        }
+
+        int holderCount() {
+            return holders.size();
+        }
+
+        void evaluate(ThreadSnapshot snapshot, int index, long now) {
+            long id = snapshot.getId(index);
+            if (!rule.getQuery().matches(snapshot, index)) {
+                release(id);
+            } else if (holders.get(id) < 0) {
+                int slot = holders.add(id);
+                if (holders.capacity() > slotSince.length) grow(holders.capacity());
+                slotSince[slot] = now;
+                slotFired[slot] = false;
+                slotSameStack[slot] = 0;
+            }
+        }
+
+        void release(long id) {
+            holders.remove(id);
+        }
+
+        private void grow(int size) {
+            slotSince = Arrays.copyOf(slotSince, size);
+            slotFired = Arrays.copyOf(slotFired, size);
+            slotFingerprint = Arrays.copyOf(slotFingerprint, size);
+            slotSameStack = Arrays.copyOf(slotSameStack, size);
+        }
+    }
+}
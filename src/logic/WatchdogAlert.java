@@ -0,0 +1,75 @@
+package logic;
+
+/**
+ * A watchdog rule firing for one thread: which rule, which thread, how long the condition
+ * had held and, if the rule asks for it, the thread's stack at that moment.
+ */
+public final class WatchdogAlert {
+    private final WatchdogRule rule;
+    private final long threadId;
+    private final String threadName;
+    private final long heldNanos;
+    private final StackTraceElement[] stack;
+    private final boolean interrupted;
+
+    WatchdogAlert(WatchdogRule rule, long threadId, String threadName, long heldNanos,
+                  StackTraceElement[] stack, boolean interrupted) {
+        this.rule = rule;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.heldNanos = heldNanos;
+        this.stack = stack;
+        this.interrupted = interrupted;
+    }
+
+    public WatchdogRule getRule() {
+        return rule;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return nanoseconds from when the condition started holding until the rule fired
+     */
+    public long getHeldNanos() {
+        return heldNanos;
+    }
+
+    /**
+     * @return the thread's stack when the rule fired, or null if the rule does not capture
+     *         stacks or the thread could not be read
+     */
+    public StackTraceElement[] getStack() {
+        return stack == null ? null : stack.clone();
+    }
+
+    /**
+     * @return true if the thread was interrupted
+     */
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    /**
+     * @return a one-line summary, e.g. "state:blocked for 5s: #42 "worker-3" after 5.1s"
+     */
+    public String getMessage() {
+        return String.format("%s: #%d \"%s\" after %.1fs%s", rule.getText(), threadId, threadName,
+                heldNanos / 1e9, interrupted ? ", interrupted" : "");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("watchdog ").append(getMessage());
+        if (stack != null) {
+            for (StackTraceElement frame : stack) text.append(System.lineSeparator()).append("\tat ").append(frame);
+        }
+        return text.toString();
+    }
+}
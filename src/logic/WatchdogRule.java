@@ -0,0 +1,129 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A condition on a thread and what to do once it has held long enough. Written as
+ * <pre>
+ *   &lt;search&gt; [stuck:N] [for &lt;duration&gt;] -&gt; action,action...
+ *   cpu&gt;90 for 10s -&gt; log,notify
+ *   state:blocked for 5s -&gt; log,stack,notify
+ *   state:runnable cpu&gt;50 stuck:5 -&gt; log,stack
+ * </pre>
+ * The search is a ThreadQuery. stuck:N also needs the thread's stack to be the same in N
+ * samples in a row; the duration takes ms, s or m. The actions are log, stack, interrupt and notify.
+ */
+public final class WatchdogRule {
+    public enum Action { LOG, STACK, INTERRUPT, NOTIFY }
+
+    private static final Pattern DURATION = Pattern.compile("\\s+for\\s+(\\d+(?:\\.\\d+)?)(ms|s|m)\\s*$");
+    private static final Pattern STUCK = Pattern.compile("(?:^|\\s)stuck:(\\d+)(?=\\s|$)");
+
+    private final String text;
+    private final ThreadQuery query;
+    private final long durationNanos;
+    private final int stuckSamples;
+    private final Set<Action> actions;
+
+    private WatchdogRule(String text, ThreadQuery query, long durationNanos, int stuckSamples, Set<Action> actions) {
+        this.text = text;
+        this.query = query;
+        this.durationNanos = durationNanos;
+        this.stuckSamples = stuckSamples;
+        this.actions = actions;
+    }
+
+    /**
+     * @requires text != null
+     * @return the rule text describes
+     * @throws IllegalArgumentException if text is not a rule, with a message fit for the user
+     */
+    public static WatchdogRule parse(String text) {
+        int arrow = text.indexOf("->");
+        if (arrow < 0) throw new IllegalArgumentException("Missing '-> action' in rule: " + text);
+        String condition = text.substring(0, arrow).trim();
+        Set<Action> actions = EnumSet.noneOf(Action.class);
+        for (String action : text.substring(arrow + 2).split(",")) {
+            String name = action.trim().toUpperCase(Locale.ENGLISH);
+            try {
+                actions.add(Action.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown action '" + action.trim() + "', expected log, stack, interrupt or notify");
+            }
+        }
+        long durationNanos = 0;
+        Matcher duration = DURATION.matcher(" " + condition);
+        if (duration.find()) {
+            double amount = Double.parseDouble(duration.group(1));
+            double unitNanos = duration.group(2).equals("ms") ? 1e6 : duration.group(2).equals("s") ? 1e9 : 60e9;
+            durationNanos = (long) (amount * unitNanos);
+            condition = (" " + condition).substring(0, duration.start()).trim();
+        }
+        int stuckSamples = 0;
+        Matcher stuck = STUCK.matcher(condition);
+        if (stuck.find()) {
+            stuckSamples = Integer.parseInt(stuck.group(1));
+            if (stuckSamples < 2) throw new IllegalArgumentException("stuck: needs at least 2 samples");
+            condition = (condition.substring(0, stuck.start()) + " " + condition.substring(stuck.end())).trim();
+        }
+        return new WatchdogRule(text.trim(), ThreadQuery.parse(condition), durationNanos, stuckSamples,
+                Collections.unmodifiableSet(actions));
+    }
+
+    /**
+     * @requires lines != null
+     * @return the rules on lines, one per line; blank lines and lines starting with # are skipped
+     * @throws IllegalArgumentException if a line is not a rule, naming the line
+     */
+    public static List<WatchdogRule> parseAll(List<String> lines) {
+        List<WatchdogRule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                rules.add(parse(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public ThreadQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return how long the condition must hold before the rule fires, 0 to fire at once
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return how many samples in a row the stack must be the same in, or 0 if the stack does not matter
+     */
+    public int getStuckSamples() {
+        return stuckSamples;
+    }
+
+    public Set<Action> getActions() {
+        return actions;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
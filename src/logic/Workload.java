@@ -0,0 +1,300 @@
+package logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Synthetic load of one profile, started through ThreadManager to give the monitor something
+ * realistic to watch and to load-test it. Threads run in the thread-group ThreadManager keeps for
+ * the profile and are named after the workload, name-0, name-1, ...; they are daemons, so a
+ * forgotten workload never keeps the jvm alive.
+ */
+public final class Workload {
+    /** Iterations of the arithmetic loop that makes up one CPU_SPIN operation. */
+    private static final int SPIN_ITERATIONS = 20_000;
+    /** Iterations spent holding the shared lock, long enough for the others to queue. */
+    private static final int HELD_ITERATIONS = 50_000;
+    private static final int ALLOCATION_BYTES = 64 * 1024;
+    private static final int ALLOCATIONS_KEPT = 16;
+    private static final int IO_BYTES = 4096;
+    private static final long STOP_MILLIS = 2000;
+
+    private final String name;
+    private final WorkloadProfile profile;
+    private final int count;
+    private final double rate;
+    private final ThreadGroup group;
+    private final List<Thread> threads = new ArrayList<>();
+    private final LongAdder operations = new LongAdder();
+    private final AtomicInteger alive = new AtomicInteger();
+    private final Set<Thread> live = ConcurrentHashMap.newKeySet();
+    private final Object monitor = new Object();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean running;
+    private volatile long sink;
+    private Path directory;
+
+    /**
+     * @requires name != null && profile != null && group != null
+     * @throws IllegalArgumentException if count is not positive or rate is negative
+     */
+    Workload(String name, WorkloadProfile profile, int count, double rate, ThreadGroup group) {
+        if (count <= 0) throw new IllegalArgumentException("Thread count must be positive: " + count);
+        if (rate < 0 || Double.isNaN(rate)) throw new IllegalArgumentException("Rate must not be negative: " + rate);
+        this.name = name;
+        this.profile = profile;
+        this.count = count;
+        this.rate = rate;
+        this.group = group;
+    }
+
+    /**
+     * @modifies this
+     * @effects starts the workload's threads
+     * @throws IOException if FILE_IO cannot create its temporary directory
+     */
+    synchronized void start() throws IOException {
+        if (profile == WorkloadProfile.FILE_IO) directory = Files.createTempDirectory("thread-manager-workload");
+        running = true;
+        if (profile == WorkloadProfile.CHURN) {
+            threads.add(newThread(name + "-spawner", this::spawn));
+        } else if (profile == WorkloadProfile.PING_PONG) {
+            for (int i = 0; i < count; i += 2) {
+                Thread[] pair = new Thread[2];
+                AtomicInteger turn = new AtomicInteger();
+                pair[0] = newThread(name + "-" + i, () -> pingPong(pair, turn, 0));
+                pair[1] = newThread(name + "-" + (i + 1), () -> pingPong(pair, turn, 1));
+                threads.add(pair[0]);
+                threads.add(pair[1]);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                threads.add(newThread(name + "-" + i, () -> work(index)));
+            }
+        }
+        for (Thread thread : threads) thread.start();
+    }
+
+    /**
+     * @modifies this
+     * @effects stops every thread, waiting up to two seconds for them to end, and removes any temporary files
+     */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        // the group is shared with other workloads of the profile, so only this one's threads are interrupted;
+        // a thread that registers after this loop sees running is false and ends on its own
+        for (Thread thread : live) thread.interrupt();
+        long deadline = System.currentTimeMillis() + STOP_MILLIS;
+        try {
+            for (Thread thread : threads) thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            while (alive.get() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        threads.clear();
+        if (directory != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) Files.deleteIfExists(file);
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                // left for the temporary directory's own cleanup
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return the number of threads, or for CHURN the most alive at once
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return operations per second across all threads, or for CHURN threads started per second; 0 is unthrottled
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the operations completed so far, or for CHURN the threads started
+     */
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    /**
+     * @return the workload's threads that are alive
+     */
+    public int getAliveCount() {
+        return alive.get();
+    }
+
+    private Thread newThread(String threadName, Runnable body) {
+        Thread thread = new Thread(group, () -> {
+            alive.incrementAndGet();
+            live.add(Thread.currentThread());
+            try {
+                body.run();
+            } finally {
+                live.remove(Thread.currentThread());
+                alive.decrementAndGet();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * @return nanoseconds between one thread's operations to meet the rate, or 0 if unthrottled
+     */
+    private long intervalNanos(int threadCount) {
+        return rate > 0 ? (long) (threadCount * 1e9 / rate) : 0;
+    }
+
+    /**
+     * @return the deadline of the next operation, after waiting until next; falls behind no more than one interval
+     */
+    private static long pace(long next, long interval) {
+        if (interval == 0) return next;
+        long wait = next - System.nanoTime();
+        if (wait > 0) LockSupport.parkNanos(wait);
+        else next = System.nanoTime();
+        return next + interval;
+    }
+
+    private void work(int index) {
+        long interval = intervalNanos(count);
+        long next = System.nanoTime();
+        byte[][] kept = profile == WorkloadProfile.ALLOCATION ? new byte[ALLOCATIONS_KEPT][] : null;
+        FileChannel channel = null;
+        try {
+            if (profile == WorkloadProfile.FILE_IO) {
+                channel = FileChannel.open(directory.resolve(name + "-" + index), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.READ);
+            }
+            ByteBuffer block = channel != null ? ByteBuffer.allocate(IO_BYTES) : null;
+            long done = 0;
+            while (running) {
+                switch (profile) {
+                    case CPU_SPIN:
+                        sink += spin(SPIN_ITERATIONS);
+                        break;
+                    case CONTENDED_MONITOR:
+                        synchronized (monitor) {
+                            sink += spin(HELD_ITERATIONS);
+                        }
+                        break;
+                    case CONTENDED_LOCK:
+                        lock.lock();
+                        try {
+                            sink += spin(HELD_ITERATIONS);
+                        } finally {
+                            lock.unlock();
+                        }
+                        break;
+                    case ALLOCATION:
+                        kept[(int) (done % ALLOCATIONS_KEPT)] = new byte[ALLOCATION_BYTES];
+                        break;
+                    case FILE_IO:
+                        block.clear();
+                        channel.write(block, 0);
+                        channel.force(false);
+                        break;
+                    default:
+                        throw new AssertionError(profile);
+                }
+                operations.increment();
+                done++;
+                next = pace(next, interval);
+            }
+        } catch (IOException e) {
+            // interrupted out of a write by stop, or the disk failed; either way this thread is done
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // nothing left to do with it
+                }
+            }
+        }
+    }
+
+    /**
+     * The side whose turn it is does one operation, hands the turn over and parks until it is handed back.
+     */
+    private void pingPong(Thread[] pair, AtomicInteger turn, int side) {
+        long interval = intervalNanos(count);
+        long next = System.nanoTime();
+        while (running) {
+            while (turn.get() != side) {
+                if (!running) return;
+                LockSupport.park(this);
+            }
+            operations.increment();
+            next = pace(next, interval);
+            turn.set(1 - side);
+            LockSupport.unpark(pair[1 - side]);
+        }
+    }
+
+    /**
+     * Starts threads at the rate, each living long enough that about count are alive at once.
+     */
+    private void spawn() {
+        long interval = intervalNanos(1);
+        long lifetime = rate > 0 ? (long) (count * 1e9 / rate) : 0;
+        long next = System.nanoTime();
+        long started = 0;
+        while (running) {
+            // the spawner is one of the alive threads
+            if (alive.get() - 1 >= count) {
+                LockSupport.parkNanos(Math.max(interval, 1_000_000));
+                continue;
+            }
+            Thread thread = newThread(name + "-" + started++, () -> {
+                long end = System.nanoTime() + lifetime;
+                long left;
+                while (running && (left = end - System.nanoTime()) > 0) LockSupport.parkNanos(left);
+                if (lifetime == 0) sink += spin(SPIN_ITERATIONS);
+            });
+            thread.start();
+            operations.increment();
+            next = pace(next, interval);
+        }
+    }
+
+    private static long spin(int iterations) {
+        long x = System.nanoTime();
+        for (int i = 0; i < iterations; i++) x = x * 6364136223846793005L + 1442695040888963407L;
+        return x;
+    }
+}
@@ -0,0 +1,23 @@
+package logic;
+
+/**
+ * The kinds of synthetic load a Workload can generate. Unless noted, a workload runs count
+ * threads that repeat one operation, at rate operations per second across all of them
+ * (0 for as fast as they can).
+ */
+public enum WorkloadProfile {
+    /** Spins on arithmetic, staying RUNNABLE and burning CPU. */
+    CPU_SPIN,
+    /** Takes one shared monitor and works while holding it, so the others queue BLOCKED. */
+    CONTENDED_MONITOR,
+    /** Takes one shared ReentrantLock and works while holding it, so the others queue parked in WAITING. */
+    CONTENDED_LOCK,
+    /** Allocates 64KB arrays and keeps the last few, driving the allocation rate and young GCs. */
+    ALLOCATION,
+    /** Pairs of threads handing a turn back and forth with park/unpark; an odd count gets one more thread. */
+    PING_PONG,
+    /** Writes 4KB to its own temporary file and forces it to disk, blocking in the kernel. */
+    FILE_IO,
+    /** Starts short-lived threads at rate per second, at most count alive at once. */
+    CHURN
+}
@@ -0,0 +1,35 @@
+package model;
+
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+
+public class MethodModel {
+    private final SimpleStringProperty method;
+    private final SimpleIntegerProperty self;
+    private final SimpleIntegerProperty total;
+    private final SimpleDoubleProperty selfPercent;
+
+    public MethodModel(String method, int self, int total, double selfPercent) {
+        this.method = new SimpleStringProperty(method);
+        this.self = new SimpleIntegerProperty(self);
+        this.total = new SimpleIntegerProperty(total);
+        this.selfPercent = new SimpleDoubleProperty(selfPercent);
+    }
+
+    public String getMethod() {
+        return method.get();
+    }
+
+    public int getSelf() {
+        return self.get();
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public double getSelfPercent() {
+        return selfPercent.get();
+    }
+}
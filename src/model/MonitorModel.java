@@ -0,0 +1,41 @@
+package model;
+
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleStringProperty;
+
+public class MonitorModel {
+    private final SimpleStringProperty lock;
+    private final SimpleStringProperty owner;
+    private final SimpleIntegerProperty waiters;
+    private final SimpleLongProperty blockedMillis;
+    private final SimpleStringProperty ownerHolds;
+
+    public MonitorModel(String lock, String owner, int waiters, long blockedMillis, String ownerHolds) {
+        this.lock = new SimpleStringProperty(lock);
+        this.owner = new SimpleStringProperty(owner);
+        this.waiters = new SimpleIntegerProperty(waiters);
+        this.blockedMillis = new SimpleLongProperty(blockedMillis);
+        this.ownerHolds = new SimpleStringProperty(ownerHolds);
+    }
+
+    public String getLock() {
+        return lock.get();
+    }
+
+    public String getOwner() {
+        return owner.get();
+    }
+
+    public int getWaiters() {
+        return waiters.get();
+    }
+
+    public long getBlockedMillis() {
+        return blockedMillis.get();
+    }
+
+    public String getOwnerHolds() {
+        return ownerHolds.get();
+    }
+}
@@ -0,0 +1,73 @@
+package model;
+
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleStringProperty;
+
+public class PoolModel {
+    private final SimpleStringProperty name;
+    private final SimpleStringProperty kind;
+    private final SimpleIntegerProperty size;
+    private final SimpleIntegerProperty threads;
+    private final SimpleIntegerProperty active;
+    private final SimpleLongProperty queued;
+    private final SimpleLongProperty completed;
+    private final SimpleDoubleProperty throughput;
+    private final SimpleDoubleProperty p50;
+    private final SimpleDoubleProperty p99;
+
+    public PoolModel(String name, String kind, int size, int threads, int active, long queued, long completed,
+                     double throughput, double p50, double p99) {
+        this.name = new SimpleStringProperty(name);
+        this.kind = new SimpleStringProperty(kind);
+        this.size = new SimpleIntegerProperty(size);
+        this.threads = new SimpleIntegerProperty(threads);
+        this.active = new SimpleIntegerProperty(active);
+        this.queued = new SimpleLongProperty(queued);
+        this.completed = new SimpleLongProperty(completed);
+        this.throughput = new SimpleDoubleProperty(throughput);
+        this.p50 = new SimpleDoubleProperty(p50);
+        this.p99 = new SimpleDoubleProperty(p99);
+    }
+
+    public String getName() {
+        return name.get();
+    }
+
+    public String getKind() {
+        return kind.get();
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getThreads() {
+        return threads.get();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public double getThroughput() {
+        return throughput.get();
+    }
+
+    public double getP50() {
+        return p50.get();
+    }
+
+    public double getP99() {
+        return p99.get();
+    }
+}
@@ -1,14 +1,47 @@
 package model;
 
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
 
 public class ThreadGroupModel {
     private final SimpleStringProperty parent;
     private final SimpleStringProperty name;
+    private final SimpleIntegerProperty threads;
+    private final SimpleIntegerProperty totalThreads;
+    private final SimpleDoubleProperty daemonRatio;
+    private final SimpleDoubleProperty cpu;
+    private final SimpleDoubleProperty allocation;
+    private final SimpleDoubleProperty blocked;
 
     public ThreadGroupModel(String parent, String name) {
         this.parent = new SimpleStringProperty(parent);
         this.name = new SimpleStringProperty(name);
+        this.threads = new SimpleIntegerProperty();
+        this.totalThreads = new SimpleIntegerProperty();
+        this.daemonRatio = new SimpleDoubleProperty();
+        this.cpu = new SimpleDoubleProperty();
+        this.allocation = new SimpleDoubleProperty();
+        this.blocked = new SimpleDoubleProperty();
+    }
+
+    /**
+     * Updates the rolled-up totals in place so the tree only re-renders the cells that changed.
+     * @param blocked milliseconds per second spent blocked, negative if not measured
+     * @requires called on the FX application thread
+     * @modifies this
+     */
+    public void update(int threads, int totalThreads, double daemonRatio, double cpu, double allocation,
+                       double blocked) {
+        this.threads.set(threads);
+        this.totalThreads.set(totalThreads);
+        this.daemonRatio.set(daemonRatio);
+        this.cpu.set(cpu);
+        this.allocation.set(allocation);
+        this.blocked.set(blocked);
     }
 
     public String getParent() {
@@ -18,4 +51,46 @@ public class ThreadGroupModel {
         return name.get();
     }
 
+    /**
+     * @return the number of threads directly in the group
+     */
+    public int getThreads() {
+        return threads.get();
+    }
+
+    /**
+     * @return the number of threads in the group and its subgroups
+     */
+    public int getTotalThreads() {
+        return totalThreads.get();
+    }
+
+    public StringProperty nameProperty() {
+        return name;
+    }
+
+    public IntegerProperty threadsProperty() {
+        return threads;
+    }
+
+    public IntegerProperty totalThreadsProperty() {
+        return totalThreads;
+    }
+
+    public DoubleProperty daemonRatioProperty() {
+        return daemonRatio;
+    }
+
+    public DoubleProperty cpuProperty() {
+        return cpu;
+    }
+
+    public DoubleProperty allocationProperty() {
+        return allocation;
+    }
+
+    public DoubleProperty blockedProperty() {
+        return blocked;
+    }
+
 }
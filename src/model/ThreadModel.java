@@ -1,41 +1,343 @@
 package model;
 
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
 
+import java.util.Comparator;
+
+/**
+ * A table row, holding its values as primitives. A property is only created when a cell or
+ * listener asks for it, which the table only does for the rows on screen, and is kept in sync
+ * from then on. Rows are reused across ticks and between threads, see ThreadRows.
+ */
 public class ThreadModel {
-    private final SimpleStringProperty id;
-    private final SimpleStringProperty name;
-    private final SimpleStringProperty group;
-    private final SimpleStringProperty type;
-    private final SimpleStringProperty priority;
+    public static final Comparator<ThreadModel> BY_ID = Comparator.comparingLong(ThreadModel::getId);
+    public static final Comparator<ThreadModel> BY_NAME = Comparator.comparing(ThreadModel::getName);
+    public static final Comparator<ThreadModel> BY_GROUP = Comparator.comparing(ThreadModel::getGroup);
+    public static final Comparator<ThreadModel> BY_TYPE = Comparator.comparing(ThreadModel::isDaemon);
+    public static final Comparator<ThreadModel> BY_PRIORITY = Comparator.comparingInt(ThreadModel::getPriority);
+    public static final Comparator<ThreadModel> BY_STATE = Comparator.comparing(ThreadModel::getState);
+    public static final Comparator<ThreadModel> BY_CPU = Comparator.comparingDouble(ThreadModel::getCpu);
+    public static final Comparator<ThreadModel> BY_USER = Comparator.comparingDouble(ThreadModel::getUser);
+    public static final Comparator<ThreadModel> BY_ALLOCATION = Comparator.comparingDouble(ThreadModel::getAllocation);
+    public static final Comparator<ThreadModel> BY_NATIVE_ID = Comparator.comparingLong(ThreadModel::getNativeId);
+    public static final Comparator<ThreadModel> BY_VOLUNTARY_SWITCHES =
+            Comparator.comparingDouble(ThreadModel::getVoluntarySwitches);
+    public static final Comparator<ThreadModel> BY_INVOLUNTARY_SWITCHES =
+            Comparator.comparingDouble(ThreadModel::getInvoluntarySwitches);
+    public static final Comparator<ThreadModel> BY_LAST_CPU = Comparator.comparingInt(ThreadModel::getLastCpu);
+    public static final Comparator<ThreadModel> BY_NICE = Comparator.comparingInt(ThreadModel::getNice);
+    public static final Comparator<ThreadModel> BY_NATIVE_CPU = Comparator.comparingLong(ThreadModel::getNativeCpuNanos);
+
+    private long id;
+    private String name;
+    private String group;
+    private boolean daemon;
+    private int priority;
+    private Thread.State state;
+    private double cpu;
+    private double user;
+    private double allocation;
+    private boolean deadlocked;
+    private long nativeId = -1;
+    private double voluntarySwitches = -1;
+    private double involuntarySwitches = -1;
+    private int lastCpu = -1;
+    private int nice;
+    private long nativeCpuNanos = -1;
 
+    private LongProperty idProperty;
+    private StringProperty nameProperty;
+    private StringProperty groupProperty;
+    private StringProperty typeProperty;
+    private IntegerProperty priorityProperty;
+    private ObjectProperty<Thread.State> stateProperty;
+    private BooleanProperty deadlockedProperty;
+    private DoubleProperty cpuProperty;
+    private DoubleProperty userProperty;
+    private DoubleProperty allocationProperty;
+    private LongProperty nativeIdProperty;
+    private DoubleProperty voluntarySwitchesProperty;
+    private DoubleProperty involuntarySwitchesProperty;
+    private IntegerProperty lastCpuProperty;
+    private IntegerProperty niceProperty;
+    private LongProperty nativeCpuProperty;
 
-    public ThreadModel(String id, String name, String group, String type, String priority) {
-        this.id = new SimpleStringProperty(id);
-        this.name = new SimpleStringProperty(name);
-        this.group = new SimpleStringProperty(group);
-        this.type = new SimpleStringProperty(type);
-        this.priority = new SimpleStringProperty(priority);
+    public ThreadModel(long id, String name, String group, boolean daemon, int priority, Thread.State state,
+                       double cpu, double user, double allocation) {
+        reset(id, name, group, daemon, priority, state, cpu, user, allocation);
     }
 
-    public String getType() {
-        return type.get();
+    /**
+     * Turns the row into the row of another thread.
+     * @requires called on the FX application thread
+     * @modifies this
+     */
+    public void reset(long id, String name, String group, boolean daemon, int priority, Thread.State state,
+                      double cpu, double user, double allocation) {
+        this.id = id;
+        if (idProperty != null) idProperty.set(id);
+        setDeadlocked(false);
+        update(name, group, daemon, priority, state, cpu, user, allocation);
+        updateNative(-1, -1, -1, -1, 0, -1);
+    }
+
+    /**
+     * Updates the row in place so the table only re-renders the cells that changed.
+     * @requires called on the FX application thread
+     * @modifies this
+     */
+    public void update(String name, String group, boolean daemon, int priority, Thread.State state,
+                       double cpu, double user, double allocation) {
+        this.name = name;
+        this.group = group;
+        this.daemon = daemon;
+        this.priority = priority;
+        this.state = state;
+        this.cpu = cpu;
+        this.user = user;
+        this.allocation = allocation;
+        if (nameProperty != null) nameProperty.set(name);
+        if (groupProperty != null) groupProperty.set(group);
+        if (typeProperty != null) typeProperty.set(getType());
+        if (priorityProperty != null) priorityProperty.set(priority);
+        if (stateProperty != null) stateProperty.set(state);
+        if (cpuProperty != null) cpuProperty.set(cpu);
+        if (userProperty != null) userProperty.set(user);
+        if (allocationProperty != null) allocationProperty.set(allocation);
     }
 
-    public String getId() {
-        return id.get();
+    /**
+     * Updates the native thread columns in place.
+     * @param nativeId the Linux tid, or -1 if unknown, in which case the other values are ignored
+     * @requires called on the FX application thread
+     * @modifies this
+     */
+    public void updateNative(long nativeId, double voluntarySwitches, double involuntarySwitches, int lastCpu,
+                             int nice, long nativeCpuNanos) {
+        this.nativeId = nativeId;
+        this.voluntarySwitches = voluntarySwitches;
+        this.involuntarySwitches = involuntarySwitches;
+        this.lastCpu = lastCpu;
+        this.nice = nice;
+        this.nativeCpuNanos = nativeCpuNanos;
+        if (nativeIdProperty != null) nativeIdProperty.set(nativeId);
+        if (voluntarySwitchesProperty != null) voluntarySwitchesProperty.set(voluntarySwitches);
+        if (involuntarySwitchesProperty != null) involuntarySwitchesProperty.set(involuntarySwitches);
+        if (lastCpuProperty != null) lastCpuProperty.set(lastCpu);
+        if (niceProperty != null) niceProperty.set(nice);
+        if (nativeCpuProperty != null) nativeCpuProperty.set(nativeCpuNanos);
+    }
+
+    public long getId() {
+        return id;
     }
 
     public String getName() {
-        return name.get();
+        return name;
     }
 
     public String getGroup() {
-        return group.get();
+        return group;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    public String getType() {
+        return daemon ? "daemon" : "non-daemon";
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public Thread.State getState() {
+        return state;
+    }
+
+    public boolean isDeadlocked() {
+        return deadlocked;
     }
 
-    public String getPriority() {
-        return priority.get();
+    /**
+     * @requires called on the FX application thread
+     * @modifies this
+     */
+    public void setDeadlocked(boolean deadlocked) {
+        this.deadlocked = deadlocked;
+        if (deadlockedProperty != null) deadlockedProperty.set(deadlocked);
     }
 
+    /**
+     * @return CPU % of one core over the last refresh interval, negative if unavailable
+     */
+    public double getCpu() {
+        return cpu;
+    }
+
+    /**
+     * @return user-mode CPU % of one core over the last refresh interval, negative if unavailable
+     */
+    public double getUser() {
+        return user;
+    }
+
+    /**
+     * @return bytes allocated per second over the last refresh interval, negative if unavailable
+     */
+    public double getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * @return the Linux tid, or -1 if unknown
+     */
+    public long getNativeId() {
+        return nativeId;
+    }
+
+    /**
+     * @return voluntary context switches per second over the last refresh interval, negative if unknown
+     */
+    public double getVoluntarySwitches() {
+        return voluntarySwitches;
+    }
+
+    /**
+     * @return involuntary context switches per second over the last refresh interval, negative if unknown
+     */
+    public double getInvoluntarySwitches() {
+        return involuntarySwitches;
+    }
+
+    /**
+     * @return the CPU the native thread last ran on, or -1 if unknown
+     */
+    public int getLastCpu() {
+        return lastCpu;
+    }
+
+    public int getNice() {
+        return nice;
+    }
+
+    /**
+     * @return the native user plus system CPU time in nanoseconds, or -1 if unknown
+     */
+    public long getNativeCpuNanos() {
+        return nativeCpuNanos;
+    }
+
+    public ReadOnlyLongProperty idProperty() {
+        if (idProperty == null) idProperty = new SimpleLongProperty(this, "id", id);
+        return idProperty;
+    }
+
+    public ReadOnlyStringProperty nameProperty() {
+        if (nameProperty == null) nameProperty = new SimpleStringProperty(this, "name", name);
+        return nameProperty;
+    }
+
+    public ReadOnlyStringProperty groupProperty() {
+        if (groupProperty == null) groupProperty = new SimpleStringProperty(this, "group", group);
+        return groupProperty;
+    }
+
+    public ReadOnlyStringProperty typeProperty() {
+        if (typeProperty == null) typeProperty = new SimpleStringProperty(this, "type", getType());
+        return typeProperty;
+    }
+
+    public ReadOnlyIntegerProperty priorityProperty() {
+        if (priorityProperty == null) priorityProperty = new SimpleIntegerProperty(this, "priority", priority);
+        return priorityProperty;
+    }
+
+    public ReadOnlyObjectProperty<Thread.State> stateProperty() {
+        if (stateProperty == null) stateProperty = new SimpleObjectProperty<>(this, "state", state);
+        return stateProperty;
+    }
+
+    public ReadOnlyBooleanProperty deadlockedProperty() {
+        if (deadlockedProperty == null) deadlockedProperty = new SimpleBooleanProperty(this, "deadlocked", deadlocked);
+        return deadlockedProperty;
+    }
+
+    public ReadOnlyDoubleProperty cpuProperty() {
+        if (cpuProperty == null) cpuProperty = new SimpleDoubleProperty(this, "cpu", cpu);
+        return cpuProperty;
+    }
+
+    public ReadOnlyDoubleProperty userProperty() {
+        if (userProperty == null) userProperty = new SimpleDoubleProperty(this, "user", user);
+        return userProperty;
+    }
+
+    public ReadOnlyDoubleProperty allocationProperty() {
+        if (allocationProperty == null) allocationProperty = new SimpleDoubleProperty(this, "allocation", allocation);
+        return allocationProperty;
+    }
+
+    public ReadOnlyLongProperty nativeIdProperty() {
+        if (nativeIdProperty == null) nativeIdProperty = new SimpleLongProperty(this, "nativeId", nativeId);
+        return nativeIdProperty;
+    }
+
+    public ReadOnlyDoubleProperty voluntarySwitchesProperty() {
+        if (voluntarySwitchesProperty == null) {
+            voluntarySwitchesProperty = new SimpleDoubleProperty(this, "voluntarySwitches", voluntarySwitches);
+        }
+        return voluntarySwitchesProperty;
+    }
+
+    public ReadOnlyDoubleProperty involuntarySwitchesProperty() {
+        if (involuntarySwitchesProperty == null) {
+            involuntarySwitchesProperty = new SimpleDoubleProperty(this, "involuntarySwitches", involuntarySwitches);
+        }
+        return involuntarySwitchesProperty;
+    }
+
+    public ReadOnlyIntegerProperty lastCpuProperty() {
+        if (lastCpuProperty == null) lastCpuProperty = new SimpleIntegerProperty(this, "lastCpu", lastCpu);
+        return lastCpuProperty;
+    }
+
+    public ReadOnlyIntegerProperty niceProperty() {
+        if (niceProperty == null) niceProperty = new SimpleIntegerProperty(this, "nice", nice);
+        return niceProperty;
+    }
+
+    public ReadOnlyLongProperty nativeCpuProperty() {
+        if (nativeCpuProperty == null) nativeCpuProperty = new SimpleLongProperty(this, "nativeCpu", nativeCpuNanos);
+        return nativeCpuProperty;
+    }
+
+    /**
+     * @return true if any property has been created, for tests and diagnostics
+     */
+    public boolean hasProperties() {
+        return idProperty != null || nameProperty != null || groupProperty != null || typeProperty != null
+                || priorityProperty != null || stateProperty != null || deadlockedProperty != null
+                || cpuProperty != null || userProperty != null || allocationProperty != null
+                || nativeIdProperty != null || voluntarySwitchesProperty != null || involuntarySwitchesProperty != null
+                || lastCpuProperty != null || niceProperty != null || nativeCpuProperty != null;
+    }
 }
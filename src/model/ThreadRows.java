@@ -0,0 +1,129 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The table rows by thread id. Removed rows are kept, up to a limit, and given to the next
+ * threads added, so a tick that only updates or replaces rows allocates no new ones. The ids
+ * are kept in an open-addressed table of primitives, so looking a row up allocates nothing.
+ * Not thread-safe: use it on the FX application thread.
+ */
+public final class ThreadRows {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MAX_SPARE = 1024;
+
+    private long[] keys;
+    private ThreadModel[] values;
+    private int size;
+    private ThreadModel[] spare = new ThreadModel[16];
+    private int spareCount;
+
+    public ThreadRows() {
+        keys = new long[64];
+        values = new ThreadModel[64];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return the row of the thread with id, or null if there is none
+     */
+    public ThreadModel get(long id) {
+        for (int slot = slot(id); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == id) return values[slot];
+        }
+        return null;
+    }
+
+    /**
+     * @requires there is no row for id
+     * @modifies this
+     * @return a row for the thread, reusing a removed row if there is one
+     */
+    public ThreadModel add(long id, String name, String group, boolean daemon, int priority, Thread.State state,
+                           double cpu, double user, double allocation) {
+        ThreadModel row;
+        if (spareCount > 0) {
+            row = spare[--spareCount];
+            spare[spareCount] = null;
+            row.reset(id, name, group, daemon, priority, state, cpu, user, allocation);
+        } else {
+            row = new ThreadModel(id, name, group, daemon, priority, state, cpu, user, allocation);
+        }
+        if ((size + 1) * 2 > keys.length) grow();
+        int slot = slot(id);
+        while (keys[slot] != EMPTY) slot = (slot + 1) & (keys.length - 1);
+        keys[slot] = id;
+        values[slot] = row;
+        size++;
+        return row;
+    }
+
+    /**
+     * The removed row is kept for reuse, so it must be taken out of every list before the next add.
+     * @modifies this
+     * @return the row of the thread with id, or null if there is none
+     */
+    public ThreadModel remove(long id) {
+        int mask = keys.length - 1;
+        int slot = slot(id);
+        while (keys[slot] != id) {
+            if (keys[slot] == EMPTY) return null;
+            slot = (slot + 1) & mask;
+        }
+        ThreadModel row = values[slot];
+        // shift the following entries back over the gap, so probing still finds them
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+        size--;
+        if (spareCount < MAX_SPARE) {
+            if (spareCount == spare.length) spare = Arrays.copyOf(spare, spareCount * 2);
+            spare[spareCount++] = row;
+        }
+        return row;
+    }
+
+    /**
+     * @modifies this
+     * @effects removes every row and drops the spare ones
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        Arrays.fill(spare, null);
+        size = 0;
+        spareCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        ThreadModel[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new ThreadModel[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != EMPTY) slot = (slot + 1) & (keys.length - 1);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.Cancellation;
+import logic.CancellationReport;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A window to interrupt every thread matching a group, a name pattern and a state at once,
+ * showing how many have terminated and, at the deadline, the stacks of those that have not.
+ * The number of matching threads is confirmed before any is interrupted.
+ */
+class CancelView {
+    private static final String ANY = "Any";
+
+    private final ThreadManager threadManager;
+    private final ComboBox<GroupChoice> groupCombo;
+    private final TextField patternField;
+    private final ComboBox<String> stateCombo;
+    private final Spinner<Integer> deadlineSpinner;
+    private final Text status;
+    private final TextArea stragglerArea;
+    private final Stage stage;
+    private final Timeline progress;
+    private Cancellation cancellation;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the cancellation window without showing it
+     */
+    CancelView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.groupCombo = new ComboBox<>(groupChoices(threadManager.getSnapshot()));
+        groupCombo.getSelectionModel().select(0);
+        this.patternField = new TextField();
+        patternField.setPromptText("name regex");
+        this.stateCombo = new ComboBox<>(stateNames());
+        stateCombo.getSelectionModel().select(ANY);
+        this.deadlineSpinner = new Spinner<>(0, 600_000, 2000, 500);
+        deadlineSpinner.setEditable(true);
+        deadlineSpinner.setPrefWidth(90);
+        this.status = new Text();
+        this.stragglerArea = new TextArea();
+        stragglerArea.setEditable(false);
+        stragglerArea.setPrefHeight(380);
+        this.stage = new Stage();
+
+        Button interruptButton = new Button("Interrupt");
+        interruptButton.setOnAction(event -> startCancellation());
+        HBox criteria = new HBox(5, new Text("Group: "), groupCombo, new Text("Name: "), patternField,
+                new Text("State: "), stateCombo);
+        HBox controls = new HBox(5, new Text("Deadline (ms): "), deadlineSpinner, interruptButton);
+        VBox root = new VBox(5, criteria, controls, status, new Text("Stragglers"), stragglerArea);
+        root.setPadding(new Insets(10));
+
+        progress = new Timeline(new KeyFrame(Duration.millis(100), event -> showProgress()));
+        progress.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> progress.stop());
+        stage.setTitle("Thread Manager - Cancel threads");
+        stage.setScene(new Scene(root, 760, 520));
+    }
+
+    void show() {
+        stage.show();
+    }
+
+    /**
+     * @return Any, then every thread-group of snapshot; groups sharing a name are told apart by
+     *         their parent and a number, since each is a target of its own
+     */
+    private static ObservableList<GroupChoice> groupChoices(ThreadSnapshot snapshot) {
+        ThreadGroup[] groups = snapshot.getThreadGroups();
+        Map<String, Integer> named = new HashMap<>();
+        for (ThreadGroup group : groups) named.merge(group.getName(), 1, Integer::sum);
+        Map<String, Integer> seen = new HashMap<>();
+        ObservableList<GroupChoice> choices = FXCollections.observableArrayList(new GroupChoice(null, ANY));
+        for (ThreadGroup group : groups) {
+            String name = group.getName();
+            String label = name;
+            if (named.get(name) > 1) {
+                ThreadGroup parent = group.getParent();
+                label = name + " #" + seen.merge(name, 1, Integer::sum) + (parent != null ? " in " + parent.getName() : "");
+            }
+            choices.add(new GroupChoice(group, label));
+        }
+        return choices;
+    }
+
+    private static ObservableList<String> stateNames() {
+        ObservableList<String> names = FXCollections.observableArrayList(ANY);
+        for (Thread.State state : Thread.State.values()) {
+            if (state != Thread.State.NEW && state != Thread.State.TERMINATED) names.add(state.name());
+        }
+        return names;
+    }
+
+    /**
+     * @modifies this.cancellation, this.status, this.stragglerArea
+     * @effects interrupts the matching threads and starts showing their progress
+     */
+    private void startCancellation() {
+        Pattern pattern = null;
+        String text = patternField.getText();
+        if (text != null && !text.isEmpty()) {
+            try {
+                pattern = Pattern.compile(text);
+            } catch (PatternSyntaxException e) {
+                status.setText("Invalid pattern: " + e.getDescription());
+                return;
+            }
+        }
+        GroupChoice choice = groupCombo.getValue();
+        ThreadGroup group = choice == null ? null : choice.group;
+        Thread.State state = ANY.equals(stateCombo.getValue()) ? null : Thread.State.valueOf(stateCombo.getValue());
+        if (!confirm(group, pattern, state)) return;
+
+        stragglerArea.clear();
+        Cancellation started = threadManager.cancelThreads(group, pattern, state, deadlineSpinner.getValue());
+        cancellation = started;
+        started.getResult().thenAccept(report -> Platform.runLater(() -> showReport(started, report)));
+        showProgress();
+        progress.play();
+    }
+
+    /**
+     * @return true if the user confirms interrupting the threads that match right now
+     */
+    private boolean confirm(ThreadGroup group, Pattern pattern, Thread.State state) {
+        int targets = threadManager.countCancellationTargets(group, pattern, state);
+        if (targets == 0) {
+            status.setText("No thread matches");
+            return false;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Thread Manager");
+        alert.setHeaderText("Interrupt " + targets + " thread(s)?");
+        alert.setContentText(group == null && pattern == null && state == null
+                ? "No group, name or state is given, so this interrupts every thread outside the system group, "
+                        + "other than the monitor's own and the JavaFX toolkit's."
+                : "Every thread matching the group, name and state will be interrupted.");
+        ButtonType interruptButton = new ButtonType("Interrupt");
+        ButtonType cancelButton = new ButtonType("Cancel", ButtonBar.ButtonData.CANCEL_CLOSE);
+        alert.getButtonTypes().setAll(interruptButton, cancelButton);
+        Optional<ButtonType> result = alert.showAndWait();
+        return result.isPresent() && result.get() == interruptButton;
+    }
+
+    private void showProgress() {
+        if (cancellation == null) return;
+        status.setText("Interrupted " + cancellation.getTargetCount() + " thread(s), "
+                + cancellation.getTerminatedCount() + " terminated");
+    }
+
+    /**
+     * @effects shows the final counts and every straggler's stack, if cancellation is still the latest one
+     */
+    private void showReport(Cancellation finished, CancellationReport report) {
+        if (finished != cancellation) return;
+        progress.stop();
+        status.setText(String.format("Interrupted %d thread(s): %d terminated in %d ms, %d still alive",
+                report.getTargetCount(), report.getTerminatedCount(), report.getElapsedMillis(),
+                report.getStragglers().size()));
+        StringBuilder text = new StringBuilder();
+        for (ThreadInfo info : report.getStragglers()) {
+            text.append('"').append(info.getThreadName()).append("\" #").append(info.getThreadId())
+                    .append(' ').append(info.getThreadState()).append('\n');
+            for (StackTraceElement frame : info.getStackTrace()) {
+                text.append("    at ").append(frame).append('\n');
+            }
+            text.append('\n');
+        }
+        stragglerArea.setText(text.toString());
+    }
+
+    /**
+     * A thread-group of the combo, held by identity, or Any when group is null.
+     */
+    private static final class GroupChoice {
+        private final ThreadGroup group;
+        private final String label;
+
+        GroupChoice(ThreadGroup group, String label) {
+            this.group = group;
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.ContentionReport;
+import logic.MonitorContention;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import model.MonitorModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A window listing contended locks ranked by blocked time, the threads blocking or waiting
+ * the most, and any deadlock cycles. Reads the report the table's collector builds each tick.
+ */
+class ContentionView {
+    private static final int TOP_THREADS = 20;
+
+    private final ThreadManager threadManager;
+    private final ObservableList<MonitorModel> monitors;
+    private final ObservableList<String> busiestThreads;
+    private final Text deadlockText;
+    private final Stage stage;
+    private final Timeline refresher;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the contention window without showing it
+     */
+    ContentionView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.monitors = FXCollections.observableArrayList();
+        this.busiestThreads = FXCollections.observableArrayList();
+        this.deadlockText = new Text();
+        deadlockText.setFill(Color.RED);
+        this.stage = new Stage();
+
+        ListView<String> threadList = new ListView<>(busiestThreads);
+        threadList.setPrefHeight(180);
+        VBox root = new VBox(5, deadlockText, new Text("Contended locks"), buildMonitorTable(),
+                new Text("Most blocked / waiting threads"), threadList);
+        root.setPadding(new Insets(10));
+
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), event -> updateView()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> refresher.stop());
+        stage.setTitle("Thread Manager - Contention");
+        stage.setScene(new Scene(root, 820, 560));
+    }
+
+    void show() {
+        updateView();
+        refresher.play();
+        stage.show();
+    }
+
+    @SuppressWarnings("unchecked")
+    private TableView<MonitorModel> buildMonitorTable() {
+        TableView<MonitorModel> table = new TableView<>(monitors);
+        TableColumn<MonitorModel, String> lockCol = new TableColumn<>("Lock");
+        TableColumn<MonitorModel, String> ownerCol = new TableColumn<>("Owner");
+        TableColumn<MonitorModel, Integer> waitersCol = new TableColumn<>("Waiters");
+        TableColumn<MonitorModel, Long> blockedCol = new TableColumn<>("Blocked ms");
+        TableColumn<MonitorModel, String> holdsCol = new TableColumn<>("Owner holds");
+        lockCol.setPrefWidth(240);
+        ownerCol.setPrefWidth(150);
+        holdsCol.setPrefWidth(260);
+        lockCol.setCellValueFactory(new PropertyValueFactory<>("lock"));
+        ownerCol.setCellValueFactory(new PropertyValueFactory<>("owner"));
+        waitersCol.setCellValueFactory(new PropertyValueFactory<>("waiters"));
+        blockedCol.setCellValueFactory(new PropertyValueFactory<>("blockedMillis"));
+        holdsCol.setCellValueFactory(new PropertyValueFactory<>("ownerHolds"));
+        table.getColumns().addAll(lockCol, ownerCol, waitersCol, blockedCol, holdsCol);
+        table.setPrefHeight(260);
+        return table;
+    }
+
+    /**
+     * @modifies this.monitors, this.busiestThreads, this.deadlockText
+     */
+    private void updateView() {
+        ContentionReport report = threadManager.getContentionReport();
+        ThreadSnapshot snapshot = threadManager.getSnapshot();
+
+        monitors.clear();
+        for (MonitorContention monitor : report.getMonitors()) {
+            String owner = monitor.getOwnerName() == null ? "?" : monitor.getOwnerName() + " #" + monitor.getOwnerId();
+            monitors.add(new MonitorModel(monitor.getLockName(), owner, monitor.getWaiterCount(),
+                    monitor.getBlockedMillis(), String.join(", ", monitor.getOwnerHeldLocks())));
+        }
+
+        StringBuilder deadlocks = new StringBuilder();
+        for (long[] cycle : report.getDeadlockCycles()) {
+            deadlocks.append("DEADLOCK: ");
+            for (long id : cycle) {
+                deadlocks.append(threadName(snapshot, id)).append(" -> ");
+            }
+            deadlocks.append(threadName(snapshot, cycle[0])).append('\n');
+        }
+        deadlockText.setText(deadlocks.toString());
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < report.size(); i++) {
+            if (report.getBlockedMillisPerSecond(i) > 0 || report.getBlockedPerSecond(i) > 0) order.add(i);
+        }
+        order.sort((a, b) -> Double.compare(report.getBlockedMillisPerSecond(b), report.getBlockedMillisPerSecond(a)));
+        busiestThreads.clear();
+        for (int k = 0; k < Math.min(TOP_THREADS, order.size()); k++) {
+            int i = order.get(k);
+            busiestThreads.add(String.format("%s  %s  blocked %.0f/s (%.0f ms/s)  waited %.0f/s (%.0f ms/s)",
+                    threadName(snapshot, report.getId(i)), report.getState(i),
+                    report.getBlockedPerSecond(i), report.getBlockedMillisPerSecond(i),
+                    report.getWaitedPerSecond(i), report.getWaitedMillisPerSecond(i)));
+        }
+    }
+
+    private static String threadName(ThreadSnapshot snapshot, long id) {
+        int index = snapshot.indexOf(id);
+        return (index >= 0 ? snapshot.getName(index) : "?") + " #" + id;
+    }
+}
@@ -0,0 +1,108 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.CreationSiteReport;
+import logic.ThreadManager;
+
+/**
+ * A window listing the live threads and thread-groups of this jvm by the call site that
+ * started them, growing sites first flagged, with the selected site's frames below.
+ * Opening it starts tracking creation sites if the agent has not already.
+ */
+class CreationSiteView {
+    private static final int SITES_SHOWN = 200;
+
+    private final ThreadManager threadManager;
+    private final ObservableList<String> rows;
+    private final ListView<String> list;
+    private final TextArea frames;
+    private final Text status;
+    private final Stage stage;
+    private final Timeline refresher;
+    private CreationSiteReport report;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the window without showing it
+     */
+    CreationSiteView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.rows = FXCollections.observableArrayList();
+        this.list = new ListView<>(rows);
+        list.setPrefHeight(320);
+        this.frames = new TextArea();
+        frames.setEditable(false);
+        frames.setPrefRowCount(8);
+        this.status = new Text();
+        this.stage = new Stage();
+        list.getSelectionModel().selectedIndexProperty().addListener((observable, oldIndex, newIndex) -> showFrames());
+
+        VBox root = new VBox(5, status, list, new Text("Frames below Thread.start:"), frames);
+        root.setPadding(new Insets(10));
+        refresher = new Timeline(new KeyFrame(Duration.seconds(2), event -> updateView()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> refresher.stop());
+        stage.setTitle("Thread Manager - Creation sites");
+        stage.setScene(new Scene(root, 760, 560));
+    }
+
+    void show() {
+        try {
+            threadManager.trackCreationSites();
+        } catch (IllegalStateException e) {
+            status.setFill(Color.RED);
+            status.setText("Creation sites cannot be tracked: " + e.getMessage());
+            stage.show();
+            return;
+        }
+        updateView();
+        refresher.play();
+        stage.show();
+    }
+
+    /**
+     * @modifies this.rows, this.report
+     * @effects lists the sites of the latest report, keeping the selection on the same site
+     */
+    private void updateView() {
+        int selected = list.getSelectionModel().getSelectedIndex();
+        String selectedLabel = report != null && selected >= 0 && selected < report.size() ? report.getLabel(selected) : null;
+        report = threadManager.getCreationSites();
+        if (report == null) return;
+        rows.clear();
+        int growingSites = 0;
+        for (int i = 0; i < report.size(); i++) {
+            if (report.isGrowing(i)) growingSites++;
+            if (i >= SITES_SHOWN) continue;
+            rows.add(String.format("%s%d live  %d started  %d groups (%d empty)  %+.1f/min  %s",
+                    report.isGrowing(i) ? "GROWING  " : "", report.getLive(i), report.getStarted(i),
+                    report.getGroups(i), report.getEmptyGroups(i), report.getGrowthPerMinute(i), report.getLabel(i)));
+        }
+        status.setFill(growingSites > 0 ? Color.RED : Color.BLACK);
+        status.setText(report.size() + " sites, " + growingSites + " growing; growth is over the last "
+                + "few minutes, so new sites take a minute to be flagged");
+        int again = selectedLabel != null ? report.indexOf(selectedLabel) : -1;
+        if (again >= 0 && again < rows.size()) list.getSelectionModel().select(again);
+    }
+
+    private void showFrames() {
+        int selected = list.getSelectionModel().getSelectedIndex();
+        if (report == null || selected < 0 || selected >= report.size()) {
+            frames.clear();
+            return;
+        }
+        frames.setText(String.join("\n", report.getFrames(selected)));
+    }
+}
@@ -0,0 +1,183 @@
+package ui;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import logic.ThreadDump;
+import logic.ThreadDumpDiff;
+import logic.ThreadManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * A window to export the live jvm's thread dump and to compare two dumps, or a dump with the
+ * live jvm: the new, gone and changed threads, each grouped by identical stack.
+ * Dumps are written, read and captured off the FX thread.
+ */
+class DumpView {
+    /** Threads listed per stack group before the rest are summarised. */
+    private static final int THREADS_PER_GROUP = 200;
+
+    private final ThreadManager threadManager;
+    private final Text beforeLabel;
+    private final Text afterLabel;
+    private final Text status;
+    private final TreeView<String> diffTree;
+    private final Stage stage;
+    private ThreadDump before;
+    private ThreadDump after;
+
+    /**
+     * @param threadManager the live jvm to compare with, or null if it cannot be dumped
+     * @effects builds the window without showing it
+     */
+    DumpView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.beforeLabel = new Text("none");
+        this.afterLabel = new Text("none");
+        this.status = new Text();
+        this.diffTree = new TreeView<>(new TreeItem<>());
+        diffTree.setShowRoot(false);
+        diffTree.setPrefHeight(440);
+        this.stage = new Stage();
+
+        Button exportButton = new Button("Export...");
+        exportButton.setOnAction(event -> export());
+        exportButton.setDisable(threadManager == null);
+        Button openBefore = new Button("Open...");
+        Button openAfter = new Button("Open...");
+        Button liveAfter = new Button("Live");
+        openBefore.setOnAction(event -> open(true));
+        openAfter.setOnAction(event -> open(false));
+        liveAfter.setOnAction(event -> load(false, "live", threadManager::captureThreadDump));
+        liveAfter.setDisable(threadManager == null);
+
+        VBox root = new VBox(5,
+                new HBox(5, exportButton, new Text("the live threads to a dump file, .gz to compress")),
+                new HBox(5, new Text("Before: "), openBefore, beforeLabel),
+                new HBox(5, new Text("After:   "), openAfter, liveAfter, afterLabel),
+                status, diffTree);
+        root.setPadding(new Insets(10));
+        stage.setTitle("Thread Manager - Dumps");
+        stage.setScene(new Scene(root, 760, 560));
+    }
+
+    void show() {
+        stage.show();
+    }
+
+    /**
+     * @effects writes the live threads to a chosen file on a background thread
+     */
+    private void export() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export thread dump");
+        chooser.setInitialFileName("threads-" + ProcessHandle.current().pid() + ".json.gz");
+        File file = chooser.showSaveDialog(stage);
+        if (file == null) return;
+        status.setText("Writing " + file.getName() + "...");
+        Thread worker = new Thread(() -> {
+            String result;
+            try {
+                long start = System.nanoTime();
+                int threads = threadManager.writeThreadDump(file.toPath());
+                result = "Wrote " + threads + " threads to " + file.getName() + " in "
+                        + (System.nanoTime() - start) / 1_000_000 + "ms";
+            } catch (IOException e) {
+                result = "Could not write " + file.getName() + ": " + e.getMessage();
+            }
+            String message = result;
+            Platform.runLater(() -> status.setText(message));
+        }, "thread-manager-dump");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void open(boolean isBefore) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(isBefore ? "Dump to compare from" : "Dump to compare to");
+        File file = chooser.showOpenDialog(stage);
+        if (file != null) load(isBefore, file.getName(), () -> ThreadDump.read(file.toPath()));
+    }
+
+    /**
+     * @effects reads or captures a dump on a background thread, then shows the diff if both sides are loaded
+     */
+    private void load(boolean isBefore, String description, Callable<ThreadDump> reader) {
+        status.setText("Loading " + description + "...");
+        Thread worker = new Thread(() -> {
+            try {
+                ThreadDump dump = reader.call();
+                Platform.runLater(() -> loaded(isBefore, description, dump));
+            } catch (Exception e) {
+                Platform.runLater(() -> status.setText("Could not load " + description + ": " + e.getMessage()));
+            }
+        }, "thread-manager-dump");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @modifies this.before, this.after, this.diffTree
+     */
+    private void loaded(boolean isBefore, String description, ThreadDump dump) {
+        String text = description + ", " + dump.size() + " threads";
+        if (isBefore) {
+            before = dump;
+            beforeLabel.setText(text);
+        } else {
+            after = dump;
+            afterLabel.setText(text);
+        }
+        if (before == null || after == null) {
+            status.setText("");
+            return;
+        }
+        ThreadDumpDiff diff = ThreadDumpDiff.between(before, after);
+        TreeItem<String> root = diffTree.getRoot();
+        root.getChildren().clear();
+        root.getChildren().add(section("New", diff, after, diff.getAdded(), false));
+        root.getChildren().add(section("Gone", diff, before, diff.getRemoved(), false));
+        root.getChildren().add(section("Changed", diff, after, diff.getChanged(), true));
+        status.setText(diff.getAdded().length + " new, " + diff.getRemoved().length + " gone, "
+                + diff.getChanged().length + " changed");
+    }
+
+    private static TreeItem<String> section(String title, ThreadDumpDiff diff, ThreadDump dump, int[] indexes,
+                                            boolean transitions) {
+        TreeItem<String> section = new TreeItem<>(title + " (" + indexes.length + ")");
+        for (int[] group : dump.groupByStack(indexes)) {
+            String[] stack = dump.getStack(dump.getStackId(group[0]));
+            TreeItem<String> groupItem = new TreeItem<>(group.length + (group.length == 1 ? " thread" : " threads")
+                    + (stack.length > 0 ? " at " + stack[0] : ", no stack"));
+            TreeItem<String> stackItem = new TreeItem<>("stack");
+            for (String frame : stack) stackItem.getChildren().add(new TreeItem<>(frame));
+            groupItem.getChildren().add(stackItem);
+            for (int g = 0; g < Math.min(group.length, THREADS_PER_GROUP); g++) {
+                int i = group[g];
+                String state = dump.getState(i).name();
+                if (transitions) {
+                    ThreadDump before = diff.getBefore();
+                    state = before.getState(before.indexOf(dump.getId(i))) + " -> " + state;
+                }
+                groupItem.getChildren().add(new TreeItem<>("#" + dump.getId(i) + "  " + dump.getName(i) + "  " + state));
+            }
+            if (group.length > THREADS_PER_GROUP) {
+                groupItem.getChildren().add(new TreeItem<>("... " + (group.length - THREADS_PER_GROUP) + " more"));
+            }
+            section.getChildren().add(groupItem);
+        }
+        section.setExpanded(indexes.length > 0);
+        return section;
+    }
+}
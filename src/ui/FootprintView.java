@@ -0,0 +1,115 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.NativeMemorySummary;
+import logic.ThreadFootprint;
+import logic.ThreadManager;
+
+import static logic.ThreadFootprint.kilobytes;
+
+/**
+ * A window listing the memory the threads of this jvm cost per thread-group, largest
+ * stack reservation first, with the selected group's threads below. The footprint is
+ * measured in the background at most every half minute, see ThreadManager.getFootprint.
+ */
+class FootprintView {
+    private static final int THREADS_SHOWN = 500;
+
+    private final ThreadManager threadManager;
+    private final ObservableList<String> rows;
+    private final ListView<String> list;
+    private final TextArea threads;
+    private final Text status;
+    private final Stage stage;
+    private final Timeline refresher;
+    private ThreadFootprint footprint;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the window without showing it
+     */
+    FootprintView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.rows = FXCollections.observableArrayList();
+        this.list = new ListView<>(rows);
+        list.setPrefHeight(300);
+        this.threads = new TextArea();
+        threads.setEditable(false);
+        threads.setPrefRowCount(10);
+        this.status = new Text("Measuring...");
+        this.stage = new Stage();
+        list.getSelectionModel().selectedIndexProperty().addListener((observable, oldIndex, newIndex) -> showThreads());
+
+        VBox root = new VBox(5, status, list, new Text("Threads of the group:"), threads);
+        root.setPadding(new Insets(10));
+        refresher = new Timeline(new KeyFrame(Duration.seconds(2), event -> updateView()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> refresher.stop());
+        stage.setTitle("Thread Manager - Footprint");
+        stage.setScene(new Scene(root, 820, 580));
+    }
+
+    void show() {
+        updateView();
+        refresher.play();
+        stage.show();
+    }
+
+    /**
+     * @modifies this.rows, this.footprint
+     * @effects lists the groups of the latest footprint, keeping the selection on the same group
+     */
+    private void updateView() {
+        ThreadFootprint latest = threadManager.getFootprint();
+        if (latest == null || latest == footprint) return;
+        int selected = list.getSelectionModel().getSelectedIndex();
+        ThreadGroup selectedGroup = footprint != null && selected >= 0 ? footprint.getThreadGroup(selected) : null;
+        footprint = latest;
+        rows.clear();
+        int again = -1;
+        for (int g = 0; g < footprint.getGroupCount(); g++) {
+            if (selectedGroup != null && footprint.getThreadGroup(g) == selectedGroup) again = g;
+            rows.add(String.format("%d threads  reserved %s KB  committed %s KB  native %s KB  depth %.0f/%d  "
+                            + "virtual %s KB  %s", footprint.getGroupThreads(g), kilobytes(footprint.getGroupReserved(g)),
+                    kilobytes(footprint.getGroupCommitted(g)), kilobytes(footprint.getGroupNative(g)),
+                    footprint.getGroupMeanDepth(g), footprint.getGroupMaxDepth(g),
+                    kilobytes(footprint.getGroupVirtualEstimate(g)), footprint.getGroup(g)));
+        }
+        NativeMemorySummary nmt = footprint.getNativeMemory();
+        status.setText(String.format("%d threads reserve %s KB of stack, ~%s KB committed; as virtual threads ~%s KB. %s",
+                footprint.size(), kilobytes(footprint.getTotalReserved()), kilobytes(footprint.getTotalCommitted()),
+                kilobytes(footprint.getTotalVirtualEstimate()), nmt.isAvailable()
+                        ? String.format("NMT: %d jvm threads, %s KB committed", nmt.getThreads(), kilobytes(nmt.getCommitted()))
+                        : "Start with -XX:NativeMemoryTracking=summary for committed and native memory."));
+        if (again >= 0) list.getSelectionModel().select(again);
+    }
+
+    private void showThreads() {
+        int selected = list.getSelectionModel().getSelectedIndex();
+        if (footprint == null || selected < 0 || selected >= footprint.getGroupCount()) {
+            threads.clear();
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        int shown = 0;
+        for (int i = 0; i < footprint.size() && shown < THREADS_SHOWN; i++) {
+            if (footprint.getGroupIndex(i) != selected) continue;
+            text.append(String.format("%-40s depth %4d  reserved %s KB  committed ~%s KB%n", footprint.getName(i),
+                    footprint.getDepth(i), kilobytes(footprint.getStackSize(i)),
+                    kilobytes(footprint.getCommittedEstimate(i))));
+            shown++;
+        }
+        threads.setText(text.toString());
+    }
+}
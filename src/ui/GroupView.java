@@ -0,0 +1,176 @@
+package ui;
+
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import logic.ContentionReport;
+import logic.GroupNode;
+import logic.GroupRollups;
+import logic.SnapshotDiff;
+import logic.ThreadSnapshot;
+import model.ThreadGroupModel;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A window with the thread-group tree and the rolled-up totals of every group, following the
+ * diffs the thread table shows. Children are only built when their parent is expanded, and
+ * each tick only the rows of the groups whose totals changed are updated.
+ */
+class GroupView {
+    private final ThreadTable threadTable;
+    private final GroupRollups rollups;
+    private final Map<GroupNode, GroupItem> items = new IdentityHashMap<>();
+    private final TreeItem<ThreadGroupModel> rootItem = new TreeItem<>();
+    private final TreeTableView<ThreadGroupModel> tree;
+    private final Stage stage;
+    private final BiConsumer<SnapshotDiff, ContentionReport> follower = this::apply;
+
+    /**
+     * @requires threadTable != null
+     * @effects builds the group window without showing it
+     */
+    GroupView(ThreadTable threadTable) {
+        this.threadTable = threadTable;
+        this.rollups = new GroupRollups(new GroupRollups.Listener() {
+            @Override
+            public void added(GroupNode node) {
+                TreeItem<ThreadGroupModel> parent = node.getParent() == null ? rootItem : items.get(node.getParent());
+                // an unexpanded parent builds the item when it is expanded
+                if (parent == rootItem || (parent instanceof GroupItem && ((GroupItem) parent).loaded)) {
+                    parent.getChildren().add(new GroupItem(node));
+                }
+            }
+
+            @Override
+            public void removed(GroupNode node) {
+                GroupItem item = items.remove(node);
+                if (item != null && item.getParent() != null) item.getParent().getChildren().remove(item);
+            }
+        });
+        this.tree = buildTree();
+        this.stage = new Stage();
+
+        Button filterButton = new Button("Show in table");
+        filterButton.setOnAction(event -> {
+            TreeItem<ThreadGroupModel> selected = tree.getSelectionModel().getSelectedItem();
+            if (selected instanceof GroupItem) {
+                GroupNode node = ((GroupItem) selected).node;
+                threadTable.filterByGroup(node.getThreadGroup(), node.getName());
+            }
+        });
+        VBox root = new VBox(5, new HBox(5, filterButton), tree);
+        root.setPadding(new Insets(10));
+        stage.setOnHidden(event -> threadTable.removeOnApplied(follower));
+        stage.setTitle("Thread Manager - Groups");
+        stage.setScene(new Scene(root, 820, 480));
+    }
+
+    void show() {
+        ThreadSnapshot shown = threadTable.getShownSnapshot();
+        if (shown != null) {
+            rollups.reset(shown);
+            refreshRows();
+        }
+        threadTable.addOnApplied(follower);
+        stage.show();
+    }
+
+    /**
+     * @requires called on the FX application thread
+     * @modifies this.rollups, the tree's rows
+     */
+    private void apply(SnapshotDiff diff, ContentionReport report) {
+        rollups.update(diff, report);
+        refreshRows();
+    }
+
+    private void refreshRows() {
+        rollups.drainChanged(node -> {
+            GroupItem item = items.get(node);
+            if (item != null) item.refresh();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private TreeTableView<ThreadGroupModel> buildTree() {
+        TreeTableView<ThreadGroupModel> view = new TreeTableView<>(rootItem);
+        view.setShowRoot(false);
+        TreeTableColumn<ThreadGroupModel, String> nameCol = new TreeTableColumn<>("Group");
+        TreeTableColumn<ThreadGroupModel, Number> threadsCol = new TreeTableColumn<>("Threads");
+        TreeTableColumn<ThreadGroupModel, Number> totalCol = new TreeTableColumn<>("With subgroups");
+        TreeTableColumn<ThreadGroupModel, Number> daemonCol = new TreeTableColumn<>("Daemon %");
+        TreeTableColumn<ThreadGroupModel, Number> cpuCol = new TreeTableColumn<>("CPU %");
+        TreeTableColumn<ThreadGroupModel, Number> allocCol = new TreeTableColumn<>("Alloc/s");
+        TreeTableColumn<ThreadGroupModel, Number> blockedCol = new TreeTableColumn<>("Blocked ms/s");
+        nameCol.setPrefWidth(220);
+        totalCol.setPrefWidth(110);
+        nameCol.setCellValueFactory(cell -> cell.getValue().getValue().nameProperty());
+        threadsCol.setCellValueFactory(cell -> cell.getValue().getValue().threadsProperty());
+        totalCol.setCellValueFactory(cell -> cell.getValue().getValue().totalThreadsProperty());
+        daemonCol.setCellValueFactory(cell -> cell.getValue().getValue().daemonRatioProperty());
+        cpuCol.setCellValueFactory(cell -> cell.getValue().getValue().cpuProperty());
+        allocCol.setCellValueFactory(cell -> cell.getValue().getValue().allocationProperty());
+        blockedCol.setCellValueFactory(cell -> cell.getValue().getValue().blockedProperty());
+        daemonCol.setCellFactory(column -> numberCell(ratio -> String.format("%.0f", ratio * 100)));
+        cpuCol.setCellFactory(column -> numberCell(ThreadTable::formatPercent));
+        allocCol.setCellFactory(column -> numberCell(ThreadTable::formatBytesPerSecond));
+        blockedCol.setCellFactory(column -> numberCell(millis -> millis < 0 ? "n/a" : String.format("%.0f", millis)));
+        view.getColumns().addAll(nameCol, threadsCol, totalCol, daemonCol, cpuCol, allocCol, blockedCol);
+        view.setPrefHeight(420);
+        return view;
+    }
+
+    private static TreeTableCell<ThreadGroupModel, Number> numberCell(Function<Double, String> format) {
+        TreeTableCell<ThreadGroupModel, Number> cell = new TreeTableCell<ThreadGroupModel, Number>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : format.apply(item.doubleValue()));
+            }
+        };
+        cell.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return cell;
+    }
+
+    /**
+     * A tree row for one group, building the rows of its subgroups the first time it is expanded.
+     */
+    private final class GroupItem extends TreeItem<ThreadGroupModel> {
+        private final GroupNode node;
+        private boolean loaded;
+
+        GroupItem(GroupNode node) {
+            super(new ThreadGroupModel(node.getParent() == null ? null : node.getParent().getName(), node.getName()));
+            this.node = node;
+            items.put(node, this);
+            refresh();
+        }
+
+        void refresh() {
+            getValue().update(node.getThreads(), node.getTotalThreads(), node.getDaemonRatio(), node.getCpuPercent(),
+                    node.getAllocationRate(), rollups.isBlockedMeasured() ? node.getBlockedMillisPerSecond() : -1);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return node.getChildren().isEmpty();
+        }
+
+        @Override
+        public ObservableList<TreeItem<ThreadGroupModel>> getChildren() {
+            if (!loaded) {
+                loaded = true;
+                for (GroupNode child : node.getChildren()) super.getChildren().add(new GroupItem(child));
+            }
+            return super.getChildren();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.ManagedPool;
+import logic.PoolKind;
+import logic.PoolMetrics;
+import logic.ThreadManager;
+import model.PoolModel;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A window to create, resize and shut down worker pools and watch their live metrics,
+ * with a load button to submit a burst of tasks while tuning a pool's size.
+ */
+class PoolView {
+    private static final int LOAD_TASKS = 1000;
+
+    private final ThreadManager threadManager;
+    private final ObservableList<PoolModel> pools;
+    private final TableView<PoolModel> table;
+    private final Text status;
+    private final Stage stage;
+    private final Timeline refresher;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the pool window without showing it
+     */
+    PoolView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.pools = FXCollections.observableArrayList();
+        this.table = buildPoolTable();
+        this.status = new Text();
+        status.setFill(Color.RED);
+        this.stage = new Stage();
+
+        TextField nameField = new TextField("pool-" + (threadManager.getPools().size() + 1));
+        nameField.setPrefWidth(120);
+        ComboBox<PoolKind> kindCombo = new ComboBox<>(FXCollections.observableArrayList(PoolKind.values()));
+        kindCombo.getSelectionModel().select(PoolKind.FIXED);
+        Spinner<Integer> sizeSpinner = new Spinner<>(1, 1024, Runtime.getRuntime().availableProcessors());
+        sizeSpinner.setEditable(true);
+        sizeSpinner.setPrefWidth(80);
+        Button createButton = new Button("Create");
+        Button resizeButton = new Button("Resize");
+        Button shutdownButton = new Button("Shut down");
+        createButton.setOnAction(event -> run(() ->
+                threadManager.createPool(nameField.getText().trim(), kindCombo.getValue(), sizeSpinner.getValue())));
+        resizeButton.setOnAction(event -> withSelected(pool -> pool.resize(sizeSpinner.getValue())));
+        shutdownButton.setOnAction(event -> withSelected(pool -> threadManager.shutdownPool(pool.getName())));
+        HBox poolControls = new HBox(5, new Text("Name: "), nameField, kindCombo, new Text("Size: "), sizeSpinner,
+                createButton, resizeButton, shutdownButton);
+
+        Spinner<Integer> taskMillisSpinner = new Spinner<>(0, 10_000, 10, 5);
+        taskMillisSpinner.setEditable(true);
+        taskMillisSpinner.setPrefWidth(80);
+        Button loadButton = new Button("Submit " + LOAD_TASKS + " tasks");
+        loadButton.setOnAction(event -> withSelected(pool -> submitLoad(pool, taskMillisSpinner.getValue())));
+        HBox loadControls = new HBox(5, new Text("Task length (ms): "), taskMillisSpinner, loadButton);
+
+        VBox root = new VBox(5, poolControls, loadControls, status, table);
+        root.setPadding(new Insets(10));
+
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), event -> updateView()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> refresher.stop());
+        stage.setTitle("Thread Manager - Pools");
+        stage.setScene(new Scene(root, 900, 480));
+    }
+
+    void show() {
+        updateView();
+        refresher.play();
+        stage.show();
+    }
+
+    @SuppressWarnings("unchecked")
+    private TableView<PoolModel> buildPoolTable() {
+        TableView<PoolModel> poolTable = new TableView<>(pools);
+        TableColumn<PoolModel, String> nameCol = new TableColumn<>("Pool");
+        TableColumn<PoolModel, String> kindCol = new TableColumn<>("Kind");
+        TableColumn<PoolModel, Integer> sizeCol = new TableColumn<>("Size");
+        TableColumn<PoolModel, Integer> threadsCol = new TableColumn<>("Threads");
+        TableColumn<PoolModel, Integer> activeCol = new TableColumn<>("Active");
+        TableColumn<PoolModel, Long> queuedCol = new TableColumn<>("Queued");
+        TableColumn<PoolModel, Long> completedCol = new TableColumn<>("Completed");
+        TableColumn<PoolModel, Double> throughputCol = new TableColumn<>("Tasks/s");
+        TableColumn<PoolModel, Double> p50Col = new TableColumn<>("p50 ms");
+        TableColumn<PoolModel, Double> p99Col = new TableColumn<>("p99 ms");
+        nameCol.setPrefWidth(140);
+        kindCol.setPrefWidth(120);
+        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
+        kindCol.setCellValueFactory(new PropertyValueFactory<>("kind"));
+        sizeCol.setCellValueFactory(new PropertyValueFactory<>("size"));
+        threadsCol.setCellValueFactory(new PropertyValueFactory<>("threads"));
+        activeCol.setCellValueFactory(new PropertyValueFactory<>("active"));
+        queuedCol.setCellValueFactory(new PropertyValueFactory<>("queued"));
+        completedCol.setCellValueFactory(new PropertyValueFactory<>("completed"));
+        throughputCol.setCellValueFactory(new PropertyValueFactory<>("throughput"));
+        p50Col.setCellValueFactory(new PropertyValueFactory<>("p50"));
+        p99Col.setCellValueFactory(new PropertyValueFactory<>("p99"));
+        poolTable.getColumns().addAll(nameCol, kindCol, sizeCol, threadsCol, activeCol, queuedCol, completedCol,
+                throughputCol, p50Col, p99Col);
+        poolTable.setPrefHeight(360);
+        return poolTable;
+    }
+
+    /**
+     * @modifies this.pools
+     * @effects shows the metrics of every pool, keeping the selected pool selected
+     */
+    private void updateView() {
+        PoolModel selected = table.getSelectionModel().getSelectedItem();
+        String selectedName = selected == null ? null : selected.getName();
+        pools.clear();
+        for (ManagedPool pool : threadManager.getPools()) {
+            PoolMetrics metrics = pool.metrics();
+            PoolModel row = new PoolModel(metrics.getName(), metrics.getKind().name(), metrics.getSize(),
+                    metrics.getThreads(), metrics.getActive(), metrics.getQueued(), metrics.getCompleted(),
+                    round(metrics.getThroughput()), round(metrics.getP50Millis()), round(metrics.getP99Millis()));
+            pools.add(row);
+            if (row.getName().equals(selectedName)) table.getSelectionModel().select(row);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /**
+     * @effects submits LOAD_TASKS tasks that each sleep for taskMillis to pool
+     */
+    private static void submitLoad(ManagedPool pool, int taskMillis) {
+        for (int i = 0; i < LOAD_TASKS; i++) {
+            pool.execute(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(taskMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    private void withSelected(Consumer<ManagedPool> action) {
+        PoolModel selected = table.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            status.setText("Select a pool first");
+            return;
+        }
+        ManagedPool pool = threadManager.getPool(selected.getName());
+        if (pool == null) {
+            status.setText("Pool " + selected.getName() + " no longer exists");
+            return;
+        }
+        run(() -> action.accept(pool));
+    }
+
+    /**
+     * @effects runs action, showing any error it reports in the status line
+     */
+    private void run(Runnable action) {
+        try {
+            action.run();
+            status.setText("");
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException
+                 | RejectedExecutionException e) {
+            status.setText(e.getMessage());
+        }
+        updateView();
+    }
+}
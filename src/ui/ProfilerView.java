@@ -0,0 +1,143 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.MethodStats;
+import logic.SamplingProfiler;
+import model.MethodModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A window that runs the sampling profiler over a set of threads and shows the hottest methods.
+ */
+class ProfilerView {
+    private static final int MAX_DEPTH = 128;
+    private static final int MAX_NODES = 200_000;
+    private static final int TOP_METHODS = 50;
+
+    private final SamplingProfiler profiler;
+    private final long[] threadIds;
+    private final ObservableList<MethodModel> methods;
+    private final Text status;
+    private final Stage stage;
+    private final Timeline refresher;
+
+    /**
+     * @param threadIds the threads to profile, or null to profile every thread
+     * @effects builds the profiler window without showing it
+     */
+    ProfilerView(long[] threadIds) {
+        this.profiler = new SamplingProfiler(MAX_DEPTH, MAX_NODES);
+        this.threadIds = threadIds;
+        this.methods = FXCollections.observableArrayList();
+        this.status = new Text();
+        this.stage = new Stage();
+
+        Spinner<Integer> intervalSpinner = new Spinner<>(1, 1000, 10, 5);
+        intervalSpinner.setEditable(true);
+        intervalSpinner.setPrefWidth(80);
+        Button startButton = new Button("Start");
+        Button stopButton = new Button("Stop");
+        Button exportButton = new Button("Export collapsed stacks");
+        startButton.setOnAction(event -> profiler.start(threadIds, intervalSpinner.getValue()));
+        stopButton.setOnAction(event -> {
+            profiler.stop();
+            updateView();
+        });
+        exportButton.setOnAction(event -> exportCollapsed());
+        HBox controls = new HBox(5, new Text("Interval (ms): "), intervalSpinner, startButton, stopButton, exportButton);
+
+        VBox root = new VBox(5, new Text(describeTargets()), controls, status, buildMethodTable());
+        root.setPadding(new Insets(10));
+
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), event -> updateView()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> {
+            refresher.stop();
+            profiler.stop();
+        });
+        stage.setTitle("Thread Manager - Profiler");
+        stage.setScene(new Scene(root, 760, 520));
+    }
+
+    /**
+     * @effects shows the window and starts sampling at the default rate
+     */
+    void show() {
+        profiler.start(threadIds, 10);
+        refresher.play();
+        stage.show();
+    }
+
+    private String describeTargets() {
+        return threadIds == null ? "Profiling all threads" : "Profiling " + threadIds.length + " selected thread(s)";
+    }
+
+    @SuppressWarnings("unchecked")
+    private TableView<MethodModel> buildMethodTable() {
+        TableView<MethodModel> table = new TableView<>(methods);
+        TableColumn<MethodModel, String> methodCol = new TableColumn<>("Method");
+        TableColumn<MethodModel, Integer> selfCol = new TableColumn<>("Self");
+        TableColumn<MethodModel, Integer> totalCol = new TableColumn<>("Total");
+        TableColumn<MethodModel, Double> percentCol = new TableColumn<>("Self %");
+        methodCol.setPrefWidth(480);
+        methodCol.setCellValueFactory(new PropertyValueFactory<>("method"));
+        selfCol.setCellValueFactory(new PropertyValueFactory<>("self"));
+        totalCol.setCellValueFactory(new PropertyValueFactory<>("total"));
+        percentCol.setCellValueFactory(new PropertyValueFactory<>("selfPercent"));
+        table.getColumns().addAll(methodCol, selfCol, totalCol, percentCol);
+        table.setPrefHeight(420);
+        return table;
+    }
+
+    /**
+     * @modifies this.methods, this.status
+     * @effects shows the current top methods and the profiler's own cost
+     */
+    private void updateView() {
+        methods.clear();
+        for (MethodStats stats : profiler.topMethods(TOP_METHODS)) {
+            methods.add(new MethodModel(stats.getMethod(), stats.getSelfSamples(), stats.getTotalSamples(),
+                    Math.round(stats.getSelfPercent() * 10) / 10.0));
+        }
+        String text = String.format("Samples: %d   Truncated: %d   Nodes: %d (~%d KB)   Tick: %.0f us   Overhead: %.2f %% CPU",
+                profiler.getSampleCount(), profiler.getTruncatedCount(), profiler.getNodeCount(),
+                profiler.getEstimatedBytes() / 1024, profiler.getMeanTickMicros(), profiler.getOverheadPercent());
+        RuntimeException failure = profiler.getLastFailure();
+        if (failure != null) text += "   Failed ticks: " + profiler.getFailedTicks() + " (" + failure + ")";
+        status.setText(text);
+    }
+
+    /**
+     * @effects asks for a file and writes the profile to it in collapsed-stack format
+     */
+    private void exportCollapsed() {
+        FileChooser chooser = new FileChooser();
+        chooser.setInitialFileName("profile.collapsed");
+        File file = chooser.showSaveDialog(stage);
+        if (file == null) return;
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            profiler.writeCollapsedStacks(out);
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Could not write " + file + ": " + e.getMessage());
+            alert.showAndWait();
+        }
+    }
+}
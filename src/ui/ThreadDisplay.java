@@ -1,31 +1,119 @@
 package ui;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
+import javafx.stage.Popup;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.HistoryRecorder;
+import logic.InProcessSnapshotSource;
+import logic.JfrSnapshotSource;
+import logic.MetricsEndpoint;
+import logic.RefreshScheduler;
+import logic.RemoteSnapshotSource;
+import logic.SelfMetrics;
+import logic.SnapshotSource;
 import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import logic.Watchdog;
+import logic.WatchdogAlert;
+import logic.WatchdogRule;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 
 public class ThreadDisplay extends Application {
+    private static final int HISTORY_BLOCK_BYTES = 1 << 20;
+    private static final int HISTORY_BLOCKS = 64;
+    private static final long MIN_REFRESH_MILLIS = 250;
+    private static final long REFRESH_MILLIS = 1000;
+    private static final long MAX_REFRESH_MILLIS = 5000;
+    private static final double DEFAULT_REFRESH_BUDGET = 0.02;
+    private static final List<String> DEFAULT_RULES = Arrays.asList(
+            "cpu>90 for 10s -> log,notify",
+            "state:blocked for 5s -> log,stack,notify",
+            "state:runnable cpu>50 stuck:5 -> log,stack");
+    private static final double NOTIFICATION_SECONDS = 5;
+
     private ThreadManager threadManager;
+    private SnapshotSource source;
+    private HistoryRecorder history;
+    /** The default history file, deleted on exit; null when --history names one to keep. */
+    private Path temporaryHistory;
+    private MetricsEndpoint metrics;
+    private RefreshScheduler scheduler;
+    private List<WatchdogRule> rules;
+    private Popup notification;
+    private Label notificationLabel;
+    private PauseTransition notificationTimer;
+    private double refreshBudget;
     private ThreadTable threadTable;
+    private Text deadlockLabel;
+    private Text churnLabel;
+    private Text overheadLabel;
+    private long lastOverheadNanos;
+    private long lastCollectorCpuNanos;
+    private long lastCollectorBytes;
+    private Slider scrubber;
+    private Label scrubberLabel;
+    private boolean movingScrubber;
 
     /**
-     * @modifies this.threadManager
+     * Monitors this jvm, or with --attach=<pid> another jvm on this machine. With --jfr this jvm
+     * is followed through JFR events rather than enumerated every tick. Ticks are recorded
+     * to --history=<file>, by default a file per monitored pid in the temporary directory that is
+     * deleted on exit.
+     * Refreshing takes at most --refresh-budget=<percent> of one core, 2 by default.
+     * Every refresh is checked against the watchdog rules in --rules=<file>, one per line,
+     * or against DEFAULT_RULES. With --metrics-port=<port> every refresh is served to Prometheus
+     * at http://host:port/metrics.
+     * @modifies this.threadManager, this.source, this.history, this.temporaryHistory, this.refreshBudget,
+     *           this.rules, this.metrics
+     * @throws IOException if the jvm to attach to or the rules file cannot be read, or the metrics port cannot be bound
+     * @throws IllegalArgumentException if the rules file holds a malformed rule
      */
     @Override
-    public void init() {
+    public void init() throws IOException {
         threadManager = new ThreadManager();
+        String pid = getParameters().getNamed().get("attach");
+        if (pid != null) source = RemoteSnapshotSource.attach(Long.parseLong(pid));
+        else if (getParameters().getRaw().contains("--jfr")) source = new JfrSnapshotSource(threadManager);
+        else source = new InProcessSnapshotSource(threadManager);
+        String budget = getParameters().getNamed().get("refresh-budget");
+        refreshBudget = budget == null ? DEFAULT_REFRESH_BUDGET : Double.parseDouble(budget.replace("%", "")) / 100;
+        String rulesFile = getParameters().getNamed().get("rules");
+        rules = WatchdogRule.parseAll(rulesFile == null ? DEFAULT_RULES : Files.readAllLines(Paths.get(rulesFile)));
+        String metricsPort = getParameters().getNamed().get("metrics-port");
+        if (metricsPort != null) metrics = MetricsEndpoint.start(Integer.parseInt(metricsPort), threadManager);
+        String file = getParameters().getNamed().get("history");
+        Path path = file != null ? Paths.get(file) : Paths.get(System.getProperty("java.io.tmpdir"),
+                "thread-manager-" + (pid != null ? pid : ProcessHandle.current().pid()) + ".history");
+        if (file == null) temporaryHistory = path;
+        try {
+            history = HistoryRecorder.open(path, HISTORY_BLOCK_BYTES, HISTORY_BLOCKS);
+        } catch (IOException e) {
+            // the table works without history, only the scrubber is disabled
+            history = null;
+        }
     }
 
     /**
@@ -38,44 +126,210 @@ public class ThreadDisplay extends Application {
     public void start(Stage primaryStage) {
         TextField threadFilterField = new TextField();
         ComboBox<String> groupCombo = buildFilterBox();
-        threadTable = new ThreadTable(threadFilterField, groupCombo);
+        threadTable = new ThreadTable(threadManager, source, threadFilterField, groupCombo);
+        if (history != null) threadTable.setHistory(history);
         TableView tableView = threadTable.buildTable();
-        threadTable.refreshTable();
         final HBox searchBar = buildSearchBar(threadFilterField, groupCombo);
         final HBox titleBar = buildTitleBar();
+        threadTable.setOnContention(report -> showDeadlocks(report.getDeadlockCycles().size()));
+        threadTable.setOnError(e -> Platform.runLater(() -> deadlockLabel.setText("  Disconnected: " + e.getMessage())));
         final VBox tableBox = buildTableBox(tableView);
         HBox threadButtons = buildThreadButtons();
+        HBox scrubberBar = buildScrubber();
+        HBox statusBar = buildStatusBar();
 
         Group root = new Group();
         int WINDOW_WIDTH = 850;
-        int WINDOW_HEIGHT = 710;
+        int WINDOW_HEIGHT = 750;
         Scene scene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
-        ((Group) scene.getRoot()).getChildren().addAll(titleBar, searchBar, tableBox, threadButtons);
+        ((Group) scene.getRoot()).getChildren().addAll(titleBar, searchBar, tableBox, threadButtons, scrubberBar, statusBar);
 
-        autoRefresh();
+        autoRefresh(primaryStage);
 
-        primaryStage.setTitle("Thread Manager");
+        primaryStage.setTitle("Thread Manager - " + source.describe());
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
     /**
-     * @requires threadTable != null
-     * @modifies this.threadTable
-     * @effects threadTable data is updated to latest collection of active threads
-     * Uses a timer task to periodically refresh the table data every 1.5 seconds
+     * @effects stops the refreshes and the table's background collector, disconnects from the source,
+     *          flushes the history, deleting it unless --history named it, and stops serving metrics
+     *          when the application exits
+     */
+    @Override
+    public void stop() throws IOException {
+        if (scheduler != null) scheduler.shutdown();
+        if (threadTable != null) threadTable.shutdown();
+        if (source != null) source.close();
+        if (history != null) history.close();
+        if (metrics != null) metrics.close();
+        if (temporaryHistory != null) Files.deleteIfExists(temporaryHistory);
+    }
+
+    /**
+     * Refreshes the table as often as the thread set's churn and the refresh budget allow,
+     * and not at all while the stage is minimized. The watchdog and the metrics rendering run on
+     * the collector thread after each refresh, so their cost counts against the budget.
+     * @requires threadTable != null, rules != null
+     * @modifies this.scheduler
+     */
+    private void autoRefresh(Stage stage) {
+        scheduler = new RefreshScheduler(() -> {
+            threadTable.refreshTable();
+            Platform.runLater(() -> {
+                updateScrubber();
+                updateChurn();
+                updateOverhead();
+            });
+        }, MIN_REFRESH_MILLIS, REFRESH_MILLIS, MAX_REFRESH_MILLIS, refreshBudget);
+        Watchdog watchdog = new Watchdog(rules, !(source instanceof RemoteSnapshotSource), System.err, alert -> {
+            if (alert.getRule().getActions().contains(WatchdogRule.Action.NOTIFY)) {
+                Platform.runLater(() -> notify(stage, alert));
+            }
+        });
+        threadTable.setOnCollected((diff, costNanos) -> {
+            long start = System.nanoTime();
+            watchdog.update(diff);
+            if (metrics != null) metrics.publish(diff.getCurrent(), source.getContentionReport(), source.isLocal());
+            scheduler.completed(costNanos + System.nanoTime() - start, diff.getAddedCount() + diff.getRemovedCount() > 0);
+        });
+        stage.iconifiedProperty().addListener((observable, wasIconified, iconified) -> {
+            scheduler.setPaused(iconified);
+            if (!iconified) scheduler.requestNow();
+        });
+        scheduler.start();
+    }
+
+    /**
+     * @requires called on the FX application thread
+     * @modifies this.notification
+     * @effects shows the alert in the top right corner of stage for NOTIFICATION_SECONDS,
+     *          replacing any alert still shown
+     */
+    private void notify(Stage stage, WatchdogAlert alert) {
+        if (notification == null) {
+            notificationLabel = new Label();
+            notificationLabel.setStyle("-fx-background-color: #fff3cd; -fx-border-color: #e0a800; -fx-padding: 8;");
+            notification = new Popup();
+            notification.getContent().add(notificationLabel);
+            notificationTimer = new PauseTransition(Duration.seconds(NOTIFICATION_SECONDS));
+            notificationTimer.setOnFinished(event -> notification.hide());
+        }
+        notificationLabel.setText(alert.getMessage());
+        if (!stage.isShowing() || stage.isIconified()) return;
+        notification.show(stage, stage.getX() + stage.getWidth() - 420, stage.getY() + 40);
+        notificationTimer.playFromStart();
+    }
+
+    /**
+     * @return an HBox with a slider over the recorded ticks and a button back to the live threads
+     * @effects builds the scrubber; moving the slider replays the tick recorded at that time through the table
+     */
+    private HBox buildScrubber() {
+        scrubber = new Slider();
+        scrubber.setPrefWidth(450);
+        scrubber.setDisable(history == null);
+        scrubberLabel = new Label(history == null ? "No history" : "Live");
+        Button liveButton = new Button("Live");
+        liveButton.setDisable(history == null);
+        scrubber.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (movingScrubber) return;
+            long millis = newValue.longValue();
+            threadTable.replay(millis);
+            scrubberLabel.setText("Replay " + new SimpleDateFormat("HH:mm:ss").format(new Date(millis)));
+        });
+        liveButton.setOnAction(event -> {
+            threadTable.resumeLive();
+            scrubberLabel.setText("Live");
+            updateScrubber();
+        });
+        HBox hBox = new HBox(new Text("History: "), scrubber, liveButton, scrubberLabel);
+        hBox.setSpacing(5);
+        hBox.setPadding(new Insets(645, 0, 0, 150));
+        return hBox;
+    }
+
+    /**
+     * @modifies this.scrubber
+     * @effects stretches the scrubber over the recorded ticks, keeping it at the end while live
+     */
+    private void updateScrubber() {
+        if (history == null) return;
+        long first = history.getFirstMillis();
+        long last = history.getLastMillis();
+        if (first < 0) return;
+        movingScrubber = true;
+        scrubber.setMin(first);
+        scrubber.setMax(Math.max(last, first + 1));
+        if (!threadTable.isReplaying()) scrubber.setValue(scrubber.getMax());
+        movingScrubber = false;
+    }
+
+    /**
+     * @modifies this.churnLabel
+     * @effects shows how many threads start and end per second, when following JFR events
+     */
+    private void updateChurn() {
+        if (source instanceof JfrSnapshotSource) {
+            churnLabel.setText(String.format("  %.1f threads started+ended/s", ((JfrSnapshotSource) source).getChurnPerSecond()));
+        }
+    }
+
+    /**
+     * @return an HBox with the status bar showing the monitor's own cost, and a button to the creation sites
+     * @effects builds the status bar and registers the self metrics MBean, leaving it out if that fails
      */
-    private void autoRefresh() {
-        if (!threadTable.isSearching()) {
-            Timer timer = new Timer();
-            int REFRESH_DELAY = 1000; // ms
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    threadTable.refreshTable();
-                }
-            }, 0, REFRESH_DELAY);
+    private HBox buildStatusBar() {
+        try {
+            threadManager.getSelfMetrics().register();
+        } catch (JMException e) {
+            System.err.println("Self metrics are not exposed: " + e.getMessage());
         }
+        overheadLabel = new Text();
+        overheadLabel.setStyle("-fx-font: 12 arial;");
+        overheadLabel.setFill(Color.GRAY);
+        // creation sites come from this jvm's JFR events, so they cannot be tracked when attached
+        Button sitesButton = new Button("Creation sites...");
+        sitesButton.setOnAction(event -> new CreationSiteView(threadManager).show());
+        sitesButton.setDisable(source instanceof RemoteSnapshotSource);
+        // so do stack depths and native memory tracking
+        Button footprintButton = new Button("Footprint...");
+        footprintButton.setOnAction(event -> new FootprintView(threadManager).show());
+        footprintButton.setDisable(source instanceof RemoteSnapshotSource);
+        HBox hBox = new HBox(10, sitesButton, footprintButton, overheadLabel);
+        hBox.setAlignment(Pos.CENTER_LEFT);
+        hBox.setPadding(new Insets(685, 0, 0, 40));
+        return hBox;
+    }
+
+    /**
+     * @modifies this.overheadLabel, this.lastOverheadNanos, this.lastCollectorCpuNanos, this.lastCollectorBytes
+     * @effects shows the p99 of every phase that has run and the collector's CPU and allocation since the last update
+     */
+    private void updateOverhead() {
+        SelfMetrics metrics = threadManager.getSelfMetrics();
+        long now = System.nanoTime();
+        long cpu = metrics.getCollectorCpuNanos();
+        long bytes = metrics.getCollectorAllocatedBytes();
+        StringBuilder text = new StringBuilder("Overhead p99:");
+        for (SelfMetrics.Phase phase : SelfMetrics.Phase.values()) {
+            if (metrics.getCount(phase) == 0) continue;
+            text.append(' ').append(phase.name().toLowerCase()).append(' ')
+                    .append(formatMicros(metrics.getPercentileMicros(phase, 0.99))).append(" |");
+        }
+        long elapsed = now - lastOverheadNanos;
+        if (lastOverheadNanos != 0 && elapsed > 0) {
+            text.append(String.format(" collector %.2f%% CPU, %.0f KB/s allocated", 100.0 * (cpu - lastCollectorCpuNanos) / elapsed,
+                    (bytes - lastCollectorBytes) * 1e9 / elapsed / 1024));
+        }
+        overheadLabel.setText(text.toString());
+        lastOverheadNanos = now;
+        lastCollectorCpuNanos = cpu;
+        lastCollectorBytes = bytes;
+    }
+
+    private static String formatMicros(double micros) {
+        return micros >= 1000 ? String.format("%.1fms", micros / 1000) : String.format("%.0fus", micros);
     }
 
     /**
@@ -84,20 +338,44 @@ public class ThreadDisplay extends Application {
      * @effects builds a combobox containing all active threadgroups
      */
     private ComboBox<String> buildFilterBox() {
-        ThreadGroup[] allGroups = threadManager.getAllThreadGroups();
+        String[] allGroups;
+        try {
+            allGroups = source.capture().getGroupNames();
+        } catch (IOException e) {
+            allGroups = new String[0];
+        }
         ObservableList<String> groupOptions = FXCollections.observableArrayList();
         groupOptions.add("All");
-        for (ThreadGroup tg :
-                allGroups) {
-            groupOptions.add(tg.getName());
+        for (String name : allGroups) {
+            if (!groupOptions.contains(name)) groupOptions.add(name);
         }
         ComboBox<String> comboBox = new ComboBox<>();
         comboBox.setItems(groupOptions);
         comboBox.getSelectionModel().select(groupOptions.get(0));
+        comboBox.setOnShowing(event -> updateGroupOptions(comboBox));
         return comboBox;
     }
 
 
+    /**
+     * @param comboBox the group filter box
+     * @modifies comboBox
+     * @effects lists the groups of the snapshot the table shows, keeping the selection
+     */
+    private void updateGroupOptions(ComboBox<String> comboBox) {
+        ThreadSnapshot shown = threadTable.getShownSnapshot();
+        if (shown == null) return;
+        String selected = comboBox.getValue();
+        ObservableList<String> groupOptions = FXCollections.observableArrayList();
+        groupOptions.add("All");
+        for (String name : shown.getGroupNames()) {
+            if (!groupOptions.contains(name)) groupOptions.add(name);
+        }
+        if (groupOptions.equals(comboBox.getItems())) return;
+        comboBox.getItems().setAll(groupOptions);
+        comboBox.setValue(groupOptions.contains(selected) ? selected : "All");
+    }
+
     /**
      * @param tableView the tableView which will be held in the vBox container
      * @return a VBox containing the tableview
@@ -122,10 +400,24 @@ public class ThreadDisplay extends Application {
         titleBar.setPadding(new Insets(40, 0, 0, 325));
         Text titleLabel = new Text("Thread Manager");
         titleLabel.setStyle("-fx-font: 24 arial;");
-        titleBar.getChildren().addAll(titleLabel);
+        deadlockLabel = new Text();
+        deadlockLabel.setFill(Color.RED);
+        deadlockLabel.setStyle("-fx-font: bold 14 arial;");
+        churnLabel = new Text();
+        churnLabel.setStyle("-fx-font: 14 arial;");
+        titleBar.getChildren().addAll(titleLabel, deadlockLabel, churnLabel);
         return titleBar;
     }
 
+    /**
+     * @param cycles the number of deadlock cycles found in the latest tick
+     * @modifies this.deadlockLabel
+     * @effects shows a warning next to the title while any deadlock exists
+     */
+    private void showDeadlocks(int cycles) {
+        deadlockLabel.setText(cycles == 0 ? "" : "  " + cycles + " deadlock(s)! See Contention");
+    }
+
     /**
      * @param threadFilterField      textfield for searching threads
      * @param filterBox              combobox for filtering by threadgroup
@@ -136,6 +428,8 @@ public class ThreadDisplay extends Application {
     private HBox buildSearchBar(TextField threadFilterField, ComboBox<String> filterBox) {
         HBox searchBar = new HBox();
         Text searchLabel = new Text("Search Thread: ");
+        threadFilterField.setPromptText("name~regex group:foo state:BLOCKED cpu>5%");
+        threadFilterField.setPrefWidth(300);
         searchBar.getChildren().addAll(searchLabel, threadFilterField, filterBox);
         searchBar.setSpacing(5);
         searchBar.setPadding(new Insets(120, 0, 0, 40));
@@ -143,21 +437,49 @@ public class ThreadDisplay extends Application {
     }
 
     /**
-     * @return an HBox containing implemented buttons for refreshing and starting threads
-     * @effects Builds an HBox to contain the buttons for refreshing and adding new threads
+     * @return an HBox containing implemented buttons for refreshing, starting and profiling threads
+     * @effects Builds an HBox to contain the buttons for refreshing, adding new threads and profiling
      */
     private HBox buildThreadButtons() {
         HBox hBox = new HBox();
         Button startThreadButton = new Button("New Thread");
         Button refreshButton = new Button("Refresh");
-        refreshButton.setOnAction(event -> threadTable.refreshTable());
+        Button profileButton = new Button("Profile");
+        Button contentionButton = new Button("Contention");
+        contentionButton.setOnAction(event -> new ContentionView(threadManager).show());
+        refreshButton.setOnAction(event -> scheduler.requestNow());
+        // profiles the selected rows, or every thread when nothing is selected
+        profileButton.setOnAction(event -> new ProfilerView(threadTable.getSelectedThreadIds()).show());
+        CheckBox virtualBox = new CheckBox("Virtual");
+        virtualBox.setDisable(!threadManager.canCreateVirtualThreads());
         startThreadButton.setOnAction(event -> {
-            Thread thread = threadManager.createThread("MyThread");
+            Thread thread = threadManager.createThread("MyThread", virtualBox.isSelected());
             thread.start();
         });
-        hBox.getChildren().addAll(startThreadButton, refreshButton);
+        // synthetic load next to the single thread, to give the monitor realistic traffic
+        Button workloadButton = new Button("Workload...");
+        workloadButton.setOnAction(event -> new WorkloadView(threadManager).show());
+        Button virtualButton = new Button("Virtual Threads");
+        virtualButton.setOnAction(event -> new VirtualThreadView(threadManager).show());
+        Button groupsButton = new Button("Groups");
+        groupsButton.setOnAction(event -> new GroupView(threadTable).show());
+        Button poolsButton = new Button("Pools");
+        poolsButton.setOnAction(event -> new PoolView(threadManager).show());
+        Button cancelButton = new Button("Cancel...");
+        cancelButton.setOnAction(event -> new CancelView(threadManager).show());
+        // acting on threads, profiling and contention analysis only work on this jvm
+        boolean attached = source instanceof RemoteSnapshotSource;
+        Button dumpsButton = new Button("Dumps...");
+        // dumps of another jvm can still be compared, just not taken
+        dumpsButton.setOnAction(event -> new DumpView(attached ? null : threadManager).show());
+        for (Control control : new Control[]{startThreadButton, virtualBox, workloadButton, profileButton, contentionButton,
+                virtualButton, poolsButton, cancelButton}) {
+            if (attached) control.setDisable(true);
+        }
+        hBox.getChildren().addAll(startThreadButton, virtualBox, workloadButton, refreshButton, profileButton,
+                contentionButton, virtualButton, groupsButton, poolsButton, cancelButton, dumpsButton);
         hBox.setSpacing(5);
-        hBox.setPadding(new Insets(600, 0, 0, 150));
+        hBox.setPadding(new Insets(600, 0, 0, 40));
         return hBox;
     }
 }
@@ -1,5 +1,9 @@
 package ui;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
@@ -7,63 +11,226 @@ import javafx.collections.transformation.SortedList;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.Duration;
+import logic.ContentionReport;
+import logic.HistoryRecorder;
+import logic.InProcessSnapshotSource;
+import logic.SelfMetrics;
+import logic.SnapshotCollector;
+import logic.SnapshotDiff;
+import logic.SnapshotSource;
 import logic.ThreadManager;
+import logic.ThreadQuery;
+import logic.ThreadSearchIndex;
+import logic.ThreadSnapshot;
 import model.ThreadModel;
+import model.ThreadRows;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 
 class ThreadTable {
-    private TableView tableView;
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    /** Shown in the Nice column as n/a; no real nice value is this low. */
+    private static final int UNKNOWN_NICE = Integer.MIN_VALUE;
+
+    private TableView<ThreadModel> tableView;
     private ThreadManager threadManager;
     private TextField threadFilterField;
     private ComboBox filterCombo;
     private ObservableList<ThreadModel> dataModel;
-    private boolean isSearching;
+    private FilteredList<ThreadModel> filteredData;
+    private final ThreadRows rows;
+    private final Map<TableColumn<ThreadModel, ?>, Comparator<ThreadModel>> sortKeys;
+    private SortedList<ThreadModel> sortedList;
+    private final SnapshotSource source;
+    private final SnapshotCollector collector;
+    private final Set<ThreadModel> deadlockedRows;
+    private Consumer<ContentionReport> onContention;
+    private volatile ThreadQuery query;
+    private ThreadGroup filterGroup;
+    private String filterGroupName;
+    private ThreadSnapshot shown;
+    private final List<BiConsumer<SnapshotDiff, ContentionReport>> onApplied = new CopyOnWriteArrayList<>();
+    private final ThreadSearchIndex searchIndex;
+    private final ExecutorService searcher;
+    private final AtomicBoolean searchPending;
+    private final PauseTransition searchDelay;
+    private volatile boolean replaying;
+    private volatile boolean deadlockedRowsEmpty = true;
 
     /**
+     * @param threadManager          the manager shared with the rest of the UI
+     * @param source                 where the shown snapshots come from; threads can only be killed if it is local
      * @param threadFilterField      the textfield the user will use to search threads
      * @param filterCombo            the dropdown list of threadgroups the user can use to filter by threadgroup
-     * @requires threadFilterField != null && filterCombo != null
+     * @requires threadManager != null && source != null && threadFilterField != null && filterCombo != null
      * @modifies this.threadFilterField, this.filterCombo, this.tableView, this.threadManager
      */
-    ThreadTable(TextField threadFilterField, ComboBox filterCombo) {
-        tableView = new TableView();
-        threadManager = new ThreadManager();
+    ThreadTable(ThreadManager threadManager, SnapshotSource source, TextField threadFilterField, ComboBox filterCombo) {
+        tableView = new TableView<>();
+        this.threadManager = threadManager;
+        this.source = source;
         this.threadFilterField = threadFilterField;
         this.filterCombo = filterCombo;
-        isSearching = false;
+        rows = new ThreadRows();
+        sortKeys = new IdentityHashMap<>();
+        collector = new SnapshotCollector(source);
+        collector.setSelfMetrics(threadManager.getSelfMetrics());
+        deadlockedRows = Collections.newSetFromMap(new IdentityHashMap<>());
+        onContention = report -> { };
+        searchIndex = new ThreadSearchIndex();
+        searchPending = new AtomicBoolean();
+        searchDelay = new PauseTransition(Duration.millis(SEARCH_DELAY_MILLIS));
+        searcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thread-manager-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return true while a recorded tick is shown instead of the live threads
+     */
+    boolean isReplaying() {
+        return replaying;
+    }
+
+    /**
+     * @param history records every tick the table collects
+     * @requires history != null
+     */
+    void setHistory(HistoryRecorder history) {
+        collector.setRecorder(history);
+    }
+
+    /**
+     * Shows the recorded tick at or before millis through the table; live ticks keep being
+     * recorded but are not shown until resumeLive.
+     * @requires setHistory has been called, called on the FX application thread
+     * @modifies this.dataModel, this.replaying, this.deadlockedRows
+     */
+    void replay(long millis) {
+        replaying = true;
+        // contention is not recorded, so no replayed row is flagged
+        for (ThreadModel row : deadlockedRows) row.setDeadlocked(false);
+        deadlockedRows.clear();
+        deadlockedRowsEmpty = true;
+        collector.replayAsync(millis, diff -> {
+            ThreadQuery current = query;
+            long[] matches = search(diff, current);
+            if (!diff.isEmpty()) Platform.runLater(() -> {
+                applyDiff(diff);
+                if (matches != null) applyMatches(current, matches);
+                for (BiConsumer<SnapshotDiff, ContentionReport> listener : onApplied) listener.accept(diff, null);
+            });
+        });
+    }
+
+    /**
+     * @modifies this.dataModel, this.replaying
+     * @effects shows the live threads again
+     */
+    void resumeLive() {
+        replaying = false;
+        refreshTable();
     }
 
     /**
-     * @return isSearching
+     * @return the ids of the selected rows, or null if no row is selected
      */
-    boolean isSearching() {
-        return isSearching;
+    long[] getSelectedThreadIds() {
+        ObservableList<ThreadModel> selected = tableView.getSelectionModel().getSelectedItems();
+        if (selected.isEmpty()) return null;
+        long[] ids = new long[selected.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = selected.get(i).getId();
+        }
+        return ids;
     }
 
     /**
      * @return the constructed tableview with appropriate columns
-     * @modifies this.tableView, this.dataModel
+     * @modifies this.tableView, this.dataModel, this.filteredData
+     * @effects registers the search and group-filter listeners once
      */
     @SuppressWarnings("unchecked")
     TableView buildTable() {
         tableView.setEditable(true);
-        tableView.setMinWidth(541);
-        TableColumn<ThreadModel, String> threadIDCol = new TableColumn<>("ID");
+        tableView.setMinWidth(680);
+        tableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        TableColumn<ThreadModel, Number> threadIDCol = new TableColumn<>("ID");
         TableColumn<ThreadModel, String> threadNameCol = new TableColumn<>("Name");
         TableColumn<ThreadModel, String> threadGroupCol = new TableColumn<>("Group");
         TableColumn<ThreadModel, String> threadTypeCol = new TableColumn<>("Type");
-        TableColumn<ThreadModel, String> threadPriorityCol = new TableColumn<>("Priority");
-        tableView.getColumns().addAll(threadIDCol, threadNameCol, threadGroupCol, threadTypeCol, threadPriorityCol);
-        threadIDCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-        threadNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        threadGroupCol.setCellValueFactory(new PropertyValueFactory<>("group"));
-        threadTypeCol.setCellValueFactory(new PropertyValueFactory<>("type"));
-        threadPriorityCol.setCellValueFactory(new PropertyValueFactory<>("priority"));
+        TableColumn<ThreadModel, Number> threadPriorityCol = new TableColumn<>("Priority");
+        TableColumn<ThreadModel, Thread.State> threadStateCol = new TableColumn<>("State");
+        TableColumn<ThreadModel, Number> threadCpuCol = new TableColumn<>("CPU %");
+        TableColumn<ThreadModel, Number> threadUserCol = new TableColumn<>("User %");
+        TableColumn<ThreadModel, Number> threadAllocCol = new TableColumn<>("Alloc/s");
+        tableView.getColumns().addAll(threadIDCol, threadNameCol, threadGroupCol, threadTypeCol, threadPriorityCol,
+                threadStateCol, threadCpuCol, threadUserCol, threadAllocCol);
+        // only the cells on screen ask for a row's properties
+        threadIDCol.setCellValueFactory(cell -> cell.getValue().idProperty());
+        threadNameCol.setCellValueFactory(cell -> cell.getValue().nameProperty());
+        threadGroupCol.setCellValueFactory(cell -> cell.getValue().groupProperty());
+        threadTypeCol.setCellValueFactory(cell -> cell.getValue().typeProperty());
+        threadPriorityCol.setCellValueFactory(cell -> cell.getValue().priorityProperty());
+        threadStateCol.setCellValueFactory(cell -> cell.getValue().stateProperty());
+        threadCpuCol.setCellValueFactory(cell -> cell.getValue().cpuProperty());
+        threadUserCol.setCellValueFactory(cell -> cell.getValue().userProperty());
+        threadAllocCol.setCellValueFactory(cell -> cell.getValue().allocationProperty());
+        threadCpuCol.setCellFactory(column -> numberCell(ThreadTable::formatPercent));
+        threadUserCol.setCellFactory(column -> numberCell(ThreadTable::formatPercent));
+        threadAllocCol.setCellFactory(column -> numberCell(ThreadTable::formatBytesPerSecond));
+        // sorting compares the rows' primitives, so it neither parses text nor creates every row's properties
+        sortKeys.put(threadIDCol, ThreadModel.BY_ID);
+        sortKeys.put(threadNameCol, ThreadModel.BY_NAME);
+        sortKeys.put(threadGroupCol, ThreadModel.BY_GROUP);
+        sortKeys.put(threadTypeCol, ThreadModel.BY_TYPE);
+        sortKeys.put(threadPriorityCol, ThreadModel.BY_PRIORITY);
+        sortKeys.put(threadStateCol, ThreadModel.BY_STATE);
+        sortKeys.put(threadCpuCol, ThreadModel.BY_CPU);
+        sortKeys.put(threadUserCol, ThreadModel.BY_USER);
+        sortKeys.put(threadAllocCol, ThreadModel.BY_ALLOCATION);
+        if (source instanceof InProcessSnapshotSource && threadManager.hasNativeThreadStats()) addNativeColumns();
+        tableView.setSortPolicy(table -> {
+            sortedList.setComparator(rowOrder());
+            return true;
+        });
+        tableView.setRowFactory(table -> new ContentionRow());
         dataModel = FXCollections.observableArrayList();
+        filteredData = new FilteredList<>(dataModel, p -> true);
+        sortedList = new SortedList<>(filteredData, rowOrder());
+        tableView.setItems(sortedList);
+        // typing restarts the delay, so a query is only parsed and searched once typing pauses
+        searchDelay.setOnFinished(event -> updateQuery());
+        threadFilterField.textProperty().addListener((observable, oldValue, newValue) -> searchDelay.playFromStart());
+        filterCombo.valueProperty().addListener(event -> {
+            filterGroupName = null;
+            filterGroup = null;
+            updateQuery();
+        });
 
         tableView.setOnMousePressed(event -> {
-            if (event.isPrimaryButtonDown() && event.getClickCount() == 2) {
+            // a replayed row may have the id of a different, live thread
+            if (source.isLocal() && !replaying && event.isPrimaryButtonDown() && event.getClickCount() == 2) {
                 Node node = ((Node) event.getTarget()).getParent();
                 TableRow row;
                 if (node instanceof TableRow) {
@@ -79,6 +246,187 @@ class ThreadTable {
         return tableView;
     }
 
+    /**
+     * @modifies this.tableView, this.sortKeys
+     * @effects adds the columns linking each row to its Linux thread, for matching it up with top -H or perf
+     */
+    private void addNativeColumns() {
+        TableColumn<ThreadModel, Number> tidCol = new TableColumn<>("TID");
+        TableColumn<ThreadModel, Number> voluntaryCol = new TableColumn<>("Vol cs/s");
+        TableColumn<ThreadModel, Number> involuntaryCol = new TableColumn<>("Invol cs/s");
+        TableColumn<ThreadModel, Number> lastCpuCol = new TableColumn<>("Last CPU");
+        TableColumn<ThreadModel, Number> niceCol = new TableColumn<>("Nice");
+        TableColumn<ThreadModel, Number> nativeCpuCol = new TableColumn<>("Native CPU");
+        tidCol.setCellValueFactory(cell -> cell.getValue().nativeIdProperty());
+        voluntaryCol.setCellValueFactory(cell -> cell.getValue().voluntarySwitchesProperty());
+        involuntaryCol.setCellValueFactory(cell -> cell.getValue().involuntarySwitchesProperty());
+        lastCpuCol.setCellValueFactory(cell -> cell.getValue().lastCpuProperty());
+        // nice is 0 while the thread's tid is unknown, which is also a real nice value
+        niceCol.setCellValueFactory(cell -> {
+            ThreadModel model = cell.getValue();
+            return Bindings.createIntegerBinding(() -> model.getNativeId() < 0 ? UNKNOWN_NICE : model.getNice(),
+                    model.nativeIdProperty(), model.niceProperty());
+        });
+        nativeCpuCol.setCellValueFactory(cell -> cell.getValue().nativeCpuProperty());
+        tidCol.setCellFactory(column -> numberCell(ThreadTable::formatCount));
+        voluntaryCol.setCellFactory(column -> numberCell(ThreadTable::formatRate));
+        involuntaryCol.setCellFactory(column -> numberCell(ThreadTable::formatRate));
+        lastCpuCol.setCellFactory(column -> numberCell(ThreadTable::formatCount));
+        niceCol.setCellFactory(column -> numberCell(nice -> nice == UNKNOWN_NICE ? "n/a" : String.format("%.0f", nice)));
+        nativeCpuCol.setCellFactory(column -> numberCell(nanos -> nanos < 0 ? "n/a" : String.format("%.2f s", nanos / 1e9)));
+        sortKeys.put(tidCol, ThreadModel.BY_NATIVE_ID);
+        sortKeys.put(voluntaryCol, ThreadModel.BY_VOLUNTARY_SWITCHES);
+        sortKeys.put(involuntaryCol, ThreadModel.BY_INVOLUNTARY_SWITCHES);
+        sortKeys.put(lastCpuCol, ThreadModel.BY_LAST_CPU);
+        sortKeys.put(niceCol, ThreadModel.BY_NICE);
+        sortKeys.put(nativeCpuCol, ThreadModel.BY_NATIVE_CPU);
+        tableView.getColumns().addAll(List.of(tidCol, voluntaryCol, involuntaryCol, lastCpuCol, niceCol, nativeCpuCol));
+    }
+
+    /**
+     * @return the order of the table's sort columns, or null to keep the rows in the order they were added
+     */
+    private Comparator<ThreadModel> rowOrder() {
+        Comparator<ThreadModel> order = null;
+        for (TableColumn<ThreadModel, ?> column : tableView.getSortOrder()) {
+            Comparator<ThreadModel> key = sortKeys.get(column);
+            if (key == null) continue;
+            if (column.getSortType() == TableColumn.SortType.DESCENDING) key = key.reversed();
+            order = order == null ? key : order.thenComparing(key);
+        }
+        return order;
+    }
+
+    /**
+     * A table row highlighting threads blocked on a lock, and deadlocked threads more strongly.
+     */
+    private static class ContentionRow extends TableRow<ThreadModel> {
+        private ThreadModel bound;
+        private final InvalidationListener restyle = observable -> restyle();
+
+        @Override
+        protected void updateItem(ThreadModel item, boolean empty) {
+            super.updateItem(item, empty);
+            if (bound != null) {
+                bound.stateProperty().removeListener(restyle);
+                bound.deadlockedProperty().removeListener(restyle);
+            }
+            bound = empty ? null : item;
+            if (bound != null) {
+                bound.stateProperty().addListener(restyle);
+                bound.deadlockedProperty().addListener(restyle);
+            }
+            restyle();
+        }
+
+        private void restyle() {
+            if (bound == null) {
+                setStyle("");
+            } else if (bound.isDeadlocked()) {
+                setStyle("-fx-background-color: #f4a6a6;");
+            } else if (bound.getState() == Thread.State.BLOCKED) {
+                setStyle("-fx-background-color: #fbe3b5;");
+            } else {
+                setStyle("");
+            }
+        }
+    }
+
+    /**
+     * @param onError called on the collector thread when the source cannot be reached
+     * @requires onError != null
+     */
+    void setOnError(Consumer<IOException> onError) {
+        collector.setOnError(onError);
+    }
+
+    /**
+     * @param onCollected called on the collector thread after each live refresh, with its diff and CPU cost in nanoseconds
+     * @requires onCollected != null
+     */
+    void setOnCollected(ObjLongConsumer<SnapshotDiff> onCollected) {
+        collector.setOnCollected(onCollected);
+    }
+
+    /**
+     * @param listener called on the FX thread with every diff shown in the table, and the tick's
+     *                 contention report or null; it may be called with diffs of ticks that did not change
+     * @requires listener != null
+     */
+    void addOnApplied(BiConsumer<SnapshotDiff, ContentionReport> listener) {
+        onApplied.add(listener);
+    }
+
+    void removeOnApplied(BiConsumer<SnapshotDiff, ContentionReport> listener) {
+        onApplied.remove(listener);
+    }
+
+    /**
+     * @requires called on the FX application thread
+     * @return the snapshot the table shows, or null before the first one arrived
+     */
+    ThreadSnapshot getShownSnapshot() {
+        return shown;
+    }
+
+    /**
+     * Narrows the table to one group and its subgroups, telling apart groups that share a name.
+     * Choosing a group in the group box undoes it.
+     * @requires called on the FX application thread, name != null
+     * @param group the group, or null for a group of another jvm known only by name
+     * @modifies this.query, this.filteredData
+     */
+    void filterByGroup(ThreadGroup group, String name) {
+        filterCombo.getSelectionModel().selectFirst();
+        filterGroup = group;
+        filterGroupName = name;
+        updateQuery();
+    }
+
+    /**
+     * @param onContention called on the FX thread with each tick's contention report
+     * @requires onContention != null
+     * @modifies this.onContention
+     */
+    void setOnContention(Consumer<ContentionReport> onContention) {
+        this.onContention = onContention;
+    }
+
+    /**
+     * @param format turns the cell's number into its text
+     * @return a right-aligned cell that formats its numeric value but keeps it for sorting
+     */
+    private static TableCell<ThreadModel, Number> numberCell(Function<Double, String> format) {
+        TableCell<ThreadModel, Number> cell = new TableCell<ThreadModel, Number>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : format.apply(item.doubleValue()));
+            }
+        };
+        cell.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return cell;
+    }
+
+    static String formatPercent(double percent) {
+        return percent < 0 ? "n/a" : String.format("%.1f", percent);
+    }
+
+    private static String formatRate(double perSecond) {
+        return perSecond < 0 ? "n/a" : String.format("%.1f", perSecond);
+    }
+
+    private static String formatCount(double count) {
+        return count < 0 ? "n/a" : String.format("%.0f", count);
+    }
+
+    static String formatBytesPerSecond(double bytes) {
+        if (bytes < 0) return "n/a";
+        if (bytes < 1024) return String.format("%.0f B", bytes);
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024);
+        return String.format("%.1f MB", bytes / (1024 * 1024));
+    }
+
     /**
      * @param selectedRow the row of the tableView the user double-clicked
      * @throws NullPointerException seems to cause a nullp exception in fx classes, unsure how to fix
@@ -100,7 +448,7 @@ class ThreadTable {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent()){
             if (result.get() == killButton) {
-                threadManager.killThread(Long.valueOf(selectedRow.getId()));
+                threadManager.killThread(selectedRow.getId());
             } else {
                 alert.close();
             }
@@ -108,85 +456,193 @@ class ThreadTable {
     }
 
     /**
-     * @modifies this.tableView, this.threadFilterField, this.dataModel
-     * updates the data in the tableview with the latest collection of active threads
+     * Requests a refresh. Safe to call from any thread: the snapshot is collected and diffed
+     * on the collector thread and only the delta is applied on the FX thread, timed into the
+     * manager's self metrics.
+     * While replaying, the snapshot is only recorded.
+     * @modifies this.dataModel
+     * @effects the tableview is updated to the latest collection of active threads
      */
-    @SuppressWarnings("unchecked")
     void refreshTable() {
-        if (threadFilterField.getText().isEmpty()) isSearching = false;
-        if (filterCombo.getValue().equals("All") && !isSearching) {
-            dataModel.clear();
-            for (Thread thread : threadManager.getAllThreads()) {
-                String daemon;
-                daemon = thread.isDaemon() ? "daemon" : "non-daemon";
-                dataModel.add(
-                        new ThreadModel(
-                                Long.toString(thread.getId()),
-                                thread.getName(),
-                                thread.getThreadGroup().getName(),
-                                daemon,
-                                Integer.toString(thread.getPriority())));
-            }
-            tableView.setItems(dataModel);
-            threadFilterField.setOnKeyPressed(event -> searchThreadName());
-            filterCombo.valueProperty().addListener(event -> filterByThreadGroup());
+        if (replaying) {
+            collector.recordAsync();
+            return;
         }
-        threadFilterField.setOnKeyPressed(event -> searchThreadName());
-        filterCombo.valueProperty().addListener(event -> filterByThreadGroup());
+        collector.collectAsync(diff -> {
+            // only an in-process source analyzes contention
+            ContentionReport report = source.getContentionReport();
+            ThreadQuery current = query;
+            long[] matches = search(diff, current);
+            if (!diff.isEmpty() || (report != null && report.hasContention()) || !deadlockedRowsEmpty
+                    || !onApplied.isEmpty()) {
+                Platform.runLater(() -> {
+                    long start = System.nanoTime();
+                    applyDiff(diff);
+                    if (matches != null) applyMatches(current, matches);
+                    if (report != null) applyContention(report);
+                    for (BiConsumer<SnapshotDiff, ContentionReport> listener : onApplied) listener.accept(diff, report);
+                    threadManager.getSelfMetrics().record(SelfMetrics.Phase.APPLY, System.nanoTime() - start);
+                });
+            }
+        });
     }
 
     /**
-     * @modifies this.threadFilterField
-     * Creates a filteredList based on what the user enters into the searchbox. Updates the tableview with the filteredlist
+     * @requires report != null, called on the FX application thread
+     * @modifies this.deadlockedRows
+     * @effects flags the rows of deadlocked threads and passes the report on
      */
-    @SuppressWarnings("unchecked")
-    private void searchThreadName() {
-        isSearching = true;
-        FilteredList<ThreadModel> filteredData = new FilteredList<>(dataModel, p -> true);
-        threadFilterField.textProperty().addListener((observable, oldValue, newValue) -> filteredData.setPredicate(thread -> {
-            if (newValue == null || newValue.isEmpty()) {
-                return true;
+    private void applyContention(ContentionReport report) {
+        for (Iterator<ThreadModel> it = deadlockedRows.iterator(); it.hasNext(); ) {
+            ThreadModel row = it.next();
+            if (!report.isDeadlocked(row.getId())) {
+                row.setDeadlocked(false);
+                it.remove();
             }
-            String lowerCaseFilter = newValue.toLowerCase();
-            return thread.getName().toLowerCase().contains(lowerCaseFilter);
-        }));
-        SortedList<ThreadModel> sortedList = new SortedList<>(filteredData);
-        sortedList.comparatorProperty().bind(tableView.comparatorProperty());
-        tableView.setItems(sortedList);
+        }
+        for (long id : report.getDeadlockedIds()) {
+            flagDeadlocked(id);
+        }
+        deadlockedRowsEmpty = deadlockedRows.isEmpty();
+        onContention.accept(report);
+    }
+
+    private void flagDeadlocked(long id) {
+        ThreadModel row = rows.get(id);
+        if (row != null && deadlockedRows.add(row)) row.setDeadlocked(true);
     }
 
     /**
-     * @requires filterCombo != null
-     * @modifies this.dataModel, this.tableView
-     * @effects updates the tableView to only show threads beloning to the group selected in filterCombo
+     * @effects stops the background collector and search threads
      */
-    @SuppressWarnings("unchecked")
-    private void filterByThreadGroup() {
-        dataModel.clear();
-        assert filterCombo.getValue() != null;
-        String val = String.valueOf(filterCombo.getValue());
-        ThreadGroup[] allGroups = threadManager.getAllThreadGroups();
-        ThreadGroup selected = null;
-        for (ThreadGroup tg :
-                allGroups) {
-            if (tg.getName().equals(val)) {
-                selected = tg;
+    void shutdown() {
+        collector.shutdown();
+        searcher.shutdownNow();
+    }
+
+    /**
+     * @requires diff != null, called on the FX application thread
+     * @modifies this.dataModel, this.rows
+     * @effects removes, updates in place and appends rows as a single batch per kind of change
+     */
+    private void applyDiff(SnapshotDiff diff) {
+        ThreadSnapshot snapshot = diff.getCurrent();
+        shown = snapshot;
+        if (diff.getRemovedCount() > 0) {
+            Set<ThreadModel> gone = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int k = 0; k < diff.getRemovedCount(); k++) {
+                ThreadModel row = rows.remove(diff.getRemovedId(k));
+                if (row != null) {
+                    gone.add(row);
+                    deadlockedRows.remove(row);
+                }
             }
+            dataModel.removeAll(gone);
         }
-        for (Thread thread : threadManager.getAllThreads()) {
-            if (thread.getThreadGroup().equals(selected)){
-                String daemon;
-                daemon = thread.isDaemon() ? "daemon" : "non-daemon";
-                dataModel.add(
-                        new ThreadModel(
-                                Long.toString(thread.getId()),
-                                thread.getName(),
-                                thread.getThreadGroup().getName(),
-                                daemon,
-                                Integer.toString(thread.getPriority())));
+        for (int k = 0; k < diff.getChangedCount(); k++) {
+            int i = diff.getChangedIndex(k);
+            ThreadModel row = rows.get(snapshot.getId(i));
+            if (row != null) {
+                row.update(snapshot.getName(i), snapshot.getGroupName(i), snapshot.isDaemon(i),
+                        snapshot.getPriority(i), snapshot.getState(i), snapshot.getCpuPercent(i),
+                        snapshot.getUserPercent(i), snapshot.getAllocationRate(i));
+                updateNative(row, snapshot, i);
             }
         }
-        tableView.setItems(dataModel);
+        if (diff.getAddedCount() > 0) {
+            List<ThreadModel> added = new ArrayList<>(diff.getAddedCount());
+            for (int k = 0; k < diff.getAddedCount(); k++) {
+                added.add(addRow(rows, snapshot, diff.getAddedIndex(k)));
+            }
+            dataModel.addAll(added);
+        }
+    }
+
+    /**
+     * @requires snapshot != null && 0 <= index < snapshot.size(), rows has no row for the thread at index
+     * @modifies rows
+     * @return the table row for the thread at index in snapshot, reusing a removed row if rows has one
+     */
+    static ThreadModel addRow(ThreadRows rows, ThreadSnapshot snapshot, int index) {
+        ThreadModel row = rows.add(snapshot.getId(index), snapshot.getName(index), snapshot.getGroupName(index),
+                snapshot.isDaemon(index), snapshot.getPriority(index), snapshot.getState(index),
+                snapshot.getCpuPercent(index), snapshot.getUserPercent(index), snapshot.getAllocationRate(index));
+        updateNative(row, snapshot, index);
+        return row;
+    }
+
+    private static void updateNative(ThreadModel row, ThreadSnapshot snapshot, int index) {
+        row.updateNative(snapshot.getNativeId(index), snapshot.getVoluntarySwitchRate(index),
+                snapshot.getInvoluntarySwitchRate(index), snapshot.getLastCpu(index), snapshot.getNice(index),
+                snapshot.getNativeCpuNanos(index));
+    }
+
+    /**
+     * @modifies this.query, this.filteredData
+     * Parses the search box and the selected group into the query the table is filtered by.
+     * A search box that does not parse is marked and leaves the filter as it was.
+     */
+    private void updateQuery() {
+        String text = threadFilterField.getText();
+        ThreadQuery parsed;
+        try {
+            parsed = ThreadQuery.parse(text == null ? "" : text);
+        } catch (IllegalArgumentException e) {
+            threadFilterField.setStyle("-fx-border-color: red;");
+            threadFilterField.setTooltip(new Tooltip(e.getMessage()));
+            return;
+        }
+        threadFilterField.setStyle("");
+        threadFilterField.setTooltip(null);
+        String group = String.valueOf(filterCombo.getValue());
+        if (filterGroupName != null) parsed = parsed.withGroupTree(filterGroup, filterGroupName);
+        else if (!group.equals("All")) parsed = parsed.withGroup(group);
+        query = parsed.isEmpty() ? null : parsed;
+        if (query == null) {
+            filteredData.setPredicate(null);
+        } else {
+            searchAsync();
+        }
+    }
+
+    /**
+     * Searches the index on the search thread; requests made while one is queued are coalesced into it.
+     */
+    private void searchAsync() {
+        if (!searchPending.compareAndSet(false, true)) return;
+        searcher.execute(() -> {
+            searchPending.set(false);
+            ThreadQuery current = query;
+            if (current == null) return;
+            long[] matches = searchIndex.search(current);
+            Platform.runLater(() -> applyMatches(current, matches));
+        });
+    }
+
+    /**
+     * @param diff the diff about to be shown
+     * @param current the query the table is filtered by, or null
+     * @modifies this.searchIndex
+     * @return the ids of the threads of diff's snapshot matching current, or null if the matches cannot have changed
+     */
+    private long[] search(SnapshotDiff diff, ThreadQuery current) {
+        searchIndex.update(diff.getCurrent());
+        return current == null || diff.isEmpty() ? null : searchIndex.search(current);
+    }
+
+    /**
+     * @requires called on the FX application thread
+     * @modifies this.filteredData
+     * @effects shows only the rows of matches, unless the query has changed since they were searched
+     */
+    private void applyMatches(ThreadQuery searched, long[] matches) {
+        if (searched != query) return;
+        Set<ThreadModel> matching = Collections.newSetFromMap(new IdentityHashMap<>(matches.length * 2));
+        for (long id : matches) {
+            ThreadModel row = rows.get(id);
+            if (row != null) matching.add(row);
+        }
+        filteredData.setPredicate(matching::contains);
     }
 
 }
@@ -0,0 +1,136 @@
+package ui;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import logic.ThreadManager;
+import logic.VirtualThreadDump;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A window summarising virtual threads by container and carrier, with a paged list of the
+ * threads themselves. Dumps are taken off the FX thread and only on request.
+ */
+class VirtualThreadView {
+    private static final int PAGE_SIZE = 200;
+
+    private final ThreadManager threadManager;
+    private final ObservableList<String> containers;
+    private final ObservableList<String> carriers;
+    private final ObservableList<String> page;
+    private final Text summary;
+    private final Text pageLabel;
+    private final Stage stage;
+    private VirtualThreadDump dump;
+    private int offset;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the window without showing it
+     */
+    VirtualThreadView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.containers = FXCollections.observableArrayList();
+        this.carriers = FXCollections.observableArrayList();
+        this.page = FXCollections.observableArrayList();
+        this.summary = new Text();
+        this.pageLabel = new Text();
+        this.stage = new Stage();
+
+        Button dumpButton = new Button("Dump");
+        Button previousButton = new Button("<");
+        Button nextButton = new Button(">");
+        dumpButton.setOnAction(event -> takeDump());
+        previousButton.setOnAction(event -> showPage(offset - PAGE_SIZE));
+        nextButton.setOnAction(event -> showPage(offset + PAGE_SIZE));
+        dumpButton.setDisable(!VirtualThreadDump.isSupported());
+
+        ListView<String> containerList = new ListView<>(containers);
+        ListView<String> carrierList = new ListView<>(carriers);
+        containerList.setPrefSize(420, 160);
+        carrierList.setPrefSize(260, 160);
+        ListView<String> pageList = new ListView<>(page);
+        pageList.setPrefHeight(240);
+
+        VBox root = new VBox(5,
+                new HBox(5, dumpButton, summary),
+                new HBox(10, new VBox(2, new Text("By container"), containerList),
+                        new VBox(2, new Text("By carrier"), carrierList)),
+                new HBox(5, previousButton, nextButton, pageLabel),
+                pageList);
+        root.setPadding(new Insets(10));
+        summary.setText(VirtualThreadDump.isSupported() ? "" : "Virtual threads need JDK 21 or later");
+        stage.setTitle("Thread Manager - Virtual Threads");
+        stage.setScene(new Scene(root, 720, 540));
+    }
+
+    void show() {
+        stage.show();
+        if (VirtualThreadDump.isSupported()) takeDump();
+    }
+
+    /**
+     * @effects dumps every thread on a background thread, then shows the result
+     */
+    private void takeDump() {
+        summary.setText("Dumping...");
+        Thread worker = new Thread(() -> {
+            try {
+                VirtualThreadDump result = threadManager.dumpVirtualThreads();
+                Platform.runLater(() -> showDump(result));
+            } catch (IOException | UnsupportedOperationException e) {
+                Platform.runLater(() -> summary.setText("Dump failed: " + e.getMessage()));
+            }
+        }, "thread-manager-virtual-dump");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @modifies this.dump, this.containers, this.carriers
+     */
+    private void showDump(VirtualThreadDump result) {
+        dump = result;
+        summary.setText(result.getVirtualCount() + " virtual, " + result.getPlatformCount() + " platform threads");
+        containers.clear();
+        for (Map.Entry<String, Integer> entry : result.countVirtualByContainer().entrySet()) {
+            containers.add(entry.getValue() + "  " + entry.getKey());
+        }
+        carriers.clear();
+        for (Map.Entry<Long, Integer> entry : result.countVirtualByCarrier().entrySet()) {
+            String carrier = entry.getKey() == VirtualThreadDump.NO_CARRIER ? "unmounted" : "carrier #" + entry.getKey();
+            carriers.add(entry.getValue() + "  " + carrier);
+        }
+        showPage(0);
+    }
+
+    /**
+     * @modifies this.offset, this.page
+     * @effects shows the page of virtual threads starting at from
+     */
+    private void showPage(int from) {
+        if (dump == null) return;
+        int total = dump.getVirtualCount();
+        offset = Math.max(0, Math.min(from, Math.max(0, total - 1) / PAGE_SIZE * PAGE_SIZE));
+        page.clear();
+        for (int i : dump.getVirtualPage(offset, PAGE_SIZE)) {
+            String name = dump.getName(i).isEmpty() ? "<unnamed>" : dump.getName(i);
+            long carrier = dump.getCarrierId(i);
+            page.add("#" + dump.getId(i) + "  " + name + "  depth " + dump.getStackDepth(i)
+                    + (carrier == VirtualThreadDump.NO_CARRIER ? "" : "  on #" + carrier)
+                    + "  " + dump.getContainer(i));
+        }
+        int last = Math.min(total, offset + PAGE_SIZE);
+        pageLabel.setText(total == 0 ? "no virtual threads" : (offset + 1) + "-" + last + " of " + total);
+    }
+}
@@ -0,0 +1,138 @@
+package ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import logic.ThreadManager;
+import logic.Workload;
+import logic.WorkloadProfile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A window to start synthetic workloads of any profile, with a thread count and a rate,
+ * and to watch and stop the running ones.
+ */
+class WorkloadView {
+    private final ThreadManager threadManager;
+    private final ObservableList<String> rows;
+    private final ListView<String> list;
+    private final List<Workload> shown;
+    private final Map<Workload, Long> previousOperations;
+    private final Text status;
+    private final Stage stage;
+    private final Timeline refresher;
+
+    /**
+     * @requires threadManager != null
+     * @effects builds the workload window without showing it
+     */
+    WorkloadView(ThreadManager threadManager) {
+        this.threadManager = threadManager;
+        this.rows = FXCollections.observableArrayList();
+        this.list = new ListView<>(rows);
+        list.setPrefHeight(300);
+        this.shown = new ArrayList<>();
+        this.previousOperations = new HashMap<>();
+        this.status = new Text();
+        status.setFill(Color.RED);
+        this.stage = new Stage();
+
+        ComboBox<WorkloadProfile> profileCombo = new ComboBox<>(FXCollections.observableArrayList(WorkloadProfile.values()));
+        profileCombo.getSelectionModel().select(WorkloadProfile.CPU_SPIN);
+        Spinner<Integer> countSpinner = new Spinner<>(1, 50_000, 4);
+        countSpinner.setEditable(true);
+        countSpinner.setPrefWidth(90);
+        TextField rateField = new TextField("0");
+        rateField.setPrefWidth(80);
+        rateField.setPromptText("0 = max");
+        Button startButton = new Button("Start");
+        Button stopButton = new Button("Stop");
+        Button stopAllButton = new Button("Stop all");
+        startButton.setOnAction(event -> start(profileCombo.getValue(), countSpinner.getValue(), rateField.getText()));
+        stopButton.setOnAction(event -> {
+            int selected = list.getSelectionModel().getSelectedIndex();
+            if (selected >= 0) stop(List.of(shown.get(selected)));
+        });
+        stopAllButton.setOnAction(event -> stop(threadManager.getWorkloads()));
+        HBox controls = new HBox(5, profileCombo, new Text("Threads: "), countSpinner, new Text("Rate/s: "), rateField,
+                startButton, stopButton, stopAllButton);
+
+        VBox root = new VBox(5, controls, new Text("Rate is operations per second across the threads, "
+                + "threads started per second for CHURN; 0 runs flat out"), status, list);
+        root.setPadding(new Insets(10));
+
+        refresher = new Timeline(new KeyFrame(Duration.seconds(1), event -> updateView()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        stage.setOnHidden(event -> refresher.stop());
+        stage.setTitle("Thread Manager - Workloads");
+        stage.setScene(new Scene(root, 760, 400));
+    }
+
+    void show() {
+        updateView();
+        refresher.play();
+        stage.show();
+    }
+
+    private void start(WorkloadProfile profile, int count, String rateText) {
+        try {
+            threadManager.startWorkload(profile, count, Double.parseDouble(rateText.trim()));
+            status.setText("");
+        } catch (NumberFormatException e) {
+            status.setText("Rate is not a number: " + rateText);
+        } catch (IllegalArgumentException | IOException e) {
+            status.setText(e.getMessage());
+        }
+    }
+
+    /**
+     * @effects stops workloads on a background thread, since each may wait for its threads to end
+     */
+    private void stop(List<Workload> workloads) {
+        Thread stopper = new Thread(() -> {
+            for (Workload workload : workloads) threadManager.stopWorkload(workload);
+        }, "thread-manager-workload-stop");
+        stopper.setDaemon(true);
+        stopper.start();
+    }
+
+    /**
+     * @modifies this.rows, this.shown, this.previousOperations
+     * @effects lists every running workload with its live threads and operations per second over the last second
+     */
+    private void updateView() {
+        int selected = list.getSelectionModel().getSelectedIndex();
+        Workload selectedWorkload = selected >= 0 && selected < shown.size() ? shown.get(selected) : null;
+        shown.clear();
+        shown.addAll(threadManager.getWorkloads());
+        Map<Workload, Long> operations = new HashMap<>();
+        rows.clear();
+        for (Workload workload : shown) {
+            long done = workload.getOperations();
+            operations.put(workload, done);
+            long perSecond = done - previousOperations.getOrDefault(workload, done);
+            rows.add(String.format("%s  %s  %d alive  %d ops/s  %d total", workload.getName(), workload.getProfile(),
+                    workload.getAliveCount(), perSecond, done));
+        }
+        previousOperations.clear();
+        previousOperations.putAll(operations);
+        if (selectedWorkload != null && shown.contains(selectedWorkload)) {
+            list.getSelectionModel().select(shown.indexOf(selectedWorkload));
+        }
+    }
+}
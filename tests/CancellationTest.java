@@ -0,0 +1,129 @@
+import logic.Cancellation;
+import logic.CancellationReport;
+import logic.ThreadManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellationTest {
+
+    private ThreadManager threadManager;
+
+    @BeforeEach
+    void setUp() {
+        threadManager = new ThreadManager();
+    }
+
+    @Test
+    void cancelGroupTest() throws Exception {
+        ThreadGroup group = new ThreadGroup("cancelGroupTest");
+        CountDownLatch running = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            Thread thread = new Thread(group, () -> {
+                running.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    // cancelled
+                }
+            }, "cancel-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        running.await();
+
+        Cancellation cancellation = threadManager.cancelThreads(group, null, null, 5000);
+        assertEquals(200, cancellation.getTargetCount());
+        CancellationReport report = cancellation.getResult().get(10, TimeUnit.SECONDS);
+        assertTrue(report.isComplete());
+        assertEquals(200, report.getTerminatedCount());
+        assertEquals(200, cancellation.getTerminatedCount());
+    }
+
+    @Test
+    void monitorThreadsAreNotTargetsTest() throws Exception {
+        ThreadGroup group = new ThreadGroup("monitorThreadsAreNotTargetsTest");
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (String name : new String[]{"thread-manager-collector", "ordinary"}) {
+            Thread thread = new Thread(group, () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // cancelled
+                }
+            }, name);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        running.await();
+        try {
+            assertEquals(1, threadManager.countCancellationTargets(group, null, null));
+            Cancellation cancellation = threadManager.cancelThreads(group, null, null, 5000);
+            assertEquals(1, cancellation.getTargetCount());
+            assertTrue(cancellation.getResult().get(10, TimeUnit.SECONDS).isComplete());
+            assertTrue(threads.get(0).isAlive());
+            assertFalse(threads.get(1).isAlive());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stragglerTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> stubborn = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread thread = new Thread(() -> {
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // ignores cancellation
+                    }
+                }
+            }, "stubborn-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            stubborn.add(thread);
+        }
+        try {
+            for (Thread thread : stubborn) waitForState(thread, Thread.State.WAITING);
+
+            Cancellation none = threadManager.cancelThreads(null, Pattern.compile("stubborn-\\d"), Thread.State.BLOCKED, 0);
+            assertEquals(0, none.getTargetCount());
+
+            Cancellation cancellation = threadManager.cancelThreads(null, Pattern.compile("stubborn-\\d"), null, 200);
+            assertEquals(3, cancellation.getTargetCount());
+            CancellationReport report = cancellation.getResult().get(10, TimeUnit.SECONDS);
+            assertFalse(report.isComplete());
+            assertEquals(3, report.getStragglers().size());
+            assertTrue(report.getElapsedMillis() >= 200);
+            for (ThreadInfo info : report.getStragglers()) {
+                assertTrue(info.getThreadName().startsWith("stubborn-"));
+                assertTrue(info.getStackTrace().length > 0);
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void waitForState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != state) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
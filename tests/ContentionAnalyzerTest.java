@@ -0,0 +1,101 @@
+import logic.ContentionReport;
+import logic.MonitorContention;
+import logic.ThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentionAnalyzerTest {
+
+    @Test
+    void deadlockCycleTest() throws InterruptedException {
+        Object first = new Object();
+        Object second = new Object();
+        CountDownLatch bothHolding = new CountDownLatch(2);
+        Thread a = daemon("deadlockCycleTest-a", () -> lockBoth(first, second, bothHolding));
+        Thread b = daemon("deadlockCycleTest-b", () -> lockBoth(second, first, bothHolding));
+        a.start();
+        b.start();
+        bothHolding.await();
+
+        ThreadManager threadManager = new ThreadManager();
+        ContentionReport report = awaitReport(threadManager, r -> r.isDeadlocked(a.getId()) && r.isDeadlocked(b.getId()));
+        assertTrue(report.hasDeadlock());
+        boolean cycleFound = false;
+        for (long[] cycle : report.getDeadlockCycles()) {
+            cycleFound |= cycle.length == 2 && contains(cycle, a.getId()) && contains(cycle, b.getId());
+        }
+        assertTrue(cycleFound);
+        int index = report.indexOf(a.getId());
+        assertEquals(b.getId(), report.getLockOwnerId(index));
+    }
+
+    @Test
+    void contendedSynchronizerTest() throws InterruptedException {
+        ReentrantLock lock = new ReentrantLock();
+        lock.lock();
+        try {
+            Thread waiter = daemon("contendedSynchronizerTest", lock::lock);
+            waiter.start();
+            ThreadManager threadManager = new ThreadManager();
+            ContentionReport report = awaitReport(threadManager, r -> findWaitedOn(r, waiter.getId()) != null);
+            MonitorContention monitor = findWaitedOn(report, waiter.getId());
+            assertNotNull(monitor);
+            assertEquals(Thread.currentThread().getId(), monitor.getOwnerId());
+            assertFalse(monitor.getOwnerHeldLocks().isEmpty());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ContentionReport awaitReport(ThreadManager threadManager,
+                                                Predicate<ContentionReport> done)
+            throws InterruptedException {
+        ContentionReport report = threadManager.analyzeContention();
+        for (int attempt = 0; attempt < 50 && !done.test(report); attempt++) {
+            Thread.sleep(20);
+            report = threadManager.analyzeContention();
+        }
+        return report;
+    }
+
+    private static MonitorContention findWaitedOn(ContentionReport report, long waiterId) {
+        for (MonitorContention monitor : report.getMonitors()) {
+            for (int k = 0; k < monitor.getWaiterCount(); k++) {
+                if (monitor.getWaiterId(k) == waiterId) return monitor;
+            }
+        }
+        return null;
+    }
+
+    private static void lockBoth(Object outer, Object inner, CountDownLatch bothHolding) {
+        synchronized (outer) {
+            bothHolding.countDown();
+            try {
+                bothHolding.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (inner) {
+                fail("deadlock did not happen");
+            }
+        }
+    }
+
+    private static Thread daemon(String name, Runnable body) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        for (long candidate : ids) {
+            if (candidate == id) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+import logic.CreationSiteReport;
+import logic.CreationSiteTracker;
+import logic.ThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CreationSiteTrackerTest {
+    private final ThreadManager threadManager = new ThreadManager();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> leaked = new ArrayList<>();
+
+    @Test
+    void leakingSiteIsFlaggedTest() throws InterruptedException {
+        ThreadGroup existing = new ThreadGroup("existing-group");
+        try (CreationSiteTracker tracker = new CreationSiteTracker(Duration.ofMillis(100))) {
+            startInExisting(existing);
+            CreationSiteReport report = null;
+            int leak = -1;
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (System.currentTimeMillis() < deadline) {
+                leak();
+                churn();
+                Thread.sleep(300);
+                report = tracker.report(threadManager.refresh());
+                leak = indexOf(report, "CreationSiteTrackerTest.leak:");
+                if (leak >= 0 && report.isGrowing(leak) && report.getLive(leak) == leaked.size()) break;
+            }
+            assertTrue(leak >= 0, "no site for leak()");
+            assertTrue(report.isGrowing(leak));
+            assertTrue(report.getGrowthPerMinute(leak) > 0);
+            assertEquals(leaked.size(), report.getLive(leak));
+            assertEquals(leaked.size(), report.getStarted(leak));
+            assertEquals(leaked.size(), report.getGroups(leak));
+            assertEquals(0, report.getEmptyGroups(leak));
+            assertTrue(report.getFrames(leak)[0].startsWith("CreationSiteTrackerTest.leak:"));
+
+            int churn = indexOf(report, "CreationSiteTrackerTest.churn:");
+            assertTrue(churn >= 0, "no site for churn()");
+            assertEquals(0, report.getLive(churn));
+            assertFalse(report.isGrowing(churn));
+            // every churned thread ran in a group of its own that is left behind empty
+            assertEquals(report.getStarted(churn), report.getEmptyGroups(churn));
+            assertTrue(report.format(10).contains("GROWING"));
+
+            // a group that existed before tracking is not credited to the site that first starts a thread in it
+            int existingSite = indexOf(report, "CreationSiteTrackerTest.startInExisting:");
+            assertTrue(existingSite >= 0, "no site for startInExisting()");
+            assertEquals(0, report.getGroups(existingSite));
+        } finally {
+            release.countDown();
+            for (Thread thread : leaked) thread.join(1000);
+        }
+    }
+
+    private void leak() {
+        Thread thread = new Thread(new ThreadGroup("leak-group-" + leaked.size()), () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "leaked");
+        thread.setDaemon(true);
+        thread.start();
+        leaked.add(thread);
+    }
+
+    private static void churn() throws InterruptedException {
+        Thread thread = new Thread(new ThreadGroup("churn-group-" + System.nanoTime()), () -> { }, "churned");
+        thread.start();
+        thread.join();
+    }
+
+    private static void startInExisting(ThreadGroup existing) throws InterruptedException {
+        Thread thread = new Thread(existing, () -> { }, "in-existing");
+        thread.start();
+        thread.join();
+    }
+
+    private static int indexOf(CreationSiteReport report, String labelPrefix) {
+        for (int i = 0; i < report.size(); i++) if (report.getLabel(i).startsWith(labelPrefix)) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,96 @@
+import logic.GroupNode;
+import logic.GroupRollups;
+import logic.SnapshotDiff;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupRollupsTest {
+
+    @Test
+    void rollupTest() throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        ThreadGroup parent = new ThreadGroup("rollup-parent");
+        ThreadGroup child = new ThreadGroup(parent, "rollup-twin");
+        ThreadGroup twin = new ThreadGroup("rollup-twin");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch releaseChild = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        threads.add(start(parent, "rollup-a", true, release));
+        threads.add(start(child, "rollup-b", false, releaseChild));
+        threads.add(start(child, "rollup-c", true, releaseChild));
+        threads.add(start(twin, "rollup-d", true, release));
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        }
+
+        List<GroupNode> added = new ArrayList<>();
+        GroupRollups rollups = new GroupRollups(new GroupRollups.Listener() {
+            @Override
+            public void added(GroupNode node) {
+                added.add(node);
+            }
+
+            @Override
+            public void removed(GroupNode node) {
+            }
+        });
+        try {
+            ThreadSnapshot first = threadManager.refresh();
+            rollups.update(SnapshotDiff.between(null, first), null);
+            GroupNode parentNode = find(added, parent);
+            GroupNode childNode = find(added, child);
+            GroupNode twinNode = find(added, twin);
+            assertSame(parentNode, childNode.getParent());
+            assertNotSame(childNode, twinNode, "groups sharing a name are separate nodes");
+            assertEquals(1, parentNode.getThreads());
+            assertEquals(3, parentNode.getTotalThreads());
+            assertEquals(2 / 3.0, parentNode.getDaemonRatio(), 1e-9);
+            assertEquals(1, twinNode.getTotalThreads());
+            assertEquals(first.size(), rollups.getRoots().get(0).getTotalThreads());
+            rollups.drainChanged(node -> { });
+
+            releaseChild.countDown();
+            for (Thread thread : threads.subList(1, 3)) thread.join();
+            ThreadSnapshot second = threadManager.refresh();
+            rollups.update(SnapshotDiff.between(first, second), null);
+            List<GroupNode> changed = new ArrayList<>();
+            rollups.drainChanged(changed::add);
+            assertTrue(changed.contains(childNode) && changed.contains(parentNode));
+            assertFalse(changed.contains(twinNode), "an untouched subtree is not recomputed");
+            assertEquals(0, childNode.getTotalThreads());
+            assertEquals(0, childNode.getCpuPercent());
+            assertEquals(second.size(), rollups.getRoots().get(0).getTotalThreads());
+        } finally {
+            release.countDown();
+            releaseChild.countDown();
+            for (Thread thread : threads) thread.join();
+        }
+    }
+
+    private static Thread start(ThreadGroup group, String name, boolean daemon, CountDownLatch release) {
+        Thread thread = new Thread(group, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.setDaemon(daemon);
+        thread.start();
+        return thread;
+    }
+
+    private static GroupNode find(List<GroupNode> nodes, ThreadGroup group) {
+        for (GroupNode node : nodes) {
+            if (node.getThreadGroup() == group) return node;
+        }
+        throw new AssertionError(group.getName() + " has no node");
+    }
+}
@@ -0,0 +1,80 @@
+import logic.HistoryRecorder;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayTest() throws IOException, InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread recorded = new Thread(() -> TestThreads.awaitQuietly(release), "recorded-thread");
+        recorded.setDaemon(true);
+        recorded.setPriority(3);
+        recorded.start();
+        Path file = directory.resolve("threads.history");
+        try (HistoryRecorder recorder = HistoryRecorder.open(file, HistoryRecorder.MIN_BLOCK_SIZE * 4, 4)) {
+            assertNull(recorder.read(Long.MAX_VALUE));
+            ThreadSnapshot live = threadManager.refresh();
+            assertTrue(recorder.record(live, 1000));
+            release.countDown();
+            recorded.join();
+            assertTrue(recorder.record(threadManager.refresh(), 2000));
+
+            assertNull(recorder.read(999));
+            ThreadSnapshot replayed = recorder.read(1500);
+            assertEquals(live.size(), replayed.size());
+            int i = replayed.indexOf(recorded.getId());
+            assertTrue(i >= 0);
+            int j = live.indexOf(recorded.getId());
+            assertEquals("recorded-thread", replayed.getName(i));
+            assertEquals(live.getGroupName(j), replayed.getGroupName(i));
+            assertEquals(live.getState(j), replayed.getState(i));
+            assertEquals(3, replayed.getPriority(i));
+            assertTrue(replayed.isDaemon(i));
+            assertNull(replayed.getThread(i));
+            assertTrue(recorder.read(2000).indexOf(recorded.getId()) < 0, "the thread had ended by the second tick");
+            assertArrayEquals(new long[]{1000, 2000}, recorder.tickMillis(0, Long.MAX_VALUE));
+            assertArrayEquals(new long[]{2000}, recorder.tickMillis(1001, 2000));
+        }
+    }
+
+    @Test
+    void ringTest() throws IOException {
+        ThreadManager threadManager = new ThreadManager();
+        Path file = directory.resolve("ring.history");
+        int blockSize = HistoryRecorder.MIN_BLOCK_SIZE;
+        long ticks = 2000;
+        try (HistoryRecorder recorder = HistoryRecorder.open(file, blockSize, 3)) {
+            for (long t = 1; t <= ticks; t++) recorder.record(threadManager.refresh(), t * 10);
+            assertEquals(0, recorder.getDroppedTicks());
+            assertEquals(ticks * 10, recorder.getLastMillis());
+            assertTrue(recorder.getFirstMillis() > 10, "the oldest ticks should have been overwritten");
+        }
+        long length = Files.size(file);
+
+        try (HistoryRecorder reopened = HistoryRecorder.open(file, blockSize, 3)) {
+            assertEquals(ticks * 10, reopened.getLastMillis());
+            long[] kept = reopened.tickMillis(0, Long.MAX_VALUE);
+            assertTrue(kept.length > 1);
+            for (int k = 1; k < kept.length; k++) assertEquals(kept[k - 1] + 10, kept[k]);
+            assertEquals(kept[0], reopened.getFirstMillis());
+            assertEquals(threadManager.refresh().size(), reopened.read(kept[0]).size(), 5);
+            reopened.record(threadManager.refresh(), ticks * 10 + 10);
+            assertEquals(ticks * 10 + 10, reopened.getLastMillis());
+        }
+        assertEquals(length, Files.size(file));
+    }
+}
@@ -0,0 +1,99 @@
+import logic.JfrSnapshotSource;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrSnapshotSourceTest {
+
+    @Test
+    void shortLivedThreadTest() throws InterruptedException {
+        try (JfrSnapshotSource source = new JfrSnapshotSource(new ThreadManager())) {
+            CountDownLatch release = new CountDownLatch(1);
+            Thread parked = new Thread(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "jfr-parked");
+            parked.start();
+            ThreadSnapshot first = source.capture();
+            assertTrue(first.indexOf(Thread.currentThread().getId()) >= 0, "threads alive at start are enumerated once");
+
+            Thread brief = new Thread(() -> { }, "jfr-brief");
+            brief.start();
+            brief.join();
+
+            // events arrive in batches about once a second
+            boolean seenBrief = false;
+            boolean seenParked = false;
+            double churn = 0;
+            long deadline = System.currentTimeMillis() + 15_000;
+            while (!(seenBrief && seenParked) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(200);
+                ThreadSnapshot snapshot = source.capture();
+                int index = snapshot.indexOf(brief.getId());
+                if (index >= 0) {
+                    assertEquals("jfr-brief", snapshot.getName(index));
+                    assertEquals(Thread.State.TERMINATED, snapshot.getState(index));
+                    churn = Math.max(churn, source.getChurnPerSecond());
+                    seenBrief = true;
+                }
+                seenParked |= snapshot.indexOf(parked.getId()) >= 0;
+            }
+            assertTrue(seenBrief, "a thread that ended between captures is shown once");
+            assertTrue(seenParked, "a started thread is tracked");
+            assertTrue(churn > 0);
+            assertTrue(source.capture().indexOf(brief.getId()) < 0, "an ended thread is dropped after being shown");
+
+            release.countDown();
+            parked.join();
+        }
+    }
+
+    @Test
+    void stuckThreadStateTest() throws InterruptedException {
+        Object lock = new Object();
+        try (JfrSnapshotSource source = new JfrSnapshotSource(new ThreadManager())) {
+            Thread blocked;
+            Thread sleeping = new Thread(() -> {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    // released
+                }
+            }, "jfr-sleeping");
+            synchronized (lock) {
+                blocked = new Thread(() -> {
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                }, "jfr-blocked");
+                blocked.start();
+                sleeping.start();
+                // no event is emitted while a thread is still waiting, so the state must not come from events
+                long deadline = System.currentTimeMillis() + 15_000;
+                ThreadSnapshot snapshot = source.capture();
+                while (System.currentTimeMillis() < deadline && (state(snapshot, blocked) != Thread.State.BLOCKED
+                        || state(snapshot, sleeping) != Thread.State.TIMED_WAITING)) {
+                    Thread.sleep(100);
+                    snapshot = source.capture();
+                }
+                assertEquals(Thread.State.BLOCKED, state(snapshot, blocked));
+                assertEquals(Thread.State.TIMED_WAITING, state(snapshot, sleeping));
+            }
+            blocked.join();
+            sleeping.interrupt();
+            sleeping.join();
+        }
+    }
+
+    private static Thread.State state(ThreadSnapshot snapshot, Thread thread) {
+        int index = snapshot.indexOf(thread.getId());
+        return index < 0 ? null : snapshot.getState(index);
+    }
+}
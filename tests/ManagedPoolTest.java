@@ -0,0 +1,140 @@
+import logic.ManagedPool;
+import logic.PoolKind;
+import logic.PoolMetrics;
+import logic.ThreadManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManagedPoolTest {
+
+    private ThreadManager threadManager;
+
+    @BeforeEach
+    void setUp() {
+        threadManager = new ThreadManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (ManagedPool pool : threadManager.getPools()) threadManager.shutdownPool(pool.getName());
+    }
+
+    @Test
+    void fixedPoolMetricsTest() throws Exception {
+        ManagedPool pool = threadManager.createPool("metrics", PoolKind.FIXED, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) pool.execute(() -> TestThreads.awaitQuietly(release));
+        waitFor(() -> pool.metrics().getActive() == 2);
+
+        PoolMetrics busy = pool.metrics();
+        assertEquals(2, busy.getThreads());
+        assertEquals(3, busy.getQueued());
+        assertEquals(0, busy.getCompleted());
+
+        release.countDown();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int value = i;
+            results.add(pool.submit(() -> value));
+        }
+        for (int i = 0; i < 20; i++) assertEquals(i, results.get(i).get(5, TimeUnit.SECONDS));
+        waitFor(() -> pool.metrics().getQueued() == 0 && pool.metrics().getActive() == 0);
+
+        PoolMetrics done = pool.metrics();
+        assertEquals(25, done.getCompleted());
+        assertEquals(0, done.getFailed());
+        // platform workers are named after the pool and grouped under it
+        Thread worker = threadManager.refresh().findByName("metrics-1").get(0);
+        assertSame(pool.getThreadGroup(), worker.getThreadGroup());
+    }
+
+    @Test
+    void latencyPercentileTest() throws Exception {
+        ManagedPool pool = threadManager.createPool("latency", PoolKind.FIXED, 4);
+        pool.metrics();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            results.add(pool.submit(() -> {
+                Thread.sleep(20);
+                return null;
+            }));
+        }
+        for (Future<?> result : results) result.get(10, TimeUnit.SECONDS);
+
+        PoolMetrics metrics = pool.metrics();
+        assertTrue(metrics.getP50Millis() >= 17, "p50 " + metrics.getP50Millis());
+        assertTrue(metrics.getP99Millis() >= metrics.getP50Millis());
+        assertTrue(metrics.getThroughput() > 0);
+    }
+
+    @Test
+    void resizeTest() throws Exception {
+        ManagedPool fixed = threadManager.createPool("resize-fixed", PoolKind.FIXED, 1);
+        threadManager.resizePool("resize-fixed", 3);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) fixed.execute(() -> TestThreads.awaitQuietly(release));
+        waitFor(() -> fixed.metrics().getActive() == 3);
+        release.countDown();
+
+        ManagedPool stealing = threadManager.createPool("resize-stealing", PoolKind.WORK_STEALING, 2);
+        threadManager.resizePool("resize-stealing", 4);
+        assertEquals(4, stealing.getSize());
+        assertEquals(7, stealing.submit(() -> 7).get(5, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> threadManager.resizePool("resize-stealing", 0));
+    }
+
+    @Test
+    void cachedPoolBurstTest() throws Exception {
+        ManagedPool pool = threadManager.createPool("burst", PoolKind.CACHED, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        // more tasks than threads: the rest queue rather than being rejected
+        for (int i = 0; i < 10; i++) pool.execute(() -> TestThreads.awaitQuietly(release));
+        waitFor(() -> pool.metrics().getActive() == 2);
+        assertEquals(2, pool.metrics().getThreads());
+        assertEquals(8, pool.metrics().getQueued());
+
+        threadManager.resizePool("burst", 4);
+        waitFor(() -> pool.metrics().getActive() == 4);
+        release.countDown();
+        waitFor(() -> pool.metrics().getCompleted() == 10);
+        assertEquals(0, pool.metrics().getFailed());
+        assertTrue(pool.metrics().getThreads() <= 4);
+    }
+
+    @Test
+    void createAndShutdownTest() throws Exception {
+        ManagedPool pool = threadManager.createPool("lifecycle", PoolKind.CACHED, 8);
+        assertThrows(IllegalArgumentException.class, () -> threadManager.createPool("lifecycle", PoolKind.FIXED, 1));
+        assertSame(pool, threadManager.getPool("lifecycle"));
+
+        threadManager.shutdownPool("lifecycle");
+        assertNull(threadManager.getPool("lifecycle"));
+        assertTrue(pool.isShutdown());
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> threadManager.shutdownPool("lifecycle"));
+        // recreated under the same name, the pool's group is reused rather than left behind
+        assertSame(pool.getThreadGroup(), threadManager.createPool("lifecycle", PoolKind.FIXED, 1).getThreadGroup());
+        assertNull(threadManager.createPool("lifecycle-stealing", PoolKind.WORK_STEALING, 1).getThreadGroup());
+        if (!threadManager.canCreateVirtualThreads()) {
+            assertThrows(UnsupportedOperationException.class, () -> threadManager.createPool("virtual", PoolKind.VIRTUAL, 0));
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import logic.ManagedPool;
+import logic.MetricsEndpoint;
+import logic.PoolKind;
+import logic.SelfMetrics;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsEndpointTest {
+
+    @Test
+    void scrapesServeTheLastPublishedSnapshotTest() throws IOException, InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        ManagedPool pool = threadManager.createPool("scraped", PoolKind.FIXED, 2);
+        try (MetricsEndpoint endpoint = MetricsEndpoint.start(0, threadManager)) {
+            assertEquals(503, status(endpoint));
+
+            CountDownLatch done = new CountDownLatch(3);
+            for (int k = 0; k < 3; k++) pool.execute(done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // a task is counted as completed just after it returns
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.metrics().getCompleted() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+            ThreadSnapshot snapshot = threadManager.refresh();
+            endpoint.publish(snapshot, threadManager.analyzeContention(), true);
+            long enumerations = threadManager.getSelfMetrics().getCount(SelfMetrics.Phase.ENUMERATION);
+
+            String first = scrape(endpoint);
+            String second = scrape(endpoint);
+            assertEquals(first, second);
+            assertEquals(2, endpoint.getScrapes());
+            // a scrape never enumerates
+            assertEquals(enumerations, threadManager.getSelfMetrics().getCount(SelfMetrics.Phase.ENUMERATION));
+
+            long daemons = 0;
+            for (int i = 0; i < snapshot.size(); i++) if (snapshot.isDaemon(i)) daemons++;
+            assertTrue(first.contains("threadmanager_threads{state=\"RUNNABLE\"} "));
+            assertTrue(first.contains("\nthreadmanager_daemon_threads " + daemons + "\n"));
+            assertTrue(first.contains("threadmanager_group_threads{group=\"scraped\"} 2\n"));
+            assertTrue(first.contains("threadmanager_pool_completed_tasks_total{pool=\"scraped\",kind=\"FIXED\"} 3\n"));
+            // other tests may leave deadlocked threads behind
+            assertTrue(first.contains("\nthreadmanager_deadlocked_threads "));
+            assertTrue(first.contains("threadmanager_phase_seconds_count{phase=\"enumeration\"} " + enumerations + "\n"));
+            for (String line : first.split("\n")) {
+                assertTrue(line.startsWith("#") || line.matches("[a-z_]+(\\{.*\\})? -?[0-9.E-]+"), line);
+            }
+        } finally {
+            threadManager.shutdownPool("scraped");
+        }
+    }
+
+    @Test
+    void labelCardinalityIsBoundedTest() throws IOException, InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        for (int g = 0; g < 30; g++) {
+            Thread thread = new Thread(new ThreadGroup("bounded-" + g), () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "bounded-worker-" + g);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        try (MetricsEndpoint endpoint = MetricsEndpoint.start(0, threadManager)) {
+            threadManager.refresh();
+            endpoint.publish(threadManager.refresh(), null, false);
+            String body = scrape(endpoint);
+            long groups = body.lines().filter(line -> line.startsWith("threadmanager_group_threads{")).count();
+            assertTrue(groups <= 21, groups + " group series");
+            assertTrue(body.contains("threadmanager_group_threads{group=\"(other)\"}"));
+            assertTrue(body.lines().filter(line -> line.startsWith("threadmanager_top_thread_cpu_percent{")).count() <= 10);
+            assertFalse(body.contains("threadmanager_pool_"));
+            assertFalse(body.contains("threadmanager_deadlocked_threads"));
+            body.lines().filter(line -> line.startsWith("threadmanager_top_thread_"))
+                    .forEach(line -> assertFalse(line.replaceAll(".*thread=\"([^\"]*)\".*", "$1").matches(".*[0-9].*"), line));
+        } finally {
+            release.countDown();
+            for (Thread thread : threads) thread.join(1000);
+        }
+    }
+
+    @Test
+    void collidingGroupLabelsAreMergedTest() throws IOException, InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        String prefix = "x".repeat(70);
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        // the first two only differ past the label length, the third needs escaping
+        // three threads each, so they rank among the named groups
+        for (String name : new String[]{prefix + "-a", prefix + "-b", "quoted \"group\" \\ here"}) {
+            ThreadGroup group = new ThreadGroup(name);
+            for (int t = 0; t < 3; t++) {
+                Thread thread = new Thread(group, () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, "colliding");
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+        try (MetricsEndpoint endpoint = MetricsEndpoint.start(0, threadManager)) {
+            endpoint.publish(threadManager.refresh(), null, false);
+            String body = scrape(endpoint);
+            List<String> series = new ArrayList<>();
+            body.lines().filter(line -> line.startsWith("threadmanager_group_threads{"))
+                    .forEach(line -> series.add(line.substring(0, line.lastIndexOf(' '))));
+            assertEquals(series.size(), series.stream().distinct().count(), "duplicate series: " + series);
+            assertTrue(body.contains("threadmanager_group_threads{group=\"" + prefix.substring(0, 64) + "\"} 6\n"), body);
+            assertTrue(body.contains("threadmanager_group_threads{group=\"quoted \\\"group\\\" \\\\ here\"} 3\n"), body);
+        } finally {
+            release.countDown();
+            for (Thread thread : threads) thread.join(1000);
+        }
+    }
+
+    private static int status(MetricsEndpoint endpoint) throws IOException {
+        HttpURLConnection connection = open(endpoint);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String scrape(MetricsEndpoint endpoint) throws IOException {
+        HttpURLConnection connection = open(endpoint);
+        try (InputStream in = connection.getInputStream()) {
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection open(MetricsEndpoint endpoint) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + endpoint.getPort() + MetricsEndpoint.PATH).openConnection();
+    }
+}
@@ -0,0 +1,45 @@
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NativeThreadStatsTest {
+
+    @Test
+    void currentThreadTest() throws IOException, InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        assumeTrue(threadManager.hasNativeThreadStats(), "needs Linux /proc");
+        // /proc/thread-self links to <pid>/task/<tid> of the calling thread
+        Path self = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+        long tid = Long.parseLong(self.getFileName().toString());
+
+        // tids are looked up in the background, so the first refreshes may not have them yet
+        long deadline = System.currentTimeMillis() + 5000;
+        ThreadSnapshot snapshot = threadManager.refresh();
+        int index = snapshot.indexOf(Thread.currentThread().getId());
+        while (snapshot.getNativeId(index) < 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            snapshot = threadManager.refresh();
+            index = snapshot.indexOf(Thread.currentThread().getId());
+        }
+        Thread.sleep(20);
+        snapshot = threadManager.refresh();
+        index = snapshot.indexOf(Thread.currentThread().getId());
+        assertEquals(tid, snapshot.getNativeId(index));
+        assertTrue(snapshot.getLastCpu(index) >= 0);
+        assertTrue(snapshot.getNativeCpuNanos(index) > 0);
+        assertTrue(snapshot.getVoluntarySwitchRate(index) >= 0);
+        assertTrue(snapshot.getInvoluntarySwitchRate(index) >= 0);
+        assertTrue(snapshot.getNice(index) >= -20 && snapshot.getNice(index) <= 19);
+
+        threadManager.setNativeThreadStats(false);
+        assertEquals(-1, threadManager.refresh().getNativeId(0));
+    }
+}
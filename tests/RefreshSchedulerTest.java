@@ -0,0 +1,71 @@
+import logic.RefreshScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshSchedulerTest {
+
+    @Test
+    void adaptiveIntervalTest() {
+        RefreshScheduler scheduler = new RefreshScheduler(() -> { }, 250, 1000, 5000, 0.02);
+        try {
+            scheduler.completed(1_000_000, true);
+            assertEquals(500, scheduler.getIntervalMillis());
+            scheduler.completed(1_000_000, true);
+            scheduler.completed(1_000_000, true);
+            assertEquals(250, scheduler.getIntervalMillis(), "churn speeds up to the minimum");
+
+            for (int i = 0; i < 30; i++) scheduler.completed(1_000_000, false);
+            assertEquals(5000, scheduler.getIntervalMillis(), "a stable thread set backs off to the maximum");
+
+            // 20ms a refresh at 2% of a core allows one per second at most, however much churn
+            for (int i = 0; i < 30; i++) scheduler.completed(20_000_000, true);
+            assertTrue(scheduler.getIntervalMillis() >= 990, "interval " + scheduler.getIntervalMillis());
+            assertEquals(scheduler.getBudgetMillis(), scheduler.getIntervalMillis());
+
+            // 400ms a refresh needs 20s, beyond the maximum
+            for (int i = 0; i < 30; i++) scheduler.completed(400_000_000, false);
+            assertTrue(scheduler.getIntervalMillis() > 5000);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void coalescingTest() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger refreshes = new AtomicInteger();
+        RefreshScheduler scheduler = new RefreshScheduler(() -> {
+            refreshes.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 60_000, 60_000, 60_000, 1);
+        try {
+            scheduler.requestNow();
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // the first is running; these queue up behind it as one
+            for (int i = 0; i < 10; i++) scheduler.requestNow();
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (refreshes.get() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            Thread.sleep(100);
+            assertEquals(2, refreshes.get());
+
+            scheduler.setPaused(true);
+            scheduler.start();
+            Thread.sleep(100);
+            assertEquals(2, refreshes.get(), "no tick refreshes while paused");
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import com.sun.tools.attach.VirtualMachine;
+import logic.RemoteSnapshotSource;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteSnapshotSourceTest {
+
+    private Process target;
+    private PrintWriter commands;
+    private BufferedReader replies;
+
+    @BeforeEach
+    void startTarget() throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        target = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Target.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        commands = new PrintWriter(target.getOutputStream(), true, StandardCharsets.UTF_8);
+        replies = new BufferedReader(new InputStreamReader(target.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("ready", replies.readLine());
+    }
+
+    @AfterEach
+    void stopTarget() throws InterruptedException {
+        commands.close();
+        if (!target.waitFor(10, TimeUnit.SECONDS)) target.destroyForcibly();
+    }
+
+    @Test
+    void remoteDeltaTest() throws IOException {
+        try (RemoteSnapshotSource source = RemoteSnapshotSource.attach(target.pid())) {
+            ThreadSnapshot first = source.capture();
+            int keyframeBytes = source.getLastFrameBytes();
+            assertEquals(3, count(first, "remote-worker-"));
+            int worker = indexOfName(first, "remote-worker-0");
+            assertEquals("remote-group", first.getGroupName(worker));
+            assertEquals(Thread.State.WAITING, first.getState(worker));
+            assertTrue(first.isDaemon(worker));
+            assertEquals(7, first.getPriority(worker));
+            assertNull(first.getThread(worker));
+            assertTrue(Arrays.asList(first.getGroupNames()).contains("remote-group"));
+
+            ThreadSnapshot quiet = source.capture();
+            assertTrue(source.getLastFrameBytes() < keyframeBytes, "a delta should be smaller than the keyframe");
+            assertEquals(first.size(), quiet.size());
+
+            send("spawn");
+            ThreadSnapshot spawned = source.capture();
+            int late = indexOfName(spawned, "late-worker");
+            assertTrue(late >= 0);
+            assertEquals("remote-group", spawned.getGroupName(late));
+            assertEquals(3, count(spawned, "remote-worker-"));
+
+            send("end");
+            ThreadSnapshot ended = source.capture();
+            assertEquals(-1, indexOfName(ended, "late-worker"));
+            assertEquals(3, count(ended, "remote-worker-"));
+        }
+    }
+
+    @Test
+    void lostReplyTest() throws Exception {
+        try (RemoteSnapshotSource source = RemoteSnapshotSource.attach(target.pid())) {
+            assertEquals(3, count(source.capture(), "remote-worker-"));
+
+            // a reply lost on the way: the target moves on to frame 2, the source never sees it
+            send("spawn");
+            VirtualMachine vm = VirtualMachine.attach(Long.toString(target.pid()));
+            String address;
+            try {
+                address = vm.startLocalManagementAgent();
+            } finally {
+                vm.detach();
+            }
+            try (JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(address))) {
+                ObjectName service = new ObjectName("threadmanager:type=SnapshotService");
+                connector.getMBeanServerConnection().invoke(service, "nextFrame", new Object[]{1L, 1L},
+                        new String[]{long.class.getName(), long.class.getName()});
+            }
+
+            ThreadSnapshot recovered = source.capture();
+            assertTrue(indexOfName(recovered, "late-worker") >= 0, "the thread added in the lost frame is missing");
+            assertEquals(3, count(recovered, "remote-worker-"));
+            send("end");
+            assertEquals(-1, indexOfName(source.capture(), "late-worker"));
+        }
+    }
+
+    private void send(String command) throws IOException {
+        commands.println(command);
+        assertEquals("ok", replies.readLine());
+    }
+
+    private static int indexOfName(ThreadSnapshot snapshot, String name) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getName(i).equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private static int count(ThreadSnapshot snapshot, String prefix) {
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getName(i).startsWith(prefix)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * The monitored jvm: three waiting workers, plus one more started and ended on command.
+     */
+    static class Target {
+        public static void main(String[] args) throws Exception {
+            ThreadGroup group = new ThreadGroup("remote-group");
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 3; i++) start(group, "remote-worker-" + i, release);
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            System.out.println("ready");
+            CountDownLatch lateRelease = new CountDownLatch(1);
+            Thread late = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("spawn")) {
+                    late = start(group, "late-worker", lateRelease);
+                } else if (line.equals("end")) {
+                    lateRelease.countDown();
+                    late.join();
+                }
+                System.out.println("ok");
+            }
+            release.countDown();
+        }
+
+        private static Thread start(ThreadGroup group, String name, CountDownLatch release) {
+            Thread thread = new Thread(group, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, name);
+            thread.setDaemon(true);
+            thread.setPriority(7);
+            thread.start();
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import logic.MethodStats;
+import logic.SamplingProfiler;
+import logic.StackTrie;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingProfilerTest {
+
+    @Test
+    void trieFoldsStacksTest() throws IOException {
+        StackTrie trie = new StackTrie(100);
+        trie.add(stack("a.A.leaf", "a.A.mid", "a.A.main"));
+        trie.add(stack("a.A.leaf", "a.A.mid", "a.A.main"));
+        trie.add(stack("a.A.other", "a.A.main"));
+
+        assertEquals(3, trie.getSampleCount());
+        assertEquals(5, trie.getNodeCount());
+        List<MethodStats> top = trie.topMethods(10);
+        assertEquals("a.A.leaf", top.get(0).getMethod());
+        assertEquals(2, top.get(0).getSelfSamples());
+
+        StringWriter out = new StringWriter();
+        trie.writeCollapsed(out);
+        String collapsed = out.toString();
+        assertTrue(collapsed.contains("a.A.main;a.A.mid;a.A.leaf 2\n"));
+        assertTrue(collapsed.contains("a.A.main;a.A.other 1\n"));
+    }
+
+    @Test
+    void failingTicksDoNotStopSamplingTest() throws InterruptedException {
+        SamplingProfiler profiler = new SamplingProfiler(16, 1000);
+        // a thread id of 0 makes every getThreadInfo call throw
+        profiler.start(new long[]{0}, 5);
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (profiler.getFailedTicks() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertTrue(profiler.getFailedTicks() >= 3, "sampling stopped after a failed tick");
+            assertTrue(profiler.getLastFailure() instanceof IllegalArgumentException);
+            assertTrue(profiler.isRunning());
+        } finally {
+            profiler.stop();
+        }
+    }
+
+    @Test
+    void trieRespectsNodeBudgetTest() {
+        StackTrie trie = new StackTrie(4);
+        trie.add(stack("a.A.leaf", "a.A.mid", "a.A.main"));
+        trie.add(stack("a.A.other", "a.A.main"));
+        assertEquals(4, trie.getNodeCount());
+        assertEquals(1, trie.getTruncatedCount());
+        assertEquals(2, trie.getSampleCount());
+    }
+
+    @Test
+    void profilerFindsSpinningMethodTest() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread spinner = new Thread(() -> spin(running), "profilerFindsSpinningMethodTest");
+        spinner.start();
+        SamplingProfiler profiler = new SamplingProfiler(64, 10_000);
+        profiler.start(new long[]{spinner.getId()}, 2);
+        Thread.sleep(300);
+        profiler.stop();
+        running.set(false);
+        spinner.join();
+
+        assertTrue(profiler.getSampleCount() > 10);
+        boolean found = false;
+        for (MethodStats stats : profiler.topMethods(5)) {
+            found |= stats.getMethod().endsWith("SamplingProfilerTest.spin");
+        }
+        assertTrue(found);
+        assertTrue(profiler.getOverheadPercent() >= 0);
+    }
+
+    private static void spin(AtomicBoolean running) {
+        long x = 0;
+        while (running.get()) {
+            x += System.nanoTime() & 1;
+        }
+        assertTrue(x >= 0);
+    }
+
+    private static StackTraceElement[] stack(String... frames) {
+        StackTraceElement[] stack = new StackTraceElement[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            int dot = frames[i].lastIndexOf('.');
+            stack[i] = new StackTraceElement(frames[i].substring(0, dot), frames[i].substring(dot + 1), null, -1);
+        }
+        return stack;
+    }
+}
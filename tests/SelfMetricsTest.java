@@ -0,0 +1,80 @@
+import logic.SelfMetrics;
+import logic.SnapshotCollector;
+import logic.ThreadManager;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelfMetricsTest {
+
+    @Test
+    void collectionsArePhasedAndCostedTest() throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        SelfMetrics metrics = threadManager.getSelfMetrics();
+        SnapshotCollector collector = new SnapshotCollector(threadManager);
+        collector.setSelfMetrics(metrics);
+        try {
+            for (int k = 0; k < 5; k++) {
+                CountDownLatch done = new CountDownLatch(1);
+                collector.collectAsync(diff -> done.countDown());
+                assertTrue(done.await(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            collector.shutdown();
+        }
+        for (SelfMetrics.Phase phase : new SelfMetrics.Phase[]{SelfMetrics.Phase.ENUMERATION,
+                SelfMetrics.Phase.SAMPLING, SelfMetrics.Phase.CONTENTION, SelfMetrics.Phase.DIFF}) {
+            assertEquals(5, metrics.getCount(phase), phase.name());
+            assertTrue(metrics.getMaxMicros(phase) >= metrics.getMeanMicros(phase), phase.name());
+        }
+        assertEquals(0, metrics.getCount(SelfMetrics.Phase.APPLY));
+        // the collection is counted after the consumer returns
+        long deadline = System.currentTimeMillis() + 5000;
+        while (metrics.getCollections() < 5 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(5, metrics.getCollections());
+        assertTrue(metrics.getCollectorCpuNanos() > 0);
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(SelfMetrics.Phase.ENUMERATION));
+        assertEquals(0, metrics.getCollections());
+    }
+
+    @Test
+    void percentilesAreOrderedTest() {
+        SelfMetrics metrics = new SelfMetrics();
+        for (int k = 1; k <= 1000; k++) metrics.record(SelfMetrics.Phase.DIFF, k * 1000L);
+        double p50 = metrics.getPercentileMicros(SelfMetrics.Phase.DIFF, 0.5);
+        double p99 = metrics.getPercentileMicros(SelfMetrics.Phase.DIFF, 0.99);
+        assertEquals(500, p50, 500 / 8.0);
+        assertEquals(990, p99, 990 / 8.0);
+        assertEquals(1000, metrics.getMaxMicros(SelfMetrics.Phase.DIFF));
+        assertEquals(500.5, metrics.getMeanMicros(SelfMetrics.Phase.DIFF), 1e-9);
+        assertEquals(p99, metrics.getPercentileMicros("diff", 0.99));
+        assertThrows(IllegalArgumentException.class, () -> metrics.getPercentileMicros("nope", 0.5));
+    }
+
+    @Test
+    void registeredAsPlatformMBeanTest() throws JMException {
+        SelfMetrics metrics = new ThreadManager().getSelfMetrics();
+        metrics.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(SelfMetrics.OBJECT_NAME);
+        try {
+            assertTrue(server.isRegistered(name));
+            String[] phases = (String[]) server.getAttribute(name, "Phases");
+            assertEquals(Arrays.asList("ENUMERATION", "SAMPLING", "CONTENTION", "DIFF", "APPLY"), Arrays.asList(phases));
+            assertEquals(phases.length, ((double[]) server.getAttribute(name, "P99Micros")).length);
+            assertNotNull(server.getAttribute(name, "Summary"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import logic.InProcessSnapshotSource;
+import logic.SnapshotStreamer;
+import logic.ThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStreamerTest {
+
+    @Test
+    void ndjsonTest() throws IOException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread quoted = new Thread(() -> TestThreads.awaitQuietly(release), "streamed \"quoted\"\tname");
+        quoted.setDaemon(true);
+        quoted.start();
+        while (quoted.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SnapshotStreamer streamer = new SnapshotStreamer(
+                    new InProcessSnapshotSource(new ThreadManager(), false), SnapshotStreamer.Format.NDJSON, false, out);
+            streamer.run(50, 2);
+            assertEquals(2, streamer.getTicks());
+            String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+            assertEquals(2, lines.length);
+            for (String line : lines) {
+                assertTrue(line.startsWith("{\"type\":\"snapshot\",\"time\":"), line);
+                assertTrue(line.endsWith("]}"), line);
+                assertTrue(line.contains("\"id\":" + quoted.getId() + ",\"name\":\"streamed \\\"quoted\\\"\\u0009name\""), line);
+                assertTrue(line.contains("\"state\":\"WAITING\",\"daemon\":true,\"priority\":5,\"cpu\":"), line);
+            }
+        } finally {
+            release.countDown();
+            quoted.join();
+        }
+    }
+
+    @Test
+    void ndjsonDeltaTest() throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotStreamer streamer = new SnapshotStreamer(
+                new InProcessSnapshotSource(new ThreadManager(), false), SnapshotStreamer.Format.NDJSON, true, out);
+        streamer.writeTick();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread added = new Thread(() -> TestThreads.awaitQuietly(release), "streamed-added");
+        added.setDaemon(true);
+        added.start();
+        try {
+            streamer.writeTick();
+        } finally {
+            release.countDown();
+            added.join();
+        }
+        streamer.writeTick();
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"type\":\"delta\""), lines[0]);
+        assertTrue(lines[1].contains("\"added\":[") && lines[1].contains("\"name\":\"streamed-added\""), lines[1]);
+        assertFalse(lines[2].contains("streamed-added"), lines[2]);
+        assertTrue(lines[2].contains("\"removed\":[") && lines[2].contains(Long.toString(added.getId())), lines[2]);
+    }
+
+    @Test
+    void binaryFramesTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotStreamer streamer = new SnapshotStreamer(
+                new InProcessSnapshotSource(new ThreadManager(), false), SnapshotStreamer.Format.BINARY, true, out);
+        for (int tick = 0; tick < 3; tick++) streamer.writeTick();
+
+        byte[] bytes = out.toByteArray();
+        int position = 0;
+        int frames = 0;
+        int[] lengths = new int[3];
+        while (position < bytes.length) {
+            int length = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = bytes[position++] & 0xff;
+                length |= (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            lengths[frames++] = length;
+            position += length;
+        }
+        assertEquals(bytes.length, position);
+        assertEquals(3, frames);
+        assertTrue(lengths[2] < lengths[0], "a delta frame should be smaller than the keyframe");
+    }
+}
@@ -0,0 +1,20 @@
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Helpers shared by the tests that park threads until they are released.
+ */
+final class TestThreads {
+    private TestThreads() {
+    }
+
+    /**
+     * @effects waits for latch to reach zero; an interrupt ends the wait and is kept on the thread
+     */
+    static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import logic.ThreadDump;
+import logic.ThreadDumpDiff;
+import logic.ThreadManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadDumpTest {
+
+    @Test
+    void writeReadDiffTest(@TempDir Path directory) throws IOException, InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        Object lock = new Object();
+        Thread blocked = new Thread(() -> {
+            synchronized (lock) { }
+        }, "dump-blocked");
+        Path file = directory.resolve("threads.json.gz");
+        synchronized (lock) {
+            blocked.start();
+            while (blocked.getState() != Thread.State.BLOCKED) Thread.sleep(1);
+            threadManager.refresh();
+            assertTrue(threadManager.writeThreadDump(file) > 0);
+        }
+        blocked.join();
+        try (InputStream in = Files.newInputStream(file)) {
+            assertEquals(0x1f, in.read());
+        }
+        ThreadDump before = ThreadDump.read(file);
+        int index = before.indexOf(blocked.getId());
+        assertEquals("dump-blocked", before.getName(index));
+        assertEquals(Thread.State.BLOCKED, before.getState(index));
+        assertEquals(Thread.currentThread().getId(), before.getLockOwnerId(index));
+        assertTrue(before.getLockName(index).startsWith("java.lang.Object@"));
+        assertTrue(before.getStack(before.getStackId(index))[0].startsWith("ThreadDumpTest.lambda$"));
+
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] waiting = new Thread[3];
+        for (int i = 0; i < waiting.length; i++) {
+            waiting[i] = new Thread(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // exit
+                }
+            }, "dump-waiting-" + i);
+            waiting[i].start();
+        }
+        try {
+            for (Thread thread : waiting) {
+                while (thread.getState() != Thread.State.WAITING) Thread.sleep(1);
+            }
+            threadManager.refresh();
+            ThreadDump after = threadManager.captureThreadDump();
+            ThreadDumpDiff diff = ThreadDumpDiff.between(before, after);
+
+            boolean gone = false;
+            for (int i : diff.getRemoved()) gone |= before.getId(i) == blocked.getId();
+            assertTrue(gone);
+            // the three waiting threads share one stack
+            List<int[]> groups = after.groupByStack(diff.getAdded());
+            int[] largest = groups.get(0);
+            assertEquals(3, largest.length);
+            for (int i : largest) assertTrue(after.getName(i).startsWith("dump-waiting-"));
+
+            StringBuilder report = new StringBuilder();
+            diff.writeReport(report, 10);
+            assertTrue(report.toString().contains("Gone ("));
+            assertTrue(report.toString().contains("\"dump-blocked\" BLOCKED"));
+            assertTrue(report.toString().contains("3 threads"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void notADumpTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("other.json");
+        Files.writeString(file, "{\"threadDump\":{\"threads\":[]}}");
+        assertThrows(IOException.class, () -> ThreadDump.read(file));
+    }
+}
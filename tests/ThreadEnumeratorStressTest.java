@@ -0,0 +1,77 @@
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadEnumeratorStressTest {
+
+    private static final int SENTINELS = 50;
+    private static final int SPAWNERS = 4;
+    private static final long CHURN_MILLIS = 2000;
+
+    @Test
+    void enumerationUnderChurnTest() throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> sentinels = new ArrayList<>();
+        for (int i = 0; i < SENTINELS; i++) {
+            Thread sentinel = new Thread(() -> TestThreads.awaitQuietly(release), "sentinel-" + i);
+            sentinel.setDaemon(true);
+            sentinel.start();
+            sentinels.add(sentinel);
+        }
+
+        AtomicBoolean churning = new AtomicBoolean(true);
+        AtomicLong spawned = new AtomicLong();
+        List<Thread> spawners = new ArrayList<>();
+        for (int s = 0; s < SPAWNERS; s++) {
+            Thread spawner = new Thread(() -> {
+                while (churning.get()) {
+                    Thread shortLived = new Thread(() -> { }, "churn");
+                    shortLived.setDaemon(true);
+                    shortLived.start();
+                    spawned.incrementAndGet();
+                }
+            }, "spawner-" + s);
+            spawner.setDaemon(true);
+            spawner.start();
+            spawners.add(spawner);
+        }
+
+        try {
+            long deadline = System.currentTimeMillis() + CHURN_MILLIS;
+            int passes = 0;
+            while (System.currentTimeMillis() < deadline) {
+                Thread[] threads = threadManager.getAllThreads();
+                for (Thread thread : threads) assertNotNull(thread);
+                for (Thread sentinel : sentinels) assertTrue(contains(threads, sentinel), sentinel.getName() + " was lost");
+
+                ThreadSnapshot snapshot = threadManager.refresh();
+                for (Thread sentinel : sentinels) {
+                    assertTrue(snapshot.indexOf(sentinel.getId()) >= 0, sentinel.getName() + " missing from snapshot");
+                }
+                passes++;
+            }
+            assertTrue(passes > 0);
+            assertTrue(spawned.get() > 0);
+        } finally {
+            churning.set(false);
+            release.countDown();
+            for (Thread spawner : spawners) spawner.join();
+        }
+    }
+
+    private static boolean contains(Thread[] threads, Thread wanted) {
+        for (Thread thread : threads) {
+            if (thread == wanted) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+import logic.NativeMemorySummary;
+import logic.ThreadFootprint;
+import logic.ThreadManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadFootprintTest {
+    private static final int THREADS = 4;
+    private static final int DEPTH = 100;
+
+    private final CountDownLatch started = new CountDownLatch(THREADS + 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void parseSummaryTest() {
+        NativeMemorySummary summary = NativeMemorySummary.parse(String.join("\n",
+                "-                     Class (reserved=1049665KB, committed=1089KB)",
+                "                            (classes #1012)",
+                " ",
+                "-                    Thread (reserved=13348KB, committed=728KB)",
+                "                            (thread #13)",
+                "                            (stack: reserved=13312KB, committed=692KB)",
+                "                            (malloc=23KB #82) ",
+                "                            (arena=13KB #24)",
+                " ",
+                "-                      Code (reserved=247774KB, committed=7838KB)",
+                "                            (malloc=30KB #1096) "));
+        assertTrue(summary.isAvailable());
+        assertEquals(13, summary.getThreads());
+        assertEquals(13348L << 10, summary.getReserved());
+        assertEquals(728L << 10, summary.getCommitted());
+        assertEquals(13312L << 10, summary.getStackReserved());
+        assertEquals(692L << 10, summary.getStackCommitted());
+        assertEquals(36L << 10, summary.getNative());
+
+        assertFalse(NativeMemorySummary.parse("Native memory tracking is not enabled").isAvailable());
+    }
+
+    @Test
+    void groupRollupTest() throws InterruptedException {
+        ThreadGroup group = new ThreadGroup("footprint-group");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(group, () -> descend(DEPTH), "footprint-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        // same name, rolled up on its own
+        Thread twin = new Thread(new ThreadGroup("footprint-group"), () -> descend(DEPTH), "footprint-twin");
+        twin.setDaemon(true);
+        twin.start();
+        threads.add(twin);
+        try {
+            started.await();
+            ThreadManager threadManager = new ThreadManager();
+            threadManager.refresh();
+            ThreadFootprint footprint = threadManager.measureFootprint();
+            int g = -1;
+            for (int i = 0; i < footprint.getGroupCount(); i++) if (footprint.getThreadGroup(i) == group) g = i;
+            assertTrue(g >= 0, "no footprint-group");
+            assertEquals(THREADS, footprint.getGroupThreads(g));
+            int twinGroup = footprint.getGroupIndex(indexOf(footprint, twin.getId()));
+            assertNotEquals(g, twinGroup);
+            assertEquals("footprint-group", footprint.getGroup(twinGroup));
+            assertEquals(1, footprint.getGroupThreads(twinGroup));
+            assertTrue(footprint.getGroupMaxDepth(g) >= DEPTH);
+            assertTrue(footprint.getGroupMeanDepth(g) >= DEPTH);
+            long depths = 0;
+            long reserved = 0;
+            for (int i = 0; i < footprint.size(); i++) {
+                if (footprint.getGroupIndex(i) != g) continue;
+                depths += footprint.getDepth(i);
+                reserved += Math.max(0, footprint.getStackSize(i));
+            }
+            assertEquals(reserved, footprint.getGroupReserved(g));
+            assertEquals(THREADS * ThreadFootprint.VIRTUAL_THREAD_BYTES + depths * ThreadFootprint.FRAME_BYTES,
+                    footprint.getGroupVirtualEstimate(g));
+            if (footprint.getNativeMemory().isAvailable()) {
+                assertTrue(footprint.getGroupCommitted(g) > 0);
+                assertTrue(footprint.getTotalCommitted() <= footprint.getNativeMemory().getStackCommitted());
+            } else {
+                assertEquals(-1, footprint.getGroupCommitted(g));
+                assertEquals(-1, footprint.getGroupNative(g));
+            }
+            assertTrue(footprint.format(100).contains("footprint-group"));
+        } finally {
+            release.countDown();
+            for (Thread thread : threads) thread.join(1000);
+        }
+    }
+
+    private static int indexOf(ThreadFootprint footprint, long id) {
+        for (int i = 0; i < footprint.size(); i++) if (footprint.getId(i) == id) return i;
+        return -1;
+    }
+
+    private void descend(int frames) {
+        if (frames > 0) {
+            descend(frames - 1);
+            return;
+        }
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,13 @@
+import logic.SnapshotCollector;
+import logic.SnapshotDiff;
 import logic.ThreadManager;
+import logic.ThreadSnapshot;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -39,6 +43,87 @@ class ThreadManagerTest {
         assertTrue(check);
     }
 
+    @Test
+    void snapshotIndexTest(){
+        ThreadSnapshot snapshot = threadManager.refresh();
+        Thread current = Thread.currentThread();
+        assertSame(current, snapshot.findById(current.getId()));
+        assertTrue(snapshot.findByName(current.getName().toUpperCase()).contains(current));
+        assertTrue(snapshot.findByGroup(current.getThreadGroup()).contains(current));
+        assertSame(snapshot, threadManager.getSnapshot());
+    }
+
+    @Test
+    void killThreadTest() throws InterruptedException {
+        Thread thread = threadManager.createThread("killThreadTest");
+        thread.start();
+        threadManager.refresh();
+        threadManager.killThread(thread.getId());
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+    }
+
+    @Test
+    void snapshotDiffTest() throws InterruptedException {
+        SnapshotCollector collector = new SnapshotCollector(threadManager);
+        SnapshotDiff first = collector.collect();
+        assertEquals(first.getCurrent().size(), first.getAddedCount());
+
+        Thread thread = threadManager.createThread("snapshotDiffTest");
+        thread.start();
+        SnapshotDiff started = collector.collect();
+        int index = started.getCurrent().indexOf(thread.getId());
+        assertTrue(index >= 0);
+        boolean added = false;
+        for (int k = 0; k < started.getAddedCount(); k++) {
+            added |= started.getAddedIndex(k) == index;
+        }
+        assertTrue(added);
+
+        thread.setName("snapshotDiffTestRenamed");
+        SnapshotDiff renamed = collector.collect();
+        assertEquals(1, countChanged(renamed, thread.getId()));
+
+        thread.interrupt();
+        thread.join(2000);
+        SnapshotDiff stopped = collector.collect();
+        boolean removed = false;
+        for (int k = 0; k < stopped.getRemovedCount(); k++) {
+            removed |= stopped.getRemovedId(k) == thread.getId();
+        }
+        assertTrue(removed);
+        collector.shutdown();
+    }
+
+    @Test
+    void cpuAndAllocationSampleTest() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread spinner = new Thread(() -> {
+            long sink = 0;
+            while (running.get()) {
+                sink += new byte[64].length;
+            }
+            assertTrue(sink > 0);
+        }, "cpuAndAllocationSampleTest");
+        spinner.start();
+        threadManager.refresh();
+        Thread.sleep(200);
+        ThreadSnapshot snapshot = threadManager.refresh();
+        running.set(false);
+        spinner.join();
+        int index = snapshot.indexOf(spinner.getId());
+        assertTrue(snapshot.getCpuPercent(index) > 10);
+        assertTrue(snapshot.getAllocationRate(index) > 0);
+    }
+
+    private int countChanged(SnapshotDiff diff, long id) {
+        int count = 0;
+        for (int k = 0; k < diff.getChangedCount(); k++) {
+            if (diff.getCurrent().getId(diff.getChangedIndex(k)) == id) count++;
+        }
+        return count;
+    }
+
     private boolean checkThreads(ArrayList<Thread> threads, ThreadGroup threadGroup) {
         for (Thread thread :
              threads) {
@@ -0,0 +1,100 @@
+import model.ThreadModel;
+import model.ThreadRows;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadRowsTest {
+    private static final int THREADS = 2000;
+    private static final int VISIBLE = 30;
+
+    @Test
+    void steadyStateAllocationTest() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) return;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        String[] names = new String[THREADS];
+        for (int i = 0; i < THREADS; i++) names[i] = "worker-" + i;
+        ThreadRows rows = new ThreadRows();
+        for (int i = 0; i < THREADS; i++) {
+            ThreadModel row = rows.add(i, names[i], "main", i % 2 == 0, 5, Thread.State.WAITING, 0, 0, 0);
+            // the rows on screen have their cells bound
+            if (i < VISIBLE) {
+                row.nameProperty();
+                row.stateProperty();
+                row.cpuProperty();
+            }
+        }
+
+        for (int tick = 0; tick < 500; tick++) tick(rows, names, tick);
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        for (int tick = 500; tick < 1500; tick++) tick(rows, names, tick);
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(THREADS, rows.size());
+        // a thousand ticks of two thousand rows; a single new row or boxed id per tick would exceed this
+        assertTrue(allocated < 16 * 1024, "steady-state ticks allocated " + allocated + " bytes");
+    }
+
+    /**
+     * Updates every row with its unchanged values, and replaces one thread by a new one.
+     */
+    private static void tick(ThreadRows rows, String[] names, int tick) {
+        for (int i = 0; i < THREADS; i++) {
+            ThreadModel row = rows.get(i);
+            row.update(names[i], "main", i % 2 == 0, 5, Thread.State.WAITING, 0, 0, 0);
+        }
+        int replaced = VISIBLE + tick % (THREADS - VISIBLE);
+        ThreadModel gone = rows.remove(replaced);
+        ThreadModel added = rows.add(replaced, names[replaced], "main", replaced % 2 == 0, 5, Thread.State.WAITING,
+                0, 0, 0);
+        assertSame(gone, added);
+    }
+
+    @Test
+    void lazyPropertiesTest() {
+        ThreadRows rows = new ThreadRows();
+        ThreadModel row = rows.add(42, "a", "main", true, 5, Thread.State.RUNNABLE, 1, 1, 100);
+        row.update("b", "main", true, 6, Thread.State.BLOCKED, 2, 1, 100);
+        assertFalse(row.hasProperties());
+        assertEquals(6, row.getPriority());
+        assertEquals("daemon", row.getType());
+
+        assertEquals("b", row.nameProperty().get());
+        row.update("c", "main", false, 6, Thread.State.WAITING, 2, 1, 100);
+        assertEquals("c", row.nameProperty().get());
+        assertEquals(Thread.State.WAITING, row.stateProperty().get());
+        assertEquals("non-daemon", row.typeProperty().get());
+
+        row.setDeadlocked(true);
+        assertTrue(row.deadlockedProperty().get());
+        assertSame(row, rows.remove(42));
+        assertNull(rows.get(42));
+        ThreadModel reused = rows.add(7, "d", "other", false, 5, Thread.State.NEW, 0, 0, 0);
+        assertSame(row, reused);
+        assertEquals(7, reused.idProperty().get());
+        assertEquals("d", reused.nameProperty().get());
+        assertFalse(reused.deadlockedProperty().get());
+    }
+
+    @Test
+    void numericSortTest() {
+        ThreadRows rows = new ThreadRows();
+        List<ThreadModel> list = new ArrayList<>();
+        list.add(rows.add(100, "x", "main", false, 10, Thread.State.WAITING, 12.5, 0, 0));
+        list.add(rows.add(9, "y", "main", false, 2, Thread.State.RUNNABLE, 2.5, 0, 0));
+        list.add(rows.add(10, "z", "main", false, 1, Thread.State.BLOCKED, -1, 0, 0));
+
+        list.sort(ThreadModel.BY_ID);
+        assertEquals(List.of(9L, 10L, 100L), List.of(list.get(0).getId(), list.get(1).getId(), list.get(2).getId()));
+        list.sort(ThreadModel.BY_PRIORITY);
+        assertEquals(List.of(1, 2, 10), List.of(list.get(0).getPriority(), list.get(1).getPriority(), list.get(2).getPriority()));
+        list.sort(ThreadModel.BY_CPU.reversed());
+        assertEquals(100, list.get(0).getId());
+        assertEquals(10, list.get(2).getId());
+    }
+}
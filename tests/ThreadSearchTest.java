@@ -0,0 +1,80 @@
+import logic.ThreadManager;
+import logic.ThreadQuery;
+import logic.ThreadSearchIndex;
+import logic.ThreadSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadSearchTest {
+
+    @Test
+    void queryTest() throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread worker = new Thread(() -> TestThreads.awaitQuietly(release), "Search-Worker-1");
+        worker.setDaemon(true);
+        worker.setPriority(7);
+        worker.start();
+        while (worker.getState() != Thread.State.WAITING) Thread.onSpinWait();
+        try {
+            ThreadSnapshot snapshot = threadManager.refresh();
+            int i = snapshot.indexOf(worker.getId());
+            assertTrue(ThreadQuery.parse("").matches(snapshot, i));
+            assertTrue(ThreadQuery.parse("worker-1").matches(snapshot, i));
+            assertTrue(ThreadQuery.parse("name~^search-w.*\\d$ state:wait daemon:true prio>=7").matches(snapshot, i));
+            assertTrue(ThreadQuery.parse("group:" + snapshot.getGroupName(i) + " cpu>=0 alloc<1GB").matches(snapshot, i));
+            assertTrue(ThreadQuery.parse("id:" + worker.getId()).matches(snapshot, i));
+            assertFalse(ThreadQuery.parse("-worker").matches(snapshot, i));
+            assertFalse(ThreadQuery.parse("worker state:BLOCKED").matches(snapshot, i));
+            assertFalse(ThreadQuery.parse("\"worker 1\"").matches(snapshot, i));
+            assertTrue(ThreadQuery.parse("worker").withGroup(snapshot.getGroupName(i)).matches(snapshot, i));
+            assertFalse(ThreadQuery.parse("worker").withGroup("no-such-group").matches(snapshot, i));
+
+            assertThrows(IllegalArgumentException.class, () -> ThreadQuery.parse("state:SLEEPING"));
+            assertThrows(IllegalArgumentException.class, () -> ThreadQuery.parse("cpu>lots"));
+            assertThrows(IllegalArgumentException.class, () -> ThreadQuery.parse("name~(unclosed"));
+            assertThrows(IllegalArgumentException.class, () -> ThreadQuery.parse("\"unclosed"));
+        } finally {
+            release.countDown();
+            worker.join();
+        }
+    }
+
+    @Test
+    void incrementalIndexTest() throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        ThreadSearchIndex index = new ThreadSearchIndex();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] indexed = new Thread[20];
+        for (int k = 0; k < indexed.length; k++) {
+            indexed[k] = new Thread(() -> TestThreads.awaitQuietly(release), "indexed-" + k);
+            indexed[k].setDaemon(true);
+            indexed[k].start();
+        }
+        try {
+            index.update(threadManager.refresh());
+            assertEquals(20, index.search(ThreadQuery.parse("INDEXED-")).length);
+            assertArrayEquals(new long[]{indexed[13].getId()}, index.search(ThreadQuery.parse("indexed-13")));
+            assertEquals(0, index.search(ThreadQuery.parse("no-such-thread")).length);
+            assertEquals(11, index.search(ThreadQuery.parse("indexed-1")).length);
+
+            indexed[13].setName("renamed-13");
+            index.update(threadManager.refresh());
+            assertEquals(0, index.search(ThreadQuery.parse("indexed-13")).length);
+            assertArrayEquals(new long[]{indexed[13].getId()}, index.search(ThreadQuery.parse("renamed")));
+            // a query without a fragment to look up is checked against every thread
+            assertEquals(20, index.search(ThreadQuery.parse("name~^(indexed|renamed)-\\d+$")).length);
+        } finally {
+            release.countDown();
+            for (Thread thread : indexed) thread.join();
+        }
+        index.update(threadManager.refresh());
+        assertEquals(0, index.search(ThreadQuery.parse("indexed")).length);
+        long[] all = index.search(ThreadQuery.parse("daemon:false"));
+        assertTrue(Arrays.stream(all).anyMatch(id -> id == Thread.currentThread().getId()));
+    }
+}
@@ -0,0 +1,77 @@
+import logic.ThreadManager;
+import logic.VirtualThreadDump;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadDumpTest {
+
+    private static final String DUMP = "{\n"
+            + "  \"threadDump\": {\n"
+            + "    \"processId\": \"42\",\n"
+            + "    \"runtimeVersion\": \"21+35\",\n"
+            + "    \"threadContainers\": [\n"
+            + "      {\"container\": \"<root>\", \"parent\": null, \"owner\": null, \"threads\": [\n"
+            + "        {\"tid\": \"1\", \"name\": \"main\", \"stack\": [\"java.lang.Thread.sleep(Thread.java:1)\", \"Main.main(Main.java:3)\"]},\n"
+            + "        {\"tid\": \"21\", \"name\": \"ForkJoinPool-1-worker-1\", \"stack\": []}\n"
+            + "      ], \"threadCount\": \"2\"},\n"
+            + "      {\"container\": \"java.util.concurrent.ThreadPerTaskExecutor@1f\", \"parent\": \"<root>\", \"owner\": null, \"threads\": [\n"
+            + "        {\"tid\": \"30\", \"name\": \"\", \"stack\": [\"a.B.c(B.java:1)\", \"a.B.d(B.java:2)\", \"a.B.e(B.java:3)\"]},\n"
+            + "        {\"tid\": \"31\", \"name\": \"\", \"virtual\": true, \"carrier\": \"21\", \"stack\": [\"a.B.c(B.java:1)\"]},\n"
+            + "        {\"tid\": \"32\", \"name\": \"worker \\\"x\\\"\", \"stack\": []}\n"
+            + "      ], \"threadCount\": \"3\"}\n"
+            + "    ]\n"
+            + "  }\n"
+            + "}\n";
+
+    @Test
+    void parseTest() throws IOException {
+        VirtualThreadDump dump = VirtualThreadDump.parse(new StringReader(DUMP), id -> id == 1 || id == 21);
+        assertEquals(5, dump.size());
+        assertEquals(3, dump.getVirtualCount());
+        assertEquals(2, dump.getPlatformCount());
+
+        Map<String, Integer> byContainer = dump.countVirtualByContainer();
+        assertEquals(Integer.valueOf(3), byContainer.get("java.util.concurrent.ThreadPerTaskExecutor@1f"));
+        Map<Long, Integer> byCarrier = dump.countVirtualByCarrier();
+        assertEquals(Integer.valueOf(1), byCarrier.get(21L));
+        assertEquals(Integer.valueOf(2), byCarrier.get(VirtualThreadDump.NO_CARRIER));
+
+        int[] page = dump.getVirtualPage(1, 10);
+        assertEquals(2, page.length);
+        assertEquals(31, dump.getId(page[0]));
+        assertEquals(1, dump.getStackDepth(page[0]));
+        assertEquals("worker \"x\"", dump.getName(page[1]));
+        assertEquals(0, dump.getVirtualPage(10, 10).length);
+    }
+
+    @Test
+    void captureWhenSupportedTest() throws IOException {
+        ThreadManager threadManager = new ThreadManager();
+        if (!VirtualThreadDump.isSupported()) {
+            assertThrows(UnsupportedOperationException.class, threadManager::dumpVirtualThreads);
+            return;
+        }
+        VirtualThreadDump dump = threadManager.dumpVirtualThreads();
+        assertTrue(dump.getPlatformCount() > 0);
+    }
+
+    @Test
+    void createVirtualThreadTest() throws InterruptedException {
+        ThreadManager threadManager = new ThreadManager();
+        if (!threadManager.canCreateVirtualThreads()) {
+            assertThrows(UnsupportedOperationException.class, () -> threadManager.createThread("virtual", true));
+            return;
+        }
+        Thread thread = threadManager.createThread("virtual", true);
+        assertEquals("virtual", thread.getName());
+        thread.start();
+        thread.interrupt();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+    }
+}
@@ -0,0 +1,107 @@
+import logic.SnapshotDiff;
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import logic.Watchdog;
+import logic.WatchdogAlert;
+import logic.WatchdogRule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchdogTest {
+    private final ThreadManager threadManager = new ThreadManager();
+    private final List<WatchdogAlert> alerts = new ArrayList<>();
+    private ThreadSnapshot previous;
+
+    private int tick(Watchdog watchdog) {
+        ThreadSnapshot current = threadManager.refresh();
+        int fired = watchdog.update(SnapshotDiff.between(previous, current));
+        previous = current;
+        return fired;
+    }
+
+    @Test
+    void parseTest() {
+        WatchdogRule rule = WatchdogRule.parse("state:runnable cpu>50 stuck:5 for 1.5s -> log, stack");
+        assertEquals(1_500_000_000L, rule.getDurationNanos());
+        assertEquals(5, rule.getStuckSamples());
+        assertEquals(2, rule.getActions().size());
+        assertTrue(rule.getActions().contains(WatchdogRule.Action.STACK));
+        assertEquals(0, WatchdogRule.parse("cpu>90 -> notify").getDurationNanos());
+
+        assertThrows(IllegalArgumentException.class, () -> WatchdogRule.parse("cpu>90 for 10s"));
+        assertThrows(IllegalArgumentException.class, () -> WatchdogRule.parse("cpu>90 -> reboot"));
+        assertThrows(IllegalArgumentException.class, () -> WatchdogRule.parse("cpu>90 stuck:1 -> log"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> WatchdogRule.parseAll(Arrays.asList("# comment", "", "cpu>lots -> log")));
+        assertTrue(e.getMessage().startsWith("Line 3"));
+    }
+
+    @Test
+    void blockedForDurationTest() throws InterruptedException {
+        Object lock = new Object();
+        Thread blocked = new Thread(() -> {
+            synchronized (lock) { }
+        }, "watchdog-blocked");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        Watchdog watchdog = new Watchdog(
+                Collections.singletonList(WatchdogRule.parse("name:watchdog-blocked state:blocked for 200ms -> log,stack,notify")),
+                true, new PrintStream(log, true), alerts::add);
+        synchronized (lock) {
+            blocked.start();
+            while (blocked.getState() != Thread.State.BLOCKED) Thread.sleep(1);
+            assertEquals(0, tick(watchdog));
+            assertEquals(1, watchdog.getHolderCount());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (alerts.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                tick(watchdog);
+            }
+            // once per episode
+            Thread.sleep(50);
+            assertEquals(0, tick(watchdog));
+        }
+        blocked.join();
+        assertEquals(1, alerts.size());
+        WatchdogAlert alert = alerts.get(0);
+        assertEquals(blocked.getId(), alert.getThreadId());
+        assertTrue(alert.getHeldNanos() >= 200_000_000L);
+        assertNotNull(alert.getStack());
+        assertTrue(alert.getStack()[0].getMethodName().contains("lambda"));
+        assertTrue(log.toString().contains("\"watchdog-blocked\""));
+        tick(watchdog);
+        assertEquals(0, watchdog.getHolderCount());
+    }
+
+    @Test
+    void stuckInterruptTest() throws InterruptedException {
+        CountDownLatch never = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                // the watchdog interrupted us
+            }
+        }, "watchdog-stuck");
+        Watchdog watchdog = new Watchdog(
+                Collections.singletonList(WatchdogRule.parse("name:watchdog-stuck state:waiting stuck:3 -> interrupt")),
+                true, new PrintStream(new ByteArrayOutputStream()), alerts::add);
+        waiting.start();
+        while (waiting.getState() != Thread.State.WAITING) Thread.sleep(1);
+        assertEquals(0, tick(watchdog));
+        assertEquals(0, tick(watchdog));
+        assertEquals(1, tick(watchdog));
+        assertTrue(alerts.get(0).isInterrupted());
+        assertNull(alerts.get(0).getStack());
+        waiting.join(5000);
+        assertFalse(waiting.isAlive());
+    }
+}
@@ -0,0 +1,88 @@
+import logic.ThreadManager;
+import logic.ThreadSnapshot;
+import logic.Workload;
+import logic.WorkloadProfile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadTest {
+    private final ThreadManager threadManager = new ThreadManager();
+
+    @Test
+    void everyProfileRunsAndStopsTest() throws IOException, InterruptedException {
+        for (WorkloadProfile profile : WorkloadProfile.values()) {
+            Workload workload = threadManager.startWorkload(profile, 3, profile == WorkloadProfile.CHURN ? 200 : 0);
+            try {
+                long deadline = System.currentTimeMillis() + 5000;
+                while (workload.getOperations() == 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+                assertTrue(workload.getOperations() > 0, profile + " did no work");
+                assertTrue(threadManager.getWorkloads().contains(workload));
+            } finally {
+                threadManager.stopWorkload(workload);
+            }
+            assertFalse(workload.isRunning());
+            assertEquals(0, workload.getAliveCount(), profile + " left threads behind");
+            assertFalse(threadManager.getWorkloads().contains(workload));
+        }
+    }
+
+    @Test
+    void workloadsShareTheirProfilesGroupTest() throws IOException, InterruptedException {
+        Workload first = threadManager.startWorkload(WorkloadProfile.CPU_SPIN, 1, 100);
+        Workload second = threadManager.startWorkload(WorkloadProfile.CPU_SPIN, 1, 100);
+        try {
+            ThreadSnapshot snapshot = threadManager.refresh();
+            ThreadGroup group = snapshot.findByName(first.getName() + "-0").get(0).getThreadGroup();
+            assertSame(group, snapshot.findByName(second.getName() + "-0").get(0).getThreadGroup());
+            assertEquals("workload-cpu-spin", group.getName());
+
+            // stopping one leaves the other's threads in the shared group alone
+            threadManager.stopWorkload(first);
+            assertEquals(1, second.getAliveCount());
+            long operations = second.getOperations();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (second.getOperations() == operations && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertTrue(second.getOperations() > operations);
+        } finally {
+            threadManager.stopWorkload(first);
+            threadManager.stopWorkload(second);
+        }
+    }
+
+    @Test
+    void contendedMonitorBlocksTest() throws IOException, InterruptedException {
+        Workload workload = threadManager.startWorkload(WorkloadProfile.CONTENDED_MONITOR, 4, 0);
+        try {
+            boolean sawBlocked = false;
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!sawBlocked && System.currentTimeMillis() < deadline) {
+                ThreadSnapshot snapshot = threadManager.refresh();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    sawBlocked |= snapshot.getName(i).startsWith(workload.getName())
+                            && snapshot.getState(i) == Thread.State.BLOCKED;
+                }
+                Thread.sleep(5);
+            }
+            assertTrue(sawBlocked);
+        } finally {
+            threadManager.stopWorkload(workload);
+        }
+    }
+
+    @Test
+    void rateLimitsOperationsTest() throws IOException, InterruptedException {
+        Workload workload = threadManager.startWorkload(WorkloadProfile.CPU_SPIN, 2, 50);
+        try {
+            Thread.sleep(500);
+            // 50/s for half a second, with each thread allowed one early operation
+            assertTrue(workload.getOperations() <= 30, "ran " + workload.getOperations() + " operations");
+        } finally {
+            threadManager.stopWorkload(workload);
+        }
+        assertThrows(IllegalArgumentException.class, () -> threadManager.startWorkload(WorkloadProfile.CPU_SPIN, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> threadManager.startWorkload(WorkloadProfile.CPU_SPIN, 1, -1));
+    }
+}